@@ -15,6 +15,9 @@
  */
 package com.alibaba.nacos.client.config.impl;
 
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
 import com.alibaba.nacos.api.common.Constants;
 import com.alibaba.nacos.api.config.listener.Listener;
 import com.alibaba.nacos.api.exception.NacosException;
@@ -42,12 +45,13 @@ import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicReference;
 
 import static com.alibaba.nacos.api.common.Constants.LINE_SEPARATOR;
 import static com.alibaba.nacos.api.common.Constants.WORD_SEPARATOR;
@@ -61,6 +65,10 @@ public class ClientWorker {
 
     private static final Logger LOGGER = LogUtils.logger(ClientWorker.class);
 
+    private static final String BATCH_GET_REQUEST = "Fetching-Configs";
+
+    private static final long BATCH_GET_RETRY_INTERVAL = TimeUnit.MINUTES.toMillis(5L);
+
     public void addListeners(String dataId, String group, List<? extends Listener> listeners) {
         group = null2defaultGroup(group);
         CacheData cache = addCacheDataIfAbsent(dataId, group);
@@ -103,26 +111,27 @@ public class ClientWorker {
 
     void removeCache(String dataId, String group) {
         String groupKey = GroupKey.getKey(dataId, group);
-        synchronized (cacheMap) {
-            Map<String, CacheData> copy = new HashMap<String, CacheData>(cacheMap.get());
-            copy.remove(groupKey);
-            cacheMap.set(copy);
-        }
-        LOGGER.info("[{}] [unsubscribe] {}", agent.getName(), groupKey);
-
-        MetricsMonitor.getListenConfigCountMonitor().set(cacheMap.get().size());
+        removeCache(groupKey);
     }
 
     void removeCache(String dataId, String group, String tenant) {
         String groupKey = GroupKey.getKeyTenant(dataId, group, tenant);
+        removeCache(groupKey);
+    }
+
+    private void removeCache(String groupKey) {
         synchronized (cacheMap) {
-            Map<String, CacheData> copy = new HashMap<String, CacheData>(cacheMap.get());
-            copy.remove(groupKey);
-            cacheMap.set(copy);
+            CacheData cache = cacheMap.remove(groupKey);
+            if (null != cache) {
+                Map<String, CacheData> bucket = cacheBuckets.get(cache.getTaskId());
+                if (null != bucket) {
+                    bucket.remove(groupKey);
+                }
+            }
         }
         LOGGER.info("[{}] [unsubscribe] {}", agent.getName(), groupKey);
 
-        MetricsMonitor.getListenConfigCountMonitor().set(cacheMap.get().size());
+        MetricsMonitor.getListenConfigCountMonitor().set(cacheMap.size());
     }
 
     public CacheData addCacheDataIfAbsent(String dataId, String group) {
@@ -143,18 +152,13 @@ public class ClientWorker {
                 //reset so that server not hang this check
                 cache.setInitializing(true);
             } else {
-                int taskId = cacheMap.get().size() / (int)ParamUtil.getPerTaskConfigSize();
-                cache.setTaskId(taskId);
+                addCache(key, cache);
             }
-
-            Map<String, CacheData> copy = new HashMap<String, CacheData>(cacheMap.get());
-            copy.put(key, cache);
-            cacheMap.set(copy);
         }
 
         LOGGER.info("[{}] [subscribe] {}", agent.getName(), key);
 
-        MetricsMonitor.getListenConfigCountMonitor().set(cacheMap.get().size());
+        MetricsMonitor.getListenConfigCountMonitor().set(cacheMap.size());
 
         return cache;
     }
@@ -175,19 +179,33 @@ public class ClientWorker {
                 cache = cacheFromMap;
                 // reset so that server not hang this check
                 cache.setInitializing(true);
+            } else {
+                addCache(key, cache);
             }
-
-            Map<String, CacheData> copy = new HashMap<String, CacheData>(cacheMap.get());
-            copy.put(key, cache);
-            cacheMap.set(copy);
         }
         LOGGER.info("[{}] [subscribe] {}", agent.getName(), key);
 
-        MetricsMonitor.getListenConfigCountMonitor().set(cacheMap.get().size());
+        MetricsMonitor.getListenConfigCountMonitor().set(cacheMap.size());
 
         return cache;
     }
 
+    /**
+     * 分配任务并加入任务的分桶，调用方持有cacheMap锁
+     */
+    private void addCache(String groupKey, CacheData cache) {
+        int taskId = cacheMap.size() / (int)ParamUtil.getPerTaskConfigSize();
+        cache.setTaskId(taskId);
+
+        ConcurrentMap<String, CacheData> bucket = cacheBuckets.get(taskId);
+        if (null == bucket) {
+            bucket = new ConcurrentHashMap<String, CacheData>();
+            cacheBuckets.put(taskId, bucket);
+        }
+        bucket.put(groupKey, cache);
+        cacheMap.put(groupKey, cache);
+    }
+
     public CacheData getCache(String dataId, String group) {
         return getCache(dataId, group, TenantUtil.getUserTenant());
     }
@@ -196,7 +214,7 @@ public class ClientWorker {
         if (null == dataId || null == group) {
             throw new IllegalArgumentException();
         }
-        return cacheMap.get().get(GroupKey.getKeyTenant(dataId, group, tenant));
+        return cacheMap.get(GroupKey.getKeyTenant(dataId, group, tenant));
     }
 
     public String getServerConfig(String dataId, String group, String tenant, long readTimeout)
@@ -250,6 +268,56 @@ public class ClientWorker {
         }
     }
 
+    /**
+     * 一次请求取回多个变更的配置，返回 groupKey -> content，content为null表示配置已删除。
+     * 没有取到的配置(如正在被修改)不在结果中，由调用方逐个重新获取。
+     */
+    Map<String, String> getServerConfigs(List<String> groupKeys, long readTimeout) throws NacosException {
+        StringBuilder sb = new StringBuilder();
+        for (String groupKey : groupKeys) {
+            String[] key = GroupKey.parseKey(groupKey);
+            sb.append(key[0]).append(WORD_SEPARATOR).append(key[1]);
+            if (key.length == 3 && StringUtils.isNotBlank(key[2])) {
+                sb.append(WORD_SEPARATOR).append(key[2]);
+            }
+            sb.append(LINE_SEPARATOR);
+        }
+
+        HttpResult result = null;
+        try {
+            List<String> params = Arrays.asList(BATCH_GET_REQUEST, sb.toString());
+            result = agent.httpPost(Constants.CONFIG_CONTROLLER_PATH + "/batch", null, params, agent.getEncode(),
+                readTimeout);
+        } catch (IOException e) {
+            LOGGER.error("[" + agent.getName() + "] [sub-server] batch get server config exception", e);
+            throw new NacosException(NacosException.SERVER_ERROR, e.getMessage());
+        }
+
+        if (HttpURLConnection.HTTP_OK != result.code) {
+            LOGGER.error("[{}] [sub-server-error] batch get server config, code={}", agent.getName(), result.code);
+            throw new NacosException(result.code, "http error, code=" + result.code);
+        }
+
+        Map<String, String> contents = new HashMap<String, String>(groupKeys.size());
+        JSONArray items = JSON.parseArray(result.content);
+        for (int i = 0; i < items.size(); i++) {
+            JSONObject item = items.getJSONObject(i);
+            String dataId = item.getString("dataId");
+            String group = item.getString("group");
+            String tenant = item.getString("tenant");
+            int code = item.getIntValue("code");
+            if (HttpURLConnection.HTTP_OK == code) {
+                String content = item.getString("content");
+                LocalConfigInfoProcessor.saveSnapshot(agent.getName(), dataId, group, tenant, content);
+                contents.put(GroupKey.getKeyTenant(dataId, group, tenant), content);
+            } else if (HttpURLConnection.HTTP_NOT_FOUND == code) {
+                LocalConfigInfoProcessor.saveSnapshot(agent.getName(), dataId, group, tenant, null);
+                contents.put(GroupKey.getKeyTenant(dataId, group, tenant), null);
+            }
+        }
+        return contents;
+    }
+
     private void checkLocalConfig(CacheData cacheData) {
         final String dataId = cacheData.dataId;
         final String group = cacheData.group;
@@ -297,7 +365,7 @@ public class ClientWorker {
 
     public void checkConfigInfo() {
         // 分任务
-        int listenerSize = cacheMap.get().size();
+        int listenerSize = cacheMap.size();
         // 向上取整为批数
         int longingTaskCount = (int)Math.ceil(listenerSize / ParamUtil.getPerTaskConfigSize());
         if (longingTaskCount > currentLongingTaskCount) {
@@ -458,9 +526,10 @@ public class ClientWorker {
         public void run() {
             try {
                 List<CacheData> cacheDatas = new ArrayList<CacheData>();
-                // check failover config
-                for (CacheData cacheData : cacheMap.get().values()) {
-                    if (cacheData.getTaskId() == taskId) {
+                // check failover config, only of the configs of this task
+                Map<String, CacheData> bucket = cacheBuckets.get(taskId);
+                if (null != bucket) {
+                    for (CacheData cacheData : bucket.values()) {
                         cacheDatas.add(cacheData);
                         try {
                             checkLocalConfig(cacheData);
@@ -477,6 +546,18 @@ public class ClientWorker {
                 // check server config
                 List<String> changedGroupKeys = checkUpdateDataIds(cacheDatas, inInitializingCacheList);
 
+                Map<String, String> batchContents = Collections.emptyMap();
+                if (changedGroupKeys.size() > 1 && System.currentTimeMillis() >= batchGetRetryTime) {
+                    try {
+                        batchContents = getServerConfigs(changedGroupKeys, 3000L);
+                    } catch (Exception e) {
+                        // 服务端不支持或请求失败，退回逐个获取，过一段时间再尝试批量获取
+                        batchGetRetryTime = System.currentTimeMillis() + BATCH_GET_RETRY_INTERVAL;
+                        LOGGER.warn("[{}] [get-update] batch get changed configs failed, fetch one by one: {}",
+                            agent.getName(), e.getMessage());
+                    }
+                }
+
                 for (String groupKey : changedGroupKeys) {
                     String[] key = GroupKey.parseKey(groupKey);
                     String dataId = key[0];
@@ -486,8 +567,9 @@ public class ClientWorker {
                         tenant = key[2];
                     }
                     try {
-                        String content = getServerConfig(dataId, group, tenant, 3000L);
-                        CacheData cache = cacheMap.get().get(GroupKey.getKeyTenant(dataId, group, tenant));
+                        String content = batchContents.containsKey(groupKey) ? batchContents.get(groupKey)
+                            : getServerConfig(dataId, group, tenant, 3000L);
+                        CacheData cache = cacheMap.get(GroupKey.getKeyTenant(dataId, group, tenant));
                         cache.setContent(content);
                         LOGGER.info("[{}] [data-received] dataId={}, group={}, tenant={}, md5={}, content={}",
                             agent.getName(), dataId, group, tenant, cache.getMd5(),
@@ -530,8 +612,18 @@ public class ClientWorker {
     /**
      * groupKey -> cacheData
      */
-    AtomicReference<Map<String, CacheData>> cacheMap = new AtomicReference<Map<String, CacheData>>(
-        new HashMap<String, CacheData>());
+    final ConcurrentMap<String, CacheData> cacheMap = new ConcurrentHashMap<String, CacheData>();
+
+    /**
+     * taskId -> groupKey -> cacheData，每个长轮询任务只遍历自己的分桶
+     */
+    final ConcurrentMap<Integer, ConcurrentMap<String, CacheData>> cacheBuckets =
+        new ConcurrentHashMap<Integer, ConcurrentMap<String, CacheData>>();
+
+    /**
+     * 批量获取失败后，到这个时间之前都逐个获取变更的配置
+     */
+    private volatile long batchGetRetryTime = 0L;
 
     HttpAgent agent;
     ConfigFilterChainManager configFilterChainManager;
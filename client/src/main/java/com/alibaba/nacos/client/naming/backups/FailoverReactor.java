@@ -19,6 +19,7 @@ import com.alibaba.fastjson.JSON;
 import com.alibaba.nacos.api.naming.pojo.ServiceInfo;
 import com.alibaba.nacos.client.naming.cache.ConcurrentDiskUtil;
 import com.alibaba.nacos.client.naming.cache.DiskCache;
+import com.alibaba.nacos.client.naming.cache.SnapshotStore;
 import com.alibaba.nacos.client.naming.core.HostReactor;
 import com.alibaba.nacos.client.naming.utils.CollectionUtils;
 import com.alibaba.nacos.client.naming.utils.StringUtils;
@@ -40,15 +41,24 @@ public class FailoverReactor {
 
     private String failoverDir;
 
-    private HostReactor hostReactor;
+    private SnapshotStore snapshotStore;
 
     public FailoverReactor(HostReactor hostReactor, String cacheDir) {
-        this.hostReactor = hostReactor;
+        this.snapshotStore = hostReactor.getSnapshotStore();
         this.failoverDir = cacheDir + "/failover";
         this.init();
     }
 
+    /**
+     * Services put into the failover directory by hand, they take precedence over {@link #snapshot}.
+     */
     private Map<String, ServiceInfo> serviceMap = new ConcurrentHashMap<String, ServiceInfo>();
+
+    /**
+     * Snapshot file of the cache dir at the time failover mode was switched on.
+     */
+    private volatile SnapshotStore.Snapshot snapshot;
+
     private ScheduledExecutorService executorService = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
         @Override
         public Thread newThread(Runnable r) {
@@ -60,35 +70,18 @@ public class FailoverReactor {
     });
 
     private Map<String, String> switchParams = new ConcurrentHashMap<String, String>();
-    private static final long DAY_PERIOD_MINUTES = 24 * 60;
+    private static final long COMPACT_PERIOD_MINUTES = 30;
 
     public void init() {
 
         executorService.scheduleWithFixedDelay(new SwitchRefresher(), 0L, 5000L, TimeUnit.MILLISECONDS);
 
-        executorService.scheduleWithFixedDelay(new DiskFileWriter(), 30, DAY_PERIOD_MINUTES, TimeUnit.MINUTES);
-
-        // backup file on startup if failover directory is empty.
-        executorService.schedule(new Runnable() {
+        executorService.scheduleWithFixedDelay(new Runnable() {
             @Override
             public void run() {
-                try {
-                    File cacheDir = new File(failoverDir);
-
-                    if (!cacheDir.exists() && !cacheDir.mkdirs()) {
-                        throw new IllegalStateException("failed to create cache dir: " + failoverDir);
-                    }
-
-                    File[] files = cacheDir.listFiles();
-                    if (files == null || files.length <= 0) {
-                        new DiskFileWriter().run();
-                    }
-                } catch (Throwable e) {
-                    NAMING_LOGGER.error("[NA] failed to backup file on startup.", e);
-                }
-
+                snapshotStore.compactIfNecessary();
             }
-        }, 10000L, TimeUnit.MILLISECONDS);
+        }, COMPACT_PERIOD_MINUTES, COMPACT_PERIOD_MINUTES, TimeUnit.MINUTES);
     }
 
     public Date addDay(Date date, int num) {
@@ -146,6 +139,9 @@ public class FailoverReactor {
 
         @Override
         public void run() {
+            snapshot = snapshotStore.load();
+            NAMING_LOGGER.info("[NA] failover services from snapshot: " + snapshot.size());
+
             Map<String, ServiceInfo> domMap = new HashMap<String, ServiceInfo>(16);
 
             BufferedReader reader = null;
@@ -211,24 +207,6 @@ public class FailoverReactor {
         }
     }
 
-    class DiskFileWriter extends TimerTask {
-        public void run() {
-            Map<String, ServiceInfo> map = hostReactor.getServiceInfoMap();
-            for (Map.Entry<String, ServiceInfo> entry : map.entrySet()) {
-                ServiceInfo serviceInfo = entry.getValue();
-                if (StringUtils.equals(serviceInfo.getKey(), UtilAndComs.ALL_IPS) || StringUtils.equals(
-                    serviceInfo.getName(), UtilAndComs.ENV_LIST_KEY)
-                    || StringUtils.equals(serviceInfo.getName(), "00-00---000-ENV_CONFIGS-000---00-00")
-                    || StringUtils.equals(serviceInfo.getName(), "vipclient.properties")
-                    || StringUtils.equals(serviceInfo.getName(), "00-00---000-ALL_HOSTS-000---00-00")) {
-                    continue;
-                }
-
-                DiskCache.write(serviceInfo, failoverDir);
-            }
-        }
-    }
-
     public boolean isFailoverSwitch() {
         return Boolean.parseBoolean(switchParams.get("failover-mode"));
     }
@@ -236,6 +214,11 @@ public class FailoverReactor {
     public ServiceInfo getService(String key) {
         ServiceInfo serviceInfo = serviceMap.get(key);
 
+        SnapshotStore.Snapshot snapshot = this.snapshot;
+        if (serviceInfo == null && snapshot != null) {
+            serviceInfo = snapshot.get(key);
+        }
+
         if (serviceInfo == null) {
             serviceInfo = new ServiceInfo();
             serviceInfo.setName(key);
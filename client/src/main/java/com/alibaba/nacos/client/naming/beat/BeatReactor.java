@@ -15,11 +15,15 @@
  */
 package com.alibaba.nacos.client.naming.beat;
 
+import com.alibaba.fastjson.JSONObject;
 import com.alibaba.nacos.api.common.Constants;
 import com.alibaba.nacos.client.monitor.MetricsMonitor;
 import com.alibaba.nacos.client.naming.net.NamingProxy;
 import com.alibaba.nacos.client.naming.utils.UtilAndComs;
 
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.*;
 
@@ -32,8 +36,20 @@ import static com.alibaba.nacos.client.utils.LogUtils.NAMING_LOGGER;
  */
 public class BeatReactor {
 
+    /**
+     * 一次批量心跳请求最多包含的心跳数
+     */
+    private static final int MAX_BULK_BEAT_SIZE = 500;
+
+    /**
+     * 批量心跳失败后(比如服务端版本不支持)，在这段时间内改用单个心跳
+     */
+    private static final long BULK_BEAT_RETRY_INTERVAL = TimeUnit.MINUTES.toMillis(5);
+
     private ScheduledExecutorService executorService;
 
+    private volatile long bulkBeatRetryTime = 0L;
+
     private volatile long clientBeatInterval = 5 * 1000;
 
     private NamingProxy serverProxy;
@@ -87,6 +103,7 @@ public class BeatReactor {
         @Override
         public void run() {
             try {
+                List<BeatInfo> dueBeats = new ArrayList<BeatInfo>();
                 for (Map.Entry<String, BeatInfo> entry : dom2Beat.entrySet()) {
                     BeatInfo beatInfo = entry.getValue();
                     //如果是在这个周期已经发送过心跳了，就直接跳出
@@ -95,8 +112,22 @@ public class BeatReactor {
                     }
                     //然后设置这个心跳已经在这个周期发送过心跳了
                     beatInfo.setScheduled(true);
-                    //调用BeatTask，来进行发送心跳，而BeatTask的作用就是发送一次心跳，然后设置scheduled变为false
-                    //以便在下一次心跳检测的时候，能够继续发送心跳
+                    dueBeats.add(beatInfo);
+                }
+
+                //多个心跳合并成批量请求发送，服务端不支持时退回单个发送
+                if (dueBeats.size() > 1 && System.currentTimeMillis() >= bulkBeatRetryTime) {
+                    for (int i = 0; i < dueBeats.size(); i += MAX_BULK_BEAT_SIZE) {
+                        List<BeatInfo> beatInfos = new ArrayList<BeatInfo>(
+                            dueBeats.subList(i, Math.min(i + MAX_BULK_BEAT_SIZE, dueBeats.size())));
+                        executorService.schedule(new BulkBeatTask(beatInfos), 0, TimeUnit.MILLISECONDS);
+                    }
+                    return;
+                }
+
+                //调用BeatTask，来进行发送心跳，而BeatTask的作用就是发送一次心跳，然后设置scheduled变为false
+                //以便在下一次心跳检测的时候，能够继续发送心跳
+                for (BeatInfo beatInfo : dueBeats) {
                     executorService.schedule(new BeatTask(beatInfo), 0, TimeUnit.MILLISECONDS);
                 }
             } catch (Exception e) {
@@ -130,4 +161,49 @@ public class BeatReactor {
             }
         }
     }
+
+    /**
+     * 批量心跳的任务，失败时退回单个心跳
+     */
+    class BulkBeatTask implements Runnable {
+
+        List<BeatInfo> beatInfos;
+
+        public BulkBeatTask(List<BeatInfo> beatInfos) {
+            this.beatInfos = beatInfos;
+        }
+
+        @Override
+        public void run() {
+            JSONObject result = null;
+            int[] codes = null;
+            try {
+                result = serverProxy.sendBeats(beatInfos);
+                codes = result == null ? null : result.getObject("results", int[].class);
+            } catch (Exception e) {
+                NAMING_LOGGER.warn("[CLIENT-BEAT] failed to send bulk beat, fall back to single beats: {}",
+                    e.getMessage());
+            }
+
+            if (codes == null || codes.length != beatInfos.size()) {
+                bulkBeatRetryTime = System.currentTimeMillis() + BULK_BEAT_RETRY_INTERVAL;
+                for (BeatInfo beatInfo : beatInfos) {
+                    executorService.schedule(new BeatTask(beatInfo), 0, TimeUnit.MILLISECONDS);
+                }
+                return;
+            }
+
+            for (int i = 0; i < codes.length; i++) {
+                if (codes[i] != HttpURLConnection.HTTP_OK) {
+                    NAMING_LOGGER.warn("[CLIENT-BEAT] beat failed, code: {}, beat: {}", codes[i], beatInfos.get(i));
+                }
+                beatInfos.get(i).setScheduled(false);
+            }
+
+            Long interval = result.getLong("clientBeatInterval");
+            if (interval != null && interval > 0) {
+                clientBeatInterval = interval;
+            }
+        }
+    }
 }
@@ -91,6 +91,10 @@ public class DiskCache {
                     continue;
                 }
 
+                if (file.getName().startsWith(SnapshotStore.FILE_NAME)) {
+                    continue;
+                }
+
                 String fileName = URLDecoder.decode(file.getName(), "UTF-8");
 
                 if (!(fileName.endsWith(Constants.SERVICE_INFO_SPLITER + "meta") || fileName.endsWith(
@@ -0,0 +1,579 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.client.naming.cache;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.nacos.api.naming.pojo.ServiceInfo;
+import com.alibaba.nacos.client.naming.utils.CollectionUtils;
+import com.alibaba.nacos.client.naming.utils.StringUtils;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.CRC32;
+
+import static com.alibaba.nacos.client.utils.LogUtils.NAMING_LOGGER;
+
+/**
+ * Snapshots of all services of a cache dir, kept in one append-only file.
+ * <p>
+ * Every change appends a record of the service, the last record of a service wins. The file is read through a memory
+ * mapping and a record is only decoded when its service is asked for. Overwritten records are dropped by
+ * {@link #compactIfNecessary()}, which copies the live records to the file of the next generation.
+ * <p>
+ * A mapped file can not be replaced or deleted on every platform, so the file of a generation is never rewritten.
+ * The file with the highest generation is the current one, older ones are deleted once nobody maps them any more.
+ * <p>
+ * Clients sharing a cache dir share the file, appends and compactions hold a lock file.
+ *
+ * @author nacos
+ */
+public class SnapshotStore {
+
+    /**
+     * Name of the first generation, the file of generation n is named {@code FILE_NAME + "." + n}.
+     */
+    public static final String FILE_NAME = "services.snapshot";
+
+    private static final String LOCK_FILE_NAME = FILE_NAME + ".lock";
+
+    private static final String TMP_FILE_NAME = FILE_NAME + ".tmp";
+
+    private static final int MAGIC = 0x4E53534E;
+
+    private static final int VERSION = 1;
+
+    private static final int FILE_HEADER_LENGTH = 8;
+
+    /**
+     * Length of the key, length of the value and CRC32 of both.
+     */
+    private static final int RECORD_HEADER_LENGTH = 12;
+
+    /**
+     * Files below this size are only compacted if they are broken.
+     */
+    private static final long COMPACT_MIN_LENGTH = 1024 * 1024L;
+
+    private static final int MAX_LOAD_TIMES = 3;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * File locks are held by the whole JVM, stores of the same file in one JVM also synchronize on the same monitor.
+     */
+    private static final ConcurrentMap<String, Object> MONITORS = new ConcurrentHashMap<String, Object>();
+
+    private final File dir;
+
+    private final Object monitor;
+
+    /**
+     * The file appended to last and the end of its records, guarded by {@link #monitor}.
+     */
+    private File tailFile;
+
+    private long tailEnd;
+
+    public SnapshotStore(String cacheDir) {
+        this.dir = new File(cacheDir);
+
+        File file = new File(dir, FILE_NAME);
+        String path;
+        try {
+            path = file.getCanonicalPath();
+        } catch (IOException e) {
+            path = file.getAbsolutePath();
+        }
+        Object monitor = new Object();
+        Object previous = MONITORS.putIfAbsent(path, monitor);
+        this.monitor = previous == null ? monitor : previous;
+
+        // drops a record torn by a crash and the generations left behind by other clients
+        compactIfNecessary();
+    }
+
+    public void put(ServiceInfo serviceInfo) {
+        String json = serviceInfo.getJsonFromServer();
+        if (StringUtils.isEmpty(json)) {
+            json = JSON.toJSONString(serviceInfo);
+        }
+
+        byte[] key = serviceInfo.getKey().getBytes(UTF_8);
+        byte[] value = json.getBytes(UTF_8);
+        CRC32 crc = new CRC32();
+        crc.update(key);
+        crc.update(value);
+
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_LENGTH + key.length + value.length);
+        record.putInt(key.length).putInt(value.length).putInt((int) crc.getValue()).put(key).put(value);
+        record.flip();
+
+        try {
+            synchronized (monitor) {
+                FileLock lock = lock();
+                try {
+                    File file = appendable();
+                    RandomAccessFile raf = new RandomAccessFile(file, "rw");
+                    try {
+                        FileChannel channel = raf.getChannel();
+                        long position = channel.size();
+                        if (position < FILE_HEADER_LENGTH) {
+                            writeFully(channel, fileHeader(), 0L);
+                            position = FILE_HEADER_LENGTH;
+                        }
+                        tailEnd = writeFully(channel, record, position);
+                        tailFile = file;
+                    } finally {
+                        raf.close();
+                    }
+                } finally {
+                    release(lock);
+                }
+            }
+        } catch (Throwable e) {
+            NAMING_LOGGER.error("[NA] failed to write snapshot for dom:" + serviceInfo.getName(), e);
+        }
+    }
+
+    /**
+     * Map the current file as it is now, services are decoded by {@link Snapshot#get(String)}.
+     */
+    public Snapshot load() {
+        for (int i = 0; i < MAX_LOAD_TIMES; i++) {
+            File file = current();
+            try {
+                ByteBuffer buffer = map(file);
+                if (buffer == null) {
+                    return Snapshot.EMPTY;
+                }
+
+                Index index = scan(buffer);
+                return new Snapshot(buffer, index.records);
+            } catch (FileNotFoundException e) {
+                // deleted by the compaction of another client, load the next generation
+                NAMING_LOGGER.warn("[NA] snapshot file is gone: " + file);
+            } catch (Throwable e) {
+                NAMING_LOGGER.error("[NA] failed to load snapshot file: " + file, e);
+                return Snapshot.EMPTY;
+            }
+        }
+        return Snapshot.EMPTY;
+    }
+
+    /**
+     * Rewrite the file if more than half of it are overwritten records, or if it is broken.
+     */
+    public void compactIfNecessary() {
+        try {
+            synchronized (monitor) {
+                if (!dir.isDirectory()) {
+                    return;
+                }
+
+                FileLock lock = lock();
+                try {
+                    File file = current();
+                    if (file == null) {
+                        return;
+                    }
+                    deleteOlderGenerations(generation(file.getName()));
+
+                    ByteBuffer buffer = map(file);
+                    long length = buffer.limit();
+                    Index index = scan(buffer);
+                    long deadLength = index.end - FILE_HEADER_LENGTH - index.liveLength;
+                    boolean broken = !index.valid || index.end < length;
+                    if (!broken && (length < COMPACT_MIN_LENGTH || deadLength <= index.liveLength)) {
+                        return;
+                    }
+
+                    rewrite(file, buffer, index);
+                    NAMING_LOGGER.info("[NA] compacted snapshot file from " + length + " to "
+                        + (FILE_HEADER_LENGTH + index.liveLength) + " bytes, services: " + index.records.size()
+                        + ", broken: " + broken);
+                } finally {
+                    release(lock);
+                }
+            }
+        } catch (Throwable e) {
+            NAMING_LOGGER.error("[NA] failed to compact snapshot file in: " + dir, e);
+        }
+    }
+
+    /**
+     * @return the file with the highest generation, or null if there is none
+     */
+    File current() {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return null;
+        }
+
+        File current = null;
+        long currentGeneration = -1L;
+        for (File file : files) {
+            long generation = generation(file.getName());
+            if (generation > currentGeneration && file.isFile()) {
+                current = file;
+                currentGeneration = generation;
+            }
+        }
+        return current;
+    }
+
+    /**
+     * @return the generation of a snapshot file, or -1 if the file is not one
+     */
+    private static long generation(String fileName) {
+        if (FILE_NAME.equals(fileName)) {
+            return 0L;
+        }
+        if (!fileName.startsWith(FILE_NAME + ".")) {
+            return -1L;
+        }
+
+        String suffix = fileName.substring(FILE_NAME.length() + 1);
+        if (suffix.length() == 0 || suffix.length() > 18) {
+            return -1L;
+        }
+        for (int i = 0; i < suffix.length(); i++) {
+            if (!Character.isDigit(suffix.charAt(i))) {
+                return -1L;
+            }
+        }
+        return Long.parseLong(suffix);
+    }
+
+    private void rewrite(File file, ByteBuffer buffer, Index index) throws IOException {
+        File tmpFile = new File(dir, TMP_FILE_NAME);
+        RandomAccessFile raf = new RandomAccessFile(tmpFile, "rw");
+        try {
+            FileChannel channel = raf.getChannel();
+            channel.truncate(0L);
+            long position = writeFully(channel, fileHeader(), 0L);
+            for (Record record : index.records.values()) {
+                ByteBuffer slice = buffer.duplicate();
+                slice.limit(record.offset + record.length);
+                slice.position(record.offset);
+                position = writeFully(channel, slice, position);
+            }
+            channel.force(true);
+        } finally {
+            raf.close();
+        }
+
+        // the target never exists, so the rename does not depend on whether the old file is still mapped
+        long generation = generation(file.getName()) + 1;
+        File next = new File(dir, FILE_NAME + "." + generation);
+        if (!tmpFile.renameTo(next)) {
+            if (!tmpFile.delete()) {
+                NAMING_LOGGER.warn("[NA] failed to delete file: " + tmpFile);
+            }
+            throw new IOException("failed to rename " + tmpFile + " to " + next);
+        }
+        deleteOlderGenerations(generation);
+    }
+
+    /**
+     * Files still mapped by a snapshot can not be deleted on some platforms, they are retried on the next compaction.
+     */
+    private void deleteOlderGenerations(long generation) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        for (File file : files) {
+            long fileGeneration = generation(file.getName());
+            if (fileGeneration >= 0L && fileGeneration < generation && !file.delete() && file.exists()) {
+                NAMING_LOGGER.debug("[NA] snapshot file is still in use: " + file);
+            }
+        }
+    }
+
+    /**
+     * @return the current file, moved to the next generation first if a crash left a torn record at its end
+     */
+    private File appendable() throws IOException {
+        File file = current();
+        if (file == null) {
+            return new File(dir, FILE_NAME);
+        }
+
+        long length = file.length();
+        long end = validEnd(file, length);
+        if (end == length) {
+            return file;
+        }
+
+        // appends behind a torn record would never be read, and a mapped file can not be truncated everywhere
+        NAMING_LOGGER.warn("[NA] dropping " + (length - end) + " torn bytes of snapshot file: " + file);
+        ByteBuffer buffer = map(file);
+        rewrite(file, buffer, scan(buffer));
+        return current();
+    }
+
+    /**
+     * Find the end of the last complete record, only the records behind the previous append of this store are read.
+     */
+    private long validEnd(File file, long length) throws IOException {
+        long from = file.equals(tailFile) && tailEnd <= length ? tailEnd : 0L;
+        if (length - from > Integer.MAX_VALUE) {
+            throw new IOException("snapshot file is too large: " + length);
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) (length - from));
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, from + buffer.position()) < 0) {
+                    break;
+                }
+            }
+        } finally {
+            raf.close();
+        }
+        buffer.flip();
+
+        if (from > 0L) {
+            return from + scanRecords(buffer, 0, null);
+        }
+        return scan(buffer).end;
+    }
+
+    private ByteBuffer map(File file) throws IOException {
+        if (file == null) {
+            return null;
+        }
+
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("snapshot file is too large: " + size);
+            }
+            // the mapping stays valid after the file is closed
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0L, size);
+        } finally {
+            raf.close();
+        }
+    }
+
+    private FileLock lock() throws IOException {
+        if (!dir.exists() && !dir.mkdirs() && !dir.exists()) {
+            throw new IllegalStateException("failed to create cache dir: " + dir);
+        }
+
+        RandomAccessFile raf = new RandomAccessFile(new File(dir, LOCK_FILE_NAME), "rw");
+        try {
+            return raf.getChannel().lock();
+        } catch (IOException e) {
+            raf.close();
+            throw e;
+        } catch (RuntimeException e) {
+            raf.close();
+            throw e;
+        }
+    }
+
+    private static void release(FileLock lock) throws IOException {
+        try {
+            lock.release();
+        } finally {
+            lock.channel().close();
+        }
+    }
+
+    private static ByteBuffer fileHeader() {
+        ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_LENGTH);
+        header.putInt(MAGIC).putInt(VERSION);
+        header.flip();
+        return header;
+    }
+
+    private static long writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+        return position;
+    }
+
+    /**
+     * Find the last record of every service, up to the first record that is incomplete or corrupt.
+     */
+    static Index scan(ByteBuffer buffer) {
+        Index index = new Index();
+        int limit = buffer.limit();
+        if (limit < FILE_HEADER_LENGTH || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            index.valid = limit == 0;
+            index.end = 0;
+            return index;
+        }
+
+        index.end = scanRecords(buffer, FILE_HEADER_LENGTH, index);
+        return index;
+    }
+
+    /**
+     * @param index collects the records if not null
+     * @return the end of the last complete record from position on
+     */
+    private static int scanRecords(ByteBuffer buffer, int position, Index index) {
+        int limit = buffer.limit();
+        ByteBuffer view = buffer.duplicate();
+        byte[] bytes = new byte[256];
+        CRC32 crc = new CRC32();
+        while (position + RECORD_HEADER_LENGTH <= limit) {
+            int keyLength = buffer.getInt(position);
+            int valueLength = buffer.getInt(position + 4);
+            long end = (long) position + RECORD_HEADER_LENGTH + keyLength + valueLength;
+            if (keyLength <= 0 || valueLength < 0 || end > limit) {
+                break;
+            }
+
+            int length = (int) end - position;
+            if (bytes.length < length - RECORD_HEADER_LENGTH) {
+                bytes = new byte[length - RECORD_HEADER_LENGTH];
+            }
+            view.position(position + RECORD_HEADER_LENGTH);
+            view.get(bytes, 0, length - RECORD_HEADER_LENGTH);
+            crc.reset();
+            crc.update(bytes, 0, length - RECORD_HEADER_LENGTH);
+            if ((int) crc.getValue() != buffer.getInt(position + 8)) {
+                break;
+            }
+
+            if (index != null) {
+                String key = new String(bytes, 0, keyLength, UTF_8);
+                Record previous = index.records.put(key, new Record(position, length, keyLength));
+                index.liveLength += previous == null ? length : length - previous.length;
+            }
+            position = (int) end;
+        }
+        return position;
+    }
+
+    static class Index {
+
+        private final Map<String, Record> records = new HashMap<String, Record>(16);
+
+        private boolean valid = true;
+
+        private int end = FILE_HEADER_LENGTH;
+
+        private long liveLength = 0L;
+    }
+
+    private static class Record {
+
+        private final int offset;
+
+        private final int length;
+
+        private final int keyLength;
+
+        Record(int offset, int length, int keyLength) {
+            this.offset = offset;
+            this.length = length;
+            this.keyLength = keyLength;
+        }
+
+        int valueOffset() {
+            return offset + RECORD_HEADER_LENGTH + keyLength;
+        }
+
+        int valueLength() {
+            return length - RECORD_HEADER_LENGTH - keyLength;
+        }
+    }
+
+    /**
+     * Services of the file at the time it was loaded, each one is decoded once on first access.
+     */
+    public static class Snapshot {
+
+        private static final Snapshot EMPTY = new Snapshot(null, Collections.<String, Record>emptyMap());
+
+        private final ByteBuffer buffer;
+
+        private final Map<String, Record> records;
+
+        private final ConcurrentMap<String, ServiceInfo> decoded = new ConcurrentHashMap<String, ServiceInfo>();
+
+        private Snapshot(ByteBuffer buffer, Map<String, Record> records) {
+            this.buffer = buffer;
+            this.records = records;
+        }
+
+        public int size() {
+            return records.size();
+        }
+
+        public Set<String> keys() {
+            return Collections.unmodifiableSet(records.keySet());
+        }
+
+        /**
+         * @return the service, or null if there is no record of it or it has no instances
+         */
+        public ServiceInfo get(String key) {
+            ServiceInfo serviceInfo = decoded.get(key);
+            if (serviceInfo != null) {
+                return serviceInfo;
+            }
+
+            Record record = records.get(key);
+            if (record == null) {
+                return null;
+            }
+
+            byte[] value = new byte[record.valueLength()];
+            ByteBuffer view = buffer.duplicate();
+            view.position(record.valueOffset());
+            view.get(value);
+            String json = new String(value, UTF_8);
+
+            try {
+                serviceInfo = JSON.parseObject(json, ServiceInfo.class);
+            } catch (Throwable e) {
+                NAMING_LOGGER.error("[NA] error while parsing snapshot of dom: " + key, e);
+                return null;
+            }
+            if (serviceInfo == null || StringUtils.isEmpty(serviceInfo.getName())
+                || CollectionUtils.isEmpty(serviceInfo.getHosts())) {
+                return null;
+            }
+            serviceInfo.setJsonFromServer(json);
+
+            ServiceInfo previous = decoded.putIfAbsent(key, serviceInfo);
+            return previous == null ? serviceInfo : previous;
+        }
+    }
+}
@@ -23,6 +23,8 @@ import com.alibaba.nacos.client.naming.utils.Pair;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 import static com.alibaba.nacos.client.utils.LogUtils.NAMING_LOGGER;
@@ -37,6 +39,18 @@ public class Balancer {
      */
     public final static List<String> UNCONSISTENT_SERVICE_WITH_ADDRESS_SERVER = new CopyOnWriteArrayList<String>();
 
+    /**
+     * Max number of services whose chooser is cached, the cache is dropped as a whole once it is reached.
+     */
+    private final static int CHOOSER_CACHE_SIZE = 1024;
+
+    /**
+     * Chooser of the latest snapshot of every service, HostReactor installs a new ServiceInfo object whenever the
+     * service is updated, so a chooser is built only once per snapshot.
+     */
+    private final static ConcurrentMap<String, SnapshotChooser> CHOOSER_CACHE =
+        new ConcurrentHashMap<String, SnapshotChooser>();
+
     public static class RandomByWeight {
 
         public static List<Instance> selectAll(ServiceInfo serviceInfo) {
@@ -57,7 +71,7 @@ public class Balancer {
                 throw new IllegalStateException("no host to srv for service: " + dom.getName());
             }
 
-            return getHostByRandomWeight(hosts);
+            return getHostByRandomWeight(dom);
         }
 
         public static List<Instance> nothing(ServiceInfo serviceInfo) {
@@ -65,6 +79,26 @@ public class Balancer {
         }
     }
 
+    /**
+     * Return one host of the service snapshot by random-weight, with the cached chooser of the snapshot.
+     *
+     * @param serviceInfo The snapshot of the service.
+     * @return The random-weight result of the host
+     */
+    protected static Instance getHostByRandomWeight(ServiceInfo serviceInfo) {
+        String key = serviceInfo.getKey();
+        SnapshotChooser snapshotChooser = CHOOSER_CACHE.get(key);
+        if (snapshotChooser == null || snapshotChooser.serviceInfo != serviceInfo) {
+            snapshotChooser = new SnapshotChooser(serviceInfo, newChooser(serviceInfo.getHosts()));
+            if (CHOOSER_CACHE.size() >= CHOOSER_CACHE_SIZE && !CHOOSER_CACHE.containsKey(key)) {
+                // keys include the clusters asked for, so their number is up to the callers:
+                CHOOSER_CACHE.clear();
+            }
+            CHOOSER_CACHE.put(key, snapshotChooser);
+        }
+        return snapshotChooser.chooser.randomWithWeight();
+    }
+
     /**
      * Return one host from the host list by random-weight.
      *
@@ -78,20 +112,28 @@ public class Balancer {
             return null;
         }
 
-        Chooser<String, Instance> vipChooser = new Chooser<String, Instance>("www.taobao.com");
-
-        NAMING_LOGGER.debug("new Chooser");
+        return newChooser(hosts).randomWithWeight();
+    }
 
+    private static Chooser<String, Instance> newChooser(List<Instance> hosts) {
         List<Pair<Instance>> hostsWithWeight = new ArrayList<Pair<Instance>>();
         for (Instance host : hosts) {
             if (host.isHealthy()) {
                 hostsWithWeight.add(new Pair<Instance>(host, host.getWeight()));
             }
         }
-        NAMING_LOGGER.debug("for (Host host : hosts)");
-        vipChooser.refresh(hostsWithWeight);
-        NAMING_LOGGER.debug("vipChooser.refresh");
-        Instance host = vipChooser.randomWithWeight();
-        return host;
+        return new Chooser<String, Instance>("www.taobao.com", hostsWithWeight);
+    }
+
+    private static class SnapshotChooser {
+
+        private final ServiceInfo serviceInfo;
+
+        private final Chooser<String, Instance> chooser;
+
+        SnapshotChooser(ServiceInfo serviceInfo, Chooser<String, Instance> chooser) {
+            this.serviceInfo = serviceInfo;
+            this.chooser = chooser;
+        }
     }
 }
@@ -16,12 +16,15 @@
 package com.alibaba.nacos.client.naming.core;
 
 import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
 import com.alibaba.nacos.api.exception.NacosException;
 import com.alibaba.nacos.api.naming.pojo.Instance;
 import com.alibaba.nacos.api.naming.pojo.ServiceInfo;
 import com.alibaba.nacos.client.monitor.MetricsMonitor;
 import com.alibaba.nacos.client.naming.backups.FailoverReactor;
 import com.alibaba.nacos.client.naming.cache.DiskCache;
+import com.alibaba.nacos.client.naming.cache.SnapshotStore;
 import com.alibaba.nacos.client.naming.net.NamingProxy;
 import com.alibaba.nacos.client.naming.utils.StringUtils;
 import com.alibaba.nacos.client.naming.utils.UtilAndComs;
@@ -38,11 +41,37 @@ public class HostReactor {
 
     public static final long DEFAULT_DELAY = 1000L;
 
+    /**
+     * Delay before batch updates are tried again after a failure, e.g. when the server does not support them yet.
+     */
+    public static final long BATCH_UPDATE_RETRY_DELAY = 60000L;
+
+    /**
+     * Interval at which the batch update asks for every service regardless of its checksum, so a checksum that does
+     * not belong to the instances held here can not hide changes for longer than this.
+     */
+    public static final long BATCH_FULL_UPDATE_INTERVAL = 300000L;
+
     public long updateHoldInterval = 5000L;
 
     private final Map<String, ScheduledFuture<?>> futureMap = new HashMap<String, ScheduledFuture<?>>();
 
-    private Map<String, ServiceInfo> serviceInfoMap;
+    private final Map<String, UpdateTask> updateTaskMap = new ConcurrentHashMap<String, UpdateTask>();
+
+    /**
+     * Until this time all subscribed services are kept up to date by {@link BatchUpdateTask}, and the update task of
+     * every single service does not poll the server.
+     */
+    private volatile long batchUpdateExpireTime = 0L;
+
+    private ConcurrentMap<String, ServiceInfo> serviceInfoMap;
+
+    private SnapshotStore snapshotStore;
+
+    /**
+     * Services cached on disk at start, they are only decoded when they are asked for the first time.
+     */
+    private volatile SnapshotStore.Snapshot cachedSnapshot;
 
     private Map<String, Object> updatingMap;
 
@@ -78,21 +107,33 @@ public class HostReactor {
         this.eventDispatcher = eventDispatcher;
         this.serverProxy = serverProxy;
         this.cacheDir = cacheDir;
+        this.snapshotStore = new SnapshotStore(cacheDir);
+        this.serviceInfoMap = new ConcurrentHashMap<String, ServiceInfo>(16);
         if (loadCacheAtStart) {
-            this.serviceInfoMap = new ConcurrentHashMap<String, ServiceInfo>(DiskCache.read(this.cacheDir));
-        } else {
-            this.serviceInfoMap = new ConcurrentHashMap<String, ServiceInfo>(16);
+            SnapshotStore.Snapshot snapshot = snapshotStore.load();
+            if (snapshot.size() > 0) {
+                this.cachedSnapshot = snapshot;
+            } else {
+                // cache written by clients before the snapshot file
+                this.serviceInfoMap.putAll(DiskCache.read(this.cacheDir));
+            }
         }
 
         this.updatingMap = new ConcurrentHashMap<String, Object>();
         this.failoverReactor = new FailoverReactor(this, cacheDir);
         this.pushReceiver = new PushReceiver(this);
+
+        executor.schedule(new BatchUpdateTask(), DEFAULT_DELAY, TimeUnit.MILLISECONDS);
     }
 
     public Map<String, ServiceInfo> getServiceInfoMap() {
         return serviceInfoMap;
     }
 
+    public SnapshotStore getSnapshotStore() {
+        return snapshotStore;
+    }
+
     public synchronized ScheduledFuture<?> addTask(UpdateTask task) {
         return executor.schedule(task, DEFAULT_DELAY, TimeUnit.MILLISECONDS);
     }
@@ -178,7 +219,7 @@ public class HostReactor {
 
             if (newHosts.size() > 0 || remvHosts.size() > 0 || modHosts.size() > 0) {
                 eventDispatcher.serviceChanged(serviceInfo);
-                DiskCache.write(serviceInfo, cacheDir);
+                snapshotStore.put(serviceInfo);
             }
 
         } else {
@@ -187,7 +228,7 @@ public class HostReactor {
             serviceInfoMap.put(serviceInfo.getKey(), serviceInfo);
             eventDispatcher.serviceChanged(serviceInfo);
             serviceInfo.setJsonFromServer(json);
-            DiskCache.write(serviceInfo, cacheDir);
+            snapshotStore.put(serviceInfo);
         }
 
         MetricsMonitor.getServiceInfoMapSizeMonitor().set(serviceInfoMap.size());
@@ -202,7 +243,19 @@ public class HostReactor {
 
         String key = ServiceInfo.getKey(serviceName, clusters);
 
-        return serviceInfoMap.get(key);
+        ServiceInfo serviceInfo = serviceInfoMap.get(key);
+        SnapshotStore.Snapshot snapshot = cachedSnapshot;
+        if (serviceInfo == null && snapshot != null) {
+            serviceInfo = snapshot.get(key);
+            if (serviceInfo != null) {
+                ServiceInfo previous = serviceInfoMap.putIfAbsent(key, serviceInfo);
+                if (previous != null) {
+                    serviceInfo = previous;
+                }
+            }
+        }
+
+        return serviceInfo;
     }
 
     public ServiceInfo getServiceInfoDirectlyFromServer(final String serviceName, final String clusters) throws NacosException {
@@ -261,8 +314,10 @@ public class HostReactor {
                 return;
             }
 
-            ScheduledFuture<?> future = addTask(new UpdateTask(serviceName, clusters));
+            UpdateTask task = new UpdateTask(serviceName, clusters);
+            ScheduledFuture<?> future = addTask(task);
             futureMap.put(ServiceInfo.getKey(serviceName, clusters), future);
+            updateTaskMap.put(ServiceInfo.getKey(serviceName, clusters), task);
         }
     }
 
@@ -314,6 +369,13 @@ public class HostReactor {
                     return;
                 }
 
+                if (System.currentTimeMillis() < batchUpdateExpireTime) {
+                    // kept up to date by the batch update task, poll it only when batch updates stop working:
+                    executor.schedule(this, serviceObj.getCacheMillis(), TimeUnit.MILLISECONDS);
+                    lastRefTime = serviceObj.getLastRefTime();
+                    return;
+                }
+
                 if (serviceObj.getLastRefTime() <= lastRefTime) {
                     updateServiceNow(serviceName, clusters);
                     serviceObj = serviceInfoMap.get(ServiceInfo.getKey(serviceName, clusters));
@@ -332,4 +394,63 @@ public class HostReactor {
 
         }
     }
+
+    /**
+     * Updates all subscribed services with one request, the server only returns the services whose checksums differ
+     * from the ones held here, and also keeps push enabled for all of them.
+     */
+    public class BatchUpdateTask implements Runnable {
+
+        private long lastFullUpdateTime = System.currentTimeMillis();
+
+        @Override
+        public void run() {
+            long delay = DEFAULT_DELAY;
+            try {
+                if (updateTaskMap.isEmpty()) {
+                    return;
+                }
+
+                long now = System.currentTimeMillis();
+                boolean fullUpdate = now - lastFullUpdateTime >= BATCH_FULL_UPDATE_INTERVAL;
+
+                JSONArray subscriptions = new JSONArray();
+                for (Map.Entry<String, UpdateTask> entry : updateTaskMap.entrySet()) {
+                    ServiceInfo serviceObj = serviceInfoMap.get(entry.getKey());
+                    JSONObject subscription = new JSONObject();
+                    subscription.put("serviceName", entry.getValue().serviceName);
+                    subscription.put("clusters", entry.getValue().clusters);
+                    subscription.put("checksum",
+                        serviceObj == null || fullUpdate ? StringUtils.EMPTY : serviceObj.getChecksum());
+                    subscriptions.add(subscription);
+                }
+
+                String result = serverProxy.queryLists(subscriptions, pushReceiver.getUDPPort());
+                JSONObject json = JSON.parseObject(result);
+
+                JSONArray services = json.getJSONArray("services");
+                if (services != null) {
+                    for (int i = 0; i < services.size(); i++) {
+                        processServiceJSON(services.getString(i));
+                    }
+                }
+                if (fullUpdate) {
+                    lastFullUpdateTime = now;
+                }
+
+                long cacheMillis = json.getLongValue("cacheMillis");
+                if (cacheMillis > 0) {
+                    delay = cacheMillis;
+                }
+                // tolerate a few missed rounds before every service falls back to polling on its own:
+                batchUpdateExpireTime = System.currentTimeMillis() + delay * 3;
+            } catch (Throwable e) {
+                NAMING_LOGGER.warn("[NA] failed to update services in batch, fall back to polling every service: "
+                    + e.getMessage());
+                delay = BATCH_UPDATE_RETRY_DELAY;
+            } finally {
+                executor.schedule(this, delay, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
 }
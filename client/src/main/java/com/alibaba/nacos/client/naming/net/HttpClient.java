@@ -47,6 +47,9 @@ public class HttpClient {
     private static final String POST = "POST";
     private static final String PUT = "PUT";
 
+    private static final String FORM_CONTENT_TYPE = "application/x-www-form-urlencoded";
+    private static final String JSON_CONTENT_TYPE = "application/json";
+
     static {
         // limit max redirection
         System.setProperty("http.maxRedirects", "5");
@@ -76,6 +79,21 @@ public class HttpClient {
      * @return 返回结果
      */
     public static HttpResult request(String url, List<String> headers, Map<String, String> paramValues, String encoding, String method) {
+        return request(url, headers, paramValues, null, encoding, method);
+    }
+
+    /**
+     * 带请求体的http请求，请求体不为空时参数只放在url上，请求体按json发送
+     *
+     * @param url         url
+     * @param headers     头部信息
+     * @param paramValues 参数值
+     * @param body        json格式的请求体
+     * @param encoding    编码
+     * @param method      请求方法(POST , PUT等)
+     * @return 返回结果
+     */
+    public static HttpResult request(String url, List<String> headers, Map<String, String> paramValues, String body, String encoding, String method) {
         HttpURLConnection conn = null;
         try {
             String encodedContent = encodingParams(paramValues, encoding);
@@ -83,14 +101,14 @@ public class HttpClient {
 
             conn = (HttpURLConnection) new URL(url).openConnection();
 
-            setHeaders(conn, headers, encoding);
+            setHeaders(conn, headers, encoding, body == null ? FORM_CONTENT_TYPE : JSON_CONTENT_TYPE);
             conn.setConnectTimeout(CON_TIME_OUT_MILLIS);
             conn.setReadTimeout(TIME_OUT_MILLIS);
             conn.setRequestMethod(method);
             conn.setDoOutput(true);
             if (POST.equals(method) || PUT.equals(method)) {
                 // fix: apache http nio framework must set some content to request body
-                byte[] b = encodedContent.getBytes();
+                byte[] b = body == null ? encodedContent.getBytes() : body.getBytes(encoding);
                 conn.setRequestProperty("Content-Length", String.valueOf(b.length));
                 conn.getOutputStream().write(b, 0, b.length);
                 conn.getOutputStream().flush();
@@ -169,14 +187,14 @@ public class HttpClient {
         return charset;
     }
 
-    private static void setHeaders(HttpURLConnection conn, List<String> headers, String encoding) {
+    private static void setHeaders(HttpURLConnection conn, List<String> headers, String encoding, String contentType) {
         if (null != headers) {
             for (Iterator<String> iter = headers.iterator(); iter.hasNext(); ) {
                 conn.addRequestProperty(iter.next(), iter.next());
             }
         }
 
-        conn.addRequestProperty("Content-Type", "application/x-www-form-urlencoded;charset="
+        conn.addRequestProperty("Content-Type", contentType + ";charset="
             + encoding);
         conn.addRequestProperty("Accept-Charset", encoding);
     }
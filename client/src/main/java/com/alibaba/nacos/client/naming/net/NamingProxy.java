@@ -16,6 +16,7 @@
 package com.alibaba.nacos.client.naming.net;
 
 import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
 import com.alibaba.fastjson.JSONObject;
 import com.alibaba.fastjson.TypeReference;
 import com.alibaba.nacos.api.PropertyKeyConst;
@@ -240,6 +241,25 @@ public class NamingProxy {
         return reqAPI(UtilAndComs.NACOS_URL_BASE + "/instance/list", params, HttpMethod.GET);
     }
 
+    /**
+     * 批量查询订阅的服务，服务端只返回校验和有变化的服务
+     *
+     * @param subscriptions 订阅的服务，包含服务名、集群和本地的校验和
+     * @param udpPort       接收推送的端口
+     * @return 有变化的服务和下次查询的间隔
+     */
+    public String queryLists(JSONArray subscriptions, int udpPort) throws NacosException {
+
+        final Map<String, String> params = new HashMap<String, String>(8);
+        params.put(CommonParams.NAMESPACE_ID, namespaceId);
+        params.put("udpPort", String.valueOf(udpPort));
+        params.put("clientIP", NetUtils.localIP());
+        params.put("healthyOnly", String.valueOf(false));
+
+        return reqAPI(UtilAndComs.NACOS_URL_BASE + "/instance/lists", params, subscriptions.toJSONString(),
+            HttpMethod.PUT);
+    }
+
     /**
      * 发送心跳
      *
@@ -265,6 +285,22 @@ public class NamingProxy {
         return 0L;
     }
 
+    /**
+     * 批量发送心跳，一次请求发送多个实例的心跳
+     *
+     * @return 服务端返回的心跳间隔和每个心跳的处理结果
+     */
+    public JSONObject sendBeats(List<BeatInfo> beatInfos) throws NacosException {
+        if (NAMING_LOGGER.isDebugEnabled()) {
+            NAMING_LOGGER.debug("[BEAT] {} sending {} beats to server", namespaceId, beatInfos.size());
+        }
+        Map<String, String> params = new HashMap<String, String>(2);
+        params.put(CommonParams.NAMESPACE_ID, namespaceId);
+        String result = reqAPI(UtilAndComs.NACOS_URL_BASE + "/instance/beats", params,
+            JSON.toJSONString(beatInfos), HttpMethod.PUT);
+        return JSON.parseObject(result);
+    }
+
     public boolean serverHealthy() {
 
         try {
@@ -324,13 +360,17 @@ public class NamingProxy {
     }
 
     public String reqAPI(String api, Map<String, String> params, String method) throws NacosException {
+        return reqAPI(api, params, null, method);
+    }
+
+    public String reqAPI(String api, Map<String, String> params, String body, String method) throws NacosException {
 
         List<String> snapshot = serversFromEndpoint;
         if (!CollectionUtils.isEmpty(serverList)) {
             snapshot = serverList;
         }
 
-        return reqAPI(api, params, snapshot, method);
+        return reqAPI(api, params, body, snapshot, method);
     }
 
     public String callServer(String api, Map<String, String> params, String curServer) throws NacosException {
@@ -338,6 +378,11 @@ public class NamingProxy {
     }
 
     public String callServer(String api, Map<String, String> params, String curServer, String method)
+        throws NacosException {
+        return callServer(api, params, null, curServer, method);
+    }
+
+    public String callServer(String api, Map<String, String> params, String body, String curServer, String method)
         throws NacosException {
         long start = System.currentTimeMillis();
         long end = 0;
@@ -353,7 +398,7 @@ public class NamingProxy {
         url = HttpClient.getPrefix() + curServer + api;
 
         //发送http请求
-        HttpClient.HttpResult result = HttpClient.request(url, headers, params, UtilAndComs.ENCODING, method);
+        HttpClient.HttpResult result = HttpClient.request(url, headers, params, body, UtilAndComs.ENCODING, method);
         end = System.currentTimeMillis();
 
         MetricsMonitor.getNamingRequestMonitor(method, url, String.valueOf(result.code))
@@ -377,6 +422,10 @@ public class NamingProxy {
     }
 
     public String reqAPI(String api, Map<String, String> params, List<String> servers, String method) {
+        return reqAPI(api, params, null, servers, method);
+    }
+
+    public String reqAPI(String api, Map<String, String> params, String body, List<String> servers, String method) {
 
         params.put(CommonParams.NAMESPACE_ID, getNamespaceId());
 
@@ -394,7 +443,7 @@ public class NamingProxy {
             for (int i = 0; i < servers.size(); i++) {
                 String server = servers.get(index);
                 try {
-                    return callServer(api, params, server, method);
+                    return callServer(api, params, body, server, method);
                 } catch (NacosException e) {
                     exception = e;
                     NAMING_LOGGER.error("request {} failed.", server, e);
@@ -412,7 +461,7 @@ public class NamingProxy {
 
         for (int i = 0; i < UtilAndComs.REQUEST_DOMAIN_RETRY_COUNT; i++) {
             try {
-                return callServer(api, params, nacosDomain);
+                return callServer(api, params, body, nacosDomain, method);
             } catch (Exception e) {
                 exception = e;
                 NAMING_LOGGER.error("[NA] req api:" + api + " failed, server(" + nacosDomain, e);
@@ -16,7 +16,6 @@
 package com.alibaba.nacos.client.naming.utils;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -39,25 +38,22 @@ public class Chooser<K, T> {
         return items.get(ThreadLocalRandom.current().nextInt(items.size()));
     }
 
+    /**
+     * Choose an item by weight in constant time, with the alias table built by {@link Ref#refresh()}.
+     */
     public T randomWithWeight() {
         Ref<T> ref = this.ref;
-        double random = ThreadLocalRandom.current().nextDouble(0, 1);
-        int index = Arrays.binarySearch(ref.weights, random);
-        if (index < 0) {
-            index = -index - 1;
-        } else {
-            return ref.items.get(index);
-        }
-
-        if (index >= 0 && index < ref.weights.length) {
-            if (random < ref.weights[index]) {
+        int size = ref.aliases.length;
+        if (size > 0) {
+            // one random number picks both the column and the side of the column:
+            double random = ThreadLocalRandom.current().nextDouble(size);
+            int index = Math.min((int) random, size - 1);
+            if (random - index < ref.aliasProbs[index]) {
                 return ref.items.get(index);
             }
+            return ref.items.get(ref.aliases[index]);
         }
 
-        /* This should never happen, but it ensures we will return a correct
-         * object in case there is some floating point inequality problem
-         * wrt the cumulative probabilities. */
         return ref.items.get(ref.items.size() - 1);
     }
 
@@ -92,6 +88,8 @@ public class Chooser<K, T> {
         private List<T> items = new ArrayList<T>();
         private Poller<T> poller = new GenericPoller<T>(items);
         private double[] weights;
+        private double[] aliasProbs = new double[0];
+        private int[] aliases = new int[0];
 
         @SuppressWarnings("unchecked")
         public Ref(List<Pair<T>> itemsWithWeight) {
@@ -142,6 +140,61 @@ public class Chooser<K, T> {
                 throw new IllegalStateException(
                     "Cumulative Weight caculate wrong , the sum of probabilities does not equals 1.");
             }
+
+            buildAliasTable(exactWeights, index);
+        }
+
+        /**
+         * Vose's alias method: every item gets a column of height 1/size, filled with its own probability and topped
+         * up with the probability of one larger item, its alias.
+         */
+        private void buildAliasTable(double[] exactWeights, int size) {
+            double[] scaled = new double[size];
+            int[] small = new int[size];
+            int[] large = new int[size];
+            int smallCount = 0;
+            int largeCount = 0;
+
+            for (int i = 0; i < size; i++) {
+                scaled[i] = exactWeights[i] * size;
+                if (scaled[i] < 1.0D) {
+                    small[smallCount++] = i;
+                } else {
+                    large[largeCount++] = i;
+                }
+            }
+
+            double[] probs = new double[size];
+            int[] aliasIndexes = new int[size];
+            while (smallCount > 0 && largeCount > 0) {
+                int less = small[--smallCount];
+                int more = large[--largeCount];
+
+                probs[less] = scaled[less];
+                aliasIndexes[less] = more;
+
+                scaled[more] = scaled[more] + scaled[less] - 1.0D;
+                if (scaled[more] < 1.0D) {
+                    small[smallCount++] = more;
+                } else {
+                    large[largeCount++] = more;
+                }
+            }
+
+            // what is left is 1 up to rounding errors:
+            while (largeCount > 0) {
+                int i = large[--largeCount];
+                probs[i] = 1.0D;
+                aliasIndexes[i] = i;
+            }
+            while (smallCount > 0) {
+                int i = small[--smallCount];
+                probs[i] = 1.0D;
+                aliasIndexes[i] = i;
+            }
+
+            aliasProbs = probs;
+            aliases = aliasIndexes;
         }
 
         @Override
@@ -0,0 +1,142 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.client.naming.cache;
+
+import com.alibaba.nacos.api.naming.pojo.Instance;
+import com.alibaba.nacos.api.naming.pojo.ServiceInfo;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author nacos
+ */
+public class SnapshotStoreTest {
+
+    private File dir;
+
+    @Before
+    public void setUp() {
+        dir = new File(System.getProperty("java.io.tmpdir"), "nacos-snapshot-" + System.nanoTime());
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void lastRecordWins() {
+        SnapshotStore store = new SnapshotStore(dir.getPath());
+        for (int i = 0; i < 100; i++) {
+            store.put(service("service." + i, 1));
+        }
+        store.put(service("service.42", 3));
+
+        SnapshotStore.Snapshot snapshot = new SnapshotStore(dir.getPath()).load();
+        Assert.assertEquals(100, snapshot.size());
+        Assert.assertEquals(1, snapshot.get("service.1").getHosts().size());
+        Assert.assertEquals(3, snapshot.get("service.42").getHosts().size());
+        Assert.assertNull(snapshot.get("service.100"));
+    }
+
+    @Test
+    public void compactDropsOverwrittenRecords() {
+        SnapshotStore store = new SnapshotStore(dir.getPath());
+        for (int round = 1; round <= 50; round++) {
+            for (int i = 0; i < 100; i++) {
+                store.put(service("service." + i, round));
+            }
+        }
+        long length = store.current().length();
+        SnapshotStore.Snapshot before = store.load();
+
+        store.compactIfNecessary();
+
+        Assert.assertTrue(store.current().length() * 10 < length);
+        Assert.assertEquals(SnapshotStore.FILE_NAME + ".1", store.current().getName());
+        Assert.assertEquals(50, before.get("service.98").getHosts().size());
+        SnapshotStore.Snapshot snapshot = store.load();
+        Assert.assertEquals(100, snapshot.size());
+        Assert.assertEquals(50, snapshot.get("service.99").getHosts().size());
+    }
+
+    @Test
+    public void tornRecordIsDroppedOnOpen() throws Exception {
+        SnapshotStore store = new SnapshotStore(dir.getPath());
+        store.put(service("service.1", 1));
+
+        tear(store.current());
+
+        store = new SnapshotStore(dir.getPath());
+        store.put(service("service.2", 2));
+
+        SnapshotStore.Snapshot snapshot = store.load();
+        Assert.assertEquals(2, snapshot.size());
+        Assert.assertEquals(2, snapshot.get("service.2").getHosts().size());
+    }
+
+    @Test
+    public void tornRecordIsDroppedBeforeAppend() throws Exception {
+        SnapshotStore store = new SnapshotStore(dir.getPath());
+        store.put(service("service.1", 1));
+        store.put(service("service.2", 1));
+        tear(store.current());
+
+        store.put(service("service.2", 2));
+        store.put(service("service.3", 3));
+
+        SnapshotStore.Snapshot snapshot = new SnapshotStore(dir.getPath()).load();
+        Assert.assertEquals(3, snapshot.size());
+        Assert.assertEquals(2, snapshot.get("service.2").getHosts().size());
+        Assert.assertEquals(3, snapshot.get("service.3").getHosts().size());
+    }
+
+    private void tear(File file) throws Exception {
+        FileOutputStream out = new FileOutputStream(file, true);
+        try {
+            out.write(new byte[] {0, 0, 0, 9, 0, 0, 1});
+        } finally {
+            out.close();
+        }
+    }
+
+    private ServiceInfo service(String name, int instanceCount) {
+        List<Instance> hosts = new ArrayList<Instance>();
+        for (int i = 0; i < instanceCount; i++) {
+            Instance instance = new Instance();
+            instance.setIp("10.0.0." + i);
+            instance.setPort(8080);
+            hosts.add(instance);
+        }
+        ServiceInfo serviceInfo = new ServiceInfo();
+        serviceInfo.setName(name);
+        serviceInfo.setHosts(hosts);
+        return serviceInfo;
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.client.naming.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author nacos
+ */
+public class ChooserTest {
+
+    @Test
+    public void test_randomWithWeight_distribution() {
+        List<Pair<String>> pairs = new ArrayList<Pair<String>>();
+        pairs.add(new Pair<String>("a", 1.0D));
+        pairs.add(new Pair<String>("b", 2.0D));
+        pairs.add(new Pair<String>("c", 7.0D));
+        Chooser<String, String> chooser = new Chooser<String, String>("test", pairs);
+
+        int a = 0, b = 0, c = 0;
+        int total = 100000;
+        for (int i = 0; i < total; i++) {
+            String item = chooser.randomWithWeight();
+            if ("a".equals(item)) {
+                a++;
+            } else if ("b".equals(item)) {
+                b++;
+            } else if ("c".equals(item)) {
+                c++;
+            }
+        }
+
+        Assert.assertEquals(total, a + b + c);
+        Assert.assertEquals(0.1D, (double) a / total, 0.01D);
+        Assert.assertEquals(0.2D, (double) b / total, 0.01D);
+        Assert.assertEquals(0.7D, (double) c / total, 0.01D);
+    }
+
+    @Test
+    public void test_randomWithWeight_weight0() {
+        List<Pair<String>> pairs = new ArrayList<Pair<String>>();
+        pairs.add(new Pair<String>("a", 0.0D));
+        pairs.add(new Pair<String>("b", 1.0D));
+        Chooser<String, String> chooser = new Chooser<String, String>("test", pairs);
+
+        for (int i = 0; i < 10000; i++) {
+            Assert.assertEquals("b", chooser.randomWithWeight());
+        }
+    }
+
+    @Test
+    public void test_randomWithWeight_manyItemsDistribution() {
+        // weights 1..10 repeated, so the alias table has columns split between two items:
+        List<Pair<Integer>> pairs = new ArrayList<Pair<Integer>>();
+        double totalWeight = 0;
+        for (int i = 0; i < 100; i++) {
+            pairs.add(new Pair<Integer>(i, 1 + i % 10));
+            totalWeight += 1 + i % 10;
+        }
+        Chooser<String, Integer> chooser = new Chooser<String, Integer>("test", pairs);
+
+        int[] counts = new int[100];
+        int total = 1000000;
+        for (int i = 0; i < total; i++) {
+            counts[chooser.randomWithWeight()]++;
+        }
+
+        for (int i = 0; i < 100; i++) {
+            double expected = (1 + i % 10) / totalWeight;
+            Assert.assertEquals("item " + i, expected, (double) counts[i] / total, expected * 0.15D);
+        }
+    }
+}
@@ -16,10 +16,15 @@
 package com.alibaba.nacos.config.server.controller;
 
 import com.alibaba.nacos.config.server.constant.Constants;
+import com.alibaba.nacos.config.server.model.ConfigDataChangeItem;
 import com.alibaba.nacos.config.server.model.SampleResult;
 import com.alibaba.nacos.config.server.service.LongPollingService;
+import com.alibaba.nacos.config.server.service.ServerListService;
 import com.alibaba.nacos.config.server.service.dump.DumpService;
 import com.alibaba.nacos.config.server.service.notify.NotifyService;
+import com.alibaba.nacos.config.server.utils.JSONUtils;
+import com.fasterxml.jackson.core.type.TypeReference;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
@@ -31,6 +36,10 @@ import org.springframework.web.bind.annotation.ResponseBody;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.List;
+
+import static com.alibaba.nacos.config.server.utils.LogUtil.defaultLog;
 
 /**
  * 用于其他节点通知的控制器
@@ -78,6 +87,41 @@ public class CommunicationController {
         return true;
     }
 
+    /**
+     * 批量通知配置信息改变，普通配置可以带有内容，不必再读数据库
+     */
+    @RequestMapping(value = "/dataChanges", method = RequestMethod.POST)
+    @ResponseBody
+    public Boolean notifyConfigInfos(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String handleIp = request.getHeader(NotifyService.NOTIFY_HEADER_OP_HANDLE_IP);
+        // 内容只接受集群节点发来的，转发头可以伪造，只看连接的地址
+        String remoteIp = request.getRemoteAddr();
+        boolean fromServer = ServerListService.isServerIp(remoteIp);
+        if (!fromServer) {
+            defaultLog.warn("[notify-content] {} is not in serverlist, content is ignored", remoteIp);
+        }
+        @SuppressWarnings("unchecked")
+        List<ConfigDataChangeItem> items = (List<ConfigDataChangeItem>)JSONUtils.deserializeObject(
+            IOUtils.toString(request.getInputStream(), Constants.ENCODE),
+            new TypeReference<List<ConfigDataChangeItem>>() {});
+        for (ConfigDataChangeItem item : items) {
+            String dataId = item.getDataId().trim();
+            String group = item.getGroup().trim();
+            String tenant = StringUtils.defaultString(item.getTenant());
+            if (item.isBeta()) {
+                dumpService.dump(dataId, group, tenant, item.getLastModified(), handleIp, true);
+            } else if (StringUtils.isNotBlank(item.getTag())) {
+                dumpService.dump(dataId, group, tenant, item.getTag(), item.getLastModified(), handleIp);
+            } else if (fromServer) {
+                dumpService.dump(dataId, group, tenant, item.getContent(), item.getMd5(), item.getLastModified(),
+                    handleIp);
+            } else {
+                dumpService.dump(dataId, group, tenant, item.getLastModified(), handleIp);
+            }
+        }
+        return true;
+    }
+
     /**
      * 在本台机器上获得订阅改配置的客户端信息
      */
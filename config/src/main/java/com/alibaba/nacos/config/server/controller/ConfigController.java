@@ -41,7 +41,9 @@ import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.net.URLDecoder;
 import java.sql.Timestamp;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import static com.alibaba.nacos.core.utils.SystemUtils.LOCAL_IP;
@@ -57,6 +59,8 @@ public class ConfigController {
 
     private static final Logger log = LoggerFactory.getLogger(ConfigController.class);
 
+    private static final int MAX_BATCH_GET_SIZE = 10000;
+
     private final transient ConfigServletInner inner;
 
     private final transient PersistService persistService;
@@ -131,7 +135,7 @@ public class ConfigController {
         if (StringUtils.isBlank(betaIps)) {
             if (StringUtils.isBlank(tag)) {
                 persistService.insertOrUpdate(srcIp, srcUser, configInfo, time, configAdvanceInfo, false);
-                EventDispatcher.fireEvent(new ConfigDataChangeEvent(false, dataId, group, tenant, time.getTime()));
+                EventDispatcher.fireEvent(new ConfigDataChangeEvent(dataId, group, tenant, content, time.getTime()));
             } else {
                 persistService.insertOrUpdateTag(configInfo, tag, srcIp, srcUser, time, false);
                 EventDispatcher.fireEvent(new ConfigDataChangeEvent(false, dataId, group, tenant, tag, time.getTime()));
@@ -252,6 +256,42 @@ public class ConfigController {
         inner.doPollingConfig(request, response, clientMd5Map, probeModify.length());
     }
 
+    /**
+     * 批量取数据，长轮询返回多个变更的配置时客户端一次取回
+     */
+    @RequestMapping(value = "/batch", method = RequestMethod.POST)
+    public void batchGetConfig(HttpServletRequest request, HttpServletResponse response)
+        throws ServletException, IOException {
+        String fetchConfigs = request.getParameter("Fetching-Configs");
+        if (StringUtils.isBlank(fetchConfigs)) {
+            throw new IllegalArgumentException("invalid fetchConfigs");
+        }
+
+        fetchConfigs = URLDecoder.decode(fetchConfigs, Constants.ENCODE);
+
+        List<String[]> configKeys = new ArrayList<String[]>();
+        for (String line : StringUtils.split(fetchConfigs, Constants.LINE_SEPARATOR)) {
+            String[] words = StringUtils.splitPreserveAllTokens(line, Constants.WORD_SEPARATOR);
+            if (words.length < 2 || words.length > 3) {
+                throw new IllegalArgumentException("invalid fetchConfigs");
+            }
+            String tenant = words.length == 3 ? words[2] : StringUtils.EMPTY;
+            try {
+                ParamUtils.checkParam(words[0], words[1], "datumId", "content");
+            } catch (NacosException e) {
+                throw new IllegalArgumentException("invalid fetchConfigs");
+            }
+            configKeys.add(new String[] {words[0], words[1], tenant});
+            // 对畸形报文进行保护
+            if (configKeys.size() > MAX_BATCH_GET_SIZE) {
+                throw new IllegalArgumentException("invalid fetchConfigs, too much configs");
+            }
+        }
+
+        final String clientIp = RequestUtil.getRemoteIp(request);
+        inner.doBatchGetConfig(request, response, configKeys, clientIp);
+    }
+
     /**
      * 订阅改配置的客户端信息
      */
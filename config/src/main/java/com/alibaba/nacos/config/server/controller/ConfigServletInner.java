@@ -16,14 +16,20 @@
 package com.alibaba.nacos.config.server.controller;
 
 import com.alibaba.nacos.config.server.constant.Constants;
+import com.alibaba.nacos.config.server.model.BatchConfigItem;
 import com.alibaba.nacos.config.server.model.CacheItem;
+import com.alibaba.nacos.config.server.model.CachedContent;
 import com.alibaba.nacos.config.server.model.ConfigInfoBase;
+import com.alibaba.nacos.config.server.model.ConfigVersion;
 import com.alibaba.nacos.config.server.service.ConfigService;
+import com.alibaba.nacos.config.server.service.ContentCache;
 import com.alibaba.nacos.config.server.service.DiskUtil;
 import com.alibaba.nacos.config.server.service.LongPollingService;
 import com.alibaba.nacos.config.server.service.PersistService;
 import com.alibaba.nacos.config.server.service.trace.ConfigTraceService;
 import com.alibaba.nacos.config.server.utils.*;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -33,16 +39,22 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.net.URLEncoder;
+import java.nio.ByteBuffer;
 import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 
-import static com.alibaba.nacos.core.utils.SystemUtils.STANDALONE_MODE;
 import static com.alibaba.nacos.config.server.utils.LogUtil.pullLog;
+import static com.alibaba.nacos.core.utils.SystemUtils.STANDALONE_MODE;
 
 /**
  * ConfigServlet inner for aop
@@ -58,7 +70,20 @@ public class ConfigServletInner {
     @Autowired
     private PersistService persistService;
 
-    private static final int TRY_GET_LOCK_TIMES = 9;
+    /**
+     * 遇到正在dump的配置时等待的时间，dump只是写一个小文件
+     */
+    private static final long WAIT_WRITE_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    /**
+     * 不加锁读取被dump打断的最多次数，超过后加读锁读取
+     */
+    private static final int MAX_OPTIMISTIC_READ_TIMES = 10;
+
+    /**
+     * 加读锁时等待dump完成的最长时间
+     */
+    private static final long READ_LOCK_TIMEOUT_MILLIS = 1000L;
 
     private static final int START_LONGPOLLING_VERSION_NUM = 204;
 
@@ -107,31 +132,60 @@ public class ConfigServletInner {
     }
 
     /**
-     * 同步配置获取接口
+     * 同步配置获取接口。不加读锁，读文件前后比较CacheItem的写序号，期间有dump则重新读取；多次被打断后加读锁读取
      */
     public String doGetConfig(HttpServletRequest request, HttpServletResponse response, String dataId, String group,
                               String tenant, String tag, String clientIp) throws IOException, ServletException {
         final String groupKey = GroupKey2.getKey(dataId, group, tenant);
         String autoTag = request.getHeader("Vipserver-Tag");
         String requestIpApp = RequestUtil.getAppName(request);
-        int lockResult = tryConfigReadLock(request, response, groupKey);
-
         final String requestIp = RequestUtil.getRemoteIp(request);
-        boolean isBeta = false;
-        if (lockResult > 0) {
+
+        int readTimes = 0;
+        while (true) {
+            CacheItem cacheItem = ConfigService.getContentCache(groupKey);
+            if (cacheItem == null) {
+
+                // FIXME CacheItem 不存在了无法简单的计算推送delayed，这里简单的记做-1
+                ConfigTraceService.logPullEvent(dataId, group, tenant, requestIpApp, -1,
+                    ConfigTraceService.PULL_EVENT_NOTFOUND, -1, requestIp);
+
+                response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+                response.getWriter().println("config data not exist");
+                return HttpServletResponse.SC_NOT_FOUND + "";
+            }
+            // 加读锁后没有dump能修改文件，下面的重读都不会发生
+            final boolean locked = ++readTimes > MAX_OPTIMISTIC_READ_TIMES;
+            if (locked && !tryConfigReadLock(cacheItem)) {
+
+                pullLog.info("[client-get] clientIp={}, {}, get data during dump", clientIp, groupKey);
+
+                response.setStatus(HttpServletResponse.SC_CONFLICT);
+                response.getWriter().println("requested file is being modified, please try later.");
+                return HttpServletResponse.SC_CONFLICT + "";
+            }
+            final long writeSeq = cacheItem.getWriteSeq();
+            if (!locked && CacheItem.isWriting(writeSeq)) {
+                // 正在dump，稍后重新从ConfigService取，CacheItem可能已被删除
+                LockSupport.parkNanos(WAIT_WRITE_NANOS);
+                continue;
+            }
+            // 正式配置的md5、修改时间和缓存内容取自同一个版本
+            final ConfigVersion version = cacheItem.getVersion();
+
+            boolean isBeta = false;
             FileInputStream fis = null;
             try {
                 String md5 = Constants.NULL;
                 long lastModified = 0L;
-                CacheItem cacheItem = ConfigService.getContentCache(groupKey);
-                if (cacheItem != null) {
-                    if (cacheItem.isBeta()) {
-                        if (cacheItem.getIps4Beta().contains(clientIp)) {
-                            isBeta = true;
-                        }
+                if (cacheItem.isBeta()) {
+                    if (cacheItem.getIps4Beta().contains(clientIp)) {
+                        isBeta = true;
                     }
                 }
                 File file = null;
+                boolean useContentCache = false;
+                CachedContent cachedContent = null;
                 ConfigInfoBase configInfoBase = null;
                 PrintWriter out = null;
                 if (isBeta) {
@@ -146,13 +200,11 @@ public class ConfigServletInner {
                 } else {
                     if (StringUtils.isBlank(tag)) {
                         if (isUseTag(cacheItem, autoTag)) {
-                            if (cacheItem != null) {
-                                if (cacheItem.tagMd5 != null) {
-                                    md5 = cacheItem.tagMd5.get(autoTag);
-                                }
-                                if (cacheItem.tagLastModifiedTs != null) {
-                                    lastModified = cacheItem.tagLastModifiedTs.get(autoTag);
-                                }
+                            if (cacheItem.tagMd5 != null) {
+                                md5 = cacheItem.tagMd5.get(autoTag);
+                            }
+                            if (cacheItem.tagLastModifiedTs != null) {
+                                lastModified = cacheItem.tagLastModifiedTs.get(autoTag);
                             }
                             if (STANDALONE_MODE && !PropertyUtil.isStandaloneUseMysql()) {
                                 configInfoBase = persistService.findConfigInfo4Tag(dataId, group, tenant, autoTag);
@@ -163,14 +215,19 @@ public class ConfigServletInner {
                             response.setHeader("Vipserver-Tag",
                                 URLEncoder.encode(autoTag, StandardCharsets.UTF_8.displayName()));
                         } else {
-                            md5 = cacheItem.getMd5();
-                            lastModified = cacheItem.getLastModifiedTs();
+                            md5 = version.getMd5();
+                            lastModified = version.getLastModifiedTs();
                             if (STANDALONE_MODE && !PropertyUtil.isStandaloneUseMysql()) {
                                 configInfoBase = persistService.findConfigInfo(dataId, group, tenant);
                             } else {
+                                useContentCache = true;
+                                cachedContent = ContentCache.get(version);
                                 file = DiskUtil.targetFile(dataId, group, tenant);
                             }
-                            if (configInfoBase == null && fileNotExist(file)) {
+                            if (configInfoBase == null && cachedContent == null && fileNotExist(file)) {
+                                if (cacheItem.getWriteSeq() != writeSeq) {
+                                    continue;
+                                }
                                 // FIXME CacheItem
                                 // 不存在了无法简单的计算推送delayed，这里简单的记做-1
                                 ConfigTraceService.logPullEvent(dataId, group, tenant, requestIpApp, -1,
@@ -186,15 +243,13 @@ public class ConfigServletInner {
                             }
                         }
                     } else {
-                        if (cacheItem != null) {
-                            if (cacheItem.tagMd5 != null) {
-                                md5 = cacheItem.tagMd5.get(tag);
-                            }
-                            if (cacheItem.tagLastModifiedTs != null) {
-                                Long lm = cacheItem.tagLastModifiedTs.get(tag);
-                                if (lm != null) {
-                                    lastModified = lm;
-                                }
+                        if (cacheItem.tagMd5 != null) {
+                            md5 = cacheItem.tagMd5.get(tag);
+                        }
+                        if (cacheItem.tagLastModifiedTs != null) {
+                            Long lm = cacheItem.tagLastModifiedTs.get(tag);
+                            if (lm != null) {
+                                lastModified = lm;
                             }
                         }
                         if (STANDALONE_MODE && !PropertyUtil.isStandaloneUseMysql()) {
@@ -203,6 +258,9 @@ public class ConfigServletInner {
                             file = DiskUtil.targetTagFile(dataId, group, tenant, tag);
                         }
                         if (configInfoBase == null && fileNotExist(file)) {
+                            if (cacheItem.getWriteSeq() != writeSeq) {
+                                continue;
+                            }
                             // FIXME CacheItem
                             // 不存在了无法简单的计算推送delayed，这里简单的记做-1
                             ConfigTraceService.logPullEvent(dataId, group, tenant, requestIpApp, -1,
@@ -220,6 +278,31 @@ public class ConfigServletInner {
                     }
                 }
 
+                if (!(STANDALONE_MODE && !PropertyUtil.isStandaloneUseMysql()) && cachedContent == null) {
+                    // dump先写临时文件再改名，打开的总是某次dump的完整文件
+                    try {
+                        fis = new FileInputStream(file);
+                    } catch (FileNotFoundException e) {
+                        if (cacheItem.getWriteSeq() != writeSeq) {
+                            continue;
+                        }
+                        throw e;
+                    }
+                    long fileLastModified = file.lastModified();
+                    byte[] bytes = null;
+                    if (useContentCache && ContentCache.isCacheable(fis.getChannel().size())) {
+                        bytes = IOUtils.toByteArray(fis);
+                    }
+                    if (cacheItem.getWriteSeq() != writeSeq) {
+                        continue;
+                    }
+                    if (bytes != null) {
+                        cachedContent = ContentCache.put(cacheItem, version, bytes, fileLastModified);
+                    } else {
+                        response.setDateHeader("Last-Modified", fileLastModified);
+                    }
+                }
+
                 response.setHeader(Constants.CONTENT_MD5, md5);
                 /**
                  *  禁用缓存
@@ -229,9 +312,8 @@ public class ConfigServletInner {
                 response.setHeader("Cache-Control", "no-cache,no-store");
                 if (STANDALONE_MODE && !PropertyUtil.isStandaloneUseMysql()) {
                     response.setDateHeader("Last-Modified", lastModified);
-                } else {
-                    fis = new FileInputStream(file);
-                    response.setDateHeader("Last-Modified", file.lastModified());
+                } else if (cachedContent != null) {
+                    response.setDateHeader("Last-Modified", cachedContent.getLastModified());
                 }
 
                 if (STANDALONE_MODE && !PropertyUtil.isStandaloneUseMysql()) {
@@ -239,6 +321,13 @@ public class ConfigServletInner {
                     out.print(configInfoBase.getContent());
                     out.flush();
                     out.close();
+                } else if (cachedContent != null) {
+                    // 内容已按文件编码缓存，直接写出
+                    WritableByteChannel channel = Channels.newChannel(response.getOutputStream());
+                    ByteBuffer bytes = cachedContent.getBytes();
+                    while (bytes.hasRemaining()) {
+                        channel.write(bytes);
+                    }
                 } else {
                     fis.getChannel().transferTo(0L, fis.getChannel().size(),
                         Channels.newChannel(response.getOutputStream()));
@@ -254,75 +343,173 @@ public class ConfigServletInner {
                     ConfigTraceService.PULL_EVENT_OK, delayed,
                     requestIp);
 
+                return HttpServletResponse.SC_OK + "";
             } finally {
-                releaseConfigReadLock(groupKey);
+                if (locked) {
+                    ConfigService.releaseReadLock(cacheItem);
+                }
                 if (null != fis) {
                     fis.close();
                 }
             }
-        } else if (lockResult == 0) {
-
-            // FIXME CacheItem 不存在了无法简单的计算推送delayed，这里简单的记做-1
-            ConfigTraceService.logPullEvent(dataId, group, tenant, requestIpApp, -1,
-                ConfigTraceService.PULL_EVENT_NOTFOUND, -1, requestIp);
-
-            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
-            response.getWriter().println("config data not exist");
-            return HttpServletResponse.SC_NOT_FOUND + "";
-
-        } else {
-
-            pullLog.info("[client-get] clientIp={}, {}, get data during dump", clientIp, groupKey);
-
-            response.setStatus(HttpServletResponse.SC_CONFLICT);
-            response.getWriter().println("requested file is being modified, please try later.");
-            return HttpServletResponse.SC_CONFLICT + "";
-
         }
-
-        return HttpServletResponse.SC_OK + "";
     }
 
-    private static void releaseConfigReadLock(String groupKey) {
-        ConfigService.releaseReadLock(groupKey);
-    }
+    /**
+     * 批量取配置接口，逐个配置读取内容后立即写入响应，结果为JSON数组
+     */
+    public void doBatchGetConfig(HttpServletRequest request, HttpServletResponse response, List<String[]> configKeys,
+                                 String clientIp) throws IOException, ServletException {
+        String autoTag = request.getHeader("Vipserver-Tag");
+        String requestIpApp = RequestUtil.getAppName(request);
+        final String requestIp = RequestUtil.getRemoteIp(request);
 
-    private static int tryConfigReadLock(HttpServletRequest request, HttpServletResponse response, String groupKey)
-        throws IOException, ServletException {
         /**
-         *  默认加锁失败
+         *  禁用缓存
          */
-        int lockResult = -1;
-        /**
-         *  尝试加锁，最多10次
-         */
-        for (int i = TRY_GET_LOCK_TIMES; i >= 0; --i) {
-            lockResult = ConfigService.tryReadLock(groupKey);
-            /**
-             *  数据不存在
-             */
-            if (0 == lockResult) {
-                break;
+        response.setHeader("Pragma", "no-cache");
+        response.setDateHeader("Expires", 0);
+        response.setHeader("Cache-Control", "no-cache,no-store");
+        response.setContentType("application/json;charset=" + Constants.ENCODE);
+        response.setStatus(HttpServletResponse.SC_OK);
+
+        PrintWriter out = response.getWriter();
+        out.print('[');
+        for (int i = 0; i < configKeys.size(); i++) {
+            String[] configKey = configKeys.get(i);
+            BatchConfigItem item = getConfigItem(request, response, configKey[0], configKey[1], configKey[2],
+                autoTag, clientIp, requestIp, requestIpApp);
+            if (i > 0) {
+                out.print(',');
             }
+            out.print(JSONUtils.serializeObject(item));
+        }
+        out.print(']');
+        out.flush();
+    }
 
-            /**
-             *  success
-             */
-            if (lockResult > 0) {
-                break;
+    /**
+     * 与doGetConfig的取数逻辑一致(不支持指定tag)，只是把内容读到内存里
+     */
+    private BatchConfigItem getConfigItem(HttpServletRequest request, HttpServletResponse response, String dataId,
+                                          String group, String tenant, String autoTag, String clientIp,
+                                          String requestIp, String requestIpApp)
+        throws IOException, ServletException {
+        final String groupKey = GroupKey2.getKey(dataId, group, tenant);
+        BatchConfigItem item = new BatchConfigItem(dataId, group, tenant);
+
+        int readTimes = 0;
+        while (true) {
+            CacheItem cacheItem = ConfigService.getContentCache(groupKey);
+            if (cacheItem == null) {
+                ConfigTraceService.logPullEvent(dataId, group, tenant, requestIpApp, -1,
+                    ConfigTraceService.PULL_EVENT_NOTFOUND, -1, requestIp);
+                item.setCode(HttpServletResponse.SC_NOT_FOUND);
+                return item;
             }
-            /**
-             *  retry
-             */
-            if (i > 0) {
-                try {
-                    Thread.sleep(1);
-                } catch (Exception e) {
+            final boolean locked = ++readTimes > MAX_OPTIMISTIC_READ_TIMES;
+            if (locked && !tryConfigReadLock(cacheItem)) {
+                pullLog.info("[client-get] clientIp={}, {}, get data during dump", clientIp, groupKey);
+                item.setCode(HttpServletResponse.SC_CONFLICT);
+                return item;
+            }
+            final long writeSeq = cacheItem.getWriteSeq();
+            if (!locked && CacheItem.isWriting(writeSeq)) {
+                LockSupport.parkNanos(WAIT_WRITE_NANOS);
+                continue;
+            }
+            final ConfigVersion version = cacheItem.getVersion();
+
+            try {
+                String md5 = Constants.NULL;
+                long lastModified = 0L;
+                boolean useStore = STANDALONE_MODE && !PropertyUtil.isStandaloneUseMysql();
+                File file = null;
+                CachedContent cachedContent = null;
+                ConfigInfoBase configInfoBase = null;
+                if (cacheItem.isBeta() && cacheItem.getIps4Beta().contains(clientIp)) {
+                    md5 = cacheItem.getMd54Beta();
+                    lastModified = cacheItem.getLastModifiedTs4Beta();
+                    if (useStore) {
+                        configInfoBase = persistService.findConfigInfo4Beta(dataId, group, tenant);
+                    } else {
+                        file = DiskUtil.targetBetaFile(dataId, group, tenant);
+                    }
+                } else if (isUseTag(cacheItem, autoTag)) {
+                    md5 = cacheItem.tagMd5.get(autoTag);
+                    if (cacheItem.tagLastModifiedTs != null) {
+                        Long lm = cacheItem.tagLastModifiedTs.get(autoTag);
+                        if (lm != null) {
+                            lastModified = lm;
+                        }
+                    }
+                    if (useStore) {
+                        configInfoBase = persistService.findConfigInfo4Tag(dataId, group, tenant, autoTag);
+                    } else {
+                        file = DiskUtil.targetTagFile(dataId, group, tenant, autoTag);
+                    }
+                } else {
+                    md5 = version.getMd5();
+                    lastModified = version.getLastModifiedTs();
+                    if (useStore) {
+                        configInfoBase = persistService.findConfigInfo(dataId, group, tenant);
+                    } else {
+                        cachedContent = ContentCache.get(version);
+                        file = DiskUtil.targetFile(dataId, group, tenant);
+                    }
+                }
+
+                String content = null;
+                if (configInfoBase != null) {
+                    content = configInfoBase.getContent();
+                } else if (cachedContent != null) {
+                    content = Charset.forName(Constants.ENCODE).decode(cachedContent.getBytes()).toString();
+                } else if (!useStore && !fileNotExist(file)) {
+                    try {
+                        content = FileUtils.readFileToString(file, Constants.ENCODE);
+                    } catch (FileNotFoundException e) {
+                        if (cacheItem.getWriteSeq() == writeSeq) {
+                            throw e;
+                        }
+                    }
+                }
+                if (!useStore && cachedContent == null && cacheItem.getWriteSeq() != writeSeq) {
+                    continue;
+                }
+
+                if (content == null) {
+                    ConfigTraceService.logPullEvent(dataId, group, tenant, requestIpApp, -1,
+                        ConfigTraceService.PULL_EVENT_NOTFOUND, -1, requestIp);
+                    item.setCode(HttpServletResponse.SC_NOT_FOUND);
+                    return item;
+                }
+
+                item.setCode(HttpServletResponse.SC_OK);
+                item.setMd5(md5);
+                item.setContent(content);
+
+                LogUtil.pullCheckLog.warn("{}|{}|{}|{}", groupKey, requestIp, md5, TimeUtils.getCurrentTimeStr());
+                ConfigTraceService.logPullEvent(dataId, group, tenant, requestIpApp, lastModified,
+                    ConfigTraceService.PULL_EVENT_OK, System.currentTimeMillis() - lastModified, requestIp);
+                return item;
+            } finally {
+                if (locked) {
+                    ConfigService.releaseReadLock(cacheItem);
                 }
             }
         }
+    }
 
-        return lockResult;
+    /**
+     * 加读锁，等待正在进行的dump完成
+     */
+    private static boolean tryConfigReadLock(CacheItem cacheItem) {
+        try {
+            return ConfigService.readLock(cacheItem, READ_LOCK_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
     }
 
     private static boolean isUseTag(CacheItem cacheItem, String tag) {
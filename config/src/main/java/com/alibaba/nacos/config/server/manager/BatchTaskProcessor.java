@@ -0,0 +1,34 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.config.server.manager;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 一次处理多个任务的处理器，用于合并数据库查询等操作
+ *
+ * @author Nacos
+ */
+public interface BatchTaskProcessor extends TaskProcessor {
+    /**
+     * process tasks
+     *
+     * @param tasks tasks by task type, in the order they were added
+     * @return task types of the tasks failed and should be retried
+     */
+    Set<String> process(Map<String, AbstractTask> tasks);
+}
@@ -0,0 +1,266 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.config.server.manager;
+
+import com.alibaba.nacos.config.server.monitor.MetricsMonitor;
+import com.alibaba.nacos.config.server.utils.LogUtil;
+import org.slf4j.Logger;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 多线程处理一定要执行成功的任务。任务按类型的哈希分到各个线程，同一类型的任务总在同一个线程上按顺序处理，
+ * 还没有处理的同类型任务会被合并；每个线程一次取出一批任务交给处理器
+ *
+ * @author Nacos
+ */
+public final class ShardedTaskManager {
+
+    private static final Logger log = LogUtil.defaultLog;
+
+    private final Shard[] shards;
+
+    private final int batchSize;
+
+    private volatile TaskProcessor defaultTaskProcessor;
+
+    private volatile boolean closed = false;
+
+    @SuppressWarnings("PMD.AvoidManuallyCreateThreadRule")
+    public ShardedTaskManager(String name, int shardCount, int batchSize) {
+        this.batchSize = batchSize;
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard();
+            Thread thread = new Thread(shards[i], name + "-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    public void setDefaultTaskProcessor(TaskProcessor defaultTaskProcessor) {
+        this.defaultTaskProcessor = defaultTaskProcessor;
+    }
+
+    /**
+     * 将任务加入到所在分片，同类型未处理的任务合并到新任务中
+     */
+    public void addTask(String type, AbstractTask task) {
+        shards[(type.hashCode() & Integer.MAX_VALUE) % shards.length].add(type, task);
+    }
+
+    public int size() {
+        int size = 0;
+        for (Shard shard : shards) {
+            size += shard.size();
+        }
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public void close() {
+        closed = true;
+        for (Shard shard : shards) {
+            shard.wakeUp();
+        }
+    }
+
+    private static class TaskEntry {
+
+        private final AbstractTask task;
+
+        /**
+         * 最早一次加入的时间，合并后保留，用于统计处理延迟
+         */
+        private final long addedMillis;
+
+        TaskEntry(AbstractTask task, long addedMillis) {
+            this.task = task;
+            this.addedMillis = addedMillis;
+        }
+    }
+
+    class Shard implements Runnable {
+
+        private final ReentrantLock lock = new ReentrantLock();
+
+        private final Condition notEmpty = lock.newCondition();
+
+        /**
+         * 按加入顺序排列，合并不改变任务的位置
+         */
+        private final LinkedHashMap<String, TaskEntry> tasks = new LinkedHashMap<String, TaskEntry>();
+
+        void add(String type, AbstractTask task) {
+            lock.lock();
+            try {
+                long addedMillis = System.currentTimeMillis();
+                TaskEntry oldEntry = tasks.get(type);
+                if (null != oldEntry) {
+                    task.merge(oldEntry.task);
+                    addedMillis = oldEntry.addedMillis;
+                } else {
+                    MetricsMonitor.getDumpQueueMonitor().incrementAndGet();
+                }
+                tasks.put(type, new TaskEntry(task, addedMillis));
+                notEmpty.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * 处理失败的任务重新加入，已经有同类型的新任务时以新任务为准
+         */
+        void retry(String type, TaskEntry entry) {
+            lock.lock();
+            try {
+                if (!tasks.containsKey(type)) {
+                    tasks.put(type, entry);
+                    MetricsMonitor.getDumpQueueMonitor().incrementAndGet();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        int size() {
+            lock.lock();
+            try {
+                return tasks.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void wakeUp() {
+            lock.lock();
+            try {
+                notEmpty.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void run() {
+            while (!closed) {
+                try {
+                    Map<String, TaskEntry> batch = take();
+                    if (null != batch) {
+                        process(batch);
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                } catch (Throwable t) {
+                    log.error("[task-fail] process tasks failed.", t);
+                }
+            }
+        }
+
+        /**
+         * 取出一批当前需要处理的任务，没有时等待新任务或者最近一个失败任务的重试时间
+         */
+        private Map<String, TaskEntry> take() throws InterruptedException {
+            lock.lock();
+            try {
+                while (!closed) {
+                    Map<String, TaskEntry> batch = new LinkedHashMap<String, TaskEntry>();
+                    long waitMillis = Long.MAX_VALUE;
+                    long now = System.currentTimeMillis();
+                    Iterator<Map.Entry<String, TaskEntry>> iterator = tasks.entrySet().iterator();
+                    while (iterator.hasNext() && batch.size() < batchSize) {
+                        Map.Entry<String, TaskEntry> entry = iterator.next();
+                        AbstractTask task = entry.getValue().task;
+                        if (task.shouldProcess()) {
+                            iterator.remove();
+                            batch.put(entry.getKey(), entry.getValue());
+                        } else {
+                            waitMillis = Math.min(waitMillis,
+                                task.getLastProcessTime() + task.getTaskInterval() - now);
+                        }
+                    }
+
+                    if (!batch.isEmpty()) {
+                        MetricsMonitor.getDumpQueueMonitor().addAndGet(-batch.size());
+                        return batch;
+                    }
+                    if (waitMillis == Long.MAX_VALUE) {
+                        notEmpty.await();
+                    } else {
+                        notEmpty.await(Math.max(waitMillis, 1L), TimeUnit.MILLISECONDS);
+                    }
+                }
+                return null;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void process(Map<String, TaskEntry> batch) {
+            TaskProcessor processor = defaultTaskProcessor;
+            Set<String> failed = new HashSet<String>();
+            if (processor instanceof BatchTaskProcessor) {
+                Map<String, AbstractTask> tasks = new LinkedHashMap<String, AbstractTask>(batch.size());
+                for (Map.Entry<String, TaskEntry> entry : batch.entrySet()) {
+                    tasks.put(entry.getKey(), entry.getValue().task);
+                }
+                try {
+                    Set<String> result = ((BatchTaskProcessor)processor).process(tasks);
+                    if (null != result) {
+                        failed = result;
+                    }
+                } catch (Throwable t) {
+                    log.error("[task-fail] process batch of " + batch.size() + " failed.", t);
+                    failed = batch.keySet();
+                }
+            } else {
+                for (Map.Entry<String, TaskEntry> entry : batch.entrySet()) {
+                    boolean result = false;
+                    try {
+                        result = null != processor && processor.process(entry.getKey(), entry.getValue().task);
+                    } catch (Throwable t) {
+                        log.error("[task-fail] process task " + entry.getKey() + " failed.", t);
+                    }
+                    if (!result) {
+                        failed.add(entry.getKey());
+                    }
+                }
+            }
+
+            long now = System.currentTimeMillis();
+            for (Map.Entry<String, TaskEntry> entry : batch.entrySet()) {
+                TaskEntry taskEntry = entry.getValue();
+                if (failed.contains(entry.getKey())) {
+                    taskEntry.task.setLastProcessTime(now);
+                    retry(entry.getKey(), taskEntry);
+                } else {
+                    MetricsMonitor.getDumpLatencyTimer().record(now - taskEntry.addedMillis, TimeUnit.MILLISECONDS);
+                }
+            }
+        }
+    }
+}
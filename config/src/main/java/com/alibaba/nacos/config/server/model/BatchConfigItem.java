@@ -0,0 +1,101 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.config.server.model;
+
+import java.io.Serializable;
+
+/**
+ * 批量取配置时单个配置的结果
+ *
+ * @author Nacos
+ */
+public class BatchConfigItem implements Serializable {
+
+    private static final long serialVersionUID = -2418738529178713592L;
+
+    private String dataId;
+
+    private String group;
+
+    private String tenant;
+
+    /**
+     * 与单个取配置接口的HTTP状态码一致，200、404或409
+     */
+    private int code;
+
+    private String md5;
+
+    private String content;
+
+    public BatchConfigItem() {
+    }
+
+    public BatchConfigItem(String dataId, String group, String tenant) {
+        this.dataId = dataId;
+        this.group = group;
+        this.tenant = tenant;
+    }
+
+    public String getDataId() {
+        return dataId;
+    }
+
+    public void setDataId(String dataId) {
+        this.dataId = dataId;
+    }
+
+    public String getGroup() {
+        return group;
+    }
+
+    public void setGroup(String group) {
+        this.group = group;
+    }
+
+    public String getTenant() {
+        return tenant;
+    }
+
+    public void setTenant(String tenant) {
+        this.tenant = tenant;
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    public void setCode(int code) {
+        this.code = code;
+    }
+
+    public String getMd5() {
+        return md5;
+    }
+
+    public void setMd5(String md5) {
+        this.md5 = md5;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public void setContent(String content) {
+        this.content = content;
+    }
+
+}
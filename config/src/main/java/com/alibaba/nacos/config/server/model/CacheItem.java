@@ -21,6 +21,7 @@ import com.alibaba.nacos.config.server.utils.SingletonRepository.DataIdGroupIdCa
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * cache item
@@ -34,19 +35,52 @@ public class CacheItem {
     }
 
     public String getMd5() {
-        return md5;
+        return version.get().getMd5();
     }
 
-    public void setMd5(String md5) {
-        this.md5 = md5;
+    public long getLastModifiedTs() {
+        return version.get().getLastModifiedTs();
     }
 
-    public long getLastModifiedTs() {
-        return lastModifiedTs;
+    public ConfigVersion getVersion() {
+        return version.get();
+    }
+
+    public void setVersion(ConfigVersion version) {
+        this.version.set(version);
+    }
+
+    public boolean compareAndSetVersion(ConfigVersion expect, ConfigVersion update) {
+        return version.compareAndSet(expect, update);
+    }
+
+    public CachedContent getContent() {
+        return version.get().getContent();
+    }
+
+    /**
+     * 持有写锁后开始修改磁盘文件和md5，序号变为奇数
+     */
+    public void beginWrite() {
+        writeSeq++;
     }
 
-    public void setLastModifiedTs(long lastModifiedTs) {
-        this.lastModifiedTs = lastModifiedTs;
+    /**
+     * 修改完成，序号变回偶数
+     */
+    public void endWrite() {
+        writeSeq++;
+    }
+
+    /**
+     * 读取方在读文件前后各取一次序号，两次相同且为偶数说明期间没有修改，读到的文件和md5一致
+     */
+    public long getWriteSeq() {
+        return writeSeq;
+    }
+
+    public static boolean isWriting(long writeSeq) {
+        return (writeSeq & 1L) != 0;
     }
 
     public boolean isBeta() {
@@ -110,8 +144,11 @@ public class CacheItem {
     }
 
     final String groupKey;
-    public volatile String md5 = Constants.NULL;
-    public volatile long lastModifiedTs;
+    private final AtomicReference<ConfigVersion> version = new AtomicReference<ConfigVersion>(ConfigVersion.EMPTY);
+    /**
+     * 只在写锁内修改
+     */
+    private volatile long writeSeq = 0;
 
     /**
      * use for beta
@@ -0,0 +1,64 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.config.server.model;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 缓存在内存中的配置内容，与磁盘文件的字节一致
+ *
+ * @author Nacos
+ */
+public class CachedContent {
+
+    public CachedContent(ByteBuffer bytes, long lastModified) {
+        this.bytes = bytes.asReadOnlyBuffer();
+        this.lastModified = lastModified;
+    }
+
+    /**
+     * 每次返回独立的读位置，可以并发写入多个响应
+     */
+    public ByteBuffer getBytes() {
+        return bytes.duplicate();
+    }
+
+    public int getSize() {
+        return bytes.remaining();
+    }
+
+    /**
+     * 缓存内容对应的磁盘文件修改时间
+     */
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    public boolean isReferenced() {
+        return referenced;
+    }
+
+    public void setReferenced(boolean referenced) {
+        this.referenced = referenced;
+    }
+
+    private final ByteBuffer bytes;
+    private final long lastModified;
+    /**
+     * 上次淘汰检查后被读取过，淘汰时多保留一轮
+     */
+    private volatile boolean referenced;
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.config.server.model;
+
+import java.io.Serializable;
+
+/**
+ * 集群内批量通知时单个配置的变更，content为空时接收方从数据库读取
+ *
+ * @author Nacos
+ */
+public class ConfigDataChangeItem implements Serializable {
+
+    private static final long serialVersionUID = 6250381470322245519L;
+
+    private String dataId;
+
+    private String group;
+
+    private String tenant;
+
+    private String tag;
+
+    private boolean beta;
+
+    private String content;
+
+    private String md5;
+
+    private long lastModified;
+
+    public ConfigDataChangeItem() {
+    }
+
+    public ConfigDataChangeItem(String dataId, String group, String tenant, String tag, boolean beta,
+                                long lastModified) {
+        this.dataId = dataId;
+        this.group = group;
+        this.tenant = tenant;
+        this.tag = tag;
+        this.beta = beta;
+        this.lastModified = lastModified;
+    }
+
+    public String getDataId() {
+        return dataId;
+    }
+
+    public void setDataId(String dataId) {
+        this.dataId = dataId;
+    }
+
+    public String getGroup() {
+        return group;
+    }
+
+    public void setGroup(String group) {
+        this.group = group;
+    }
+
+    public String getTenant() {
+        return tenant;
+    }
+
+    public void setTenant(String tenant) {
+        this.tenant = tenant;
+    }
+
+    public String getTag() {
+        return tag;
+    }
+
+    public void setTag(String tag) {
+        this.tag = tag;
+    }
+
+    public boolean isBeta() {
+        return beta;
+    }
+
+    public void setBeta(boolean beta) {
+        this.beta = beta;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public void setContent(String content) {
+        this.content = content;
+    }
+
+    public String getMd5() {
+        return md5;
+    }
+
+    public void setMd5(String md5) {
+        this.md5 = md5;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    public void setLastModified(long lastModified) {
+        this.lastModified = lastModified;
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.config.server.model;
+
+import com.alibaba.nacos.config.server.constant.Constants;
+
+/**
+ * 正式配置的一个版本，创建后不再修改。CacheItem整体替换版本，读取方拿到的md5、修改时间和内容总是一致的
+ *
+ * @author Nacos
+ */
+public class ConfigVersion {
+
+    public static final ConfigVersion EMPTY = new ConfigVersion(Constants.NULL, 0L, null);
+
+    public ConfigVersion(String md5, long lastModifiedTs, CachedContent content) {
+        this.md5 = md5;
+        this.lastModifiedTs = lastModifiedTs;
+        this.content = content;
+    }
+
+    public String getMd5() {
+        return md5;
+    }
+
+    public long getLastModifiedTs() {
+        return lastModifiedTs;
+    }
+
+    /**
+     * 该版本缓存在内存中的内容，未缓存时为null
+     */
+    public CachedContent getContent() {
+        return content;
+    }
+
+    public ConfigVersion withContent(CachedContent content) {
+        return new ConfigVersion(md5, lastModifiedTs, content);
+    }
+
+    private final String md5;
+    private final long lastModifiedTs;
+    private final CachedContent content;
+}
@@ -20,6 +20,7 @@ import io.micrometer.core.instrument.*;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Metrics Monitor
@@ -33,6 +34,8 @@ public class MetricsMonitor {
     private static AtomicInteger configCount = new AtomicInteger();
     private static AtomicInteger notifyTask = new AtomicInteger();
     private static AtomicInteger dumpTask = new AtomicInteger();
+    private static AtomicInteger dumpQueue = new AtomicInteger();
+    private static AtomicLong contentCache = new AtomicLong();
 
     static {
         List<Tag> tags = new ArrayList<Tag>();
@@ -65,6 +68,16 @@ public class MetricsMonitor {
         tags.add(new ImmutableTag("name", "dumpTask"));
 
         Metrics.gauge("nacos_monitor", tags, dumpTask);
+
+        tags = new ArrayList<Tag>();
+        tags.add(new ImmutableTag("module", "config"));
+        tags.add(new ImmutableTag("name", "dumpQueue"));
+        Metrics.gauge("nacos_monitor", tags, dumpQueue);
+
+        tags = new ArrayList<Tag>();
+        tags.add(new ImmutableTag("module", "config"));
+        tags.add(new ImmutableTag("name", "contentCache"));
+        Metrics.gauge("nacos_monitor", tags, contentCache);
     }
 
     public static AtomicInteger getConfigMonitor() {
@@ -91,6 +104,22 @@ public class MetricsMonitor {
         return dumpTask;
     }
 
+    public static AtomicInteger getDumpQueueMonitor() {
+        return dumpQueue;
+    }
+
+    public static AtomicLong getContentCacheMonitor() {
+        return contentCache;
+    }
+
+    /**
+     * 单条配置从加入dump队列到处理完成的时间
+     */
+    public static Timer getDumpLatencyTimer() {
+        return Metrics.timer("nacos_timer",
+            "module", "config", "name", "dumpLatency");
+    }
+
     public static Timer getNotifyRtTimer() {
         return Metrics.timer("nacos_timer",
             "module", "config", "name", "notifyRt");
@@ -31,6 +31,10 @@ public class ConfigDataChangeEvent implements Event {
     final public String tenant;
     final public String tag;
     final public long lastModifiedTs;
+    /**
+     * 已提交的配置内容，不为空时可以随集群通知一起发送
+     */
+    final public String content;
 
     public ConfigDataChangeEvent(String dataId, String group, long gmtModified) {
         this(false, dataId, group, gmtModified);
@@ -46,6 +50,7 @@ public class ConfigDataChangeEvent implements Event {
         this.tenant = tenant;
         this.tag = null;
         this.lastModifiedTs = gmtModified;
+        this.content = null;
     }
 
     public ConfigDataChangeEvent(boolean isBeta, String dataId, String group, long gmtModified) {
@@ -63,6 +68,20 @@ public class ConfigDataChangeEvent implements Event {
         this.tenant = tenant;
         this.tag = tag;
         this.lastModifiedTs = gmtModified;
+        this.content = null;
+    }
+
+    public ConfigDataChangeEvent(String dataId, String group, String tenant, String content, long gmtModified) {
+        if (null == dataId || null == group) {
+            throw new IllegalArgumentException();
+        }
+        this.isBeta = false;
+        this.dataId = dataId;
+        this.group = group;
+        this.tenant = tenant;
+        this.tag = null;
+        this.lastModifiedTs = gmtModified;
+        this.content = content;
     }
 
 }
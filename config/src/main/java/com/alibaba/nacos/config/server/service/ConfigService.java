@@ -18,6 +18,7 @@ package com.alibaba.nacos.config.server.service;
 import com.alibaba.nacos.config.server.constant.Constants;
 import com.alibaba.nacos.config.server.model.CacheItem;
 import com.alibaba.nacos.config.server.model.ConfigInfoBase;
+import com.alibaba.nacos.config.server.model.ConfigVersion;
 import com.alibaba.nacos.config.server.utils.GroupKey;
 import com.alibaba.nacos.config.server.utils.GroupKey2;
 import com.alibaba.nacos.config.server.utils.MD5;
@@ -59,8 +60,8 @@ public class ConfigService {
      */
     static public boolean dump(String dataId, String group, String tenant, String content, long lastModifiedTs) {
         String groupKey = GroupKey2.getKey(dataId, group, tenant);
-        makeSure(groupKey);
-        final int lockResult = tryWriteLock(groupKey);
+        CacheItem item = makeSure(groupKey);
+        final int lockResult = tryWriteLock(item, groupKey);
         assert (lockResult != 0);
 
         if (lockResult < 0) {
@@ -70,6 +71,7 @@ public class ConfigService {
 
         try {
             final String md5 = MD5.getInstance().getMD5String(content);
+            boolean refreshContent = false;
             if (md5.equals(ConfigService.getContentMd5(groupKey))) {
                 dumpLog.warn(
                     "[dump-ignore] ignore to save cache file. groupKey={}, md5={}, lastModifiedOld={}, "
@@ -77,8 +79,12 @@ public class ConfigService {
                     groupKey, md5, ConfigService.getLastModifiedTs(groupKey), lastModifiedTs);
             } else if (!STANDALONE_MODE || PropertyUtil.isStandaloneUseMysql()) {
                 DiskUtil.saveToDisk(dataId, group, tenant, content);
+                refreshContent = item.getContent() != null;
             }
             updateMd5(groupKey, md5, lastModifiedTs);
+            if (refreshContent) {
+                ContentCache.refresh(item, content, DiskUtil.targetFile(dataId, group, tenant));
+            }
             return true;
         } catch (IOException ioe) {
             dumpLog.error("[dump-exception] save disk error. " + groupKey + ", " + ioe.toString(), ioe);
@@ -93,7 +99,7 @@ public class ConfigService {
             }
             return false;
         } finally {
-            releaseWriteLock(groupKey);
+            releaseWriteLock(item);
         }
     }
 
@@ -104,8 +110,8 @@ public class ConfigService {
                                    String betaIps) {
         final String groupKey = GroupKey2.getKey(dataId, group, tenant);
 
-        makeSure(groupKey);
-        final int lockResult = tryWriteLock(groupKey);
+        CacheItem item = makeSure(groupKey);
+        final int lockResult = tryWriteLock(item, groupKey);
         assert (lockResult != 0);
 
         if (lockResult < 0) {
@@ -132,7 +138,7 @@ public class ConfigService {
                 ioe);
             return false;
         } finally {
-            releaseWriteLock(groupKey);
+            releaseWriteLock(item);
         }
     }
 
@@ -143,8 +149,8 @@ public class ConfigService {
                                   long lastModifiedTs) {
         final String groupKey = GroupKey2.getKey(dataId, group, tenant);
 
-        makeSure(groupKey);
-        final int lockResult = tryWriteLock(groupKey);
+        CacheItem item = makeSure(groupKey);
+        final int lockResult = tryWriteLock(item, groupKey);
         assert (lockResult != 0);
 
         if (lockResult < 0) {
@@ -170,7 +176,7 @@ public class ConfigService {
                 ioe);
             return false;
         } finally {
-            releaseWriteLock(groupKey);
+            releaseWriteLock(item);
         }
     }
 
@@ -180,8 +186,8 @@ public class ConfigService {
     static public boolean dumpChange(String dataId, String group, String tenant, String content, long lastModifiedTs) {
         final String groupKey = GroupKey2.getKey(dataId, group, tenant);
 
-        makeSure(groupKey);
-        final int lockResult = tryWriteLock(groupKey);
+        CacheItem item = makeSure(groupKey);
+        final int lockResult = tryWriteLock(item, groupKey);
         assert (lockResult != 0);
 
         if (lockResult < 0) {
@@ -191,6 +197,7 @@ public class ConfigService {
 
         try {
             final String md5 = MD5.getInstance().getMD5String(content);
+            boolean refreshContent = false;
             if (!STANDALONE_MODE || PropertyUtil.isStandaloneUseMysql()) {
                 String loacalMd5 = DiskUtil.getLocalConfigMd5(dataId, group, tenant);
                 if (md5.equals(loacalMd5)) {
@@ -200,16 +207,20 @@ public class ConfigService {
                         groupKey, md5, ConfigService.getLastModifiedTs(groupKey), lastModifiedTs);
                 } else {
                     DiskUtil.saveToDisk(dataId, group, tenant, content);
+                    refreshContent = item.getContent() != null;
                 }
             }
             updateMd5(groupKey, md5, lastModifiedTs);
+            if (refreshContent) {
+                ContentCache.refresh(item, content, DiskUtil.targetFile(dataId, group, tenant));
+            }
             return true;
         } catch (IOException ioe) {
             dumpLog.error("[dump-exception] save disk error. " + groupKey + ", " + ioe.toString(),
                 ioe);
             return false;
         } finally {
-            releaseWriteLock(groupKey);
+            releaseWriteLock(item);
         }
     }
 
@@ -285,7 +296,7 @@ public class ConfigService {
             String tenant = dg[2];
             try {
                 String loacalMd5 = DiskUtil.getLocalConfigMd5(dataId, group, tenant);
-                if (!entry.getValue().md5.equals(loacalMd5)) {
+                if (!entry.getValue().getMd5().equals(loacalMd5)) {
                     defaultLog.warn("[md5-different] dataId:{},group:{}",
                         dataId, group);
                     diffList.add(groupKey);
@@ -306,7 +317,8 @@ public class ConfigService {
      */
     static public boolean remove(String dataId, String group, String tenant) {
         final String groupKey = GroupKey2.getKey(dataId, group, tenant);
-        final int lockResult = tryWriteLock(groupKey);
+        final CacheItem item = CACHE.get(groupKey);
+        final int lockResult = tryWriteLock(item, groupKey);
         /**
          *  数据不存在
          */
@@ -326,12 +338,13 @@ public class ConfigService {
             if (!STANDALONE_MODE || PropertyUtil.isStandaloneUseMysql()) {
                 DiskUtil.removeConfigInfo(dataId, group, tenant);
             }
+            ContentCache.remove(item);
             CACHE.remove(groupKey);
             EventDispatcher.fireEvent(new LocalDataChangeEvent(groupKey));
 
             return true;
         } finally {
-            releaseWriteLock(groupKey);
+            releaseWriteLock(item);
         }
     }
 
@@ -340,7 +353,8 @@ public class ConfigService {
      */
     static public boolean removeBeta(String dataId, String group, String tenant) {
         final String groupKey = GroupKey2.getKey(dataId, group, tenant);
-        final int lockResult = tryWriteLock(groupKey);
+        final CacheItem item = CACHE.get(groupKey);
+        final int lockResult = tryWriteLock(item, groupKey);
         /**
          *  数据不存在
          */
@@ -360,13 +374,13 @@ public class ConfigService {
             if (!STANDALONE_MODE || PropertyUtil.isStandaloneUseMysql()) {
                 DiskUtil.removeConfigInfo4Beta(dataId, group, tenant);
             }
-            EventDispatcher.fireEvent(new LocalDataChangeEvent(groupKey, true, CACHE.get(groupKey).getIps4Beta()));
-            CACHE.get(groupKey).setBeta(false);
-            CACHE.get(groupKey).setIps4Beta(null);
-            CACHE.get(groupKey).setMd54Beta(Constants.NULL);
+            EventDispatcher.fireEvent(new LocalDataChangeEvent(groupKey, true, item.getIps4Beta()));
+            item.setBeta(false);
+            item.setIps4Beta(null);
+            item.setMd54Beta(Constants.NULL);
             return true;
         } finally {
-            releaseWriteLock(groupKey);
+            releaseWriteLock(item);
         }
     }
 
@@ -375,7 +389,8 @@ public class ConfigService {
      */
     static public boolean removeTag(String dataId, String group, String tenant, String tag) {
         final String groupKey = GroupKey2.getKey(dataId, group, tenant);
-        final int lockResult = tryWriteLock(groupKey);
+        final CacheItem item = CACHE.get(groupKey);
+        final int lockResult = tryWriteLock(item, groupKey);
         /**
          *  数据不存在
          */
@@ -396,21 +411,27 @@ public class ConfigService {
                 DiskUtil.removeConfigInfo4Tag(dataId, group, tenant, tag);
             }
 
-            CacheItem ci = CACHE.get(groupKey);
-            ci.tagMd5.remove(tag);
-            ci.tagLastModifiedTs.remove(tag);
+            Map<String, String> tagMd5Tmp = new HashMap<String, String>(item.tagMd5);
+            tagMd5Tmp.remove(tag);
+            Map<String, Long> tagLastModifiedTsTmp = new HashMap<String, Long>(item.tagLastModifiedTs);
+            tagLastModifiedTsTmp.remove(tag);
+            item.tagMd5 = tagMd5Tmp;
+            item.tagLastModifiedTs = tagLastModifiedTsTmp;
             EventDispatcher.fireEvent(new LocalDataChangeEvent(groupKey, false, null, tag));
             return true;
         } finally {
-            releaseWriteLock(groupKey);
+            releaseWriteLock(item);
         }
     }
 
     public static void updateMd5(String groupKey, String md5, long lastModifiedTs) {
         CacheItem cache = makeSure(groupKey);
-        if (cache.md5 == null || !cache.md5.equals(md5)) {
-            cache.md5 = md5;
-            cache.lastModifiedTs = lastModifiedTs;
+        ConfigVersion old = cache.getVersion();
+        if (old.getMd5() == null || !old.getMd5().equals(md5)) {
+            cache.setVersion(new ConfigVersion(md5, lastModifiedTs, null));
+            if (old.getContent() != null) {
+                ContentCache.remove(cache);
+            }
             EventDispatcher.fireEvent(new LocalDataChangeEvent(groupKey));
         }
     }
@@ -437,14 +458,21 @@ public class ConfigService {
                 tagLastModifiedTsTmp.put(tag, lastModifiedTs);
                 cache.tagLastModifiedTs = tagLastModifiedTsTmp;
             } else {
-                cache.tagLastModifiedTs.put(tag, lastModifiedTs);
+                Map<String, Long> tagLastModifiedTsTmp = new HashMap<String, Long>(cache.tagLastModifiedTs);
+                tagLastModifiedTsTmp.put(tag, lastModifiedTs);
+                cache.tagLastModifiedTs = tagLastModifiedTsTmp;
             }
             EventDispatcher.fireEvent(new LocalDataChangeEvent(groupKey, false, null, tag));
             return;
         }
         if (cache.tagMd5.get(tag) == null || !cache.tagMd5.get(tag).equals(md5)) {
-            cache.tagMd5.put(tag, md5);
-            cache.tagLastModifiedTs.put(tag, lastModifiedTs);
+            // 读取不加锁，替换成新的Map而不是原地修改
+            Map<String, String> tagMd5Tmp = new HashMap<String, String>(cache.tagMd5);
+            tagMd5Tmp.put(tag, md5);
+            Map<String, Long> tagLastModifiedTsTmp = new HashMap<String, Long>(cache.tagLastModifiedTs);
+            tagLastModifiedTsTmp.put(tag, lastModifiedTs);
+            cache.tagLastModifiedTs = tagLastModifiedTsTmp;
+            cache.tagMd5 = tagMd5Tmp;
             EventDispatcher.fireEvent(new LocalDataChangeEvent(groupKey, false, null, tag));
         }
     }
@@ -454,7 +482,7 @@ public class ConfigService {
      */
     static public String getContentMd5(String groupKey) {
         CacheItem item = CACHE.get(groupKey);
-        return (null != item) ? item.md5 : Constants.NULL;
+        return (null != item) ? item.getMd5() : Constants.NULL;
     }
 
     /**
@@ -506,12 +534,12 @@ public class ConfigService {
                 return item.tagMd5.get(tag);
             }
         }
-        return (null != item) ? item.md5 : Constants.NULL;
+        return (null != item) ? item.getMd5() : Constants.NULL;
     }
 
     static public long getLastModifiedTs(String groupKey) {
         CacheItem item = CACHE.get(groupKey);
-        return (null != item) ? item.lastModifiedTs : 0L;
+        return (null != item) ? item.getLastModifiedTs() : 0L;
     }
 
     static public boolean isUptodate(String groupKey, String md5) {
@@ -525,47 +553,42 @@ public class ConfigService {
     }
 
     /**
-     * 给数据加读锁。如果成功，后面必须调用{@link #releaseReadLock(String)}，失败则不需要。
+     * 给数据加写锁。如果成功，后面必须对同一个CacheItem调用{@link #releaseWriteLock(CacheItem)}，失败则不需要。
+     * 加锁期间CacheItem可能被删除并重新创建，释放时不能再按groupKey查找。
      *
+     * @param groupItem 要加锁的数据，可以为null
      * @param groupKey
-     * @return 零表示没有数据，失败。正数表示成功，负数表示有写锁导致加锁失败。
+     * @return 零表示没有数据，失败。正数表示成功，负数表示加锁失败。
      */
-    static public int tryReadLock(String groupKey) {
-        CacheItem groupItem = CACHE.get(groupKey);
-        int result = (null == groupItem) ? 0 : (groupItem.rwLock.tryReadLock() ? 1 : -1);
+    static int tryWriteLock(CacheItem groupItem, String groupKey) {
+        int result = (null == groupItem) ? 0 : (groupItem.rwLock.tryWriteLock() ? 1 : -1);
         if (result < 0) {
-            defaultLog.warn("[read-lock] failed, {}, {}", result, groupKey);
+            defaultLog.warn("[write-lock] failed, {}, {}", result, groupKey);
+        } else if (result > 0) {
+            groupItem.beginWrite();
         }
         return result;
     }
 
-    static public void releaseReadLock(String groupKey) {
-        CacheItem item = CACHE.get(groupKey);
-        if (null != item) {
-            item.rwLock.releaseReadLock();
-        }
+    static void releaseWriteLock(CacheItem groupItem) {
+        groupItem.endWrite();
+        groupItem.rwLock.releaseWriteLock();
     }
 
     /**
-     * 给数据加写锁。如果成功，后面必须调用{@link #releaseWriteLock(String)}，失败则不需要。
-     *
-     * @param groupKey
-     * @return 零表示没有数据，失败。正数表示成功，负数表示加锁失败。
+     * 写锁释放前最多等待timeoutMillis后加读锁。如果成功，后面必须调用{@link #releaseReadLock(CacheItem)}，失败则不需要。
+     * 只在不加锁读取多次被dump打断时使用。
      */
-    static int tryWriteLock(String groupKey) {
-        CacheItem groupItem = CACHE.get(groupKey);
-        int result = (null == groupItem) ? 0 : (groupItem.rwLock.tryWriteLock() ? 1 : -1);
-        if (result < 0) {
-            defaultLog.warn("[write-lock] failed, {}, {}", result, groupKey);
+    static public boolean readLock(CacheItem groupItem, long timeoutMillis) throws InterruptedException {
+        boolean result = groupItem.rwLock.readLock(timeoutMillis);
+        if (!result) {
+            defaultLog.warn("[read-lock] failed, {}", groupItem.getGroupKey());
         }
         return result;
     }
 
-    static void releaseWriteLock(String groupKey) {
-        CacheItem groupItem = CACHE.get(groupKey);
-        if (null != groupItem) {
-            groupItem.rwLock.releaseWriteLock();
-        }
+    static public void releaseReadLock(CacheItem groupItem) {
+        groupItem.rwLock.releaseReadLock();
     }
 
     static CacheItem makeSure(final String groupKey) {
@@ -0,0 +1,162 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.config.server.service;
+
+import com.alibaba.nacos.config.server.constant.Constants;
+import com.alibaba.nacos.config.server.model.CacheItem;
+import com.alibaba.nacos.config.server.model.CachedContent;
+import com.alibaba.nacos.config.server.model.ConfigVersion;
+import com.alibaba.nacos.config.server.monitor.MetricsMonitor;
+import com.alibaba.nacos.config.server.utils.PropertyUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 正式配置内容的内存缓存。内容按磁盘文件的字节挂在CacheItem当前版本上，读配置时直接写入响应，不再打开文件。
+ * 总字节数超过contentCacheSize时按二次机会淘汰，磁盘文件仍是数据源，未命中或重启后从文件加载
+ *
+ * @author Nacos
+ */
+public class ContentCache {
+
+    static public boolean isEnabled() {
+        return PropertyUtil.getContentCacheSize() > 0;
+    }
+
+    /**
+     * 是否值得把这么大的文件整个读进内存缓存
+     */
+    static public boolean isCacheable(long length) {
+        return isEnabled() && length <= maxEntrySize();
+    }
+
+    static public CachedContent get(ConfigVersion version) {
+        CachedContent content = version.getContent();
+        if (content != null && !content.isReferenced()) {
+            content.setReferenced(true);
+        }
+        return content;
+    }
+
+    /**
+     * 把某个版本对应的文件内容挂到该版本上。内容过大或版本已被替换时不缓存，但返回的内容仍可用于本次读取。
+     * 调用方需保证bytes就是version对应的文件内容
+     */
+    static public CachedContent put(CacheItem item, ConfigVersion version, byte[] bytes, long lastModified) {
+        if (!isCacheable(bytes.length)) {
+            return new CachedContent(ByteBuffer.wrap(bytes), lastModified);
+        }
+        ByteBuffer buffer;
+        if (PropertyUtil.isContentCacheOffHeap()) {
+            buffer = ByteBuffer.allocateDirect(bytes.length);
+            buffer.put(bytes);
+            buffer.flip();
+        } else {
+            buffer = ByteBuffer.wrap(bytes);
+        }
+        CachedContent content = new CachedContent(buffer, lastModified);
+        synchronized (ITEMS) {
+            if (!item.compareAndSetVersion(version, version.withContent(content))) {
+                return content;
+            }
+            CachedContent old = ITEMS.remove(item);
+            if (old != null) {
+                size -= old.getSize();
+            }
+            ITEMS.put(item, content);
+            size += content.getSize();
+            evict();
+            MetricsMonitor.getContentCacheMonitor().set(size);
+        }
+        return content;
+    }
+
+    /**
+     * dump写入新文件并发布新版本后，为之前已缓存的配置缓存新内容。调用方需持有写锁
+     */
+    static public void refresh(CacheItem item, String content, File file) throws IOException {
+        put(item, item.getVersion(), content.getBytes(Constants.ENCODE), file.lastModified());
+    }
+
+    /**
+     * 版本被替换或配置被删除后释放旧内容占用的额度
+     */
+    static public void remove(CacheItem item) {
+        synchronized (ITEMS) {
+            CachedContent old = ITEMS.remove(item);
+            if (old == null) {
+                return;
+            }
+            size -= old.getSize();
+            detach(item, old);
+            MetricsMonitor.getContentCacheMonitor().set(size);
+        }
+    }
+
+    static long size() {
+        synchronized (ITEMS) {
+            return size;
+        }
+    }
+
+    /**
+     * 从最早加入的开始淘汰，期间被读过的移到队尾再保留一轮
+     */
+    private static void evict() {
+        long capacity = PropertyUtil.getContentCacheSize();
+        int chances = ITEMS.size();
+        while (size > capacity && !ITEMS.isEmpty()) {
+            Map.Entry<CacheItem, CachedContent> eldest = ITEMS.entrySet().iterator().next();
+            CacheItem item = eldest.getKey();
+            CachedContent content = eldest.getValue();
+            ITEMS.remove(item);
+            if (content.isReferenced() && chances-- > 0) {
+                content.setReferenced(false);
+                ITEMS.put(item, content);
+            } else {
+                size -= content.getSize();
+                detach(item, content);
+            }
+        }
+    }
+
+    /**
+     * 当前版本仍引用该内容时换成不带内容的同一版本，正在写出旧内容的请求持有自己的引用，不受影响
+     */
+    private static void detach(CacheItem item, CachedContent content) {
+        ConfigVersion version = item.getVersion();
+        while (version.getContent() == content && !item.compareAndSetVersion(version, version.withContent(null))) {
+            version = item.getVersion();
+        }
+    }
+
+    /**
+     * 单个配置最多占缓存的1/16，避免少数大配置挤掉热点配置
+     */
+    private static long maxEntrySize() {
+        return PropertyUtil.getContentCacheSize() / 16;
+    }
+
+    /**
+     * 按加入顺序排列的已缓存配置，CacheItem没有重写equals，按对象区分
+     */
+    private static final Map<CacheItem, CachedContent> ITEMS = new LinkedHashMap<CacheItem, CachedContent>();
+    private static long size = 0;
+}
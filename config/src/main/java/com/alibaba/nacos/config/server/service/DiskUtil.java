@@ -28,6 +28,11 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 
 import static com.alibaba.nacos.core.utils.SystemUtils.NACOS_HOME;
 
@@ -47,6 +52,11 @@ public class DiskUtil {
     static final String TENANT_BETA_DIR = File.separator + "data" + File.separator + "tenant-beta-data";
     static final String TAG_DIR = File.separator + "data" + File.separator + "tag-data";
     static final String TENANT_TAG_DIR = File.separator + "data" + File.separator + "tag-beta-data";
+    static final String TMP_DIR = File.separator + "data" + File.separator + "tmp-data";
+    /**
+     * 替换被打开的文件失败时的重试次数
+     */
+    static final int MOVE_RETRY_TIMES = 5;
 
     static public void saveHeartBeatToDisk(String heartBeatTime)
         throws IOException {
@@ -59,7 +69,7 @@ public class DiskUtil {
      */
     static public void saveToDisk(String dataId, String group, String tenant, String content) throws IOException {
         File targetFile = targetFile(dataId, group, tenant);
-        FileUtils.writeStringToFile(targetFile, content, Constants.ENCODE);
+        writeAtomically(targetFile, content);
     }
 
     /**
@@ -67,7 +77,7 @@ public class DiskUtil {
      */
     static public void saveBetaToDisk(String dataId, String group, String tenant, String content) throws IOException {
         File targetFile = targetBetaFile(dataId, group, tenant);
-        FileUtils.writeStringToFile(targetFile, content, Constants.ENCODE);
+        writeAtomically(targetFile, content);
     }
 
     /**
@@ -76,7 +86,56 @@ public class DiskUtil {
     static public void saveTagToDisk(String dataId, String group, String tenant, String tag, String content)
         throws IOException {
         File targetFile = targetTagFile(dataId, group, tenant, tag);
-        FileUtils.writeStringToFile(targetFile, content, Constants.ENCODE);
+        writeAtomically(targetFile, content);
+    }
+
+    /**
+     * 先写临时文件再改名替换，读配置不加锁，打开的总是某个版本的完整文件
+     */
+    static private void writeAtomically(File targetFile, String content) throws IOException {
+        File tmpDir = new File(NACOS_HOME, TMP_DIR);
+        FileUtils.forceMkdir(tmpDir);
+        FileUtils.forceMkdir(targetFile.getParentFile());
+        File tmpFile = File.createTempFile("config", ".tmp", tmpDir);
+        try {
+            FileUtils.writeStringToFile(tmpFile, content, Constants.ENCODE);
+            for (int i = 1; ; i++) {
+                try {
+                    move(tmpFile, targetFile);
+                    return;
+                } catch (FileSystemException e) {
+                    // Windows上目标文件被读取方打开时不能替换，读取很快结束，稍后重试
+                    if (i >= MOVE_RETRY_TIMES) {
+                        // 改为原地写入，写入期间打开文件的读取方会因写序号变化重新读取
+                        LogUtil.defaultLog.warn("[disk] failed to replace {}, write in place. {}", targetFile,
+                            e.toString());
+                        FileUtils.writeStringToFile(targetFile, content, Constants.ENCODE);
+                        return;
+                    }
+                    sleep(10L * i);
+                }
+            }
+        } finally {
+            FileUtils.deleteQuietly(tmpFile);
+        }
+    }
+
+    static private void move(File source, File target) throws IOException {
+        try {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    static private void sleep(long millis) throws InterruptedIOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while replacing config file");
+        }
     }
 
     /**
@@ -201,6 +260,18 @@ public class DiskUtil {
         }
     }
 
+    /**
+     * 清除上次运行中断时留下的临时文件
+     */
+    static public void clearTmp() {
+        File file = new File(NACOS_HOME, TMP_DIR);
+        if (FileUtils.deleteQuietly(file)) {
+            LogUtil.defaultLog.info("clear all tmp-data success.");
+        } else if (file.exists()) {
+            LogUtil.defaultLog.warn("clear all tmp-data failed.");
+        }
+    }
+
     static public void clearAllBeta() {
         File file = new File(NACOS_HOME, BETA_DIR);
         if (FileUtils.deleteQuietly(file)) {
@@ -80,8 +80,9 @@ public class LongPollingService extends AbstractEventListener {
         SampleResult sampleResult = new SampleResult();
         Map<String, String> lisentersGroupkeyStatus = new HashMap<String, String>(50);
 
-        for (ClientLongPolling clientLongPolling : allSubs) {
-            if (clientLongPolling.clientMd5Map.containsKey(groupKey)) {
+        Set<ClientLongPolling> subs = subsIndex.get(groupKey);
+        if (subs != null) {
+            for (ClientLongPolling clientLongPolling : subs) {
                 lisentersGroupkeyStatus.put(clientLongPolling.ip, clientLongPolling.clientMd5Map.get(groupKey));
             }
         }
@@ -259,7 +260,7 @@ public class LongPollingService extends AbstractEventListener {
         } else {
             if (event instanceof LocalDataChangeEvent) {
                 LocalDataChangeEvent evt = (LocalDataChangeEvent)event;
-                scheduler.execute(new DataChangeTask(evt.groupKey, evt.isBeta, evt.betaIps));
+                dataChangeExecutor.execute(new DataChangeTask(evt.groupKey, evt.isBeta, evt.betaIps));
             }
         }
     }
@@ -270,7 +271,8 @@ public class LongPollingService extends AbstractEventListener {
 
     @SuppressWarnings("PMD.ThreadPoolCreationRule")
     public LongPollingService() {
-        allSubs = new ConcurrentLinkedQueue<ClientLongPolling>();
+        allSubs = Collections.newSetFromMap(new ConcurrentHashMap<ClientLongPolling, Boolean>());
+        subsIndex = new ConcurrentHashMap<String, Set<ClientLongPolling>>();
 
         scheduler = Executors.newScheduledThreadPool(1, new ThreadFactory() {
             @Override
@@ -282,6 +284,17 @@ public class LongPollingService extends AbstractEventListener {
             }
         });
         scheduler.scheduleWithFixedDelay(new StatTask(), 0L, 10L, TimeUnit.SECONDS);
+
+        int notifyThreadCount = Math.max(2, Runtime.getRuntime().availableProcessors());
+        dataChangeExecutor = Executors.newFixedThreadPool(notifyThreadCount, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r);
+                t.setDaemon(true);
+                t.setName("com.alibaba.nacos.LongPolling.notifier");
+                return t;
+            }
+        });
     }
 
     // =================
@@ -291,10 +304,51 @@ public class LongPollingService extends AbstractEventListener {
 
     final ScheduledExecutorService scheduler;
 
+    /**
+     * 推送配置变更的线程池，一个热点配置的推送不会阻塞其他配置的推送
+     */
+    final ExecutorService dataChangeExecutor;
+
     /**
      * 长轮询订阅关系
      */
-    final Queue<ClientLongPolling> allSubs;
+    final Set<ClientLongPolling> allSubs;
+
+    /**
+     * groupKey到正在等待该配置的长轮询的索引
+     */
+    final ConcurrentMap<String, Set<ClientLongPolling>> subsIndex;
+
+    void addSub(final ClientLongPolling sub) {
+        allSubs.add(sub);
+        for (String groupKey : sub.clientMd5Map.keySet()) {
+            subsIndex.compute(groupKey, (key, subs) -> {
+                if (subs == null) {
+                    subs = Collections.newSetFromMap(new ConcurrentHashMap<ClientLongPolling, Boolean>());
+                }
+                subs.add(sub);
+                return subs;
+            });
+        }
+    }
+
+    /**
+     * 删除订阅关系，每个长轮询只有一个调用方能删除成功并负责返回响应
+     *
+     * @return 是否由本次调用删除
+     */
+    boolean removeSub(final ClientLongPolling sub) {
+        if (!allSubs.remove(sub)) {
+            return false;
+        }
+        for (String groupKey : sub.clientMd5Map.keySet()) {
+            subsIndex.computeIfPresent(groupKey, (key, subs) -> {
+                subs.remove(sub);
+                return subs.isEmpty() ? null : subs;
+            });
+        }
+        return true;
+    }
 
     // =================
 
@@ -303,29 +357,34 @@ public class LongPollingService extends AbstractEventListener {
         public void run() {
             try {
                 ConfigService.getContentBetaMd5(groupKey);
-                for (Iterator<ClientLongPolling> iter = allSubs.iterator(); iter.hasNext(); ) {
-                    ClientLongPolling clientSub = iter.next();
-                    if (clientSub.clientMd5Map.containsKey(groupKey)) {
-                        // 如果beta发布且不在beta列表直接跳过
-                        if (isBeta && !betaIps.contains(clientSub.ip)) {
-                            continue;
-                        }
+                Set<ClientLongPolling> subs = subsIndex.get(groupKey);
+                if (subs == null) {
+                    return;
+                }
+                for (ClientLongPolling clientSub : subs) {
+                    // 如果beta发布且不在beta列表直接跳过
+                    if (isBeta && !betaIps.contains(clientSub.ip)) {
+                        continue;
+                    }
 
-                        // 如果tag发布且不在tag列表直接跳过
-                        if (StringUtils.isNotBlank(tag) && !tag.equals(clientSub.tag)) {
-                            continue;
-                        }
+                    // 如果tag发布且不在tag列表直接跳过
+                    if (StringUtils.isNotBlank(tag) && !tag.equals(clientSub.tag)) {
+                        continue;
+                    }
 
-                        getRetainIps().put(clientSub.ip, System.currentTimeMillis());
-                        iter.remove(); // 删除订阅关系
-                        LogUtil.clientLog.info("{}|{}|{}|{}|{}|{}|{}",
-                            (System.currentTimeMillis() - changeTime),
-                            "in-advance",
-                            RequestUtil.getRemoteIp((HttpServletRequest)clientSub.asyncContext.getRequest()),
-                            "polling",
-                            clientSub.clientMd5Map.size(), clientSub.probeRequestSize, groupKey);
-                        clientSub.sendResponse(Arrays.asList(groupKey));
+                    // 删除订阅关系，已经超时或被其他变更处理的直接跳过
+                    if (!removeSub(clientSub)) {
+                        continue;
                     }
+
+                    getRetainIps().put(clientSub.ip, System.currentTimeMillis());
+                    LogUtil.clientLog.info("{}|{}|{}|{}|{}|{}|{}",
+                        (System.currentTimeMillis() - changeTime),
+                        "in-advance",
+                        RequestUtil.getRemoteIp((HttpServletRequest)clientSub.asyncContext.getRequest()),
+                        "polling",
+                        clientSub.clientMd5Map.size(), clientSub.probeRequestSize, groupKey);
+                    clientSub.sendResponse(Arrays.asList(groupKey));
                 }
             } catch (Throwable t) {
                 LogUtil.defaultLog.error("data change error:" + t.getMessage(), t.getCause());
@@ -373,11 +432,13 @@ public class LongPollingService extends AbstractEventListener {
             asyncTimeoutFuture = scheduler.schedule(new Runnable() {
                 public void run() {
                     try {
-                        getRetainIps().put(ClientLongPolling.this.ip, System.currentTimeMillis());
                         /**
-                         * 删除订阅关系
+                         * 删除订阅关系，已被配置变更处理的直接跳过
                          */
-                        allSubs.remove(ClientLongPolling.this);
+                        if (!removeSub(ClientLongPolling.this)) {
+                            return;
+                        }
+                        getRetainIps().put(ClientLongPolling.this.ip, System.currentTimeMillis());
 
                         if (isFixedPolling()) {
                             LogUtil.clientLog.info("{}|{}|{}|{}|{}|{}",
@@ -408,7 +469,7 @@ public class LongPollingService extends AbstractEventListener {
                 }
             }, timeoutTime, TimeUnit.MILLISECONDS);
 
-            allSubs.add(this);
+            addSub(this);
         }
 
         void sendResponse(List<String> changedGroups) {
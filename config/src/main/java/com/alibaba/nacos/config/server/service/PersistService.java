@@ -1895,6 +1895,58 @@ public class PersistService {
         }
     }
 
+    /**
+     * 按id翻页查询(lastMaxId, maxId]区间内的配置，用于并行全量dump
+     */
+    public Page<ConfigInfoWrapper> findAllConfigInfoFragment(final long lastMaxId, final long maxId,
+                                                             final int pageSize) {
+        String select
+            = "SELECT id,data_id,group_id,tenant_id,app_name,content,md5,gmt_modified from config_info where id > ? "
+            + "and id <= ? order by id asc limit ?,?";
+        PaginationHelper<ConfigInfoWrapper> helper = new PaginationHelper<ConfigInfoWrapper>();
+        try {
+            return helper.fetchPageLimit(jt, select, new Object[] {lastMaxId, maxId, 0, pageSize}, 1, pageSize,
+                CONFIG_INFO_WRAPPER_ROW_MAPPER);
+        } catch (CannotGetJdbcConnectionException e) {
+            fatalLog.error("[db-error] " + e.toString(), e);
+            throw e;
+        }
+    }
+
+    /**
+     * 按id翻页查询beta配置，不随页数变慢
+     */
+    public Page<ConfigInfoBetaWrapper> findAllConfigInfoBetaFragment(final long lastMaxId, final int pageSize) {
+        String select
+            = "SELECT id,data_id,group_id,tenant_id,app_name,content,md5,gmt_modified,beta_ips from config_info_beta "
+            + "where id > ? order by id asc limit ?,?";
+        PaginationHelper<ConfigInfoBetaWrapper> helper = new PaginationHelper<ConfigInfoBetaWrapper>();
+        try {
+            return helper.fetchPageLimit(jt, select, new Object[] {lastMaxId, 0, pageSize}, 1, pageSize,
+                CONFIG_INFO_BETA_WRAPPER_ROW_MAPPER);
+        } catch (CannotGetJdbcConnectionException e) {
+            fatalLog.error("[db-error] " + e.toString(), e);
+            throw e;
+        }
+    }
+
+    /**
+     * 按id翻页查询tag配置，不随页数变慢
+     */
+    public Page<ConfigInfoTagWrapper> findAllConfigInfoTagFragment(final long lastMaxId, final int pageSize) {
+        String select
+            = "SELECT id,data_id,group_id,tenant_id,tag_id,app_name,content,md5,gmt_modified from config_info_tag "
+            + "where id > ? order by id asc limit ?,?";
+        PaginationHelper<ConfigInfoTagWrapper> helper = new PaginationHelper<ConfigInfoTagWrapper>();
+        try {
+            return helper.fetchPageLimit(jt, select, new Object[] {lastMaxId, 0, pageSize}, 1, pageSize,
+                CONFIG_INFO_TAG_WRAPPER_ROW_MAPPER);
+        } catch (CannotGetJdbcConnectionException e) {
+            fatalLog.error("[db-error] " + e.toString(), e);
+            throw e;
+        }
+    }
+
     public Page<ConfigInfoBetaWrapper> findAllConfigInfoBetaForDumpAll(
         final int pageNo, final int pageSize) {
         String sqlCountRows = "SELECT COUNT(*) FROM config_info_beta";
@@ -2844,6 +2896,54 @@ public class PersistService {
         }
     }
 
+    /**
+     * 查询配置的md5，不存在时返回null；数据库原子操作，最小sql动作，无业务封装
+     */
+    public String findConfigMd5(final String dataId, final String group, final String tenant) {
+        final String tenantTmp = StringUtils.isBlank(tenant) ? StringUtils.EMPTY : tenant;
+        try {
+            return this.jt.queryForObject(
+                "SELECT md5 FROM config_info WHERE data_id=? AND group_id=? AND tenant_id=?",
+                new Object[] {dataId, group, tenantTmp}, String.class);
+        } catch (EmptyResultDataAccessException e) { // 表明数据不存在, 返回null
+            return null;
+        } catch (CannotGetJdbcConnectionException e) {
+            fatalLog.error("[db-error] " + e.toString(), e);
+            throw e;
+        }
+    }
+
+    /**
+     * 批量查询配置信息，不存在的配置不在结果中；数据库原子操作，最小sql动作，无业务封装
+     *
+     * @param configKeys dataId、group、tenant
+     * @return config infos
+     */
+    public List<ConfigInfo> findConfigInfos(final List<String[]> configKeys) {
+        if (configKeys.isEmpty()) {
+            return new ArrayList<ConfigInfo>();
+        }
+        StringBuilder sql = new StringBuilder(
+            "SELECT ID,data_id,group_id,tenant_id,app_name,content,md5 FROM config_info WHERE ");
+        List<Object> params = new ArrayList<Object>(configKeys.size() * 3);
+        for (int i = 0; i < configKeys.size(); i++) {
+            String[] configKey = configKeys.get(i);
+            if (i > 0) {
+                sql.append(" OR ");
+            }
+            sql.append("(data_id=? AND group_id=? AND tenant_id=?)");
+            params.add(configKey[0]);
+            params.add(configKey[1]);
+            params.add(StringUtils.isBlank(configKey[2]) ? StringUtils.EMPTY : configKey[2]);
+        }
+        try {
+            return this.jt.query(sql.toString(), params.toArray(), CONFIG_INFO_ROW_MAPPER);
+        } catch (CannotGetJdbcConnectionException e) {
+            fatalLog.error("[db-error] " + e.toString(), e);
+            throw e;
+        }
+    }
+
     /**
      * 查询配置信息；数据库原子操作，最小sql动作，无业务封装
      *
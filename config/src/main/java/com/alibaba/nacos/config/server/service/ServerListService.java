@@ -152,6 +152,20 @@ public class ServerListService implements ApplicationListener<WebServerInitializ
         return new ArrayList<String>(serverListUnhealth);
     }
 
+    /**
+     * ip是否为集群中的节点，服务列表中的地址形如ip:port
+     */
+    public static boolean isServerIp(String ip) {
+        for (String serverAddr : serverList) {
+            int index = serverAddr.lastIndexOf(':');
+            String serverIp = index < 0 ? serverAddr : serverAddr.substring(0, index);
+            if (serverIp.equals(ip)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public static Boolean isFirstIp() {
         return serverList.get(0).contains(LOCAL_IP);
     }
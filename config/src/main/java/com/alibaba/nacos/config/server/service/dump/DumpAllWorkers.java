@@ -0,0 +1,120 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.config.server.service.dump;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.alibaba.nacos.config.server.utils.LogUtil.defaultLog;
+
+/**
+ * 全量dump的写入线程池。分页读出的配置交给有界线程池计算md5并写文件，队列满时由读取线程自己写入；同时输出进度和吞吐
+ *
+ * @author Nacos
+ */
+class DumpAllWorkers {
+
+    private static final long REPORT_INTERVAL_MILLIS = 5000L;
+
+    private final String name;
+
+    private final long total;
+
+    private final ThreadPoolExecutor executor;
+
+    private final AtomicLong dumped = new AtomicLong();
+
+    private final AtomicLong lastReportMillis = new AtomicLong();
+
+    private final AtomicInteger failedPages = new AtomicInteger();
+
+    private final long startMillis = System.currentTimeMillis();
+
+    /**
+     * @param total 预计的配置数，仅用于输出进度
+     */
+    DumpAllWorkers(final String name, int threadCount, long total) {
+        this.name = name;
+        this.total = total;
+        this.lastReportMillis.set(startMillis);
+        this.executor = new ThreadPoolExecutor(threadCount, threadCount, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<Runnable>(threadCount * 2), new ThreadFactory() {
+                private final AtomicInteger index = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "com.alibaba.nacos.server.DumpAllWorker-" + name + "-"
+                        + index.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            }, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * 提交一页配置的dump，线程池忙时在当前线程执行
+     */
+    void execute(final Runnable page) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    page.run();
+                } catch (Throwable t) {
+                    failedPages.incrementAndGet();
+                    defaultLog.error("[all-dump-" + name + "] failed to dump page.", t);
+                }
+            }
+        });
+    }
+
+    void dumped(int count) {
+        long current = dumped.addAndGet(count);
+        long now = System.currentTimeMillis();
+        long last = lastReportMillis.get();
+        if (now - last >= REPORT_INTERVAL_MILLIS && lastReportMillis.compareAndSet(last, now)) {
+            defaultLog.info("[all-dump-{}] {} / {}, {} rows/s", name, current, total, rate(current, now));
+        }
+    }
+
+    /**
+     * 等待已提交的配置全部写完
+     *
+     * @return 没有写入失败的页时返回true
+     */
+    boolean finish() throws InterruptedException {
+        executor.shutdown();
+        while (!executor.awaitTermination(REPORT_INTERVAL_MILLIS, TimeUnit.MILLISECONDS)) {
+            defaultLog.info("[all-dump-{}] waiting for workers, {} / {}", name, dumped.get(), total);
+        }
+        long now = System.currentTimeMillis();
+        defaultLog.info("[all-dump-{}] finished {} rows in {}ms, {} rows/s, failed pages: {}", name, dumped.get(),
+            now - startMillis, rate(dumped.get(), now), failedPages.get());
+        return failedPages.get() == 0;
+    }
+
+    void shutdownNow() {
+        executor.shutdownNow();
+    }
+
+    private long rate(long count, long now) {
+        return count * 1000L / Math.max(1L, now - startMillis);
+    }
+}
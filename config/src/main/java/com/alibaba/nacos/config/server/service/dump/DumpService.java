@@ -16,6 +16,7 @@
 package com.alibaba.nacos.config.server.service.dump;
 
 import com.alibaba.nacos.config.server.constant.Constants;
+import com.alibaba.nacos.config.server.manager.ShardedTaskManager;
 import com.alibaba.nacos.config.server.manager.TaskManager;
 import com.alibaba.nacos.config.server.model.ConfigInfo;
 import com.alibaba.nacos.config.server.model.ConfigInfoAggr;
@@ -72,8 +73,8 @@ public class DumpService {
         DumpAllBetaProcessor dumpAllBetaProcessor = new DumpAllBetaProcessor(this);
         DumpAllTagProcessor dumpAllTagProcessor = new DumpAllTagProcessor(this);
 
-        dumpTaskMgr = new TaskManager(
-            "com.alibaba.nacos.server.DumpTaskManager");
+        dumpTaskMgr = new ShardedTaskManager("com.alibaba.nacos.server.DumpTaskManager",
+            PropertyUtil.getDumpThreadCount(), PropertyUtil.getDumpBatchSize());
         dumpTaskMgr.setDefaultTaskProcessor(processor);
 
         dumpAllTaskMgr = new TaskManager(
@@ -121,19 +122,24 @@ public class DumpService {
         };
 
         try {
+            DiskUtil.clearTmp();
             dumpConfigInfo(dumpAllProcessor);
 
             // 更新beta缓存
             LogUtil.defaultLog.info("start clear all config-info-beta.");
             DiskUtil.clearAllBeta();
             if (persistService.isExistTable(BETA_TABLE_NAME)) {
-                dumpAllBetaProcessor.process(DumpAllBetaTask.TASK_ID, new DumpAllBetaTask());
+                if (!dumpAllBetaProcessor.process(DumpAllBetaTask.TASK_ID, new DumpAllBetaTask())) {
+                    throw new RuntimeException("failed to dump all config-info-beta");
+                }
             }
             // 更新Tag缓存
             LogUtil.defaultLog.info("start clear all config-info-tag.");
             DiskUtil.clearAllTag();
             if (persistService.isExistTable(TAG_TABLE_NAME)) {
-                dumpAllTagProcessor.process(DumpAllTagTask.TASK_ID, new DumpAllTagTask());
+                if (!dumpAllTagProcessor.process(DumpAllTagTask.TASK_ID, new DumpAllTagTask())) {
+                    throw new RuntimeException("failed to dump all config-info-tag");
+                }
             }
 
             // add to dump aggr
@@ -208,7 +214,9 @@ public class DumpService {
             if (isAllDump) {
                 LogUtil.defaultLog.info("start clear all config-info.");
                 DiskUtil.clearAll();
-                dumpAllProcessor.process(DumpAllTask.TASK_ID, new DumpAllTask());
+                if (!dumpAllProcessor.process(DumpAllTask.TASK_ID, new DumpAllTask())) {
+                    throw new RuntimeException("failed to dump all config-info");
+                }
             } else {
                 Timestamp beforeTimeStamp = getBeforeStamp(heartheatLastStamp,
                     timeStep);
@@ -297,6 +305,15 @@ public class DumpService {
         dumpTaskMgr.addTask(groupKey, new DumpTask(groupKey, tag, lastModified, handleIp, isBeta));
     }
 
+    /**
+     * 通知中带有内容时，内容与md5一致且md5与数据库中的一致才直接使用，否则仍然读取数据库
+     */
+    public void dump(String dataId, String group, String tenant, String content, String md5, long lastModified,
+                     String handleIp) {
+        String groupKey = GroupKey2.getKey(dataId, group, tenant);
+        dumpTaskMgr.addTask(groupKey, new DumpTask(groupKey, content, md5, lastModified, handleIp));
+    }
+
     public void dumpAll() {
         dumpAllTaskMgr.addTask(DumpAllTask.TASK_ID, new DumpAllTask());
     }
@@ -385,7 +402,7 @@ public class DumpService {
      */
     static final int INITIAL_DELAY_IN_MINUTE = 6 * 60;
 
-    private TaskManager dumpTaskMgr;
+    private ShardedTaskManager dumpTaskMgr;
     private TaskManager dumpAllTaskMgr;
 
     private static final Logger log = LoggerFactory.getLogger(DumpService.class);
@@ -16,6 +16,7 @@
 package com.alibaba.nacos.config.server.service.dump;
 
 import com.alibaba.nacos.config.server.manager.AbstractTask;
+import com.alibaba.nacos.config.server.manager.BatchTaskProcessor;
 import com.alibaba.nacos.config.server.manager.TaskProcessor;
 import com.alibaba.nacos.config.server.model.ConfigInfo;
 import com.alibaba.nacos.config.server.model.ConfigInfo4Beta;
@@ -29,10 +30,20 @@ import com.alibaba.nacos.config.server.service.trace.ConfigTraceService;
 import com.alibaba.nacos.config.server.utils.GroupKey2;
 import com.alibaba.nacos.config.server.utils.LogUtil;
 import com.alibaba.nacos.config.server.utils.MD5;
+import com.alibaba.nacos.config.server.utils.PropertyUtil;
 import com.alibaba.nacos.config.server.utils.StringUtils;
 
 import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static com.alibaba.nacos.config.server.utils.LogUtil.defaultLog;
 
@@ -79,6 +90,20 @@ public class DumpTask extends AbstractTask {
         setTaskInterval(1000L);
     }
 
+    public DumpTask(String groupKey, String content, String md5, long lastModified, String handleIp) {
+        this.groupKey = groupKey;
+        this.lastModified = lastModified;
+        this.handleIp = handleIp;
+        this.isBeta = false;
+        this.tag = null;
+        this.content = content;
+        this.md5 = md5;
+        /**
+         * retry interval: 1s
+         */
+        setTaskInterval(1000L);
+    }
+
     @Override
     public void merge(AbstractTask task) {
     }
@@ -88,6 +113,11 @@ public class DumpTask extends AbstractTask {
     final String handleIp;
     final boolean isBeta;
     final String tag;
+    /**
+     * 其他节点通知时带来的内容，为空时从数据库读取
+     */
+    String content;
+    String md5;
 }
 
 class DumpAllTask extends AbstractTask {
@@ -122,12 +152,31 @@ class DumpChangeTask extends AbstractTask {
     static final String TASK_ID = "dumpChangeConfigTask";
 }
 
-class DumpProcessor implements TaskProcessor {
+class DumpProcessor implements BatchTaskProcessor {
 
     DumpProcessor(DumpService dumpService) {
         this.dumpService = dumpService;
     }
 
+    /**
+     * 通知带来的内容与md5一致，且md5与数据库中的一致时才使用。各节点的时钟不同，不能用lastModified判断新旧
+     */
+    private boolean isContentUsable(DumpTask dumpTask, String dataId, String group, String tenant) {
+        if (null == dumpTask.content) {
+            return false;
+        }
+        if (!MD5.getInstance().getMD5String(dumpTask.content).equals(dumpTask.md5)) {
+            defaultLog.warn("[dump-content] md5 mismatch, read from db. groupKey={}", dumpTask.groupKey);
+            return false;
+        }
+        if (!dumpTask.md5.equals(dumpService.persistService.findConfigMd5(dataId, group, tenant))) {
+            defaultLog.warn("[dump-content] content is not the latest, read from db. groupKey={}, lastModified={}",
+                dumpTask.groupKey, dumpTask.lastModified);
+            return false;
+        }
+        return true;
+    }
+
     @Override
     public boolean process(String taskType, AbstractTask task) {
         DumpTask dumpTask = (DumpTask)task;
@@ -160,49 +209,13 @@ class DumpProcessor implements TaskProcessor {
             return result;
         } else {
             if (StringUtils.isBlank(tag)) {
-                ConfigInfo cf = dumpService.persistService.findConfigInfo(dataId, group, tenant);
-                if (dataId.equals(AggrWhitelist.AGGRIDS_METADATA)) {
-                    if (null != cf) {
-                        AggrWhitelist.load(cf.getContent());
-                    } else {
-                        AggrWhitelist.load(null);
-                    }
-                }
-
-                if (dataId.equals(ClientIpWhiteList.CLIENT_IP_WHITELIST_METADATA)) {
-                    if (null != cf) {
-                        ClientIpWhiteList.load(cf.getContent());
-                    } else {
-                        ClientIpWhiteList.load(null);
-                    }
-                }
-
-                if (dataId.equals(SwitchService.SWITCH_META_DATAID)) {
-                    if (null != cf) {
-                        SwitchService.load(cf.getContent());
-                    } else {
-                        SwitchService.load(null);
-                    }
-                }
-
-                boolean result;
-                if (null != cf) {
-                    result = ConfigService.dump(dataId, group, tenant, cf.getContent(), lastModified);
-
-                    if (result) {
-                        ConfigTraceService.logDumpEvent(dataId, group, tenant, null, lastModified, handleIp,
-                            ConfigTraceService.DUMP_EVENT_OK, System.currentTimeMillis() - lastModified,
-                            cf.getContent().length());
-                    }
+                ConfigInfo cf;
+                if (isContentUsable(dumpTask, dataId, group, tenant)) {
+                    cf = new ConfigInfo(dataId, group, tenant, null, dumpTask.content);
                 } else {
-                    result = ConfigService.remove(dataId, group, tenant);
-
-                    if (result) {
-                        ConfigTraceService.logDumpEvent(dataId, group, tenant, null, lastModified, handleIp,
-                            ConfigTraceService.DUMP_EVENT_REMOVE_OK, System.currentTimeMillis() - lastModified, 0);
-                    }
+                    cf = dumpService.persistService.findConfigInfo(dataId, group, tenant);
                 }
-                return result;
+                return dumpConfig(dumpTask, dataId, group, tenant, cf);
             } else {
                 ConfigInfo4Tag cf = dumpService.persistService.findConfigInfo4Tag(dataId, group, tenant, tag);
                 //
@@ -227,6 +240,104 @@ class DumpProcessor implements TaskProcessor {
 
     }
 
+    /**
+     * 一批任务中需要读数据库的普通配置合并成一次查询，其余任务逐个处理
+     */
+    @Override
+    public Set<String> process(Map<String, AbstractTask> tasks) {
+        List<String[]> configKeys = new ArrayList<String[]>();
+        for (AbstractTask task : tasks.values()) {
+            DumpTask dumpTask = (DumpTask)task;
+            if (!dumpTask.isBeta && StringUtils.isBlank(dumpTask.tag) && null == dumpTask.content) {
+                configKeys.add(GroupKey2.parseKey(dumpTask.groupKey));
+            }
+        }
+
+        Map<String, ConfigInfo> configs = new HashMap<String, ConfigInfo>(configKeys.size());
+        if (configKeys.size() > 1) {
+            try {
+                for (ConfigInfo cf : dumpService.persistService.findConfigInfos(configKeys)) {
+                    configs.put(GroupKey2.getKey(cf.getDataId(), cf.getGroup(), cf.getTenant()), cf);
+                }
+            } catch (Throwable t) {
+                defaultLog.error("[dump-error] failed to query " + configKeys.size() + " configs, query one by one.",
+                    t);
+            }
+        }
+
+        Set<String> failed = new HashSet<String>();
+        for (Map.Entry<String, AbstractTask> entry : tasks.entrySet()) {
+            DumpTask dumpTask = (DumpTask)entry.getValue();
+            boolean result = false;
+            try {
+                ConfigInfo cf = configs.get(dumpTask.groupKey);
+                if (null != cf && !dumpTask.isBeta && StringUtils.isBlank(dumpTask.tag)) {
+                    String[] pair = GroupKey2.parseKey(dumpTask.groupKey);
+                    result = dumpConfig(dumpTask, pair[0], pair[1], pair[2], cf);
+                } else {
+                    // 不在查询结果中的配置可能已经删除，单独确认
+                    result = process(entry.getKey(), dumpTask);
+                }
+            } catch (Throwable t) {
+                defaultLog.error("[dump-error] " + dumpTask.groupKey, t);
+            }
+            if (!result) {
+                failed.add(entry.getKey());
+            }
+        }
+        return failed;
+    }
+
+    /**
+     * 保存普通配置，cf为空表示配置已经删除
+     */
+    private boolean dumpConfig(DumpTask dumpTask, String dataId, String group, String tenant, ConfigInfo cf) {
+        long lastModified = dumpTask.lastModified;
+        String handleIp = dumpTask.handleIp;
+        if (dataId.equals(AggrWhitelist.AGGRIDS_METADATA)) {
+            if (null != cf) {
+                AggrWhitelist.load(cf.getContent());
+            } else {
+                AggrWhitelist.load(null);
+            }
+        }
+
+        if (dataId.equals(ClientIpWhiteList.CLIENT_IP_WHITELIST_METADATA)) {
+            if (null != cf) {
+                ClientIpWhiteList.load(cf.getContent());
+            } else {
+                ClientIpWhiteList.load(null);
+            }
+        }
+
+        if (dataId.equals(SwitchService.SWITCH_META_DATAID)) {
+            if (null != cf) {
+                SwitchService.load(cf.getContent());
+            } else {
+                SwitchService.load(null);
+            }
+        }
+
+        boolean result;
+        if (null != cf) {
+            result = ConfigService.dump(dataId, group, tenant, cf.getContent(), lastModified);
+
+            if (result) {
+                ConfigTraceService.logDumpEvent(dataId, group, tenant, null, lastModified, handleIp,
+                    ConfigTraceService.DUMP_EVENT_OK, System.currentTimeMillis() - lastModified,
+                    cf.getContent().length());
+            }
+        } else {
+            result = ConfigService.remove(dataId, group, tenant);
+
+            if (result) {
+                ConfigTraceService.logDumpEvent(dataId, group, tenant, null, lastModified, handleIp,
+                    ConfigTraceService.DUMP_EVENT_REMOVE_OK, System.currentTimeMillis() - lastModified, 0);
+            }
+        }
+        return result;
+    }
+
     final DumpService dumpService;
 }
 
@@ -237,43 +348,90 @@ class DumpAllProcessor implements TaskProcessor {
         this.persistService = dumpService.persistService;
     }
 
+    /**
+     * 把id空间切成若干区间由多个线程并行按id翻页读取，每页交给写入线程池dump
+     */
     @Override
     public boolean process(String taskType, AbstractTask task) {
         long currentMaxId = persistService.findConfigMaxId();
-        long lastMaxId = 0;
-        while (lastMaxId < currentMaxId) {
-            Page<PersistService.ConfigInfoWrapper> page = persistService.findAllConfigInfoFragment(lastMaxId,
-                PAGE_SIZE);
-            if (page != null && page.getPageItems() != null) {
-                for (PersistService.ConfigInfoWrapper cf : page.getPageItems()) {
-                    long id = cf.getId();
-                    lastMaxId = id > lastMaxId ? id : lastMaxId;
-                    if (cf.getDataId().equals(AggrWhitelist.AGGRIDS_METADATA)) {
-                        AggrWhitelist.load(cf.getContent());
+        final DumpAllWorkers workers = new DumpAllWorkers("config", PropertyUtil.getDumpThreadCount(),
+            persistService.configInfoCount());
+        ExecutorService fetchers = Executors.newFixedThreadPool(PropertyUtil.getDumpAllFetchThreadCount());
+        try {
+            long rangeSize = Math.max(PAGE_SIZE, currentMaxId / PropertyUtil.getDumpAllRangeCount() + 1);
+            List<Future<?>> futures = new ArrayList<Future<?>>();
+            for (long start = 0; start < currentMaxId; start += rangeSize) {
+                final long lower = start;
+                final long upper = Math.min(start + rangeSize, currentMaxId);
+                futures.add(fetchers.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        dumpRange(lower, upper, workers);
                     }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            return workers.finish();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("[all-dump] interrupted", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("[all-dump] failed to fetch config", e.getCause());
+        } finally {
+            fetchers.shutdownNow();
+            workers.shutdownNow();
+        }
+    }
 
-                    if (cf.getDataId().equals(ClientIpWhiteList.CLIENT_IP_WHITELIST_METADATA)) {
-                        ClientIpWhiteList.load(cf.getContent());
-                    }
+    private void dumpRange(long lowerId, long upperId, DumpAllWorkers workers) {
+        long lastMaxId = lowerId;
+        while (lastMaxId < upperId) {
+            Page<ConfigInfoWrapper> page = persistService.findAllConfigInfoFragment(lastMaxId, upperId, PAGE_SIZE);
+            if (page == null || page.getPageItems() == null || page.getPageItems().isEmpty()) {
+                return;
+            }
+            final List<ConfigInfoWrapper> configs = page.getPageItems();
+            lastMaxId = configs.get(configs.size() - 1).getId();
+            workers.execute(new DumpPage(configs, workers));
+        }
+    }
 
-                    if (cf.getDataId().equals(SwitchService.SWITCH_META_DATAID)) {
-                        SwitchService.load(cf.getContent());
-                    }
+    static class DumpPage implements Runnable {
 
-                    boolean result = ConfigService.dump(cf.getDataId(), cf.getGroup(), cf.getTenant(), cf.getContent(),
-                        cf.getLastModified());
+        DumpPage(List<ConfigInfoWrapper> configs, DumpAllWorkers workers) {
+            this.configs = configs;
+            this.workers = workers;
+        }
 
-                    final String content = cf.getContent();
-                    final String md5 = MD5.getInstance().getMD5String(content);
-                    LogUtil.dumpLog.info("[dump-all-ok] {}, {}, length={}, md5={}",
-                        GroupKey2.getKey(cf.getDataId(), cf.getGroup()), cf.getLastModified(), content.length(), md5);
+        @Override
+        public void run() {
+            for (ConfigInfoWrapper cf : configs) {
+                if (cf.getDataId().equals(AggrWhitelist.AGGRIDS_METADATA)) {
+                    AggrWhitelist.load(cf.getContent());
                 }
-                defaultLog.info("[all-dump] {} / {}", lastMaxId, currentMaxId);
-            } else {
-                lastMaxId += PAGE_SIZE;
+
+                if (cf.getDataId().equals(ClientIpWhiteList.CLIENT_IP_WHITELIST_METADATA)) {
+                    ClientIpWhiteList.load(cf.getContent());
+                }
+
+                if (cf.getDataId().equals(SwitchService.SWITCH_META_DATAID)) {
+                    SwitchService.load(cf.getContent());
+                }
+
+                boolean result = ConfigService.dump(cf.getDataId(), cf.getGroup(), cf.getTenant(), cf.getContent(),
+                    cf.getLastModified());
+
+                LogUtil.dumpLog.info("[dump-all-ok] result={}, {}, {}, length={}, md5={}", result,
+                    GroupKey2.getKey(cf.getDataId(), cf.getGroup()), cf.getLastModified(), cf.getContent().length(),
+                    cf.getMd5());
             }
+            workers.dumped(configs.size());
         }
-        return true;
+
+        final List<ConfigInfoWrapper> configs;
+        final DumpAllWorkers workers;
     }
 
     static final int PAGE_SIZE = 1000;
@@ -291,26 +449,38 @@ class DumpAllBetaProcessor implements TaskProcessor {
 
     @Override
     public boolean process(String taskType, AbstractTask task) {
-        int rowCount = persistService.configInfoBetaCount();
-        int pageCount = (int)Math.ceil(rowCount * 1.0 / PAGE_SIZE);
-
-        int actualRowCount = 0;
-        for (int pageNo = 1; pageNo <= pageCount; pageNo++) {
-            Page<ConfigInfoBetaWrapper> page = persistService.findAllConfigInfoBetaForDumpAll(pageNo, PAGE_SIZE);
-            if (page != null) {
-                for (ConfigInfoBetaWrapper cf : page.getPageItems()) {
-                    boolean result = ConfigService.dumpBeta(cf.getDataId(), cf.getGroup(), cf.getTenant(),
-                        cf.getContent(), cf.getLastModified(), cf.getBetaIps());
-                    LogUtil.dumpLog.info("[dump-all-beta-ok] result={}, {}, {}, length={}, md5={}", result,
-                        GroupKey2.getKey(cf.getDataId(), cf.getGroup()), cf.getLastModified(), cf.getContent()
-                            .length(), cf.getMd5());
+        final DumpAllWorkers workers = new DumpAllWorkers("beta", PropertyUtil.getDumpThreadCount(),
+            persistService.configInfoBetaCount());
+        try {
+            long lastMaxId = 0;
+            while (true) {
+                Page<ConfigInfoBetaWrapper> page = persistService.findAllConfigInfoBetaFragment(lastMaxId, PAGE_SIZE);
+                if (page == null || page.getPageItems() == null || page.getPageItems().isEmpty()) {
+                    break;
                 }
-
-                actualRowCount += page.getPageItems().size();
-                defaultLog.info("[all-dump-beta] {} / {}", actualRowCount, rowCount);
+                final List<ConfigInfoBetaWrapper> configs = page.getPageItems();
+                lastMaxId = configs.get(configs.size() - 1).getId();
+                workers.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        for (ConfigInfoBetaWrapper cf : configs) {
+                            boolean result = ConfigService.dumpBeta(cf.getDataId(), cf.getGroup(), cf.getTenant(),
+                                cf.getContent(), cf.getLastModified(), cf.getBetaIps());
+                            LogUtil.dumpLog.info("[dump-all-beta-ok] result={}, {}, {}, length={}, md5={}", result,
+                                GroupKey2.getKey(cf.getDataId(), cf.getGroup()), cf.getLastModified(), cf.getContent()
+                                    .length(), cf.getMd5());
+                        }
+                        workers.dumped(configs.size());
+                    }
+                });
             }
+            return workers.finish();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("[all-dump-beta] interrupted", e);
+        } finally {
+            workers.shutdownNow();
         }
-        return true;
     }
 
     static final int PAGE_SIZE = 1000;
@@ -328,26 +498,38 @@ class DumpAllTagProcessor implements TaskProcessor {
 
     @Override
     public boolean process(String taskType, AbstractTask task) {
-        int rowCount = persistService.configInfoTagCount();
-        int pageCount = (int)Math.ceil(rowCount * 1.0 / PAGE_SIZE);
-
-        int actualRowCount = 0;
-        for (int pageNo = 1; pageNo <= pageCount; pageNo++) {
-            Page<ConfigInfoTagWrapper> page = persistService.findAllConfigInfoTagForDumpAll(pageNo, PAGE_SIZE);
-            if (page != null) {
-                for (ConfigInfoTagWrapper cf : page.getPageItems()) {
-                    boolean result = ConfigService.dumpTag(cf.getDataId(), cf.getGroup(), cf.getTenant(), cf.getTag(),
-                        cf.getContent(), cf.getLastModified());
-                    LogUtil.dumpLog.info("[dump-all-Tag-ok] result={}, {}, {}, length={}, md5={}", result,
-                        GroupKey2.getKey(cf.getDataId(), cf.getGroup()), cf.getLastModified(), cf.getContent()
-                            .length(), cf.getMd5());
+        final DumpAllWorkers workers = new DumpAllWorkers("tag", PropertyUtil.getDumpThreadCount(),
+            persistService.configInfoTagCount());
+        try {
+            long lastMaxId = 0;
+            while (true) {
+                Page<ConfigInfoTagWrapper> page = persistService.findAllConfigInfoTagFragment(lastMaxId, PAGE_SIZE);
+                if (page == null || page.getPageItems() == null || page.getPageItems().isEmpty()) {
+                    break;
                 }
-
-                actualRowCount += page.getPageItems().size();
-                defaultLog.info("[all-dump-tag] {} / {}", actualRowCount, rowCount);
+                final List<ConfigInfoTagWrapper> configs = page.getPageItems();
+                lastMaxId = configs.get(configs.size() - 1).getId();
+                workers.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        for (ConfigInfoTagWrapper cf : configs) {
+                            boolean result = ConfigService.dumpTag(cf.getDataId(), cf.getGroup(), cf.getTenant(),
+                                cf.getTag(), cf.getContent(), cf.getLastModified());
+                            LogUtil.dumpLog.info("[dump-all-Tag-ok] result={}, {}, {}, length={}, md5={}", result,
+                                GroupKey2.getKey(cf.getDataId(), cf.getGroup()), cf.getLastModified(), cf.getContent()
+                                    .length(), cf.getMd5());
+                        }
+                        workers.dumped(configs.size());
+                    }
+                });
             }
+            return workers.finish();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("[all-dump-tag] interrupted", e);
+        } finally {
+            workers.shutdownNow();
         }
-        return true;
     }
 
     static final int PAGE_SIZE = 1000;
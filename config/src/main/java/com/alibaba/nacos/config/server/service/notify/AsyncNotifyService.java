@@ -16,6 +16,7 @@
 package com.alibaba.nacos.config.server.service.notify;
 
 import com.alibaba.nacos.config.server.constant.Constants;
+import com.alibaba.nacos.config.server.model.ConfigDataChangeItem;
 import com.alibaba.nacos.config.server.service.ConfigDataChangeEvent;
 import com.alibaba.nacos.config.server.monitor.MetricsMonitor;
 import com.alibaba.nacos.config.server.service.ServerListService;
@@ -27,8 +28,11 @@ import org.apache.http.HttpResponse;
 import org.apache.http.HttpStatus;
 import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.utils.HttpClientUtils;
 import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
 import org.apache.http.impl.nio.client.HttpAsyncClients;
 import org.slf4j.Logger;
@@ -36,10 +40,13 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Queue;
@@ -76,6 +83,18 @@ public class AsyncNotifyService extends AbstractEventListener {
             String tag = evt.tag;
             List<?> ipList = serverListService.getServerList();
 
+            if (PropertyUtil.isNotifyWithContent()) {
+                ConfigDataChangeItem item = new ConfigDataChangeItem(dataId, group, tenant, tag, evt.isBeta, dumpTs);
+                if (evt.content != null) {
+                    item.setContent(evt.content);
+                    item.setMd5(MD5.getInstance().getMD5String(evt.content));
+                }
+                for (Object ip : ipList) {
+                    getBatchNotifier((String)ip).add(item);
+                }
+                return;
+            }
+
             // 其实这里任何类型队列都可以
             Queue<NotifySingleTask> queue = new LinkedList<NotifySingleTask>();
             for (int i = 0; i < ipList.size(); i++) {
@@ -109,6 +128,8 @@ public class AsyncNotifyService extends AbstractEventListener {
 
     private ServerListService serverListService;
 
+    private final ConcurrentMap<String, BatchNotifier> batchNotifiers = new ConcurrentHashMap<String, BatchNotifier>();
+
     class AsyncTask implements Runnable {
 
         public AsyncTask(CloseableHttpAsyncClient httpclient, Queue<NotifySingleTask> queue) {
@@ -273,6 +294,181 @@ public class AsyncNotifyService extends AbstractEventListener {
         private CloseableHttpAsyncClient httpclient;
     }
 
+    private BatchNotifier getBatchNotifier(String target) {
+        BatchNotifier notifier = batchNotifiers.get(target);
+        if (notifier == null) {
+            notifier = new BatchNotifier(target);
+            BatchNotifier old = batchNotifiers.putIfAbsent(target, notifier);
+            if (old != null) {
+                notifier = old;
+            }
+        }
+        return notifier;
+    }
+
+    /**
+     * 把通知逐条交给原有的单条通知，接收方从数据库读取，失败按原来的策略重试
+     */
+    private void notifySingly(String target, List<ConfigDataChangeItem> items) {
+        Queue<NotifySingleTask> queue = new LinkedList<NotifySingleTask>();
+        for (ConfigDataChangeItem item : items) {
+            queue.add(new NotifySingleTask(item.getDataId(), item.getGroup(), item.getTenant(), item.getTag(),
+                item.getLastModified(), target, item.isBeta()));
+        }
+        EXCUTOR.execute(new AsyncTask(httpclient, queue));
+    }
+
+    /**
+     * 发往一个节点的合并通知。同一节点同时只有一个批次在发送，同一配置的变更按顺序到达，批次内只保留最后一次变更
+     */
+    class BatchNotifier implements Runnable {
+
+        private final String target;
+
+        private final String url;
+
+        /**
+         * 等待发送的变更，按配置的最后一次变更排序
+         */
+        private final LinkedHashMap<String, ConfigDataChangeItem> pending
+            = new LinkedHashMap<String, ConfigDataChangeItem>();
+
+        /**
+         * 已经安排了发送或者有批次正在发送
+         */
+        private boolean sending = false;
+
+        BatchNotifier(String target) {
+            this.target = target;
+            this.url = "http://" + target + RunningConfigUtils.getContextPath() + Constants.COMMUNICATION_CONTROLLER_PATH
+                + "/dataChanges";
+        }
+
+        void add(ConfigDataChangeItem item) {
+            String key = GroupKey2.getKey(item.getDataId(), item.getGroup(), item.getTenant()) + "+"
+                + (item.isBeta() ? "beta" : StringUtils.isBlank(item.getTag()) ? "" : item.getTag());
+            synchronized (this) {
+                pending.remove(key);
+                pending.put(key, item);
+                if (sending) {
+                    return;
+                }
+                sending = true;
+            }
+            ((ScheduledThreadPoolExecutor)EXCUTOR).schedule(this, BATCH_DELAY, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public void run() {
+            List<ConfigDataChangeItem> batch = new ArrayList<ConfigDataChangeItem>();
+            synchronized (this) {
+                long size = 0L;
+                Iterator<ConfigDataChangeItem> iterator = pending.values().iterator();
+                while (iterator.hasNext() && batch.size() < MAX_BATCH_COUNT && size < MAX_BATCH_CONTENT_SIZE) {
+                    ConfigDataChangeItem item = iterator.next();
+                    iterator.remove();
+                    batch.add(item);
+                    size += item.getContent() == null ? 0 : item.getContent().length();
+                }
+                if (batch.isEmpty()) {
+                    sending = false;
+                    return;
+                }
+            }
+
+            if (!serverListService.getServerList().contains(target)) {
+                synchronized (this) {
+                    pending.clear();
+                    sending = false;
+                }
+                batchNotifiers.remove(target, this);
+                return;
+            }
+
+            if (serverListService.isHealthCheck() && ServerListService.getServerListUnhealth().contains(target)) {
+                notifySingly(target, batch);
+                next();
+                return;
+            }
+
+            try {
+                HttpPost request = new HttpPost(url);
+                request.setHeader(NotifyService.NOTIFY_HEADER_OP_HANDLE_IP, LOCAL_IP);
+                request.setEntity(new StringEntity(JSONUtils.serializeObject(batch), ContentType.APPLICATION_JSON));
+                httpclient.execute(request, new BatchNotifyCallBack(this, batch));
+            } catch (IOException e) {
+                log.error("[notify-error] failed to serialize batch to " + target, e);
+                notifySingly(target, batch);
+                next();
+            }
+        }
+
+        /**
+         * 上一个批次结束后发送积压的变更
+         */
+        void next() {
+            synchronized (this) {
+                if (pending.isEmpty()) {
+                    sending = false;
+                    return;
+                }
+            }
+            EXCUTOR.execute(this);
+        }
+    }
+
+    class BatchNotifyCallBack implements FutureCallback<HttpResponse> {
+
+        private final BatchNotifier notifier;
+
+        private final List<ConfigDataChangeItem> batch;
+
+        BatchNotifyCallBack(BatchNotifier notifier, List<ConfigDataChangeItem> batch) {
+            this.notifier = notifier;
+            this.batch = batch;
+        }
+
+        @Override
+        public void completed(HttpResponse response) {
+            try {
+                if (response.getStatusLine().getStatusCode() == HttpStatus.SC_OK) {
+                    long now = System.currentTimeMillis();
+                    for (ConfigDataChangeItem item : batch) {
+                        ConfigTraceService.logNotifyEvent(item.getDataId(), item.getGroup(), item.getTenant(), null,
+                            item.getLastModified(), LOCAL_IP, ConfigTraceService.NOTIFY_EVENT_OK,
+                            now - item.getLastModified(), notifier.target);
+                    }
+                } else {
+                    log.error("[notify-error] batch of {} to {}, result {}", batch.size(), notifier.target,
+                        response.getStatusLine().getStatusCode());
+                    fallback();
+                }
+            } finally {
+                HttpClientUtils.closeQuietly(response);
+                notifier.next();
+            }
+        }
+
+        @Override
+        public void failed(Exception ex) {
+            log.error("[notify-exception] batch of " + batch.size() + " to " + notifier.target + ", " + ex.toString());
+            fallback();
+            notifier.next();
+        }
+
+        @Override
+        public void cancelled() {
+            log.error("[notify-exception] batch of {} to {} CANCELED", batch.size(), notifier.target);
+            fallback();
+            notifier.next();
+        }
+
+        private void fallback() {
+            MetricsMonitor.getConfigNotifyException().increment();
+            notifySingly(notifier.target, batch);
+        }
+    }
+
     static class NotifySingleTask extends NotifyTask {
 
         private String target;
@@ -359,6 +555,13 @@ public class AsyncNotifyService extends AbstractEventListener {
         return delay;
     }
 
+    /**
+     * 合并通知的等待时间，单位毫秒
+     */
+    private static final long BATCH_DELAY = 50L;
+    private static final int MAX_BATCH_COUNT = 500;
+    private static final long MAX_BATCH_CONTENT_SIZE = 1024 * 1024L;
+
     private static int MINRETRYINTERVAL = 500;
     private static int INCREASESTEPS = 1000;
     private static int MAXCOUNT = 6;
@@ -84,6 +84,34 @@ public class PropertyUtil {
      * 单机模式使用db
      */
     private static boolean standaloneUseMysql = false;
+    /**
+     * 集群内变更通知按节点合并发送，并携带配置内容，接收方不必再读数据库
+     */
+    private static boolean notifyWithContent = false;
+    /**
+     * 并行dump配置的线程数，同一个配置总在同一个线程上处理
+     */
+    private static int dumpThreadCount = Math.max(1, Math.min(8, Runtime.getRuntime().availableProcessors()));
+    /**
+     * 每个dump线程一次最多处理的任务数，其中的普通配置合并成一次数据库查询
+     */
+    private static int dumpBatchSize = 100;
+    /**
+     * 全量dump时id空间切分的区间数，多于读取线程数，避免id分布不均时某个区间拖慢整体
+     */
+    private static int dumpAllRangeCount = 16;
+    /**
+     * 全量dump时并行读取数据库的线程数
+     */
+    private static int dumpAllFetchThreadCount = 4;
+    /**
+     * 缓存在内存中的正式配置内容总字节数，0表示不缓存，每次读取都打开磁盘文件
+     */
+    private static int contentCacheSize = 0;
+    /**
+     * 配置内容缓存使用堆外内存
+     */
+    private static boolean contentCacheOffHeap = false;
 
 
     @Autowired
@@ -115,6 +143,20 @@ public class PropertyUtil {
             setCorrectUsageDelay(getInt("correctUsageDelay", correctUsageDelay));
             setInitialExpansionPercent(getInt("initialExpansionPercent", initialExpansionPercent));
             setStandaloneUseMysql(getString("spring.datasource.platform", "").equals("mysql"));
+            setNotifyWithContent(getBoolean("notifyWithContent", notifyWithContent));
+            logger.info("notifyWithContent:{}", notifyWithContent);
+            setDumpThreadCount(getInt("dumpThreadCount", dumpThreadCount));
+            logger.info("dumpThreadCount:{}", dumpThreadCount);
+            setDumpBatchSize(getInt("dumpBatchSize", dumpBatchSize));
+            logger.info("dumpBatchSize:{}", dumpBatchSize);
+            setDumpAllRangeCount(getInt("dumpAllRangeCount", dumpAllRangeCount));
+            logger.info("dumpAllRangeCount:{}", dumpAllRangeCount);
+            setDumpAllFetchThreadCount(getInt("dumpAllFetchThreadCount", dumpAllFetchThreadCount));
+            logger.info("dumpAllFetchThreadCount:{}", dumpAllFetchThreadCount);
+            setContentCacheSize(getInt("contentCacheSize", contentCacheSize));
+            logger.info("contentCacheSize:{}", contentCacheSize);
+            setContentCacheOffHeap(getBoolean("contentCacheOffHeap", contentCacheOffHeap));
+            logger.info("contentCacheOffHeap:{}", contentCacheOffHeap);
 
         } catch (Exception e) {
             logger.error("read application.properties failed", e);
@@ -214,6 +256,34 @@ public class PropertyUtil {
         return standaloneUseMysql;
     }
 
+    public static boolean isNotifyWithContent() {
+        return notifyWithContent;
+    }
+
+    public static int getDumpThreadCount() {
+        return dumpThreadCount;
+    }
+
+    public static int getDumpBatchSize() {
+        return dumpBatchSize;
+    }
+
+    public static int getDumpAllRangeCount() {
+        return dumpAllRangeCount;
+    }
+
+    public static int getDumpAllFetchThreadCount() {
+        return dumpAllFetchThreadCount;
+    }
+
+    public static int getContentCacheSize() {
+        return contentCacheSize;
+    }
+
+    public static boolean isContentCacheOffHeap() {
+        return contentCacheOffHeap;
+    }
+
     public static void setNotifyConnectTimeout(int notifyConnectTimeout) {
         PropertyUtil.notifyConnectTimeout = notifyConnectTimeout;
     }
@@ -276,4 +346,32 @@ public class PropertyUtil {
     public static void setStandaloneUseMysql(boolean standaloneUseMysql) {
         PropertyUtil.standaloneUseMysql = standaloneUseMysql;
     }
+
+    public static void setNotifyWithContent(boolean notifyWithContent) {
+        PropertyUtil.notifyWithContent = notifyWithContent;
+    }
+
+    public static void setDumpThreadCount(int dumpThreadCount) {
+        PropertyUtil.dumpThreadCount = Math.max(1, dumpThreadCount);
+    }
+
+    public static void setDumpBatchSize(int dumpBatchSize) {
+        PropertyUtil.dumpBatchSize = Math.max(1, dumpBatchSize);
+    }
+
+    public static void setDumpAllRangeCount(int dumpAllRangeCount) {
+        PropertyUtil.dumpAllRangeCount = Math.max(1, dumpAllRangeCount);
+    }
+
+    public static void setDumpAllFetchThreadCount(int dumpAllFetchThreadCount) {
+        PropertyUtil.dumpAllFetchThreadCount = Math.max(1, dumpAllFetchThreadCount);
+    }
+
+    public static void setContentCacheSize(int contentCacheSize) {
+        PropertyUtil.contentCacheSize = Math.max(0, contentCacheSize);
+    }
+
+    public static void setContentCacheOffHeap(boolean contentCacheOffHeap) {
+        PropertyUtil.contentCacheOffHeap = contentCacheOffHeap;
+    }
 }
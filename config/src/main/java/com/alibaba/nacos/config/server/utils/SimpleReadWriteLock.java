@@ -31,12 +31,33 @@ public class SimpleReadWriteLock {
         }
     }
 
+    /**
+     * 写锁释放前最多等待timeoutMillis后加读锁。等待期间写锁加不上，连续的写不会让读一直等下去
+     */
+    public synchronized boolean readLock(long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        waitingReaders++;
+        try {
+            while (isWriteLocked()) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+                wait(remaining);
+            }
+            status++;
+            return true;
+        } finally {
+            waitingReaders--;
+        }
+    }
+
     public synchronized void releaseReadLock() {
         status--;
     }
 
     public synchronized boolean tryWriteLock() {
-        if (!isFree()) {
+        if (!isFree() || waitingReaders > 0) {
             return false;
         } else {
             status = -1;
@@ -46,6 +67,7 @@ public class SimpleReadWriteLock {
 
     public synchronized void releaseWriteLock() {
         status = 0;
+        notifyAll();
     }
 
     private boolean isWriteLocked() {
@@ -60,4 +82,9 @@ public class SimpleReadWriteLock {
      * 零表示没有锁；负数表示加写锁；正数表示加读锁，数值表示读锁的个数。
      */
     private int status = 0;
+
+    /**
+     * 等待加读锁的线程数
+     */
+    private int waitingReaders = 0;
 }
@@ -0,0 +1,188 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.config.server.controller;
+
+import com.alibaba.nacos.config.server.constant.Constants;
+import com.alibaba.nacos.config.server.model.BatchConfigItem;
+import com.alibaba.nacos.config.server.service.ConfigService;
+import com.alibaba.nacos.config.server.utils.JSONUtils;
+import com.alibaba.nacos.config.server.utils.MD5;
+import com.alibaba.nacos.config.server.utils.PropertyUtil;
+import com.fasterxml.jackson.core.type.TypeReference;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.http.HttpServletResponse;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 读配置与dump并发时，不返回409，内容和md5属于同一个版本
+ *
+ * @author Nacos
+ */
+public class ConfigServletInnerTest {
+
+    private static final String GROUP = "DEFAULT_GROUP";
+
+    private static final int VERSION_COUNT = 16;
+
+    private static final long RUN_MILLIS = 2000L;
+
+    private static final int READER_COUNT = 4;
+
+    private String dataId;
+
+    private ConfigServletInner inner;
+
+    private final Map<String, String> contents = new HashMap<String, String>();
+
+    @Before
+    public void setUp() {
+        dataId = "test.concurrent." + System.nanoTime();
+        inner = new ConfigServletInner();
+        for (int i = 0; i < VERSION_COUNT; i++) {
+            // 长度各不相同，读到不完整的文件时内容对不上md5
+            StringBuilder content = new StringBuilder("version-" + i + "-");
+            for (int j = 0; j < 1000 + i * 500; j++) {
+                content.append((char)('a' + (i + j) % 26));
+            }
+            contents.put(MD5.getInstance().getMD5String(content.toString()), content.toString());
+        }
+    }
+
+    @After
+    public void tearDown() {
+        ConfigService.remove(dataId, GROUP, "");
+        PropertyUtil.setContentCacheSize(0);
+    }
+
+    @Test
+    public void test_readDuringDump() throws Exception {
+        PropertyUtil.setContentCacheSize(0);
+        readDuringDump();
+    }
+
+    @Test
+    public void test_readDuringDumpWithContentCache() throws Exception {
+        PropertyUtil.setContentCacheSize(1024 * 1024);
+        readDuringDump();
+    }
+
+    private void readDuringDump() throws Exception {
+        final List<String> versions = new ArrayList<String>(contents.values());
+        Assert.assertTrue(ConfigService.dump(dataId, GROUP, "", versions.get(0), 1L));
+
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final Queue<String> errors = new ConcurrentLinkedQueue<String>();
+        final AtomicInteger reads = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(READER_COUNT + 1);
+
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    for (int i = 1; running.get(); i++) {
+                        ConfigService.dump(dataId, GROUP, "", versions.get(i % versions.size()), i + 1L);
+                    }
+                } catch (Throwable t) {
+                    errors.add("dump: " + t);
+                } finally {
+                    done.countDown();
+                }
+            }
+        }).start();
+
+        for (int r = 0; r < READER_COUNT; r++) {
+            final boolean batch = r % 2 == 1;
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        while (running.get()) {
+                            String error = batch ? batchGet() : get();
+                            if (error != null) {
+                                errors.add(error);
+                            }
+                            reads.incrementAndGet();
+                        }
+                    } catch (Throwable t) {
+                        errors.add("read: " + t);
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }).start();
+        }
+
+        Thread.sleep(RUN_MILLIS);
+        running.set(false);
+        done.await();
+
+        Assert.assertTrue(reads.get() > 0);
+        Assert.assertEquals(Collections.emptyList(), new ArrayList<String>(errors));
+    }
+
+    private String get() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        inner.doGetConfig(request, response, dataId, GROUP, "", null, "127.0.0.1");
+
+        if (response.getStatus() != HttpServletResponse.SC_OK) {
+            return "get: status " + response.getStatus();
+        }
+        return check("get", response.getHeader(Constants.CONTENT_MD5), response.getContentAsString());
+    }
+
+    private String batchGet() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        List<String[]> configKeys = new ArrayList<String[]>();
+        configKeys.add(new String[] {dataId, GROUP, ""});
+        inner.doBatchGetConfig(request, response, configKeys, "127.0.0.1");
+
+        @SuppressWarnings("unchecked")
+        List<BatchConfigItem> items = (List<BatchConfigItem>)JSONUtils.deserializeObject(
+            response.getContentAsString(), new TypeReference<List<BatchConfigItem>>() {});
+        BatchConfigItem item = items.get(0);
+        if (item.getCode() != HttpServletResponse.SC_OK) {
+            return "batch: code " + item.getCode();
+        }
+        return check("batch", item.getMd5(), item.getContent());
+    }
+
+    private String check(String api, String md5, String content) {
+        if (!contents.containsKey(md5)) {
+            return api + ": unknown md5 " + md5;
+        }
+        if (!contents.get(md5).equals(content)) {
+            return api + ": content does not match md5 " + md5;
+        }
+        return null;
+    }
+}
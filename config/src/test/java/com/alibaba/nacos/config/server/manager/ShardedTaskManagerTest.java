@@ -0,0 +1,115 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.config.server.manager;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 分片处理时同一类型任务的顺序、合并和失败重试
+ *
+ * @author Nacos
+ */
+public class ShardedTaskManagerTest {
+
+    @Test
+    public void test_lastTaskOfTypeWins() throws InterruptedException {
+        final Map<String, Integer> processed = new ConcurrentHashMap<String, Integer>();
+        final AtomicInteger outOfOrder = new AtomicInteger();
+        final CountDownLatch latch = new CountDownLatch(100);
+        ShardedTaskManager manager = new ShardedTaskManager("test", 4, 10);
+        manager.setDefaultTaskProcessor(new BatchTaskProcessor() {
+            @Override
+            public Set<String> process(Map<String, AbstractTask> tasks) {
+                for (Map.Entry<String, AbstractTask> entry : tasks.entrySet()) {
+                    process(entry.getKey(), entry.getValue());
+                }
+                return new HashSet<String>();
+            }
+
+            @Override
+            public boolean process(String taskType, AbstractTask task) {
+                int version = ((VersionTask)task).version;
+                Integer previous = processed.put(taskType, version);
+                if (previous != null && previous > version) {
+                    outOfOrder.incrementAndGet();
+                }
+                if (version == 9) {
+                    latch.countDown();
+                }
+                return true;
+            }
+        });
+
+        for (int version = 0; version < 10; version++) {
+            for (int i = 0; i < 100; i++) {
+                manager.addTask("type." + i, new VersionTask(version));
+            }
+        }
+
+        Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals(0, outOfOrder.get());
+        Assert.assertEquals(100, processed.size());
+        manager.close();
+    }
+
+    @Test
+    public void test_failedTaskIsRetried() throws InterruptedException {
+        final AtomicInteger attempts = new AtomicInteger();
+        final CountDownLatch latch = new CountDownLatch(1);
+        ShardedTaskManager manager = new ShardedTaskManager("test", 2, 10);
+        manager.setDefaultTaskProcessor(new TaskProcessor() {
+            @Override
+            public boolean process(String taskType, AbstractTask task) {
+                if (attempts.incrementAndGet() < 3) {
+                    return false;
+                }
+                latch.countDown();
+                return true;
+            }
+        });
+
+        VersionTask task = new VersionTask(0);
+        task.setTaskInterval(10L);
+        manager.addTask("type", task);
+
+        Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals(3, attempts.get());
+        Assert.assertTrue(manager.isEmpty());
+        manager.close();
+    }
+
+    static class VersionTask extends AbstractTask {
+
+        final int version;
+
+        VersionTask(int version) {
+            this.version = version;
+        }
+
+        @Override
+        public void merge(AbstractTask task) {
+        }
+    }
+}
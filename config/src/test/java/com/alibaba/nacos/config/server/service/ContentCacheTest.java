@@ -0,0 +1,139 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.config.server.service;
+
+import com.alibaba.nacos.config.server.model.CacheItem;
+import com.alibaba.nacos.config.server.model.CachedContent;
+import com.alibaba.nacos.config.server.model.ConfigVersion;
+import com.alibaba.nacos.config.server.utils.PropertyUtil;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 配置内容缓存的淘汰和刷新
+ *
+ * @author Nacos
+ */
+public class ContentCacheTest {
+
+    private File dir;
+
+    private List<CacheItem> items = new ArrayList<CacheItem>();
+
+    @Before
+    public void setUp() {
+        dir = new File(System.getProperty("java.io.tmpdir"), "nacos-content-" + System.nanoTime());
+        PropertyUtil.setContentCacheSize(16 * 1024);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        for (CacheItem item : items) {
+            ContentCache.remove(item);
+        }
+        PropertyUtil.setContentCacheSize(0);
+        FileUtils.deleteDirectory(dir);
+    }
+
+    @Test
+    public void test_evictUnreferencedFirst() {
+        CacheItem hot = item("hot");
+        ContentCache.put(hot, hot.getVersion(), content(1000), 0L);
+
+        for (int i = 0; i < 100; i++) {
+            CacheItem item = item("cold." + i);
+            ContentCache.put(item, item.getVersion(), content(1000), 0L);
+            Assert.assertNotNull(ContentCache.get(hot.getVersion()));
+        }
+
+        Assert.assertTrue(ContentCache.size() <= 16 * 1024);
+        Assert.assertEquals(1000, ContentCache.get(hot.getVersion()).getSize());
+        Assert.assertNull(items.get(1).getContent());
+        Assert.assertNotNull(items.get(100).getContent());
+        Assert.assertEquals("md5", items.get(1).getMd5());
+    }
+
+    @Test
+    public void test_replacedVersionNotCached() {
+        CacheItem item = item("config");
+        ConfigVersion stale = item.getVersion();
+        item.setVersion(new ConfigVersion("md5.new", 2L, null));
+
+        CachedContent content = ContentCache.put(item, stale, content(10), 0L);
+
+        Assert.assertEquals(10, content.getSize());
+        Assert.assertNull(item.getContent());
+        Assert.assertEquals(0, ContentCache.size());
+    }
+
+    @Test
+    public void test_refreshWithNewVersion() throws IOException {
+        CacheItem item = item("config");
+        ContentCache.put(item, item.getVersion(), content(10), 0L);
+        CachedContent old = item.getContent();
+
+        File file = new File(dir, "config");
+        FileUtils.writeStringToFile(file, "new content", "UTF-8");
+        item.setVersion(new ConfigVersion("md5.new", 2L, null));
+        ContentCache.remove(item);
+        ContentCache.refresh(item, "new content", file);
+
+        CachedContent content = ContentCache.get(item.getVersion());
+        ByteBuffer bytes = content.getBytes();
+        byte[] array = new byte[bytes.remaining()];
+        bytes.get(array);
+        Assert.assertEquals("new content", new String(array, "UTF-8"));
+        Assert.assertEquals("md5.new", item.getMd5());
+        Assert.assertEquals(file.lastModified(), content.getLastModified());
+        Assert.assertEquals(content.getSize(), ContentCache.size());
+        // 旧内容仍可被正在写出的请求读取
+        Assert.assertEquals(10, old.getBytes().remaining());
+    }
+
+    @Test
+    public void test_largeContentNotCached() {
+        CacheItem item = item("large");
+        CachedContent content = ContentCache.put(item, item.getVersion(), content(2048), 0L);
+
+        Assert.assertEquals(2048, content.getSize());
+        Assert.assertNull(item.getContent());
+        Assert.assertEquals(0, ContentCache.size());
+    }
+
+    private CacheItem item(String dataId) {
+        CacheItem item = new CacheItem(dataId + "+DEFAULT_GROUP");
+        item.setVersion(new ConfigVersion("md5", 1L, null));
+        items.add(item);
+        return item;
+    }
+
+    private byte[] content(int length) {
+        byte[] content = new byte[length];
+        for (int i = 0; i < length; i++) {
+            content[i] = (byte)('a' + i % 26);
+        }
+        return content;
+    }
+}
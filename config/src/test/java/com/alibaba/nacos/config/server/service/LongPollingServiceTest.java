@@ -0,0 +1,134 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.config.server.service;
+
+import com.alibaba.nacos.config.server.utils.GroupKey2;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 长轮询索引的正确性
+ *
+ * @author Nacos
+ */
+public class LongPollingServiceTest {
+
+    private static final long TIMEOUT = 30000L;
+
+    private final List<LongPollingService> services = new ArrayList<LongPollingService>();
+
+    @After
+    public void after() {
+        for (LongPollingService service : services) {
+            service.scheduler.shutdownNow();
+            service.dataChangeExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void test_dataChangeOnlyNotifySubscribers() throws IOException {
+        LongPollingService service = newService();
+        AsyncContext hotContext = mockAsyncContext();
+        AsyncContext otherContext = mockAsyncContext();
+
+        String hotKey = GroupKey2.getKey("hot.dataId", "DEFAULT_GROUP");
+        for (int i = 0; i < 100; i++) {
+            addSub(service, hotContext, hotKey, "10.0.0." + i);
+            addSub(service, otherContext, GroupKey2.getKey("dataId." + i, "DEFAULT_GROUP"), "10.0.1." + i);
+        }
+        Assert.assertEquals(200, service.allSubs.size());
+
+        service.new DataChangeTask(hotKey).run();
+
+        Mockito.verify(hotContext, Mockito.times(100)).complete();
+        Mockito.verify(otherContext, Mockito.never()).complete();
+        Assert.assertEquals(100, service.allSubs.size());
+        Assert.assertNull(service.subsIndex.get(hotKey));
+
+        // 已经返回的长轮询不会被再次处理
+        service.new DataChangeTask(hotKey).run();
+        Mockito.verify(hotContext, Mockito.times(100)).complete();
+    }
+
+    @Test
+    public void test_multiKeySubscriberRemovedFromAllIndexes() throws IOException {
+        LongPollingService service = newService();
+        AsyncContext multiContext = mockAsyncContext();
+        AsyncContext otherContext = mockAsyncContext();
+
+        String hotKey = GroupKey2.getKey("hot.dataId", "DEFAULT_GROUP");
+        String coldKey = GroupKey2.getKey("cold.dataId", "DEFAULT_GROUP");
+        Map<String, String> clientMd5Map = new HashMap<String, String>(4);
+        for (int i = 0; i < 3; i++) {
+            clientMd5Map.put(GroupKey2.getKey("dataId." + i, "DEFAULT_GROUP"), "md5");
+        }
+        clientMd5Map.put(hotKey, "md5");
+        service.new ClientLongPolling(multiContext, clientMd5Map, "10.0.0.1", 1, TIMEOUT, "app", null).run();
+        addSub(service, otherContext, GroupKey2.getKey("dataId.0", "DEFAULT_GROUP"), "10.0.0.2");
+
+        // 没有订阅者的配置变更不影响任何长轮询
+        service.new DataChangeTask(coldKey).run();
+        Mockito.verify(multiContext, Mockito.never()).complete();
+        Assert.assertEquals(2, service.allSubs.size());
+
+        service.new DataChangeTask(hotKey).run();
+        Mockito.verify(multiContext, Mockito.times(1)).complete();
+        Mockito.verify(otherContext, Mockito.never()).complete();
+        Assert.assertEquals(1, service.allSubs.size());
+        Assert.assertNull(service.subsIndex.get(hotKey));
+        Assert.assertNull(service.subsIndex.get(GroupKey2.getKey("dataId.1", "DEFAULT_GROUP")));
+        Assert.assertEquals(1, service.subsIndex.get(GroupKey2.getKey("dataId.0", "DEFAULT_GROUP")).size());
+
+        // 同一个长轮询订阅的其他配置变更时不会再次返回
+        service.new DataChangeTask(GroupKey2.getKey("dataId.1", "DEFAULT_GROUP")).run();
+        Mockito.verify(multiContext, Mockito.times(1)).complete();
+    }
+
+    private LongPollingService newService() {
+        LongPollingService service = new LongPollingService();
+        services.add(service);
+        return service;
+    }
+
+    private void addSub(LongPollingService service, AsyncContext asyncContext, String groupKey, String ip) {
+        Map<String, String> clientMd5Map = new HashMap<String, String>(2);
+        clientMd5Map.put(groupKey, "md5");
+        service.new ClientLongPolling(asyncContext, clientMd5Map, ip, 1, TIMEOUT, "app", null).run();
+    }
+
+    private AsyncContext mockAsyncContext() throws IOException {
+        HttpServletResponse response = Mockito.mock(HttpServletResponse.class);
+        Mockito.when(response.getWriter()).thenReturn(new PrintWriter(new StringWriter()));
+
+        AsyncContext asyncContext = Mockito.mock(AsyncContext.class);
+        Mockito.when(asyncContext.getRequest()).thenReturn(Mockito.mock(HttpServletRequest.class));
+        Mockito.when(asyncContext.getResponse()).thenReturn(response);
+        return asyncContext;
+    }
+}
@@ -73,4 +73,65 @@ public class SimpleReadWriteLockTest {
 
         assertEquals(false, lock.tryWriteLock());
     }
+
+    @Test
+    public void test_等待读锁_写锁释放后加上() throws Exception {
+        final SimpleReadWriteLock lock = new SimpleReadWriteLock();
+        assertEquals(true, lock.tryWriteLock());
+
+        Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                lock.releaseWriteLock();
+            }
+        });
+        writer.start();
+
+        assertEquals(true, lock.readLock(10000));
+        assertEquals(false, lock.tryWriteLock());
+        writer.join();
+    }
+
+    @Test
+    public void test_等待读锁超时() throws Exception {
+        SimpleReadWriteLock lock = new SimpleReadWriteLock();
+        assertEquals(true, lock.tryWriteLock());
+
+        assertEquals(false, lock.readLock(10));
+        lock.releaseWriteLock();
+        assertEquals(true, lock.tryWriteLock());
+    }
+
+    @Test
+    public void test_等待读锁时加写锁失败() throws Exception {
+        final SimpleReadWriteLock lock = new SimpleReadWriteLock();
+        assertEquals(true, lock.tryWriteLock());
+
+        Thread reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    lock.readLock(10000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        reader.start();
+        while (reader.getState() != Thread.State.TIMED_WAITING) {
+            Thread.sleep(1);
+        }
+
+        // 读线程被唤醒前写锁也加不上
+        lock.releaseWriteLock();
+        assertEquals(false, lock.tryWriteLock());
+        reader.join();
+        lock.releaseReadLock();
+        assertEquals(true, lock.tryWriteLock());
+    }
 }
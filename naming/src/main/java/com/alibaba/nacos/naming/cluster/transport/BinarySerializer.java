@@ -0,0 +1,374 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.naming.cluster.transport;
+
+import com.alibaba.fastjson.TypeReference;
+import com.alibaba.nacos.naming.consistency.Datum;
+import com.alibaba.nacos.naming.core.Instance;
+import com.alibaba.nacos.naming.core.Instances;
+import com.alibaba.nacos.naming.misc.Loggers;
+import com.alibaba.nacos.naming.pojo.Record;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary serializer for maps of {@code Datum<Instances>}, the payload of Distro data syncs.
+ * <p>
+ * The layout is fixed by the fields of {@link Instance}, numbers are written as var-ints and every distinct string is
+ * written only once per payload, later occurrences refer to it by index. A payload always starts with {@link #MAGIC},
+ * which can never be the start of a UTF-8 JSON document, so receivers can tell both formats apart without any
+ * negotiation. Data of any other shape is serialized with fastjson.
+ *
+ * @author nacos
+ */
+@Component("binarySerializer")
+public class BinarySerializer implements Serializer {
+
+    public static final byte[] MAGIC = new byte[]{(byte) 0xCA, (byte) 0xFE};
+
+    private static final byte VERSION = 1;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final int FLAG_HEALTHY = 1;
+
+    private static final int FLAG_ENABLED = 1 << 1;
+
+    private static final int FLAG_EPHEMERAL = 1 << 2;
+
+    private static final int FLAG_MARKED = 1 << 3;
+
+    private static final int FLAG_MOCK_VALID = 1 << 4;
+
+    private final FastJsonSerializer fallback = new FastJsonSerializer();
+
+    public static boolean isBinary(byte[] data) {
+        return data != null && data.length > MAGIC.length && data[0] == MAGIC[0] && data[1] == MAGIC[1];
+    }
+
+    /**
+     * @return true if the data is a map of instance list datums, which is the only shape with a binary layout
+     */
+    public boolean supports(Object data) {
+        if (!(data instanceof Map)) {
+            return false;
+        }
+
+        for (Map.Entry<?, ?> entry : ((Map<?, ?>) data).entrySet()) {
+            if (!(entry.getKey() instanceof String)) {
+                return false;
+            }
+
+            Object value = entry.getValue();
+            if (value == null) {
+                continue;
+            }
+
+            if (!(value instanceof Datum)) {
+                return false;
+            }
+
+            Record record = ((Datum) value).value;
+            if (record != null && !(record instanceof Instances)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public <T> byte[] serialize(T data) {
+        if (!supports(data)) {
+            return fallback.serialize(data);
+        }
+
+        Map<?, ?> datumMap = (Map<?, ?>) data;
+        Writer writer = new Writer();
+        writer.out.write(MAGIC, 0, MAGIC.length);
+        writer.out.write(VERSION);
+        writer.writeVarLong(datumMap.size());
+
+        for (Map.Entry<?, ?> entry : datumMap.entrySet()) {
+            writer.writeString((String) entry.getKey());
+
+            Datum datum = (Datum) entry.getValue();
+            if (datum == null) {
+                writer.out.write(0);
+                continue;
+            }
+
+            writer.out.write(1);
+            writer.writeString(datum.key);
+            writer.writeVarLong(datum.timestamp.get());
+
+            Instances instances = (Instances) datum.value;
+            if (instances == null || instances.getInstanceList() == null) {
+                writer.out.write(0);
+                continue;
+            }
+
+            writer.out.write(1);
+            List<Instance> instanceList = instances.getInstanceList();
+            writer.writeVarLong(instanceList.size());
+            for (Instance instance : instanceList) {
+                writeInstance(writer, instance);
+            }
+        }
+
+        return writer.out.toByteArray();
+    }
+
+    @Override
+    public <T> T deserialize(byte[] data, Class<T> clazz) {
+        if (isBinary(data)) {
+            Loggers.SRV_LOG.error("binary data can only be deserialized as datum map, target: {}", clazz);
+            return null;
+        }
+        return fallback.deserialize(data, clazz);
+    }
+
+    @Override
+    public <T> T deserialize(byte[] data, TypeReference<T> clazz) {
+        if (isBinary(data)) {
+            Loggers.SRV_LOG.error("binary data can only be deserialized as datum map, target: {}", clazz.getType());
+            return null;
+        }
+        return fallback.deserialize(data, clazz);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T extends Record> Map<String, Datum<T>> deserializeMap(byte[] data, Class<T> clazz) {
+        if (!isBinary(data)) {
+            return fallback.deserializeMap(data, clazz);
+        }
+
+        if (!Instances.class.equals(clazz)) {
+            Loggers.SRV_LOG.error("binary data can only be deserialized as instances, target: {}", clazz);
+            return null;
+        }
+
+        try {
+            Reader reader = new Reader(ByteBuffer.wrap(data));
+            reader.buffer.position(MAGIC.length);
+            byte version = reader.buffer.get();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("unknown binary serializer version: " + version);
+            }
+
+            int size = (int) reader.readVarLong();
+            Map<String, Datum<T>> resultMap = new HashMap<>(size);
+            for (int i = 0; i < size; i++) {
+                String mapKey = reader.readString();
+                if (reader.buffer.get() == 0) {
+                    resultMap.put(mapKey, null);
+                    continue;
+                }
+
+                Datum<Instances> datum = new Datum<>();
+                datum.key = reader.readString();
+                datum.timestamp.set(reader.readVarLong());
+
+                if (reader.buffer.get() != 0) {
+                    int count = (int) reader.readVarLong();
+                    List<Instance> instanceList = new ArrayList<>(count);
+                    for (int j = 0; j < count; j++) {
+                        instanceList.add(readInstance(reader));
+                    }
+                    Instances instances = new Instances();
+                    instances.setInstanceList(instanceList);
+                    datum.value = instances;
+                }
+
+                resultMap.put(mapKey, (Datum<T>) datum);
+            }
+
+            return resultMap;
+        } catch (Exception e) {
+            Loggers.SRV_LOG.error("deserialize data failed.", e);
+        }
+        return null;
+    }
+
+    private void writeInstance(Writer writer, Instance instance) {
+        writer.writeString(instance.getInstanceId());
+        writer.writeString(instance.getIp());
+        writer.writeVarLong(instance.getPort());
+        writer.writeDouble(instance.getWeight());
+
+        int flags = 0;
+        if (instance.isHealthy()) {
+            flags |= FLAG_HEALTHY;
+        }
+        if (instance.isEnabled()) {
+            flags |= FLAG_ENABLED;
+        }
+        if (instance.isEphemeral()) {
+            flags |= FLAG_EPHEMERAL;
+        }
+        if (instance.isMarked()) {
+            flags |= FLAG_MARKED;
+        }
+        if (instance.isMockValid()) {
+            flags |= FLAG_MOCK_VALID;
+        }
+        writer.out.write(flags);
+
+        writer.writeString(instance.getClusterName());
+        writer.writeString(instance.getServiceName());
+        writer.writeString(instance.getTenant());
+        writer.writeString(instance.getApp());
+        writer.writeVarLong(instance.getLastBeat());
+
+        Map<String, String> metadata = instance.getMetadata();
+        if (metadata == null) {
+            writer.writeVarLong(0);
+            return;
+        }
+
+        writer.writeVarLong(metadata.size() + 1);
+        for (Map.Entry<String, String> entry : metadata.entrySet()) {
+            writer.writeString(entry.getKey());
+            writer.writeString(entry.getValue());
+        }
+    }
+
+    private Instance readInstance(Reader reader) {
+        Instance instance = new Instance();
+        instance.setInstanceId(reader.readString());
+        instance.setIp(reader.readString());
+        instance.setPort((int) reader.readVarLong());
+        instance.setWeight(reader.buffer.getDouble());
+
+        int flags = reader.buffer.get();
+        instance.setHealthy((flags & FLAG_HEALTHY) != 0);
+        instance.setEnabled((flags & FLAG_ENABLED) != 0);
+        instance.setEphemeral((flags & FLAG_EPHEMERAL) != 0);
+        instance.setMarked((flags & FLAG_MARKED) != 0);
+        instance.setMockValid((flags & FLAG_MOCK_VALID) != 0);
+
+        instance.setClusterName(reader.readString());
+        instance.setServiceName(reader.readString());
+        instance.setTenant(reader.readString());
+        instance.setApp(reader.readString());
+        instance.setLastBeat(reader.readVarLong());
+
+        int metadataSize = (int) reader.readVarLong() - 1;
+        if (metadataSize < 0) {
+            instance.setMetadata(null);
+            return instance;
+        }
+
+        Map<String, String> metadata = new HashMap<>(Math.max(metadataSize * 2, 4));
+        for (int i = 0; i < metadataSize; i++) {
+            metadata.put(reader.readString(), reader.readString());
+        }
+        instance.setMetadata(metadata);
+        return instance;
+    }
+
+    /**
+     * Strings are written as: 0 for null, 1 followed by length and UTF-8 bytes for the first occurrence, or the index
+     * of an earlier occurrence plus 2.
+     */
+    private static class Writer {
+
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream(4096);
+
+        private final Map<String, Integer> strings = new HashMap<>(256);
+
+        void writeVarLong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                out.write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            out.write((int) value);
+        }
+
+        void writeDouble(double value) {
+            long bits = Double.doubleToLongBits(value);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                out.write((int) (bits >>> shift));
+            }
+        }
+
+        void writeString(String value) {
+            if (value == null) {
+                writeVarLong(0);
+                return;
+            }
+
+            Integer index = strings.get(value);
+            if (index != null) {
+                writeVarLong(index + 2);
+                return;
+            }
+
+            strings.put(value, strings.size());
+            byte[] bytes = value.getBytes(UTF8);
+            writeVarLong(1);
+            writeVarLong(bytes.length);
+            out.write(bytes, 0, bytes.length);
+        }
+    }
+
+    private static class Reader {
+
+        private final ByteBuffer buffer;
+
+        private final List<String> strings = new ArrayList<>(256);
+
+        Reader(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        long readVarLong() {
+            long value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = buffer.get();
+                value |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return value;
+        }
+
+        String readString() {
+            long tag = readVarLong();
+            if (tag == 0) {
+                return null;
+            }
+
+            if (tag > 1) {
+                return strings.get((int) (tag - 2));
+            }
+
+            int length = (int) readVarLong();
+            String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, UTF8);
+            buffer.position(buffer.position() + length);
+            strings.add(value);
+            return value;
+        }
+    }
+}
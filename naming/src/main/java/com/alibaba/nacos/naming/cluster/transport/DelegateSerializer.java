@@ -0,0 +1,92 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.naming.cluster.transport;
+
+import com.alibaba.fastjson.TypeReference;
+import com.alibaba.nacos.naming.consistency.Datum;
+import com.alibaba.nacos.naming.misc.GlobalConfig;
+import com.alibaba.nacos.naming.pojo.Record;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Serializer used by the Distro transport.
+ * <p>
+ * Data is serialized with the serializer configured by {@code nacos.naming.distro.serializer}, while received data is
+ * always deserialized with the serializer it was written by, so servers of both settings can talk to each other.
+ * Binary data is only sent to servers which asked for it, or which have announced in {@link #SERIALIZER_HEADER} that
+ * they accept it; every other server gets JSON.
+ *
+ * @author nacos
+ */
+@Component("serializerDelegate")
+public class DelegateSerializer implements Serializer {
+
+    public static final String SERIALIZER_BINARY = "binary";
+
+    public static final String SERIALIZER_JSON = "json";
+
+    /**
+     * Header telling the serializer of a pushed request, and in the response the serializers the receiver accepts.
+     * Servers of older versions neither send nor read it, so they are only ever pushed JSON.
+     */
+    public static final String SERIALIZER_HEADER = "Nacos-Serializer";
+
+    @Autowired
+    private FastJsonSerializer fastJsonSerializer;
+
+    @Autowired
+    private BinarySerializer binarySerializer;
+
+    @Autowired
+    private GlobalConfig globalConfig;
+
+    public boolean isBinaryEnabled() {
+        return SERIALIZER_BINARY.equals(globalConfig.getDistroSerializer());
+    }
+
+    /**
+     * Serialize data for a peer, which may or may not have asked for the binary format.
+     */
+    public <T> byte[] serialize(T data, boolean binary) {
+        return binary ? binarySerializer.serialize(data) : fastJsonSerializer.serialize(data);
+    }
+
+    @Override
+    public <T> byte[] serialize(T data) {
+        return serialize(data, isBinaryEnabled());
+    }
+
+    @Override
+    public <T> T deserialize(byte[] data, Class<T> clazz) {
+        return fastJsonSerializer.deserialize(data, clazz);
+    }
+
+    @Override
+    public <T> T deserialize(byte[] data, TypeReference<T> clazz) {
+        return fastJsonSerializer.deserialize(data, clazz);
+    }
+
+    @Override
+    public <T extends Record> Map<String, Datum<T>> deserializeMap(byte[] data, Class<T> clazz) {
+        if (BinarySerializer.isBinary(data)) {
+            return binarySerializer.deserializeMap(data, clazz);
+        }
+        return fastJsonSerializer.deserializeMap(data, clazz);
+    }
+}
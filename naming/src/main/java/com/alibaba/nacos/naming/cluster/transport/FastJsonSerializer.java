@@ -33,7 +33,7 @@ import java.util.Map;
  * @author nkorange
  * @since 1.0.0
  */
-@Component
+@Component("fastJsonSerializer")
 public class FastJsonSerializer implements Serializer {
 
     @Override
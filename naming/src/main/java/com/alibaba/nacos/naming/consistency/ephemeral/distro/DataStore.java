@@ -16,9 +16,15 @@
 package com.alibaba.nacos.naming.consistency.ephemeral.distro;
 
 import com.alibaba.nacos.naming.consistency.Datum;
+import com.alibaba.nacos.naming.consistency.KeyBuilder;
+import com.alibaba.nacos.naming.core.DistroMapper;
 import com.alibaba.nacos.naming.core.Instances;
+import com.alibaba.nacos.naming.misc.NetUtils;
+import com.alibaba.nacos.naming.pojo.Record;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -34,14 +40,62 @@ import java.util.concurrent.ConcurrentHashMap;
 @Component
 public class DataStore {
 
+    @Autowired
+    private DistroMapper distroMapper;
+
     private Map<String, Datum> dataMap = new ConcurrentHashMap<>(1024);
 
+    /**
+     * Hash of every datum, see {@link DistroDigest#hash(String, Record)}.
+     */
+    private final Map<String, Long> hashes = new ConcurrentHashMap<>(1024);
+
+    /**
+     * Digest of the data owned by each server, updated on every change and only rebuilt from {@link #hashes} when the
+     * healthy server list, and so the owner of the keys, changes. Guarded by itself.
+     */
+    private final Map<String, DistroDigest> digests = new HashMap<>(16);
+
+    private List<String> digestServers;
+
     public void put(String key, Datum value) {
         dataMap.put(key, value);
+        refresh(key);
     }
 
     public Datum remove(String key) {
-        return dataMap.remove(key);
+        Datum datum = dataMap.remove(key);
+        refresh(key);
+        return datum;
+    }
+
+    /**
+     * Update the hash of a datum, also for changes made to it in place like health status flips.
+     */
+    public void refresh(String key) {
+        synchronized (digests) {
+            // a rebuild still contains the old hash, which is replaced below like in every other digest:
+            checkOwners();
+
+            // read the datum inside the lock, so the hash of the latest value always wins:
+            Datum datum = dataMap.get(key);
+            Long hash = datum == null ? null : DistroDigest.hash(key, datum.value);
+            Long old = hash == null ? hashes.remove(key) : hashes.put(key, hash);
+
+            for (String owner : owners(key)) {
+                DistroDigest digest = digests.get(owner);
+                if (digest == null) {
+                    digest = new DistroDigest();
+                    digests.put(owner, digest);
+                }
+                if (old != null) {
+                    digest.remove(key, old);
+                }
+                if (hash != null) {
+                    digest.add(key, hash);
+                }
+            }
+        }
     }
 
     public Set<String> keys() {
@@ -81,6 +135,78 @@ public class DataStore {
         return count;
     }
 
+    /**
+     * @return snapshot of the digest of all data owned by the given server
+     */
+    public DistroDigest digest(String owner) {
+        synchronized (digests) {
+            checkOwners();
+            DistroDigest digest = digests.get(owner);
+            return digest == null ? new DistroDigest() : digest.copy();
+        }
+    }
+
+    /**
+     * @return hash of every key owned by the given server that falls into one of the buckets
+     */
+    public Map<String, Long> keyHashes(String owner, Set<Integer> buckets) {
+        Map<String, Long> result = new HashMap<>(64);
+        for (Map.Entry<String, Long> entry : hashes.entrySet()) {
+            if (buckets.contains(DistroDigest.bucketOf(entry.getKey())) && ownedBy(entry.getKey(), owner)) {
+                result.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Rebuild the digests if the owners of the keys may have changed since they were built.
+     */
+    private void checkOwners() {
+        List<String> servers = distroMapper.getHealthyList();
+        if (servers == digestServers) {
+            return;
+        }
+
+        digests.clear();
+        for (Map.Entry<String, Long> entry : hashes.entrySet()) {
+            for (String owner : owners(entry.getKey())) {
+                DistroDigest digest = digests.get(owner);
+                if (digest == null) {
+                    digest = new DistroDigest();
+                    digests.put(owner, digest);
+                }
+                digest.add(entry.getKey(), entry.getValue());
+            }
+        }
+        digestServers = servers;
+    }
+
+    /**
+     * @return servers owning the key, this server may consider itself responsible for a key mapped to another one
+     * while it is not in the healthy server list
+     */
+    private List<String> owners(String key) {
+        String serviceName = KeyBuilder.getServiceName(key);
+        List<String> owners = new ArrayList<>(2);
+        if (distroMapper.responsible(serviceName)) {
+            owners.add(NetUtils.localServer());
+        }
+        String mapped = distroMapper.mapSrv(serviceName);
+        if (!owners.contains(mapped) && !NetUtils.localServer().equals(mapped)) {
+            owners.add(mapped);
+        }
+        return owners;
+    }
+
+    private boolean ownedBy(String key, String owner) {
+        String serviceName = KeyBuilder.getServiceName(key);
+        if (NetUtils.localServer().equals(owner)) {
+            return distroMapper.responsible(serviceName);
+        }
+        return owner.equals(distroMapper.mapSrv(serviceName));
+    }
+
     public Map<String, Datum> getDataMap() {
         return dataMap;
     }
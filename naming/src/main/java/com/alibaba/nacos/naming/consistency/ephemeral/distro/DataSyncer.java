@@ -17,7 +17,7 @@ package com.alibaba.nacos.naming.consistency.ephemeral.distro;
 
 import com.alibaba.nacos.naming.cluster.ServerListManager;
 import com.alibaba.nacos.naming.cluster.servers.Server;
-import com.alibaba.nacos.naming.cluster.transport.Serializer;
+import com.alibaba.nacos.naming.cluster.transport.DelegateSerializer;
 import com.alibaba.nacos.naming.consistency.Datum;
 import com.alibaba.nacos.naming.consistency.KeyBuilder;
 import com.alibaba.nacos.naming.core.DistroMapper;
@@ -28,11 +28,14 @@ import org.springframework.context.annotation.DependsOn;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Data replicator
@@ -44,14 +47,20 @@ import java.util.concurrent.ConcurrentHashMap;
 @DependsOn("serverListManager")
 public class DataSyncer {
 
+    /**
+     * How long a server without the digest API is sent checksums before it is asked for the digest again, in case it
+     * has been upgraded meanwhile.
+     */
+    private static final long DIGEST_RETRY_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
     @Autowired
     private DataStore dataStore;
 
     @Autowired
     private GlobalConfig partitionConfig;
 
-    @Autowired
-    private Serializer serializer;
+    @Resource(name = "serializerDelegate")
+    private DelegateSerializer serializer;
 
     @Autowired
     private DistroMapper distroMapper;
@@ -61,6 +70,16 @@ public class DataSyncer {
 
     private Map<String, String> taskMap = new ConcurrentHashMap<>();
 
+    /**
+     * Servers which have announced that they accept binary data, all others are pushed JSON.
+     */
+    private Set<String> binaryServers = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Servers of older versions which answered the digest with 404, and the time they did so.
+     */
+    private Map<String, Long> checksumServers = new ConcurrentHashMap<>();
+
     @PostConstruct
     public void init() {
         startTimedSync();
@@ -114,10 +133,21 @@ public class DataSyncer {
                         return;
                     }
 
-                    byte[] data = serializer.serialize(datumMap);
+                    String server = task.getTargetServer();
+                    boolean binary = serializer.isBinaryEnabled() && binaryServers.contains(server);
+                    byte[] data = serializer.serialize(datumMap, binary);
 
                     long timestamp = System.currentTimeMillis();
-                    boolean success = NamingProxy.syncData(data, task.getTargetServer());
+                    HttpClient.HttpResult result = NamingProxy.syncData(data, server, binary);
+                    boolean success = result != null;
+                    if (success && DelegateSerializer.SERIALIZER_BINARY.equals(
+                        result.getHeader(DelegateSerializer.SERIALIZER_HEADER))) {
+                        binaryServers.add(server);
+                    } else {
+                        // the server may have been replaced by an older version, retry with JSON:
+                        binaryServers.remove(server);
+                    }
+
                     if (!success) {
                         SyncTask syncTask = new SyncTask();
                         syncTask.setKeys(task.getKeys());
@@ -168,29 +198,43 @@ public class DataSyncer {
                     Loggers.EPHEMERAL.debug("server list is: {}", getServers());
                 }
 
-                // send local timestamps to other servers:
-                Map<String, String> keyChecksums = new HashMap<>(64);
-                for (String key : dataStore.keys()) {
-                    if (!distroMapper.responsible(KeyBuilder.getServiceName(key))) {
-                        continue;
-                    }
-
-                    keyChecksums.put(key, dataStore.get(key).value.getChecksum());
-                }
+                // send digest of local data to other servers, they will ask for the parts that differ:
+                DistroDigest digest = dataStore.digest(NetUtils.localServer());
 
-                if (keyChecksums.isEmpty()) {
+                if (digest.isEmpty()) {
                     return;
                 }
 
                 if (Loggers.EPHEMERAL.isDebugEnabled()) {
-                    Loggers.EPHEMERAL.debug("sync checksums: {}", keyChecksums);
+                    Loggers.EPHEMERAL.debug("sync digest, root: {}", digest.getRoot());
                 }
 
+                Map<String, String> keyChecksums = null;
                 for (Server member : getServers()) {
-                    if (NetUtils.localServer().equals(member.getKey())) {
+                    final String server = member.getKey();
+                    if (NetUtils.localServer().equals(server)) {
                         continue;
                     }
-                    NamingProxy.syncChecksums(keyChecksums, member.getKey());
+
+                    Long unsupportedSince = checksumServers.get(server);
+                    if (unsupportedSince != null
+                        && System.currentTimeMillis() - unsupportedSince < DIGEST_RETRY_MILLIS) {
+                        // servers of older versions still compare checksums of all keys:
+                        if (keyChecksums == null) {
+                            keyChecksums = buildChecksums();
+                        }
+                        NamingProxy.syncChecksums(keyChecksums, server);
+                        continue;
+                    }
+
+                    checksumServers.remove(server);
+                    NamingProxy.syncDigest(digest, server, new Runnable() {
+                        @Override
+                        public void run() {
+                            Loggers.EPHEMERAL.info("server {} does not support digest sync, send checksums", server);
+                            checksumServers.put(server, System.currentTimeMillis());
+                        }
+                    });
                 }
             } catch (Exception e) {
                 Loggers.EPHEMERAL.error("timed sync task failed.", e);
@@ -198,6 +242,21 @@ public class DataSyncer {
         }
     }
 
+    private Map<String, String> buildChecksums() {
+        Map<String, String> keyChecksums = new HashMap<>(64);
+        for (String key : dataStore.keys()) {
+            if (!distroMapper.responsible(KeyBuilder.getServiceName(key))) {
+                continue;
+            }
+
+            Datum datum = dataStore.get(key);
+            if (datum != null) {
+                keyChecksums.put(key, datum.value.getChecksum());
+            }
+        }
+        return keyChecksums;
+    }
+
     public List<Server> getServers() {
         return serverListManager.getHealthyServers();
     }
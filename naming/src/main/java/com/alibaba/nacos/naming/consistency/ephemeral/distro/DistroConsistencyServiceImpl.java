@@ -22,7 +22,7 @@ import com.alibaba.nacos.naming.cluster.ServerListManager;
 import com.alibaba.nacos.naming.cluster.ServerMode;
 import com.alibaba.nacos.naming.cluster.ServerStatus;
 import com.alibaba.nacos.naming.cluster.servers.Server;
-import com.alibaba.nacos.naming.cluster.transport.Serializer;
+import com.alibaba.nacos.naming.cluster.transport.DelegateSerializer;
 import com.alibaba.nacos.naming.consistency.ApplyAction;
 import com.alibaba.nacos.naming.consistency.Datum;
 import com.alibaba.nacos.naming.consistency.KeyBuilder;
@@ -38,9 +38,12 @@ import org.javatuples.Pair;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.*;
 
 /**
@@ -84,8 +87,8 @@ public class DistroConsistencyServiceImpl implements EphemeralConsistencyService
     @Autowired
     private DataSyncer dataSyncer;
 
-    @Autowired
-    private Serializer serializer;
+    @Resource(name = "serializerDelegate")
+    private DelegateSerializer serializer;
 
     @Autowired
     private ServerListManager serverListManager;
@@ -231,33 +234,102 @@ public class DistroConsistencyServiceImpl implements EphemeralConsistencyService
                 }
             }
 
-            Loggers.EPHEMERAL.info("to remove keys: {}, to update keys: {}, source: {}", toRemoveKeys, toUpdateKeys, server);
+            applyDiff(toUpdateKeys, toRemoveKeys, server);
+        } finally {
+            // Remove this 'in process' flag:
+            syncChecksumTasks.remove(server);
+        }
+
+    }
 
-            for (String key : toRemoveKeys) {
-                onRemove(key);
+    /**
+     * Compare the digest of the data a server is responsible for with the local copy, and fetch only the keys of the
+     * buckets that differ.
+     */
+    public void onReceiveDigest(long root, long[] groups, String server) {
+
+        if (syncChecksumTasks.containsKey(server)) {
+            // Already in process of this server:
+            Loggers.EPHEMERAL.warn("sync checksum task already in process with {}", server);
+            return;
+        }
+
+        syncChecksumTasks.put(server, "1");
+
+        try {
+
+            DistroDigest digest = dataStore.digest(server);
+            if (digest.getRoot() == root) {
+                return;
             }
 
-            if (toUpdateKeys.isEmpty()) {
+            Map<Integer, long[]> remoteBuckets = NamingProxy.getDigestBuckets(digest.diffGroups(groups), server);
+
+            Set<Integer> buckets = new HashSet<>();
+            for (Map.Entry<Integer, long[]> entry : remoteBuckets.entrySet()) {
+                buckets.addAll(digest.diffBuckets(entry.getKey(), entry.getValue()));
+            }
+
+            if (buckets.isEmpty()) {
                 return;
             }
 
-            try {
-                byte[] result = NamingProxy.getData(toUpdateKeys, server);
-                processData(result);
-            } catch (Exception e) {
-                Loggers.EPHEMERAL.error("get data from " + server + " failed!", e);
+            Map<String, Long> remoteHashes = NamingProxy.getKeyHashes(new ArrayList<>(buckets), server);
+            Map<String, Long> localHashes = dataStore.keyHashes(server, buckets);
+
+            List<String> toUpdateKeys = new ArrayList<>();
+            List<String> toRemoveKeys = new ArrayList<>();
+            for (Map.Entry<String, Long> entry : remoteHashes.entrySet()) {
+                if (distroMapper.responsible(KeyBuilder.getServiceName(entry.getKey()))) {
+                    // this key should not be sent from remote server:
+                    Loggers.EPHEMERAL.error("receive responsible key hash of " + entry.getKey() + " from " + server);
+                    // abort the procedure:
+                    return;
+                }
+                if (!entry.getValue().equals(localHashes.get(entry.getKey()))) {
+                    toUpdateKeys.add(entry.getKey());
+                }
+            }
+
+            for (String key : localHashes.keySet()) {
+                if (!remoteHashes.containsKey(key)) {
+                    toRemoveKeys.add(key);
+                }
             }
+
+            applyDiff(toUpdateKeys, toRemoveKeys, server);
+        } catch (Exception e) {
+            Loggers.EPHEMERAL.error("sync digest with " + server + " failed!", e);
         } finally {
             // Remove this 'in process' flag:
             syncChecksumTasks.remove(server);
         }
+    }
+
+    private void applyDiff(List<String> toUpdateKeys, List<String> toRemoveKeys, String server) {
+
+        Loggers.EPHEMERAL.info("to remove keys: {}, to update keys: {}, source: {}", toRemoveKeys, toUpdateKeys, server);
+
+        for (String key : toRemoveKeys) {
+            onRemove(key);
+        }
 
+        if (toUpdateKeys.isEmpty()) {
+            return;
+        }
+
+        try {
+            byte[] result = NamingProxy.getData(toUpdateKeys, server, serializer.isBinaryEnabled());
+            processData(result);
+        } catch (Exception e) {
+            Loggers.EPHEMERAL.error("get data from " + server + " failed!", e);
+        }
     }
 
     public boolean syncAllDataFromRemote(Server server) {
 
         try {
-            byte[] data = NamingProxy.getAllData(server.getKey());
+            byte[] data = NamingProxy.getAllData(server.getKey(), serializer.isBinaryEnabled());
             processData(data);
             return true;
         } catch (Exception e) {
@@ -0,0 +1,199 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.naming.consistency.ephemeral.distro;
+
+import com.alibaba.nacos.naming.core.Instance;
+import com.alibaba.nacos.naming.core.Instances;
+import com.alibaba.nacos.naming.misc.HashUtils;
+import com.alibaba.nacos.naming.pojo.Record;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hash tree over the data of one Distro owner, used for anti-entropy between servers.
+ * <p>
+ * Keys are spread over {@link #BUCKET_COUNT} buckets, the hash of a bucket is the sum of the hashes of its keys, so it
+ * does not depend on iteration order. Buckets are rolled up into {@link #FANOUT} groups, and groups into a single
+ * root. Two servers first compare roots, then groups, then buckets, and only exchange key hashes of the buckets that
+ * differ.
+ * <p>
+ * Since a bucket is a plain sum, a changed datum is applied by removing its old hash and adding the new one, so the
+ * digest can be kept up to date on every change instead of being rebuilt over all data.
+ *
+ * @author nacos
+ */
+public class DistroDigest {
+
+    public static final int FANOUT = 32;
+
+    public static final int BUCKET_COUNT = FANOUT * FANOUT;
+
+    private final long[] buckets = new long[BUCKET_COUNT];
+
+    private long[] groups;
+
+    private long root;
+
+    private int size;
+
+    public void add(String key, Record value) {
+        add(key, hash(key, value));
+    }
+
+    /**
+     * @param hash hash of the datum, see {@link #hash(String, Record)}
+     */
+    public void add(String key, long hash) {
+        buckets[bucketOf(key)] += hash;
+        groups = null;
+        size++;
+    }
+
+    /**
+     * @param hash hash the datum was added with
+     */
+    public void remove(String key, long hash) {
+        buckets[bucketOf(key)] -= hash;
+        groups = null;
+        size--;
+    }
+
+    public DistroDigest copy() {
+        DistroDigest copy = new DistroDigest();
+        System.arraycopy(buckets, 0, copy.buckets, 0, BUCKET_COUNT);
+        copy.size = size;
+        return copy;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public long getRoot() {
+        seal();
+        return root;
+    }
+
+    public long[] getGroups() {
+        seal();
+        return groups;
+    }
+
+    /**
+     * @return hashes of the buckets in the given group
+     */
+    public long[] getBuckets(int group) {
+        return Arrays.copyOfRange(buckets, group * FANOUT, (group + 1) * FANOUT);
+    }
+
+    public List<Integer> diffGroups(long[] remoteGroups) {
+        seal();
+        List<Integer> result = new ArrayList<>();
+        for (int i = 0; i < FANOUT; i++) {
+            if (remoteGroups == null || remoteGroups.length != FANOUT || remoteGroups[i] != groups[i]) {
+                result.add(i);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return indexes of the buckets in the given group whose hashes differ from the remote ones
+     */
+    public List<Integer> diffBuckets(int group, long[] remoteBuckets) {
+        List<Integer> result = new ArrayList<>();
+        for (int i = 0; i < FANOUT; i++) {
+            int bucket = group * FANOUT + i;
+            if (remoteBuckets == null || remoteBuckets.length != FANOUT || remoteBuckets[i] != buckets[bucket]) {
+                result.add(bucket);
+            }
+        }
+        return result;
+    }
+
+    public static int bucketOf(String key) {
+        return (int) ((HashUtils.mix(key.hashCode()) >>> 1) % BUCKET_COUNT);
+    }
+
+    /**
+     * Hash of a datum that is the same on every server holding the same data.
+     * <p>
+     * For instance lists this is computed from the instance fields directly instead of {@link Record#getChecksum()},
+     * so it is cheap enough to be evaluated for every key on each round, and also catches in-place changes like
+     * health status flips.
+     */
+    public static long hash(String key, Record value) {
+        long h = HashUtils.mix(key.hashCode());
+        if (value == null) {
+            return h;
+        }
+
+        if (!(value instanceof Instances)) {
+            return HashUtils.mix(h + value.getChecksum().hashCode());
+        }
+
+        List<Instance> instanceList = ((Instances) value).getInstanceList();
+        if (instanceList == null) {
+            return h;
+        }
+
+        // sum is independent of the order of instances:
+        long sum = 0L;
+        for (Instance instance : instanceList) {
+            sum += hash(instance);
+        }
+        return HashUtils.mix(h + sum);
+    }
+
+    private static long hash(Instance instance) {
+        long h = hashCode(instance.getIp());
+        h = h * 31 + instance.getPort();
+        h = h * 31 + Double.valueOf(instance.getWeight()).hashCode();
+        h = h * 31 + (instance.isHealthy() ? 1 : 0);
+        h = h * 31 + (instance.isEnabled() ? 1 : 0);
+        h = h * 31 + (instance.isEphemeral() ? 1 : 0);
+        h = h * 31 + hashCode(instance.getClusterName());
+        Map<String, String> metadata = instance.getMetadata();
+        h = h * 31 + (metadata == null ? 0 : metadata.hashCode());
+        return HashUtils.mix(h);
+    }
+
+    private static int hashCode(String value) {
+        return value == null ? 0 : value.hashCode();
+    }
+
+    private void seal() {
+        if (groups != null) {
+            return;
+        }
+
+        long[] result = new long[FANOUT];
+        long rootHash = 0L;
+        for (int group = 0; group < FANOUT; group++) {
+            long h = 0L;
+            for (int i = group * FANOUT; i < (group + 1) * FANOUT; i++) {
+                h = h * 31 + HashUtils.mix(buckets[i]);
+            }
+            result[group] = h;
+            rootHash = rootHash * 31 + HashUtils.mix(h);
+        }
+        root = rootHash;
+        groups = result;
+    }
+}
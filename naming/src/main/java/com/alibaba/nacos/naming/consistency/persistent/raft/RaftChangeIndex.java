@@ -0,0 +1,218 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.naming.consistency.persistent.raft;
+
+import com.alibaba.nacos.naming.misc.HashUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Local change index of Raft datums, used to send incremental heart-beats.
+ * <p>
+ * Every put or delete applied on this server gets a new, monotonically increasing index. Only the latest change of
+ * each key is kept, so the keys changed after a given index can be listed without walking all datums. Deleted keys
+ * are kept as tombstones until there are too many of them; a follower that is behind the oldest dropped tombstone
+ * needs a full beat again.
+ * <p>
+ * An order independent digest of all live keys and timestamps is maintained as well, so a follower can detect that
+ * it diverged from the leader without comparing every key.
+ *
+ * @author nacos
+ */
+public class RaftChangeIndex {
+
+    private static final int DEFAULT_MAX_TOMBSTONES = 10000;
+
+    /**
+     * Identifies this incarnation of the index, indexes from another epoch are meaningless here.
+     */
+    private final long epoch = System.currentTimeMillis();
+
+    private final int maxTombstones;
+
+    private final Map<String, Entry> entries = new HashMap<>(1024);
+
+    private final TreeMap<Long, Entry> changes = new TreeMap<>();
+
+    private long index = 0L;
+
+    private long compactedIndex = 0L;
+
+    private int tombstones = 0;
+
+    private long digest = 0L;
+
+    public RaftChangeIndex() {
+        this(DEFAULT_MAX_TOMBSTONES);
+    }
+
+    public RaftChangeIndex(int maxTombstones) {
+        this.maxTombstones = maxTombstones;
+    }
+
+    public synchronized void put(String key, long timestamp) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            entry = new Entry(key);
+            entries.put(key, entry);
+        } else {
+            changes.remove(entry.index);
+            if (entry.deleted) {
+                tombstones--;
+            } else {
+                digest ^= hash(key, entry.timestamp);
+            }
+        }
+
+        entry.index = ++index;
+        entry.timestamp = timestamp;
+        entry.deleted = false;
+        changes.put(entry.index, entry);
+        digest ^= hash(key, timestamp);
+    }
+
+    public synchronized void remove(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            entry = new Entry(key);
+            entries.put(key, entry);
+        } else {
+            changes.remove(entry.index);
+            if (entry.deleted) {
+                tombstones--;
+            } else {
+                digest ^= hash(key, entry.timestamp);
+            }
+        }
+
+        entry.index = ++index;
+        entry.timestamp = 0L;
+        entry.deleted = true;
+        changes.put(entry.index, entry);
+        tombstones++;
+
+        if (tombstones > maxTombstones) {
+            compact();
+        }
+    }
+
+    /**
+     * List the latest change of every key that changed after the given index.
+     *
+     * @param fromIndex index the caller is already up to date with
+     * @return changes ordered by index, or null if they can not be computed incrementally any more
+     */
+    public synchronized List<Change> since(long fromIndex) {
+        if (fromIndex < compactedIndex || fromIndex > index) {
+            return null;
+        }
+
+        Map<Long, Entry> tail = changes.tailMap(fromIndex, false);
+        List<Change> result = new ArrayList<>(tail.size());
+        for (Entry entry : tail.values()) {
+            result.add(new Change(entry.key, entry.timestamp, entry.deleted));
+        }
+        return result;
+    }
+
+    public long getEpoch() {
+        return epoch;
+    }
+
+    public synchronized long getIndex() {
+        return index;
+    }
+
+    public synchronized long getDigest() {
+        return digest;
+    }
+
+    public synchronized int size() {
+        return entries.size() - tombstones;
+    }
+
+    /**
+     * Drop the oldest half of the tombstones.
+     */
+    private void compact() {
+        int target = maxTombstones / 2;
+        Iterator<Map.Entry<Long, Entry>> iterator = changes.entrySet().iterator();
+        while (iterator.hasNext() && tombstones > target) {
+            Map.Entry<Long, Entry> change = iterator.next();
+            Entry entry = change.getValue();
+            if (!entry.deleted) {
+                continue;
+            }
+
+            iterator.remove();
+            entries.remove(entry.key);
+            tombstones--;
+            compactedIndex = Math.max(compactedIndex, change.getKey());
+        }
+    }
+
+    private static long hash(String key, long timestamp) {
+        // spreads both parts over all bits:
+        return HashUtils.mix(key.hashCode() * 0x9E3779B97F4A7C15L + timestamp);
+    }
+
+    private static class Entry {
+
+        private final String key;
+
+        private long index;
+
+        private long timestamp;
+
+        private boolean deleted;
+
+        Entry(String key) {
+            this.key = key;
+        }
+    }
+
+    public static class Change {
+
+        private final String key;
+
+        private final long timestamp;
+
+        private final boolean deleted;
+
+        Change(String key, long timestamp, boolean deleted) {
+            this.key = key;
+            this.timestamp = timestamp;
+            this.deleted = deleted;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public boolean isDeleted() {
+            return deleted;
+        }
+    }
+}
@@ -47,6 +47,8 @@ import java.net.URLDecoder;
 import java.net.URLEncoder;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.zip.GZIPOutputStream;
@@ -87,6 +89,18 @@ public class RaftCore {
         }
     });
 
+    private ExecutorService publishExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r);
+
+            t.setDaemon(true);
+            t.setName("com.alibaba.nacos.naming.raft.publisher");
+
+            return t;
+        }
+    });
+
     public static final Lock OPERATE_LOCK = new ReentrantLock();
 
     public static final int PUBLISH_TERM_INCREASE_COUNT = 100;
@@ -112,6 +126,35 @@ public class RaftCore {
 
     public volatile Notifier notifier = new Notifier();
 
+    private final RaftChangeIndex changeIndex = new RaftChangeIndex();
+
+    /**
+     * Change index of the leader each follower has reported to be up to date with, only used while being leader and
+     * cleared whenever this server steps down or runs for leader.
+     */
+    private final Map<String, Long> followerIndexes = new ConcurrentHashMap<>();
+
+    /**
+     * Peers which have reported in their beat responses that they accept batched {@code /raft/datum/commit} requests,
+     * the others are still sent one datum per request.
+     */
+    private final Set<String> batchPublishPeers = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Leader, epoch and change index of the leader this server is up to date with, only used while being follower.
+     */
+    private String syncLeader;
+
+    private long syncEpoch = -1L;
+
+    private long appliedIndex = -1L;
+
+    private int digestMismatches = 0;
+
+    private BlockingQueue<PublishTask> publishQueue = new LinkedBlockingQueue<>();
+
+    private Semaphore publishPermits;
+
     private boolean initialized = false;
 
     @PostConstruct
@@ -124,6 +167,9 @@ public class RaftCore {
         long start = System.currentTimeMillis();
 
         datums = raftStore.loadDatums(notifier);
+        for (Datum datum : datums.values()) {
+            changeIndex.put(datum.key, datum.timestamp.get());
+        }
 
         setTerm(NumberUtils.toLong(raftStore.loadMeta().getProperty("term"), 0L));
 
@@ -140,6 +186,9 @@ public class RaftCore {
 
         Loggers.RAFT.info("finish to load data from disk, cost: {} ms.", (System.currentTimeMillis() - start));
 
+        publishPermits = new Semaphore(globalConfig.getRaftPublishMaxInflight());
+        publishExecutor.submit(new Publisher());
+
         GlobalExecutor.registerMasterElection(new MasterElection());
         GlobalExecutor.registerHeartbeat(new HeartBeat());
 
@@ -164,64 +213,23 @@ public class RaftCore {
             return;
         }
 
-        try {
-            OPERATE_LOCK.lock();
-            long start = System.currentTimeMillis();
-            final Datum datum = new Datum();
-            datum.key = key;
-            datum.value = value;
-            if (getDatum(key) == null) {
-                datum.timestamp.set(1L);
-            } else {
-                datum.timestamp.set(getDatum(key).timestamp.incrementAndGet());
-            }
-
-            JSONObject json = new JSONObject();
-            json.put("datum", datum);
-            json.put("source", peers.local());
-
-            onPublish(datum, peers.local());
-
-            final String content = JSON.toJSONString(json);
-
-            final CountDownLatch latch = new CountDownLatch(peers.majorityCount());
-            for (final String server : peers.allServersIncludeMyself()) {
-                if (isLeader(server)) {
-                    latch.countDown();
-                    continue;
-                }
-                final String url = buildURL(server, API_ON_PUB);
-                HttpClient.asyncHttpPostLarge(url, Arrays.asList("key=" + key), content, new AsyncCompletionHandler<Integer>() {
-                    @Override
-                    public Integer onCompleted(Response response) throws Exception {
-                        if (response.getStatusCode() != HttpURLConnection.HTTP_OK) {
-                            Loggers.RAFT.warn("[RAFT] failed to publish data to peer, datumId={}, peer={}, http code={}",
-                                datum.key, server, response.getStatusCode());
-                            return 1;
-                        }
-                        latch.countDown();
-                        return 0;
-                    }
-
-                    @Override
-                    public STATE onContentWriteCompleted() {
-                        return STATE.CONTINUE;
-                    }
-                });
+        long start = System.currentTimeMillis();
 
-            }
+        PublishTask task = new PublishTask(key, value);
+        publishQueue.put(task);
 
-            if (!latch.await(UtilsAndCommons.RAFT_PUBLISH_TIMEOUT, TimeUnit.MILLISECONDS)) {
-                // only majority servers return success can we consider this update success
-                Loggers.RAFT.error("data publish failed, caused failed to notify majority, key={}", key);
-                throw new IllegalStateException("data publish failed, caused failed to notify majority, key=" + key);
-            }
+        if (!task.latch.await(UtilsAndCommons.RAFT_PUBLISH_TIMEOUT, TimeUnit.MILLISECONDS)) {
+            // only majority servers return success can we consider this update success
+            Loggers.RAFT.error("data publish failed, caused failed to notify majority, key={}", key);
+            throw new IllegalStateException("data publish failed, caused failed to notify majority, key=" + key);
+        }
 
-            long end = System.currentTimeMillis();
-            Loggers.RAFT.info("signalPublish cost {} ms, key: {}", (end - start), key);
-        } finally {
-            OPERATE_LOCK.unlock();
+        if (task.error != null) {
+            throw task.error;
         }
+
+        long end = System.currentTimeMillis();
+        Loggers.RAFT.info("signalPublish cost {} ms, key: {}", (end - start), key);
     }
 
     public void signalDelete(final String key) throws Exception {
@@ -297,7 +305,7 @@ public class RaftCore {
             raftStore.write(datum);
         }
 
-        datums.put(datum.key, datum);
+        putDatum(datum);
 
         if (isLeader()) {
             local.term.addAndGet(PUBLISH_TERM_INCREASE_COUNT);
@@ -317,6 +325,81 @@ public class RaftCore {
         Loggers.RAFT.info("data added/updated, key={}, term={}", datum.key, local.term);
     }
 
+    /**
+     * Apply a batch of datums replicated by the leader in one request.
+     * <p>
+     * Batches may arrive out of order since the leader keeps several of them in flight, so a datum that is not newer
+     * than the local one is skipped instead of overwriting it.
+     */
+    public void onPublish(List<Datum> batch, RaftPeer source) throws Exception {
+        RaftPeer local = peers.local();
+
+        if (!peers.isLeader(source.ip)) {
+            Loggers.RAFT.warn("peer {} tried to publish data but wasn't leader, leader: {}",
+                JSON.toJSONString(source), JSON.toJSONString(getLeader()));
+            throw new IllegalStateException("peer(" + source.ip + ") tried to publish " +
+                "data but wasn't leader");
+        }
+
+        if (source.term.get() < local.term.get()) {
+            Loggers.RAFT.warn("out of date publish, pub-term: {}, cur-term: {}",
+                JSON.toJSONString(source), JSON.toJSONString(local));
+            throw new IllegalStateException("out of date publish, pub-term:"
+                + source.term.get() + ", cur-term: " + local.term.get());
+        }
+
+        local.resetLeaderDue();
+
+        List<Datum> applied = new ArrayList<>(batch.size());
+        List<Datum> persistent = new ArrayList<>(batch.size());
+        for (Datum datum : batch) {
+            if (datum == null || datum.value == null) {
+                Loggers.RAFT.warn("received empty datum in batch");
+                continue;
+            }
+
+            Datum oldDatum = getDatum(datum.key);
+            if (!isLeader() && oldDatum != null && oldDatum.timestamp.get() >= datum.timestamp.get()) {
+                Loggers.RAFT.info("[NACOS-RAFT] skip stale datum, key: {}, remote: {}, local: {}",
+                    datum.key, datum.timestamp, oldDatum.timestamp);
+                continue;
+            }
+
+            applied.add(datum);
+            // if data should be persistent, usually this is always true:
+            if (KeyBuilder.matchPersistentKey(datum.key)) {
+                persistent.add(datum);
+            }
+        }
+
+        if (!persistent.isEmpty()) {
+            raftStore.write(persistent);
+        }
+
+        for (Datum datum : applied) {
+            putDatum(datum);
+        }
+
+        if (isLeader()) {
+            local.term.addAndGet((long) PUBLISH_TERM_INCREASE_COUNT * applied.size());
+        } else {
+            if (local.term.get() + PUBLISH_TERM_INCREASE_COUNT > source.term.get()) {
+                //set leader term:
+                getLeader().term.set(source.term.get());
+                local.term.set(getLeader().term.get());
+            } else {
+                local.term.addAndGet((long) PUBLISH_TERM_INCREASE_COUNT * applied.size());
+            }
+        }
+        raftStore.updateTerm(local.term.get());
+
+        for (Datum datum : applied) {
+            notifier.addTask(datum.key, ApplyAction.CHANGE);
+        }
+
+        Loggers.RAFT.info("batch of {} datums added/updated, term={}", applied.size(), local.term);
+    }
+
     public void onDelete(String datumKey, RaftPeer source) throws Exception {
 
         RaftPeer local = peers.local();
@@ -395,6 +478,8 @@ public class RaftCore {
             local.term.incrementAndGet();
             local.voteFor = local.ip;
             local.state = RaftPeer.State.CANDIDATE;
+            // indexes reported to an earlier leadership must not be trusted by the next one:
+            followerIndexes.clear();
 
             Map<String, String> params = new HashMap<String, String>(1);
             params.put("vote", JSON.toJSONString(local));
@@ -448,6 +533,7 @@ public class RaftCore {
         local.state = RaftPeer.State.FOLLOWER;
         local.voteFor = remote.ip;
         local.term.set(remote.term.get());
+        followerIndexes.clear();
 
         Loggers.RAFT.info("vote {} as leader, term: {}", remote.ip, remote.term);
 
@@ -484,59 +570,44 @@ public class RaftCore {
                 return;
             }
 
-            Loggers.RAFT.info("[RAFT] send beat with {} keys.", datums.size());
-
             local.resetLeaderDue();
 
-            // build data
-            JSONObject packet = new JSONObject();
-            packet.put("peer", local);
-
-            JSONArray array = new JSONArray();
-
             if (switchDomain.isSendBeatOnly()) {
                 Loggers.RAFT.info("[SEND-BEAT-ONLY] {}", String.valueOf(switchDomain.isSendBeatOnly()));
             }
 
-            if (!switchDomain.isSendBeatOnly()) {
-                for (Datum datum : datums.values()) {
-
-                    JSONObject element = new JSONObject();
-
-                    if (KeyBuilder.matchServiceMetaKey(datum.key)) {
-                        element.put("key", KeyBuilder.briefServiceMetaKey(datum.key));
-                    } else if (KeyBuilder.matchInstanceListKey(datum.key)) {
-                        element.put("key", KeyBuilder.briefInstanceListkey(datum.key));
-                    }
-                    element.put("timestamp", datum.timestamp);
-
-                    array.add(element);
-                }
-            } else {
-                Loggers.RAFT.info("[RAFT] send beat only.");
+            // take the index before reading datums, so a full beat never misses a change up to it:
+            long index;
+            long digest;
+            synchronized (changeIndex) {
+                index = changeIndex.getIndex();
+                digest = changeIndex.getDigest();
             }
 
-            packet.put("datums", array);
-            // broadcast
-            Map<String, String> params = new HashMap<String, String>(1);
-            params.put("beat", JSON.toJSONString(packet));
-
-            String content = JSON.toJSONString(params);
-
-            ByteArrayOutputStream out = new ByteArrayOutputStream();
-            GZIPOutputStream gzip = new GZIPOutputStream(out);
-            gzip.write(content.getBytes("UTF-8"));
-            gzip.close();
-
-            byte[] compressedBytes = out.toByteArray();
-            String compressedContent = new String(compressedBytes, "UTF-8");
-            Loggers.RAFT.info("raw beat data size: {}, size of compressed data: {}",
-                content.length(), compressedContent.length());
+            byte[] fullBeat = null;
 
             for (final String server : peers.allServersWithoutMySelf()) {
                 try {
+                    List<RaftChangeIndex.Change> changes = null;
+                    Long followerIndex = followerIndexes.get(server);
+                    if (!switchDomain.isSendBeatOnly() && followerIndex != null && followerIndex >= 0) {
+                        changes = changeIndex.since(followerIndex);
+                    }
+
+                    byte[] compressedBytes;
+                    if (changes != null) {
+                        compressedBytes = buildDeltaBeat(local, index, digest, changes);
+                        Loggers.RAFT.info("[RAFT] send beat with {} changed keys since index {} to server {}",
+                            changes.size(), followerIndex, server);
+                    } else {
+                        if (fullBeat == null) {
+                            fullBeat = buildFullBeat(local, index, digest);
+                        }
+                        compressedBytes = fullBeat;
+                        Loggers.RAFT.info("[RAFT] send beat with {} keys to server {}", datums.size(), server);
+                    }
+
                     final String url = buildURL(server, API_BEAT);
-                    Loggers.RAFT.info("send beat to server " + server);
                     HttpClient.asyncHttpPostLarge(url, null, compressedBytes, new AsyncCompletionHandler<Integer>() {
                         @Override
                         public Integer onCompleted(Response response) throws Exception {
@@ -547,7 +618,22 @@ public class RaftCore {
                                 return 1;
                             }
 
-                            peers.update(JSON.parseObject(response.getResponseBody(), RaftPeer.class));
+                            JSONObject result = JSON.parseObject(response.getResponseBody());
+                            peers.update(JSON.toJavaObject(result, RaftPeer.class));
+
+                            // followers of older versions do not report an index and always get full beats:
+                            if (result.getLongValue("appliedEpoch") == changeIndex.getEpoch()) {
+                                followerIndexes.put(server, result.getLongValue("appliedIndex"));
+                            } else {
+                                followerIndexes.remove(server);
+                            }
+
+                            if (result.getBooleanValue("batchPublish")) {
+                                batchPublishPeers.add(server);
+                            } else {
+                                batchPublishPeers.remove(server);
+                            }
+
                             Loggers.RAFT.info("receive beat response from: {}", url);
                             return 0;
                         }
@@ -565,6 +651,94 @@ public class RaftCore {
             }
 
         }
+
+        private byte[] buildFullBeat(RaftPeer local, long index, long digest) throws IOException {
+
+            JSONObject packet = new JSONObject();
+            packet.put("peer", local);
+            packet.put("epoch", changeIndex.getEpoch());
+            packet.put("index", index);
+            packet.put("digest", digest);
+
+            JSONArray array = new JSONArray();
+
+            if (!switchDomain.isSendBeatOnly()) {
+                for (Datum datum : datums.values()) {
+
+                    JSONObject element = new JSONObject();
+                    element.put("key", briefKey(datum.key));
+                    element.put("timestamp", datum.timestamp);
+
+                    array.add(element);
+                }
+            } else {
+                Loggers.RAFT.info("[RAFT] send beat only.");
+            }
+
+            packet.put("datums", array);
+
+            return compress(packet);
+        }
+
+        private byte[] buildDeltaBeat(RaftPeer local, long index, long digest,
+                                      List<RaftChangeIndex.Change> changes) throws IOException {
+
+            JSONObject packet = new JSONObject();
+            packet.put("peer", local);
+            packet.put("epoch", changeIndex.getEpoch());
+            packet.put("index", index);
+            packet.put("digest", digest);
+            packet.put("delta", true);
+
+            JSONArray array = new JSONArray();
+            JSONArray deletes = new JSONArray();
+
+            for (RaftChangeIndex.Change change : changes) {
+                if (change.isDeleted()) {
+                    deletes.add(briefKey(change.getKey()));
+                    continue;
+                }
+
+                JSONObject element = new JSONObject();
+                element.put("key", briefKey(change.getKey()));
+                element.put("timestamp", change.getTimestamp());
+
+                array.add(element);
+            }
+
+            packet.put("datums", array);
+            packet.put("deletes", deletes);
+
+            return compress(packet);
+        }
+
+        private String briefKey(String key) {
+            if (KeyBuilder.matchServiceMetaKey(key)) {
+                return KeyBuilder.briefServiceMetaKey(key);
+            } else if (KeyBuilder.matchInstanceListKey(key)) {
+                return KeyBuilder.briefInstanceListkey(key);
+            }
+            return null;
+        }
+
+        private byte[] compress(JSONObject packet) throws IOException {
+
+            Map<String, String> params = new HashMap<String, String>(1);
+            params.put("beat", JSON.toJSONString(packet));
+
+            String content = JSON.toJSONString(params);
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            GZIPOutputStream gzip = new GZIPOutputStream(out);
+            gzip.write(content.getBytes("UTF-8"));
+            gzip.close();
+
+            byte[] compressedBytes = out.toByteArray();
+            Loggers.RAFT.info("raw beat data size: {}, size of compressed data: {}",
+                content.length(), compressedBytes.length);
+
+            return compressedBytes;
+        }
     }
 
     public RaftPeer receivedBeat(JSONObject beat) throws Exception {
@@ -596,6 +770,7 @@ public class RaftCore {
             // mk follower
             local.state = RaftPeer.State.FOLLOWER;
             local.voteFor = remote.ip;
+            followerIndexes.clear();
         }
 
         final JSONArray beatDatums = beat.getJSONArray("datums");
@@ -604,66 +779,117 @@ public class RaftCore {
 
         peers.makeLeader(remote);
 
-        Map<String, Integer> receivedKeysMap = new HashMap<String, Integer>(datums.size());
+        final long beatEpoch = beat.getLongValue("epoch");
+        final long beatIndex = beat.containsKey("index") ? beat.getLongValue("index") : -1L;
+        final boolean delta = beat.getBooleanValue("delta");
 
-        for (Map.Entry<String, Datum> entry : datums.entrySet()) {
-            receivedKeysMap.put(entry.getKey(), 0);
-        }
+        resetSyncIfLeaderChanged(remote.ip, beatEpoch);
 
         // now check datums
-        List<String> batch = new ArrayList<String>();
         if (!switchDomain.isSendBeatOnly()) {
-            int processedCount = 0;
-            Loggers.RAFT.info("[RAFT] received beat with {} keys, RaftCore.datums' size is {}, remote server: {}, term: {}, local term: {}",
-                beatDatums.size(), datums.size(), remote.ip, remote.term, local.term);
-            for (Object object : beatDatums) {
-                processedCount = processedCount + 1;
+            Loggers.RAFT.info("[RAFT] received {} beat with {} keys, RaftCore.datums' size is {}, remote server: {}, term: {}, local term: {}",
+                delta ? "delta" : "full", beatDatums.size(), datums.size(), remote.ip, remote.term, local.term);
 
-                JSONObject entry = (JSONObject) object;
-                String key = entry.getString("key");
-                final String datumKey;
+            Set<String> receivedKeys = delta ? null : new HashSet<String>(beatDatums.size());
+            List<String> staleKeys = new ArrayList<String>();
 
-                if (KeyBuilder.matchServiceMetaKey(key)) {
-                    datumKey = KeyBuilder.detailServiceMetaKey(key);
-                } else if (KeyBuilder.matchInstanceListKey(key)) {
-                    datumKey = KeyBuilder.detailInstanceListkey(key);
-                } else {
+            for (Object object : beatDatums) {
+                JSONObject entry = (JSONObject) object;
+                String datumKey = detailKey(entry.getString("key"));
+                if (datumKey == null) {
                     // ignore corrupted key:
                     continue;
                 }
 
+                if (receivedKeys != null) {
+                    receivedKeys.add(datumKey);
+                }
+
                 long timestamp = entry.getLong("timestamp");
+                Datum datum = datums.get(datumKey);
+                if (datum == null || datum.timestamp.get() < timestamp) {
+                    staleKeys.add(datumKey);
+                }
+            }
 
-                receivedKeysMap.put(datumKey, 1);
+            List<String> deadKeys = new ArrayList<String>();
+            if (delta) {
+                JSONArray deletes = beat.getJSONArray("deletes");
+                if (deletes != null) {
+                    for (Object object : deletes) {
+                        String datumKey = detailKey((String) object);
+                        if (datumKey != null && datums.containsKey(datumKey)) {
+                            deadKeys.add(datumKey);
+                        }
+                    }
+                }
+            } else {
+                for (String key : datums.keySet()) {
+                    if (!receivedKeys.contains(key)) {
+                        deadKeys.add(key);
+                    }
+                }
+            }
 
+            for (String deadKey : deadKeys) {
                 try {
-                    if (datums.containsKey(datumKey) && datums.get(datumKey).timestamp.get() >= timestamp && processedCount < beatDatums.size()) {
-                        continue;
-                    }
+                    deleteDatum(deadKey);
+                } catch (Exception e) {
+                    Loggers.RAFT.error("[NACOS-RAFT] failed to remove entry, key={} {}", deadKey, e);
+                }
+            }
 
-                    if (!(datums.containsKey(datumKey) && datums.get(datumKey).timestamp.get() >= timestamp)) {
-                        batch.add(datumKey);
-                    }
+            syncDatums(remote, staleKeys, beatEpoch, beatIndex);
 
-                    if (batch.size() < 50 && processedCount < beatDatums.size()) {
-                        continue;
-                    }
+            if (delta && staleKeys.isEmpty() && beat.containsKey("digest")) {
+                checkDigest(remote.ip, beatEpoch, beat.getLongValue("digest"));
+            }
+        }
 
-                    String keys = StringUtils.join(batch, ",");
+        return local;
+    }
 
-                    if (batch.size() <= 0) {
-                        continue;
-                    }
+    private String detailKey(String key) {
+        if (KeyBuilder.matchServiceMetaKey(key)) {
+            return KeyBuilder.detailServiceMetaKey(key);
+        } else if (KeyBuilder.matchInstanceListKey(key)) {
+            return KeyBuilder.detailInstanceListkey(key);
+        }
+        return null;
+    }
 
-                    Loggers.RAFT.info("get datums from leader: {}, batch size is {}, processedCount is {}, datums' size is {}, RaftCore.datums' size is {}"
-                        , getLeader().ip, batch.size(), processedCount, beatDatums.size(), datums.size());
+    /**
+     * Fetch stale datums from the leader in batches, and advance the applied index once all of them are stored.
+     */
+    private void syncDatums(final RaftPeer remote, List<String> staleKeys, final long epoch, final long index)
+        throws UnsupportedEncodingException {
 
-                    // update datum entry
-                    String url = buildURL(remote.ip, API_GET) + "?keys=" + URLEncoder.encode(keys, "UTF-8");
-                    HttpClient.asyncHttpGet(url, null, null, new AsyncCompletionHandler<Integer>() {
-                        @Override
-                        public Integer onCompleted(Response response) throws Exception {
+        if (staleKeys.isEmpty()) {
+            markApplied(remote.ip, epoch, index);
+            return;
+        }
+
+        final RaftPeer local = peers.local();
+        final int batchSize = 50;
+        final AtomicInteger pending = new AtomicInteger((staleKeys.size() + batchSize - 1) / batchSize);
+        final AtomicBoolean failed = new AtomicBoolean(false);
+
+        for (int i = 0; i < staleKeys.size(); i += batchSize) {
+            List<String> batch = staleKeys.subList(i, Math.min(i + batchSize, staleKeys.size()));
+            String keys = StringUtils.join(batch, ",");
+
+            Loggers.RAFT.info("get datums from leader: {}, batch size is {}, stale keys: {}, RaftCore.datums' size is {}"
+                , remote.ip, batch.size(), staleKeys.size(), datums.size());
+
+            // update datum entry
+            String url = buildURL(remote.ip, API_GET) + "?keys=" + URLEncoder.encode(keys, "UTF-8");
+            try {
+                HttpClient.asyncHttpGet(url, null, null, new AsyncCompletionHandler<Integer>() {
+                    @Override
+                    public Integer onCompleted(Response response) throws Exception {
+                        try {
                             if (response.getStatusCode() != HttpURLConnection.HTTP_OK) {
+                                failed.set(true);
                                 return 1;
                             }
 
@@ -708,7 +934,7 @@ public class RaftCore {
 
                                     raftStore.write(newDatum);
 
-                                    datums.put(newDatum.key, newDatum);
+                                    putDatum(newDatum);
                                     notifier.addTask(newDatum.key, ApplyAction.CHANGE);
 
                                     local.resetLeaderDue();
@@ -726,6 +952,7 @@ public class RaftCore {
                                         newDatum.key, newDatum.timestamp, JSON.toJSONString(remote), local.term);
 
                                 } catch (Throwable e) {
+                                    failed.set(true);
                                     Loggers.RAFT.error("[RAFT-BEAT] failed to sync datum from leader, datum: {}", newDatum, e);
                                 } finally {
                                     OPERATE_LOCK.unlock();
@@ -733,35 +960,70 @@ public class RaftCore {
                             }
                             TimeUnit.MILLISECONDS.sleep(200);
                             return 0;
+                        } finally {
+                            if (pending.decrementAndGet() == 0 && !failed.get()) {
+                                markApplied(remote.ip, epoch, index);
+                            }
                         }
-                    });
+                    }
 
-                    batch.clear();
+                    @Override
+                    public void onThrowable(Throwable t) {
+                        failed.set(true);
+                        pending.decrementAndGet();
+                        Loggers.RAFT.error("[NACOS-RAFT] failed to get datums from leader: {}", remote.ip, t);
+                    }
+                });
+            } catch (Exception e) {
+                failed.set(true);
+                pending.decrementAndGet();
+                Loggers.RAFT.error("[NACOS-RAFT] failed to get datums from leader: {}, keys: {}", remote.ip, keys, e);
+            }
+        }
+    }
 
-                } catch (Exception e) {
-                    Loggers.RAFT.error("[NACOS-RAFT] failed to handle beat entry, key: {}", datumKey);
-                }
+    private synchronized void resetSyncIfLeaderChanged(String leader, long epoch) {
+        if (epoch != syncEpoch || !StringUtils.equals(leader, syncLeader)) {
+            syncLeader = leader;
+            syncEpoch = epoch;
+            appliedIndex = -1L;
+            digestMismatches = 0;
+        }
+    }
 
-            }
+    private synchronized void markApplied(String leader, long epoch, long index) {
+        if (epoch == syncEpoch && StringUtils.equals(leader, syncLeader) && index > appliedIndex) {
+            appliedIndex = index;
+        }
+    }
 
-            List<String> deadKeys = new ArrayList<String>();
-            for (Map.Entry<String, Integer> entry : receivedKeysMap.entrySet()) {
-                if (entry.getValue() == 0) {
-                    deadKeys.add(entry.getKey());
-                }
-            }
+    /**
+     * Compare the digest of all local datums with the one of the leader. Datums published after the leader built the
+     * beat can make them differ for a while, so only a mismatch that persists makes the leader send a full beat.
+     */
+    private synchronized void checkDigest(String leader, long epoch, long digest) {
+        if (epoch != syncEpoch || !StringUtils.equals(leader, syncLeader) || appliedIndex < 0) {
+            return;
+        }
 
-            for (String deadKey : deadKeys) {
-                try {
-                    deleteDatum(deadKey);
-                } catch (Exception e) {
-                    Loggers.RAFT.error("[NACOS-RAFT] failed to remove entry, key={} {}", deadKey, e);
-                }
-            }
+        if (changeIndex.getDigest() == digest) {
+            digestMismatches = 0;
+            return;
+        }
 
+        if (++digestMismatches >= 3) {
+            Loggers.RAFT.warn("[NACOS-RAFT] datums diverged from leader: {}, request a full beat", leader);
+            appliedIndex = -1L;
+            digestMismatches = 0;
         }
+    }
 
-        return local;
+    public synchronized long getAppliedIndex() {
+        return appliedIndex;
+    }
+
+    public synchronized long getAppliedEpoch() {
+        return syncEpoch;
     }
 
     public void listen(String key, RecordListener listener) {
@@ -857,7 +1119,7 @@ public class RaftCore {
     }
 
     public void addDatum(Datum datum) {
-        datums.put(datum.key, datum);
+        putDatum(datum);
         notifier.addTask(datum.key, ApplyAction.CHANGE);
     }
 
@@ -867,17 +1129,34 @@ public class RaftCore {
             if (datum == null) {
                 return;
             }
-            datums.put(key, datum);
+            putDatum(datum);
         } catch (Exception e) {
             Loggers.RAFT.error("load datum failed: " + key, e);
         }
 
     }
 
+    private void putDatum(Datum datum) {
+        synchronized (changeIndex) {
+            datums.put(datum.key, datum);
+            changeIndex.put(datum.key, datum.timestamp.get());
+        }
+    }
+
+    private Datum removeDatum(String key) {
+        synchronized (changeIndex) {
+            Datum deleted = datums.remove(key);
+            if (deleted != null) {
+                changeIndex.remove(key);
+            }
+            return deleted;
+        }
+    }
+
     private void deleteDatum(String key) {
         Datum deleted;
         try {
-            deleted = datums.remove(URLDecoder.decode(key, "UTF-8"));
+            deleted = removeDatum(URLDecoder.decode(key, "UTF-8"));
             if (deleted != null) {
                 raftStore.delete(deleted);
                 Loggers.RAFT.info("datum deleted, key: {}", key);
@@ -896,6 +1175,274 @@ public class RaftCore {
         return notifier.getTaskSize();
     }
 
+    /**
+     * Replicates datums submitted by {@link #signalPublish(String, Record)}.
+     * <p>
+     * Datums queued while the previous batch was being prepared are applied locally and sent to every peer in one
+     * {@code /raft/datum/commit} request. Several batches can be in flight at the same time, each caller is released
+     * as soon as the batch holding its datum is acknowledged by a majority of the cluster.
+     * <p>
+     * Peers which have not yet reported batch support in a beat response are sent one request per datum, so a leader
+     * of a new version keeps working with followers of older versions during a rolling upgrade. If no permit is freed
+     * before the oldest caller of a batch gives up, the batch is failed instead of being sent.
+     */
+    public class Publisher implements Runnable {
+
+        @Override
+        public void run() {
+            Loggers.RAFT.info("raft publisher started");
+
+            while (true) {
+                List<PublishTask> tasks = new ArrayList<>();
+                try {
+                    tasks.add(publishQueue.take());
+                    publishQueue.drainTo(tasks, globalConfig.getRaftPublishBatchSize() - 1);
+
+                    // never wait longer than the oldest caller is still waiting for its datum:
+                    long waitMs = tasks.get(0).deadline - System.currentTimeMillis();
+                    if (waitMs <= 0 || !publishPermits.tryAcquire(waitMs, TimeUnit.MILLISECONDS)) {
+                        Loggers.RAFT.warn("[RAFT] too many publish batches in flight, drop batch, size: {}",
+                            tasks.size());
+                        for (PublishTask task : tasks) {
+                            task.fail(new IllegalStateException(
+                                "data publish failed, caused too many publish batches in flight, key=" + task.key));
+                        }
+                        continue;
+                    }
+
+                    PublishBatch publishBatch = null;
+                    try {
+                        publishBatch = prepare(tasks);
+                    } finally {
+                        // once the batch exists it gives the permit back when every peer has answered:
+                        if (publishBatch == null) {
+                            publishPermits.release();
+                        }
+                    }
+
+                    publish(publishBatch);
+                } catch (Throwable e) {
+                    Loggers.RAFT.error("[RAFT] error while publishing datums", e);
+                    for (PublishTask task : tasks) {
+                        task.fail(e instanceof Exception ? (Exception) e : new IllegalStateException(e));
+                    }
+                }
+            }
+        }
+
+        /**
+         * Apply the datums locally and build the requests for every peer.
+         */
+        private PublishBatch prepare(List<PublishTask> tasks) throws Exception {
+
+            Map<String, Datum> batch = new LinkedHashMap<>(tasks.size());
+
+            OPERATE_LOCK.lock();
+            try {
+                if (!isLeader()) {
+                    throw new IllegalStateException("leader changed while publishing, current leader: "
+                        + JSON.toJSONString(getLeader()));
+                }
+
+                for (PublishTask task : tasks) {
+                    Datum prev = batch.containsKey(task.key) ? batch.get(task.key) : getDatum(task.key);
+
+                    final Datum datum = new Datum();
+                    datum.key = task.key;
+                    datum.value = task.value;
+                    if (prev == null) {
+                        datum.timestamp.set(1L);
+                    } else {
+                        datum.timestamp.set(prev.timestamp.get() + 1);
+                    }
+
+                    // only the latest value of a key needs to be replicated:
+                    batch.remove(task.key);
+                    batch.put(task.key, datum);
+                }
+
+                onPublish(new ArrayList<>(batch.values()), peers.local());
+            } finally {
+                OPERATE_LOCK.unlock();
+            }
+
+            JSONObject json = new JSONObject();
+            json.put("datums", batch.values());
+            json.put("source", peers.local());
+
+            List<String> contents = Collections.singletonList(JSON.toJSONString(json));
+
+            // peers of older versions only understand a single datum per request:
+            List<String> singleContents = new ArrayList<>(batch.size());
+            for (Datum datum : batch.values()) {
+                JSONObject single = new JSONObject();
+                single.put("datum", datum);
+                single.put("source", peers.local());
+                singleContents.add(JSON.toJSONString(single));
+            }
+
+            Set<String> servers = peers.allServersWithoutMySelf();
+            return new PublishBatch(tasks, peers.majorityCount(), servers, contents, singleContents);
+        }
+
+        private void publish(PublishBatch publishBatch) {
+
+            // leader itself has already applied the batch:
+            publishBatch.ack();
+            publishBatch.checkDone();
+
+            for (String server : publishBatch.servers) {
+                if (batchPublishPeers.contains(server)) {
+                    send(server, publishBatch.contents, publishBatch.singleContents.size(), publishBatch);
+                } else {
+                    send(server, publishBatch.singleContents, 1, publishBatch);
+                }
+            }
+        }
+
+        /**
+         * Post the requests to one peer, the peer acknowledges the batch only if all of them succeed.
+         */
+        private void send(final String server, List<String> contents, final int datumsPerRequest,
+                          final PublishBatch publishBatch) {
+
+            final String url = buildURL(server, API_ON_PUB);
+            final AtomicInteger remaining = new AtomicInteger(contents.size());
+            final AtomicBoolean failed = new AtomicBoolean(false);
+
+            for (String content : contents) {
+                try {
+                    HttpClient.asyncHttpPostLarge(url, Arrays.asList("batch=" + datumsPerRequest), content,
+                        new AsyncCompletionHandler<Integer>() {
+                            @Override
+                            public Integer onCompleted(Response response) throws Exception {
+                                if (response.getStatusCode() != HttpURLConnection.HTTP_OK) {
+                                    Loggers.RAFT.warn("[RAFT] failed to publish batch to peer, size={}, peer={}, http code={}",
+                                        datumsPerRequest, server, response.getStatusCode());
+                                    finish(false);
+                                    return 1;
+                                }
+                                finish(true);
+                                return 0;
+                            }
+
+                            @Override
+                            public void onThrowable(Throwable t) {
+                                Loggers.RAFT.error("[RAFT] error while publishing batch to peer: {}", server, t);
+                                finish(false);
+                            }
+
+                            @Override
+                            public STATE onContentWriteCompleted() {
+                                return STATE.CONTINUE;
+                            }
+
+                            private void finish(boolean success) {
+                                if (!success) {
+                                    failed.set(true);
+                                }
+                                if (remaining.decrementAndGet() == 0) {
+                                    if (!failed.get()) {
+                                        publishBatch.ack();
+                                    }
+                                    publishBatch.done();
+                                }
+                            }
+                        });
+                } catch (Exception e) {
+                    Loggers.RAFT.error("[RAFT] failed to send batch to peer: {}", server, e);
+                    failed.set(true);
+                    if (remaining.decrementAndGet() == 0) {
+                        publishBatch.done();
+                    }
+                }
+            }
+        }
+    }
+
+    private static class PublishTask {
+
+        private final String key;
+
+        private final Record value;
+
+        private final CountDownLatch latch = new CountDownLatch(1);
+
+        private final long deadline = System.currentTimeMillis() + UtilsAndCommons.RAFT_PUBLISH_TIMEOUT;
+
+        private volatile Exception error;
+
+        PublishTask(String key, Record value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        void fail(Exception e) {
+            error = e;
+            latch.countDown();
+        }
+    }
+
+    private class PublishBatch {
+
+        private final List<PublishTask> tasks;
+
+        private final int majority;
+
+        private final Set<String> servers;
+
+        private final List<String> contents;
+
+        private final List<String> singleContents;
+
+        private final AtomicInteger acks = new AtomicInteger(0);
+
+        private final AtomicInteger pending;
+
+        PublishBatch(List<PublishTask> tasks, int majority, Set<String> servers, List<String> contents,
+                     List<String> singleContents) {
+            this.tasks = tasks;
+            this.majority = majority;
+            this.servers = servers;
+            this.contents = contents;
+            this.singleContents = singleContents;
+            this.pending = new AtomicInteger(servers.size());
+        }
+
+        void ack() {
+            if (acks.incrementAndGet() == majority) {
+                for (PublishTask task : tasks) {
+                    task.latch.countDown();
+                }
+            }
+        }
+
+        void done() {
+            pending.decrementAndGet();
+            checkDone();
+        }
+
+        void checkDone() {
+            if (pending.get() > 0) {
+                return;
+            }
+
+            if (!pending.compareAndSet(0, -1)) {
+                return;
+            }
+
+            publishPermits.release();
+
+            if (acks.get() < majority) {
+                // every peer answered, no need to let callers wait for the timeout:
+                for (PublishTask task : tasks) {
+                    task.fail(new IllegalStateException("data publish failed, caused failed to notify majority, key="
+                        + task.key));
+                }
+            }
+        }
+    }
+
     public class Notifier implements Runnable {
 
         private ConcurrentHashMap<String, String> services = new ConcurrentHashMap<>(10 * 1024);
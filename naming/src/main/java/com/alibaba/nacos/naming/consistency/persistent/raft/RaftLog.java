@@ -0,0 +1,693 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.naming.consistency.persistent.raft;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.TypeReference;
+import com.alibaba.nacos.naming.consistency.Datum;
+import com.alibaba.nacos.naming.consistency.KeyBuilder;
+import com.alibaba.nacos.naming.core.Instances;
+import com.alibaba.nacos.naming.core.Service;
+import com.alibaba.nacos.naming.misc.Loggers;
+import com.alibaba.nacos.naming.misc.SwitchDomain;
+import com.alibaba.nacos.naming.misc.UtilsAndCommons;
+import com.alibaba.nacos.naming.monitor.MetricsMonitor;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+
+/**
+ * Segmented, append-only write-ahead log for Raft datums.
+ * <p>
+ * Every put or delete is appended to the current segment as a length and CRC prefixed record. A single writer
+ * thread drains all pending records, writes them and issues one fsync for the whole batch (group commit).
+ * Once enough bytes have been appended since the last snapshot, the current segment is rolled and the live
+ * datums are compacted into a snapshot, after which the older segments are dropped.
+ * <p>
+ * Startup replays the snapshot first and then every segment that is newer than the snapshot.
+ *
+ * @author nacos
+ */
+public class RaftLog {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private static final String SNAPSHOT_FILE_NAME = "snapshot";
+
+    private static final String SNAPSHOT_TEMP_FILE_NAME = "snapshot.tmp";
+
+    private static final byte OP_PUT = 1;
+
+    private static final byte OP_DELETE = 2;
+
+    private static final int RECORD_HEADER_LENGTH = 8;
+
+    private static final int MAX_BATCH_SIZE = 1024;
+
+    private static final Entry CLOSE = new Entry((byte) 0, null, null, null);
+
+    private final File baseDir;
+
+    private final long segmentSize;
+
+    private final long compactThreshold;
+
+    private final Map<String, Datum> index = new ConcurrentHashMap<>(1024);
+
+    private final BlockingQueue<Entry> queue = new LinkedBlockingQueue<>();
+
+    private final AtomicBoolean compacting = new AtomicBoolean(false);
+
+    private FileChannel segment;
+
+    private long segmentId;
+
+    private long bytesSinceSnapshot;
+
+    private volatile boolean started = false;
+
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r);
+
+            t.setDaemon(true);
+            t.setName("com.alibaba.nacos.naming.raft.log.writer");
+
+            return t;
+        }
+    });
+
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r);
+
+            t.setDaemon(true);
+            t.setName("com.alibaba.nacos.naming.raft.log.compactor");
+
+            return t;
+        }
+    });
+
+    public RaftLog(File baseDir, long segmentSize, long compactThreshold) {
+        this.baseDir = baseDir;
+        this.segmentSize = segmentSize;
+        this.compactThreshold = compactThreshold;
+    }
+
+    /**
+     * @return true if neither a snapshot nor any segment has been written yet
+     */
+    public boolean isEmpty() {
+        return !new File(baseDir, SNAPSHOT_FILE_NAME).exists() && listSegments().isEmpty();
+    }
+
+    /**
+     * Seed an empty log with datums loaded from somewhere else, e.g. the legacy per-file store.
+     */
+    public synchronized void importDatums(Collection<Datum> datums) throws IOException {
+        if (started) {
+            throw new IllegalStateException("raft log already started");
+        }
+
+        mkdirs();
+        for (Datum datum : datums) {
+            index.put(datum.key, datum);
+        }
+        writeSnapshot(new ArrayList<>(index.values()), 1L);
+        openSegment(1L);
+    }
+
+    /**
+     * Replay snapshot and the tail segments.
+     *
+     * @return all live datums
+     */
+    public synchronized ConcurrentHashMap<String, Datum> load() throws IOException {
+        if (started) {
+            throw new IllegalStateException("raft log already started");
+        }
+
+        mkdirs();
+        long start = System.currentTimeMillis();
+
+        long firstSegmentId = readSnapshot();
+        List<Long> segmentIds = listSegments();
+        long lastSegmentId = firstSegmentId;
+        int replayed = 0;
+
+        for (int i = 0; i < segmentIds.size(); i++) {
+            long id = segmentIds.get(i);
+            if (id < firstSegmentId) {
+                // already covered by the snapshot, left over from an interrupted compaction:
+                deleteSegment(id);
+                continue;
+            }
+            replayed += replaySegment(id, i == segmentIds.size() - 1);
+            lastSegmentId = id;
+        }
+
+        openSegment(lastSegmentId);
+
+        Loggers.RAFT.info("finish replaying raft log, snapshot from segment: {}, replayed records: {}, datums: {}, cost {} ms.",
+            firstSegmentId, replayed, index.size(), (System.currentTimeMillis() - start));
+
+        return new ConcurrentHashMap<>(index);
+    }
+
+    public synchronized void start() {
+        if (started) {
+            return;
+        }
+
+        if (segment == null) {
+            throw new IllegalStateException("raft log must be loaded or imported before start");
+        }
+
+        started = true;
+        writer.submit(new Writer());
+    }
+
+    /**
+     * Stop accepting records, write out the queued ones and wait for a running compaction to finish.
+     */
+    public void close() throws IOException, InterruptedException {
+        synchronized (this) {
+            if (!started) {
+                return;
+            }
+            started = false;
+        }
+
+        queue.put(CLOSE);
+        writer.shutdown();
+        writer.awaitTermination(UtilsAndCommons.RAFT_PUBLISH_TIMEOUT, TimeUnit.MILLISECONDS);
+        compactor.shutdown();
+        compactor.awaitTermination(UtilsAndCommons.RAFT_PUBLISH_TIMEOUT, TimeUnit.MILLISECONDS);
+        segment.close();
+    }
+
+    public Datum get(String key) {
+        return index.get(key);
+    }
+
+    /**
+     * Append a put record and wait until it is durable on disk.
+     */
+    public void append(Datum datum) throws Exception {
+        submit(new Entry(OP_PUT, datum.key, JSON.toJSONString(datum).getBytes(UTF8), datum));
+    }
+
+    /**
+     * Append put records for several datums and wait until all of them are durable on disk. The records are queued
+     * together, so they usually end up in the same group commit.
+     */
+    public void appendAll(Collection<Datum> datums) throws Exception {
+        if (!started) {
+            throw new IllegalStateException("raft log is not started");
+        }
+
+        List<Entry> entries = new ArrayList<>(datums.size());
+        for (Datum datum : datums) {
+            entries.add(new Entry(OP_PUT, datum.key, JSON.toJSONString(datum).getBytes(UTF8), datum));
+        }
+
+        queue.addAll(entries);
+
+        long deadline = System.currentTimeMillis() + UtilsAndCommons.RAFT_PUBLISH_TIMEOUT;
+        for (Entry entry : entries) {
+            long remain = deadline - System.currentTimeMillis();
+            if (!entry.latch.await(Math.max(remain, 0L), TimeUnit.MILLISECONDS)) {
+                throw new IllegalStateException("timeout while appending raft log, key: " + entry.key);
+            }
+
+            if (entry.error != null) {
+                throw entry.error;
+            }
+        }
+    }
+
+    /**
+     * Append a delete record and wait until it is durable on disk.
+     */
+    public void delete(String key) throws Exception {
+        submit(new Entry(OP_DELETE, key, new byte[0], null));
+    }
+
+    private void submit(Entry entry) throws Exception {
+        if (!started) {
+            throw new IllegalStateException("raft log is not started");
+        }
+
+        queue.put(entry);
+
+        if (!entry.latch.await(UtilsAndCommons.RAFT_PUBLISH_TIMEOUT, TimeUnit.MILLISECONDS)) {
+            throw new IllegalStateException("timeout while appending raft log, key: " + entry.key);
+        }
+
+        if (entry.error != null) {
+            throw entry.error;
+        }
+    }
+
+    private class Writer implements Runnable {
+
+        @Override
+        public void run() {
+            Loggers.RAFT.info("raft log writer started");
+
+            List<Entry> batch = new ArrayList<>(MAX_BATCH_SIZE);
+            boolean closed = false;
+            while (!closed) {
+                try {
+                    batch.add(queue.take());
+                    queue.drainTo(batch, MAX_BATCH_SIZE - 1);
+                    closed = batch.remove(CLOSE);
+                    if (batch.isEmpty()) {
+                        continue;
+                    }
+
+                    flush(batch);
+
+                    boolean needCompact = bytesSinceSnapshot >= compactThreshold && !compacting.get();
+                    if (segment.size() >= segmentSize || needCompact) {
+                        roll();
+                    }
+                } catch (Throwable e) {
+                    Loggers.RAFT.error("[RAFT-LOG] error while writing raft log", e);
+                } finally {
+                    batch.clear();
+                }
+            }
+        }
+
+        private void flush(List<Entry> batch) {
+            long batchStart = -1L;
+            long batchBytes = 0L;
+            try {
+                batchStart = segment.position();
+                for (Entry entry : batch) {
+                    ByteBuffer buffer = encode(entry.op, entry.key, entry.payload);
+                    batchBytes += buffer.remaining();
+                    while (buffer.hasRemaining()) {
+                        segment.write(buffer);
+                    }
+                }
+                segment.force(false);
+                bytesSinceSnapshot += batchBytes;
+            } catch (Exception e) {
+                MetricsMonitor.getDiskException().increment();
+                discardBatch(batchStart);
+                for (Entry entry : batch) {
+                    entry.error = e;
+                    entry.latch.countDown();
+                }
+                return;
+            }
+
+            for (Entry entry : batch) {
+                if (entry.op == OP_PUT) {
+                    index.put(entry.key, entry.datum);
+                } else {
+                    index.remove(entry.key);
+                }
+                entry.latch.countDown();
+            }
+
+            if (Loggers.RAFT.isDebugEnabled()) {
+                Loggers.RAFT.debug("[RAFT-LOG] group committed {} records to segment {}", batch.size(), segmentId);
+            }
+        }
+
+        /**
+         * Cut off whatever part of a failed batch reached the segment, otherwise later batches would be appended
+         * after a torn record and be dropped on replay.
+         */
+        private void discardBatch(long batchStart) {
+            if (batchStart < 0) {
+                return;
+            }
+            try {
+                segment.truncate(batchStart);
+                segment.position(batchStart);
+                segment.force(false);
+            } catch (IOException e) {
+                Loggers.RAFT.error("[RAFT-LOG] failed to truncate segment " + segmentId + " to " + batchStart
+                    + ", roll to a new segment.", e);
+                try {
+                    segment.close();
+                    openSegment(segmentId + 1);
+                } catch (IOException ex) {
+                    Loggers.RAFT.error("[RAFT-LOG] failed to roll segment after a failed write", ex);
+                }
+            }
+        }
+
+        private void roll() throws IOException {
+            final long nextSegmentId = segmentId + 1;
+            segment.close();
+            openSegment(nextSegmentId);
+
+            if (bytesSinceSnapshot < compactThreshold || !compacting.compareAndSet(false, true)) {
+                return;
+            }
+
+            bytesSinceSnapshot = 0;
+
+            // all records before the new segment are reflected in the index at this point:
+            final List<Datum> datums = new ArrayList<>(index.values());
+            compactor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        long start = System.currentTimeMillis();
+                        writeSnapshot(datums, nextSegmentId);
+                        for (long id : listSegments()) {
+                            if (id < nextSegmentId) {
+                                deleteSegment(id);
+                            }
+                        }
+                        Loggers.RAFT.info("[RAFT-LOG] compacted {} datums into snapshot, cost {} ms.",
+                            datums.size(), System.currentTimeMillis() - start);
+                    } catch (Throwable e) {
+                        MetricsMonitor.getDiskException().increment();
+                        Loggers.RAFT.error("[RAFT-LOG] failed to compact raft log", e);
+                    } finally {
+                        compacting.set(false);
+                    }
+                }
+            });
+        }
+    }
+
+    private void writeSnapshot(List<Datum> datums, long firstSegmentId) throws IOException {
+        File temp = new File(baseDir, SNAPSHOT_TEMP_FILE_NAME);
+        try (FileOutputStream outputStream = new FileOutputStream(temp, false)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(outputStream, 64 * 1024));
+            out.writeLong(firstSegmentId);
+            out.writeInt(datums.size());
+            for (Datum datum : datums) {
+                ByteBuffer buffer = encode(OP_PUT, datum.key, JSON.toJSONString(datum).getBytes(UTF8));
+                out.write(buffer.array(), 0, buffer.limit());
+            }
+            out.flush();
+            outputStream.getChannel().force(true);
+        }
+
+        // the old snapshot must stay in place until the new one replaces it, segments before it are already gone:
+        installSnapshot(temp);
+    }
+
+    private void installSnapshot(File temp) throws IOException {
+        File snapshot = new File(baseDir, SNAPSHOT_FILE_NAME);
+        try {
+            Files.move(temp.toPath(), snapshot.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp.toPath(), snapshot.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        syncDirectory();
+    }
+
+    /**
+     * Make the rename durable before any segment covered by the new snapshot is deleted.
+     */
+    private void syncDirectory() {
+        try (FileChannel channel = FileChannel.open(baseDir.toPath(), StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // directories can not be opened on some platforms, e.g. Windows:
+            Loggers.RAFT.debug("[RAFT-LOG] failed to sync raft log directory: {}", e.toString());
+        }
+    }
+
+    private long readSnapshot() throws IOException {
+        File snapshot = new File(baseDir, SNAPSHOT_FILE_NAME);
+        File temp = new File(baseDir, SNAPSHOT_TEMP_FILE_NAME);
+
+        if (temp.exists()) {
+            if (snapshot.exists()) {
+                // compaction was interrupted before the new snapshot was installed, the old one is still valid:
+                Files.delete(temp.toPath());
+            } else {
+                try {
+                    long firstSegmentId = readSnapshot(temp);
+                    installSnapshot(temp);
+                    Loggers.RAFT.warn("[RAFT-LOG] recovered raft snapshot from {}", temp.getAbsolutePath());
+                    return firstSegmentId;
+                } catch (IllegalStateException e) {
+                    // an incomplete first snapshot, all segments are still there:
+                    Loggers.RAFT.warn("[RAFT-LOG] drop incomplete raft snapshot: {}", e.getMessage());
+                    index.clear();
+                    Files.delete(temp.toPath());
+                }
+            }
+        }
+
+        if (!snapshot.exists()) {
+            return 1L;
+        }
+
+        return readSnapshot(snapshot);
+    }
+
+    private long readSnapshot(File file) throws IOException {
+        long fileLength = file.length();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 64 * 1024))) {
+            long firstSegmentId;
+            int count;
+            try {
+                firstSegmentId = in.readLong();
+                count = in.readInt();
+            } catch (EOFException e) {
+                throw new IllegalStateException("truncated raft snapshot: " + file.getAbsolutePath());
+            }
+            long position = 12;
+            for (int i = 0; i < count; i++) {
+                int read = readRecord(in, fileLength - position);
+                if (read <= 0) {
+                    throw new IllegalStateException("corrupted raft snapshot at position " + position
+                        + ": " + file.getAbsolutePath());
+                }
+                position += read;
+            }
+            return firstSegmentId;
+        }
+    }
+
+    /**
+     * @return number of replayed records
+     */
+    private int replaySegment(long id, boolean last) throws IOException {
+        File file = segmentFile(id);
+        long fileLength = file.length();
+        long position = 0;
+        int count = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 64 * 1024))) {
+            while (true) {
+                int read = readRecord(in, fileLength - position);
+                if (read <= 0) {
+                    if (read < 0) {
+                        Loggers.RAFT.warn("[RAFT-LOG] torn record in segment {} at position {}, ignore the rest.",
+                            file.getName(), position);
+                    }
+                    break;
+                }
+                position += read;
+                count++;
+            }
+        }
+
+        if (last && position < file.length()) {
+            // drop the torn tail so that new records are appended right after the last good one:
+            try (FileChannel channel = new RandomAccessFile(file, "rw").getChannel()) {
+                channel.truncate(position);
+            }
+        }
+
+        bytesSinceSnapshot += position;
+        return count;
+    }
+
+    /**
+     * @param remaining bytes left in the file from the start of this record
+     * @return length of the record read, 0 on a clean end of stream, -1 on a torn or corrupted record
+     */
+    private int readRecord(DataInputStream in, long remaining) throws IOException {
+        int length;
+        int checksum;
+        byte[] body;
+        try {
+            length = in.readInt();
+        } catch (EOFException e) {
+            return 0;
+        }
+
+        try {
+            checksum = in.readInt();
+            if (length <= 0 || length > remaining - RECORD_HEADER_LENGTH) {
+                return -1;
+            }
+            body = new byte[length];
+            in.readFully(body);
+        } catch (EOFException e) {
+            return -1;
+        }
+
+        CRC32 crc32 = new CRC32();
+        crc32.update(body, 0, body.length);
+        if ((int) crc32.getValue() != checksum) {
+            return -1;
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(body);
+        byte op = buffer.get();
+        byte[] keyBytes = new byte[buffer.getInt()];
+        buffer.get(keyBytes);
+        String key = new String(keyBytes, UTF8);
+
+        if (op == OP_DELETE) {
+            index.remove(key);
+        } else {
+            String json = new String(body, buffer.position(), buffer.remaining(), UTF8);
+            Datum datum = decode(key, json);
+            if (datum != null) {
+                index.put(key, datum);
+            }
+        }
+
+        return RECORD_HEADER_LENGTH + length;
+    }
+
+    private static ByteBuffer encode(byte op, String key, byte[] payload) {
+        byte[] keyBytes = key.getBytes(UTF8);
+        int length = 1 + 4 + keyBytes.length + payload.length;
+
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_HEADER_LENGTH + length);
+        buffer.putInt(length);
+        buffer.putInt(0);
+        buffer.put(op);
+        buffer.putInt(keyBytes.length);
+        buffer.put(keyBytes);
+        buffer.put(payload);
+
+        CRC32 crc32 = new CRC32();
+        crc32.update(buffer.array(), RECORD_HEADER_LENGTH, length);
+        buffer.putInt(4, (int) crc32.getValue());
+
+        buffer.flip();
+        return buffer;
+    }
+
+    private static Datum decode(String key, String json) {
+        if (KeyBuilder.matchSwitchKey(key)) {
+            return JSON.parseObject(json, new TypeReference<Datum<SwitchDomain>>() {
+            });
+        }
+
+        if (KeyBuilder.matchServiceMetaKey(key)) {
+            return JSON.parseObject(json, new TypeReference<Datum<Service>>() {
+            });
+        }
+
+        if (KeyBuilder.matchInstanceListKey(key)) {
+            return JSON.parseObject(json, new TypeReference<Datum<Instances>>() {
+            });
+        }
+
+        return JSON.parseObject(json, Datum.class);
+    }
+
+    private void openSegment(long id) throws IOException {
+        segment = new RandomAccessFile(segmentFile(id), "rw").getChannel();
+        segment.position(segment.size());
+        segmentId = id;
+    }
+
+    private void deleteSegment(long id) {
+        File file = segmentFile(id);
+        if (file.exists() && !file.delete()) {
+            Loggers.RAFT.warn("[RAFT-LOG] failed to delete compacted segment: {}", file.getAbsolutePath());
+        }
+    }
+
+    private File segmentFile(long id) {
+        return new File(baseDir, String.format("%020d", id) + SEGMENT_SUFFIX);
+    }
+
+    private List<Long> listSegments() {
+        List<Long> ids = new ArrayList<>();
+        File[] files = baseDir.listFiles();
+        if (files == null) {
+            return ids;
+        }
+
+        for (File file : files) {
+            String name = file.getName();
+            if (!name.endsWith(SEGMENT_SUFFIX)) {
+                continue;
+            }
+            try {
+                ids.add(Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())));
+            } catch (NumberFormatException e) {
+                Loggers.RAFT.warn("[RAFT-LOG] unknown file in raft log dir: {}", file.getAbsolutePath());
+            }
+        }
+        Collections.sort(ids);
+        return ids;
+    }
+
+    private void mkdirs() {
+        if (!baseDir.exists() && !baseDir.mkdirs()) {
+            throw new IllegalStateException("cloud not make raft log directory: " + baseDir.getAbsolutePath());
+        }
+    }
+
+    private static class Entry {
+
+        private final byte op;
+
+        private final String key;
+
+        private final byte[] payload;
+
+        private final Datum datum;
+
+        private final CountDownLatch latch = new CountDownLatch(1);
+
+        private volatile Exception error;
+
+        Entry(byte op, String key, byte[] payload, Datum datum) {
+            this.op = op;
+            this.key = key;
+            this.payload = payload;
+            this.datum = datum;
+        }
+    }
+}
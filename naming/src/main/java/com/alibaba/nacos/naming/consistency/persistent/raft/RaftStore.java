@@ -25,11 +25,13 @@ import com.alibaba.nacos.naming.consistency.KeyBuilder;
 import com.alibaba.nacos.naming.core.Instance;
 import com.alibaba.nacos.naming.core.Instances;
 import com.alibaba.nacos.naming.core.Service;
+import com.alibaba.nacos.naming.misc.GlobalConfig;
 import com.alibaba.nacos.naming.misc.Loggers;
 import com.alibaba.nacos.naming.misc.SwitchDomain;
 import com.alibaba.nacos.naming.misc.UtilsAndCommons;
 import com.alibaba.nacos.naming.monitor.MetricsMonitor;
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.io.File;
@@ -43,19 +45,61 @@ import java.util.Properties;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
+ * Persistent storage of Raft datums.
+ * <p>
+ * By default datums are stored in an append-only {@link RaftLog}. The per-file layout under {@code data/<namespace>/}
+ * is kept as a legacy format: it is imported into the log on first start, and is still used when
+ * {@code nacos.naming.raft.log.enabled} is turned off.
+ *
  * @author nacos
  */
 @Component
 public class RaftStore {
 
+    @Autowired
+    private GlobalConfig globalConfig;
+
     private Properties meta = new Properties();
 
     private String metaFileName = UtilsAndCommons.DATA_BASE_DIR + File.separator + "meta.properties";
 
     private String cacheDir = UtilsAndCommons.DATA_BASE_DIR + File.separator + "data";
 
+    private String logDir = UtilsAndCommons.DATA_BASE_DIR + File.separator + "log";
+
+    private volatile RaftLog raftLog;
+
     public synchronized ConcurrentHashMap<String, Datum> loadDatums(RaftCore.Notifier notifier) throws Exception {
 
+        if (!globalConfig.isRaftLogEnabled()) {
+            return loadFileDatums(notifier);
+        }
+
+        RaftLog log = new RaftLog(new File(logDir), globalConfig.getRaftLogSegmentSize(),
+            globalConfig.getRaftLogCompactThreshold());
+
+        ConcurrentHashMap<String, Datum> datums;
+        if (log.isEmpty()) {
+            datums = loadFileDatums(notifier);
+            log.importDatums(datums.values());
+            Loggers.RAFT.info("imported {} datums from legacy data files into raft log.", datums.size());
+        } else {
+            datums = log.load();
+            for (String key : datums.keySet()) {
+                if (StringUtils.isNotBlank(KeyBuilder.getNamespace(key))) {
+                    notifier.addTask(key, ApplyAction.CHANGE);
+                }
+            }
+        }
+
+        log.start();
+        raftLog = log;
+
+        return datums;
+    }
+
+    private ConcurrentHashMap<String, Datum> loadFileDatums(RaftCore.Notifier notifier) throws Exception {
+
         ConcurrentHashMap<String, Datum> datums = new ConcurrentHashMap<>(32);
         Datum datum;
         long start = System.currentTimeMillis();
@@ -93,6 +137,10 @@ public class RaftStore {
     }
 
     public synchronized Datum load(String key) throws Exception {
+        if (raftLog != null) {
+            return raftLog.get(key);
+        }
+
         long start = System.currentTimeMillis();
         // load data
         for (File cache : listCaches()) {
@@ -201,7 +249,30 @@ public class RaftStore {
         }
     }
 
-    public synchronized void write(final Datum datum) throws Exception {
+    public void write(final Datum datum) throws Exception {
+
+        if (raftLog != null) {
+            // not synchronized, so that concurrent writers share one fsync:
+            raftLog.append(datum);
+            return;
+        }
+
+        writeFile(datum);
+    }
+
+    public void write(final List<Datum> datums) throws Exception {
+
+        if (raftLog != null) {
+            raftLog.appendAll(datums);
+            return;
+        }
+
+        for (Datum datum : datums) {
+            writeFile(datum);
+        }
+    }
+
+    private synchronized void writeFile(final Datum datum) throws Exception {
 
         String namespaceId = KeyBuilder.getNamespace(datum.key);
 
@@ -264,6 +335,16 @@ public class RaftStore {
 
     public void delete(Datum datum) {
 
+        if (raftLog != null) {
+            try {
+                raftLog.delete(datum.key);
+            } catch (Exception e) {
+                Loggers.RAFT.error("[RAFT-DELETE] failed to delete datum: {}, value: {}", datum.key, datum.value, e);
+                throw new IllegalStateException("failed to delete datum: " + datum.key, e);
+            }
+            return;
+        }
+
         // datum key contains namespace info:
         String namespaceId = KeyBuilder.getNamespace(datum.key);
 
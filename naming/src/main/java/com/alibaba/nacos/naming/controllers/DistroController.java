@@ -16,18 +16,21 @@
 package com.alibaba.nacos.naming.controllers;
 
 import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
 import com.alibaba.fastjson.TypeReference;
 import com.alibaba.nacos.core.utils.WebUtils;
 import com.alibaba.nacos.naming.cluster.ServerMode;
-import com.alibaba.nacos.naming.cluster.transport.Serializer;
+import com.alibaba.nacos.naming.cluster.transport.DelegateSerializer;
 import com.alibaba.nacos.naming.consistency.Datum;
 import com.alibaba.nacos.naming.consistency.KeyBuilder;
 import com.alibaba.nacos.naming.consistency.ephemeral.distro.DataStore;
 import com.alibaba.nacos.naming.consistency.ephemeral.distro.DistroConsistencyServiceImpl;
+import com.alibaba.nacos.naming.consistency.ephemeral.distro.DistroDigest;
 import com.alibaba.nacos.naming.core.Instances;
 import com.alibaba.nacos.naming.core.ServiceManager;
 import com.alibaba.nacos.naming.exception.NacosException;
 import com.alibaba.nacos.naming.misc.Loggers;
+import com.alibaba.nacos.naming.misc.NetUtils;
 import com.alibaba.nacos.naming.misc.SwitchDomain;
 import com.alibaba.nacos.naming.misc.UtilsAndCommons;
 import org.apache.commons.io.IOUtils;
@@ -37,10 +40,13 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RestController;
 
+import javax.annotation.Resource;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Restful methods for Partition protocol.
@@ -52,8 +58,8 @@ import java.util.Map;
 @RequestMapping(UtilsAndCommons.NACOS_NAMING_CONTEXT + "/distro")
 public class DistroController {
 
-    @Autowired
-    private Serializer serializer;
+    @Resource(name = "serializerDelegate")
+    private DelegateSerializer serializer;
 
     @Autowired
     private DistroConsistencyServiceImpl consistencyService;
@@ -70,15 +76,16 @@ public class DistroController {
     @RequestMapping(value = "/datum", method = RequestMethod.PUT)
     public String onSyncDatum(HttpServletRequest request, HttpServletResponse response) throws Exception {
 
-        String entity = IOUtils.toString(request.getInputStream(), "UTF-8");
+        // entity may be binary, see BinarySerializer:
+        byte[] entity = IOUtils.toByteArray(request.getInputStream());
 
-        if (StringUtils.isBlank(entity)) {
+        if (entity.length == 0) {
             Loggers.EPHEMERAL.error("[onSync] receive empty entity!");
             throw new NacosException(NacosException.INVALID_PARAM, "receive empty entity!");
         }
 
         Map<String, Datum<Instances>> dataMap =
-            serializer.deserializeMap(entity.getBytes(), Instances.class);
+            serializer.deserializeMap(entity, Instances.class);
 
         for (Map.Entry<String, Datum<Instances>> entry : dataMap.entrySet()) {
             if (KeyBuilder.matchEphemeralInstanceListKey(entry.getKey())) {
@@ -91,6 +98,8 @@ public class DistroController {
                 consistencyService.onPut(entry.getKey(), entry.getValue().value);
             }
         }
+        // lets the sender push binary data from now on:
+        response.setHeader(DelegateSerializer.SERIALIZER_HEADER, DelegateSerializer.SERIALIZER_BINARY);
         return "ok";
     }
 
@@ -105,6 +114,45 @@ public class DistroController {
         return "ok";
     }
 
+    @RequestMapping(value = "/digest", method = RequestMethod.PUT)
+    public String syncDigest(HttpServletRequest request, HttpServletResponse response) throws Exception {
+        String source = WebUtils.required(request, "source");
+        String entity = IOUtils.toString(request.getInputStream(), "UTF-8");
+        JSONObject digest = JSON.parseObject(entity);
+        consistencyService.onReceiveDigest(digest.getLongValue("root"),
+            digest.getObject("groups", long[].class), source);
+        return "ok";
+    }
+
+    @RequestMapping(value = "/digest", method = RequestMethod.GET)
+    public JSONObject getDigest(HttpServletRequest request, HttpServletResponse response) throws Exception {
+
+        String entity = IOUtils.toString(request.getInputStream(), "UTF-8");
+        String groups = JSON.parseObject(entity).getString("groups");
+        DistroDigest digest = dataStore.digest(NetUtils.localServer());
+        JSONObject result = new JSONObject();
+        for (String group : groups.split(",")) {
+            int index = Integer.parseInt(group);
+            if (index < 0 || index >= DistroDigest.FANOUT) {
+                throw new NacosException(NacosException.INVALID_PARAM, "invalid digest group: " + group);
+            }
+            result.put(group, digest.getBuckets(index));
+        }
+        return result;
+    }
+
+    @RequestMapping(value = "/checksums", method = RequestMethod.GET)
+    public Map<String, Long> getKeyChecksums(HttpServletRequest request, HttpServletResponse response) throws Exception {
+
+        String entity = IOUtils.toString(request.getInputStream(), "UTF-8");
+        String buckets = JSON.parseObject(entity).getString("buckets");
+        Set<Integer> bucketSet = new HashSet<>();
+        for (String bucket : buckets.split(",")) {
+            bucketSet.add(Integer.parseInt(bucket));
+        }
+        return dataStore.keyHashes(NetUtils.localServer(), bucketSet);
+    }
+
     @RequestMapping(value = "/datum", method = RequestMethod.GET)
     public void get(HttpServletRequest request, HttpServletResponse response) throws Exception {
 
@@ -115,11 +163,15 @@ public class DistroController {
         for (String key : keys.split(keySplitter)) {
             datumMap.put(key, consistencyService.get(key));
         }
-        response.getWriter().write(new String(serializer.serialize(datumMap), "UTF-8"));
+        response.getOutputStream().write(serializer.serialize(datumMap, isBinaryAccepted(request)));
     }
 
     @RequestMapping(value = "/datums", method = RequestMethod.GET)
     public void getAllDatums(HttpServletRequest request, HttpServletResponse response) throws Exception {
-        response.getWriter().write(new String(serializer.serialize(dataStore.getDataMap()), "UTF-8"));
+        response.getOutputStream().write(serializer.serialize(dataStore.getDataMap(), isBinaryAccepted(request)));
+    }
+
+    private boolean isBinaryAccepted(HttpServletRequest request) {
+        return DelegateSerializer.SERIALIZER_BINARY.equals(WebUtils.optional(request, "serializer", StringUtils.EMPTY));
     }
 }
@@ -23,6 +23,7 @@ import com.alibaba.nacos.api.naming.CommonParams;
 import com.alibaba.nacos.api.naming.utils.NamingUtils;
 import com.alibaba.nacos.core.utils.WebUtils;
 import com.alibaba.nacos.naming.cluster.ServerMode;
+import com.alibaba.nacos.naming.core.CachedInstanceList;
 import com.alibaba.nacos.naming.core.DistroMapper;
 import com.alibaba.nacos.naming.core.Instance;
 import com.alibaba.nacos.naming.core.Service;
@@ -30,22 +31,27 @@ import com.alibaba.nacos.naming.core.ServiceManager;
 import com.alibaba.nacos.naming.exception.NacosException;
 import com.alibaba.nacos.naming.healthcheck.RsInfo;
 import com.alibaba.nacos.naming.misc.Loggers;
+import com.alibaba.nacos.naming.misc.NamingProxy;
 import com.alibaba.nacos.naming.misc.SwitchDomain;
 import com.alibaba.nacos.naming.misc.UtilsAndCommons;
 import com.alibaba.nacos.naming.push.ClientInfo;
 import com.alibaba.nacos.naming.push.DataSource;
 import com.alibaba.nacos.naming.push.PushService;
+import com.alibaba.nacos.naming.selector.NoneSelector;
 import com.alibaba.nacos.naming.web.CanDistro;
 import org.apache.commons.collections.CollectionUtils;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.BooleanUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.codehaus.jackson.util.VersionUtil;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RestController;
 
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import java.net.InetSocketAddress;
 import java.util.*;
 
@@ -90,6 +96,18 @@ public class InstanceController {
 
             return result.toJSONString();
         }
+
+        @Override
+        public String getDataKey(PushService.PushClient client) {
+
+            Service service = serviceManager.getService(client.getNamespaceId(), client.getServiceName());
+            if (service != null && service.getSelector() != null && !(service.getSelector() instanceof NoneSelector)) {
+                // instances are selected by the address of the client:
+                return null;
+            }
+
+            return client.getClusters() + UtilsAndCommons.CACHE_KEY_SPLITER + client.getAgent();
+        }
     };
 
     @CanDistro
@@ -144,8 +162,8 @@ public class InstanceController {
         return "ok";
     }
 
-    @RequestMapping(value = "/list", method = RequestMethod.GET)
-    public JSONObject list(HttpServletRequest request) throws Exception {
+    @RequestMapping(value = "/list", method = RequestMethod.GET, produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    public String list(HttpServletRequest request) throws Exception {
 
         String namespaceId = WebUtils.optional(request, CommonParams.NAMESPACE_ID,
             Constants.DEFAULT_NAMESPACE_ID);
@@ -167,7 +185,83 @@ public class InstanceController {
 
         boolean healthyOnly = Boolean.parseBoolean(WebUtils.optional(request, "healthyOnly", "false"));
 
-        return doSrvIPXT(namespaceId, serviceName, agent, clusters, clientIP, udpPort, env, isCheck, app, tenant, healthyOnly);
+        JSONObject result = new JSONObject();
+        CachedInstanceList instanceList = doSrvIPXT(result, namespaceId, serviceName, agent, clusters, clientIP,
+            udpPort, env, isCheck, app, tenant, healthyOnly);
+        if (instanceList == null) {
+            return result.toJSONString();
+        }
+
+        // write the instances as they were encoded when the service last changed:
+        String json = result.toJSONString();
+        return "{\"hosts\":" + instanceList.getHostsJson() + "," + json.substring(1);
+    }
+
+    /**
+     * Multiplexed version of {@link #list(HttpServletRequest)} for clients subscribing to many services.
+     * <p>
+     * The request body is a JSON array of the subscribed services with the checksums the client holds, only services
+     * whose checksum has changed are returned. Push is enabled for every subscribed service, just like list does.
+     */
+    @RequestMapping(value = "/lists", method = RequestMethod.PUT)
+    public JSONObject lists(HttpServletRequest request) throws Exception {
+
+        String namespaceId = WebUtils.optional(request, CommonParams.NAMESPACE_ID,
+            Constants.DEFAULT_NAMESPACE_ID);
+        String agent = request.getHeader("Client-Version");
+        if (StringUtils.isBlank(agent)) {
+            agent = request.getHeader("User-Agent");
+        }
+        String clientIP = WebUtils.optional(request, "clientIP", StringUtils.EMPTY);
+        Integer udpPort = Integer.parseInt(WebUtils.optional(request, "udpPort", "0"));
+        String env = WebUtils.optional(request, "env", StringUtils.EMPTY);
+        String app = WebUtils.optional(request, "app", StringUtils.EMPTY);
+        String tenant = WebUtils.optional(request, "tid", StringUtils.EMPTY);
+        boolean healthyOnly = Boolean.parseBoolean(WebUtils.optional(request, "healthyOnly", "false"));
+
+        String entity = IOUtils.toString(request.getInputStream(), "UTF-8");
+        JSONArray subscriptions = JSON.parseArray(entity);
+        if (subscriptions == null) {
+            subscriptions = new JSONArray();
+        }
+
+        JSONArray services = new JSONArray();
+        long cacheMillis = Long.MAX_VALUE;
+
+        for (int i = 0; i < subscriptions.size(); i++) {
+            JSONObject subscription = subscriptions.getJSONObject(i);
+            String serviceName = subscription.getString("serviceName");
+            String clusters = StringUtils.defaultString(subscription.getString("clusters"));
+
+            if (StringUtils.isBlank(serviceName)) {
+                continue;
+            }
+
+            Service service = serviceManager.getService(namespaceId, serviceName);
+            if (service == null) {
+                continue;
+            }
+
+            if (StringUtils.equals(service.getChecksum(), subscription.getString("checksum"))) {
+                cacheMillis = Math.min(cacheMillis,
+                    enablePush(namespaceId, serviceName, clusters, agent, clientIP, udpPort, tenant, app));
+                continue;
+            }
+
+            try {
+                JSONObject serviceJson = doSrvIPXT(namespaceId, serviceName, agent, clusters, clientIP, udpPort, env,
+                    false, app, tenant, healthyOnly);
+                cacheMillis = Math.min(cacheMillis, serviceJson.getLongValue("cacheMillis"));
+                services.add(serviceJson);
+            } catch (NacosException e) {
+                Loggers.SRV_LOG.warn("[NACOS-API] failed to list service: {}, {}", serviceName, e.getErrorMsg());
+            }
+        }
+
+        JSONObject result = new JSONObject();
+        result.put("services", services);
+        result.put("cacheMillis", cacheMillis == Long.MAX_VALUE ? switchDomain.getDefaultCacheMillis() : cacheMillis);
+        return result;
     }
 
     @RequestMapping(value = "", method = RequestMethod.GET)
@@ -229,17 +323,102 @@ public class InstanceController {
             return result;
         }
 
+        String serviceName = WebUtils.required(request, CommonParams.SERVICE_NAME);
+
+        processBeat(namespaceId, serviceName, clientBeat);
+
+        return result;
+    }
+
+    /**
+     * Bulk version of {@link #beat(HttpServletRequest)}, the request body is a JSON array of beats of any services.
+     * <p>
+     * Beats of services this server is not responsible for are forwarded to their responsible servers, one request per
+     * server. The result code of every beat is returned in the order of the beats.
+     */
+    @RequestMapping(value = "/beats", method = RequestMethod.PUT)
+    public JSONObject beats(HttpServletRequest request) throws Exception {
+
+        JSONObject result = new JSONObject();
+
+        result.put("clientBeatInterval", switchDomain.getClientBeatInterval());
+
+        String namespaceId = WebUtils.optional(request, CommonParams.NAMESPACE_ID,
+            Constants.DEFAULT_NAMESPACE_ID);
+        String entity = IOUtils.toString(request.getInputStream(), "UTF-8");
+        List<RsInfo> clientBeats = JSON.parseArray(entity, RsInfo.class);
+        if (clientBeats == null) {
+            clientBeats = new ArrayList<>();
+        }
+
+        // beats forwarded by a peer are processed here anyway, so they are never forwarded twice:
+        String userAgent = request.getHeader("User-Agent");
+        boolean fromPeer = StringUtils.isNotBlank(userAgent) && userAgent.contains(UtilsAndCommons.NACOS_SERVER_HEADER);
+
+        int[] codes = new int[clientBeats.size()];
+        Map<String, List<Integer>> forwardMap = new HashMap<>(8);
+
+        for (int i = 0; i < clientBeats.size(); i++) {
+            RsInfo clientBeat = clientBeats.get(i);
+            String serviceName = clientBeat.getServiceName();
+
+            if (StringUtils.isBlank(serviceName)) {
+                codes[i] = NacosException.INVALID_PARAM;
+                continue;
+            }
+
+            if (!serviceName.contains(Constants.SERVICE_INFO_SPLITER)) {
+                serviceName = Constants.DEFAULT_GROUP + Constants.SERVICE_INFO_SPLITER + serviceName;
+                clientBeat.setServiceName(serviceName);
+            }
+
+            if (!switchDomain.isDefaultInstanceEphemeral() && !clientBeat.isEphemeral()) {
+                codes[i] = HttpServletResponse.SC_OK;
+                continue;
+            }
+
+            if (!fromPeer && !distroMapper.responsible(serviceName)) {
+                String server = distroMapper.mapSrv(serviceName);
+                if (!forwardMap.containsKey(server)) {
+                    forwardMap.put(server, new ArrayList<Integer>());
+                }
+                forwardMap.get(server).add(i);
+                continue;
+            }
+
+            codes[i] = processBeat(namespaceId, clientBeat);
+        }
+
+        for (Map.Entry<String, List<Integer>> entry : forwardMap.entrySet()) {
+            forwardBeats(namespaceId, entry.getKey(), entry.getValue(), clientBeats, codes);
+        }
+
+        result.put("results", codes);
+
+        return result;
+    }
+
+    private int processBeat(String namespaceId, RsInfo clientBeat) {
+        try {
+            processBeat(namespaceId, clientBeat.getServiceName(), clientBeat);
+            return HttpServletResponse.SC_OK;
+        } catch (NacosException e) {
+            Loggers.SRV_LOG.warn("[CLIENT-BEAT] failed to process beat: {}, {}", clientBeat, e.getErrorMsg());
+            return e.getErrorCode();
+        } catch (Exception e) {
+            Loggers.SRV_LOG.error("[CLIENT-BEAT] failed to process beat: " + clientBeat, e);
+            return NacosException.SERVER_ERROR;
+        }
+    }
+
+    private void processBeat(String namespaceId, String serviceName, RsInfo clientBeat) throws Exception {
+
         if (StringUtils.isBlank(clientBeat.getCluster())) {
             clientBeat.setCluster(UtilsAndCommons.DEFAULT_CLUSTER_NAME);
         }
-        String serviceName = WebUtils.required(request, CommonParams.SERVICE_NAME);
 
         String clusterName = clientBeat.getCluster();
 
-        if (StringUtils.isBlank(clusterName)) {
-            clusterName = UtilsAndCommons.DEFAULT_CLUSTER_NAME;
-        }
-
         if (Loggers.DEBUG_LOG.isDebugEnabled()) {
             Loggers.DEBUG_LOG.debug("[CLIENT-BEAT] full arguments: beat: {}, serviceName: {}", clientBeat, serviceName);
         }
@@ -268,8 +447,28 @@ public class InstanceController {
         }
 
         service.processClientBeat(clientBeat);
+    }
 
-        return result;
+    private void forwardBeats(String namespaceId, String server, List<Integer> indexes, List<RsInfo> clientBeats,
+                              int[] codes) {
+
+        List<RsInfo> forwardBeats = new ArrayList<>(indexes.size());
+        for (int index : indexes) {
+            forwardBeats.add(clientBeats.get(index));
+        }
+
+        int[] forwardCodes = null;
+        try {
+            forwardCodes = NamingProxy.forwardBeats(namespaceId, JSON.toJSONBytes(forwardBeats), server);
+        } catch (Exception e) {
+            Loggers.SRV_LOG.warn("[CLIENT-BEAT] failed to forward {} beats to {}, {}", indexes.size(), server,
+                e.getMessage());
+        }
+
+        for (int i = 0; i < indexes.size(); i++) {
+            codes[indexes.get(i)] = forwardCodes != null && forwardCodes.length == indexes.size() ?
+                forwardCodes[i] : NacosException.BAD_GATEWAY;
+        }
     }
 
 
@@ -362,18 +561,11 @@ public class InstanceController {
         }
     }
 
-    public JSONObject doSrvIPXT(String namespaceId, String serviceName, String agent, String clusters, String clientIP, int udpPort,
-                                String env, boolean isCheck, String app, String tid, boolean healthyOnly) throws Exception {
-
-        ClientInfo clientInfo = new ClientInfo(agent);
-        JSONObject result = new JSONObject();
-        Service service = serviceManager.getService(namespaceId, serviceName);
-
-        if (service == null) {
-            throw new NacosException(NacosException.NOT_FOUND, "service not found: " + serviceName);
-        }
-
-        checkIfDisabled(service);
+    /**
+     * @return cache millis of the service for the client, depending on whether push is enabled
+     */
+    private long enablePush(String namespaceId, String serviceName, String clusters, String agent, String clientIP,
+                            int udpPort, String tid, String app) {
 
         long cacheMillis = switchDomain.getDefaultCacheMillis();
 
@@ -394,38 +586,110 @@ public class InstanceController {
             cacheMillis = switchDomain.getDefaultCacheMillis();
         }
 
+        return cacheMillis;
+    }
+
+    public JSONObject doSrvIPXT(String namespaceId, String serviceName, String agent, String clusters, String clientIP, int udpPort,
+                                String env, boolean isCheck, String app, String tid, boolean healthyOnly) throws Exception {
+
+        JSONObject result = new JSONObject();
+        CachedInstanceList instanceList = doSrvIPXT(result, namespaceId, serviceName, agent, clusters, clientIP,
+            udpPort, env, isCheck, app, tid, healthyOnly);
+        if (instanceList != null) {
+            result.put("hosts", instanceList.getHosts());
+        }
+        return result;
+    }
+
+    /**
+     * Put the fields of the service into the result, except for the instances.
+     *
+     * @return the instances to serve, or null if the result is complete already
+     */
+    private CachedInstanceList doSrvIPXT(JSONObject result, String namespaceId, String serviceName, String agent,
+                                         String clusters, String clientIP, int udpPort, String env, boolean isCheck,
+                                         String app, String tid, boolean healthyOnly) throws Exception {
+
+        ClientInfo clientInfo = new ClientInfo(agent);
+        Service service = serviceManager.getService(namespaceId, serviceName);
+
+        if (service == null) {
+            throw new NacosException(NacosException.NOT_FOUND, "service not found: " + serviceName);
+        }
+
+        checkIfDisabled(service);
+
+        long cacheMillis = enablePush(namespaceId, serviceName, clusters, agent, clientIP, udpPort, tid, app);
+
+        boolean groupedName = clientInfo.type == ClientInfo.ClientType.JAVA &&
+            clientInfo.version.compareTo(VersionUtil.parseVersion("1.0.0")) >= 0;
+
+        // only clusters of the service make it into the cache key, so clients can not grow the cache at will:
+        List<String> clusterList = service.existingClusters(clusters);
+
+        CachedInstanceList instanceList;
+        if (isCheck) {
+            // check mode answers with an empty object, unless there is no instance to serve at all:
+            instanceList = encodeInstances(service, clusterList, clientIP, false, groupedName);
+            if (!instanceList.getHosts().isEmpty()) {
+                return null;
+            }
+        } else if (service.getSelector() != null && !(service.getSelector() instanceof NoneSelector)
+            && StringUtils.isNotBlank(clientIP)) {
+            // the instances depend on the client, nothing to share:
+            instanceList = encodeInstances(service, clusterList, clientIP, healthyOnly, groupedName);
+        } else {
+            String key = StringUtils.join(clusterList, ",") + UtilsAndCommons.CACHE_KEY_SPLITER + healthyOnly
+                + UtilsAndCommons.CACHE_KEY_SPLITER + groupedName;
+            instanceList = service.getCachedInstanceList(key);
+            if (instanceList == null) {
+                instanceList = encodeInstances(service, clusterList, clientIP, healthyOnly, groupedName);
+                service.cacheInstanceList(key, instanceList);
+            }
+        }
+
+        if (groupedName) {
+            result.put("dom", serviceName);
+        } else {
+            result.put("dom", NamingUtils.getServiceName(serviceName));
+        }
+        result.put("name", serviceName);
+        result.put("cacheMillis", cacheMillis);
+        result.put("lastRefTime", System.currentTimeMillis());
+        // the checksum the instances were encoded with, so clients never get a checksum newer than their instances:
+        result.put("checksum", instanceList.getChecksum());
+        result.put("useSpecifiedURL", false);
+        result.put("clusters", clusters);
+        result.put("env", env);
+        result.put("metadata", service.getMetadata());
+        return instanceList;
+    }
+
+    private CachedInstanceList encodeInstances(Service service, List<String> clusters, String clientIP,
+                                               boolean healthyOnly, boolean groupedName) {
+
+        // read before the instances, so a change made while encoding makes the list stale right away:
+        long revision = service.revision();
+        String checksum = service.getChecksum();
+
         List<Instance> srvedIPs;
 
-        srvedIPs = service.srvIPs(Arrays.asList(StringUtils.split(clusters, ",")));
+        srvedIPs = service.allIPs(clusters);
 
         // filter ips using selector:
         if (service.getSelector() != null && StringUtils.isNotBlank(clientIP)) {
             srvedIPs = service.getSelector().select(clientIP, srvedIPs);
         }
 
+        JSONArray hosts = new JSONArray();
+
         if (CollectionUtils.isEmpty(srvedIPs)) {
 
             if (Loggers.DEBUG_LOG.isDebugEnabled()) {
-                Loggers.DEBUG_LOG.debug("no instance to serve for service: " + serviceName);
-            }
-
-            if (clientInfo.type == ClientInfo.ClientType.JAVA &&
-                clientInfo.version.compareTo(VersionUtil.parseVersion("1.0.0")) >= 0) {
-                result.put("dom", serviceName);
-            } else {
-                result.put("dom", NamingUtils.getServiceName(serviceName));
+                Loggers.DEBUG_LOG.debug("no instance to serve for service: " + service.getName());
             }
 
-            result.put("hosts", new JSONArray());
-            result.put("name", serviceName);
-            result.put("cacheMillis", cacheMillis);
-            result.put("lastRefTime", System.currentTimeMillis());
-            result.put("checksum", service.getChecksum());
-            result.put("useSpecifiedURL", false);
-            result.put("clusters", clusters);
-            result.put("env", env);
-            result.put("metadata", service.getMetadata());
-            return result;
+            return new CachedInstanceList(revision, checksum, hosts);
         }
 
         Map<Boolean, List<Instance>> ipMap = new HashMap<>(2);
@@ -436,32 +700,16 @@ public class InstanceController {
             ipMap.get(ip.isHealthy()).add(ip);
         }
 
-        if (isCheck) {
-            result.put("reachProtectThreshold", false);
-        }
-
         double threshold = service.getProtectThreshold();
 
         if ((float) ipMap.get(Boolean.TRUE).size() / srvedIPs.size() <= threshold) {
 
-            Loggers.SRV_LOG.warn("protect threshold reached, return all ips, service: {}", serviceName);
-            if (isCheck) {
-                result.put("reachProtectThreshold", true);
-            }
+            Loggers.SRV_LOG.warn("protect threshold reached, return all ips, service: {}", service.getName());
 
             ipMap.get(Boolean.TRUE).addAll(ipMap.get(Boolean.FALSE));
             ipMap.get(Boolean.FALSE).clear();
         }
 
-        if (isCheck) {
-            result.put("protectThreshold", service.getProtectThreshold());
-            result.put("reachLocalSiteCallThreshold", false);
-
-            return new JSONObject();
-        }
-
-        JSONArray hosts = new JSONArray();
-
         for (Map.Entry<Boolean, List<Instance>> entry : ipMap.entrySet()) {
             List<Instance> ips = entry.getValue();
 
@@ -483,8 +731,7 @@ public class InstanceController {
                 ipObj.put("enabled", instance.isEnabled());
                 ipObj.put("weight", instance.getWeight());
                 ipObj.put("clusterName", instance.getClusterName());
-                if (clientInfo.type == ClientInfo.ClientType.JAVA &&
-                    clientInfo.version.compareTo(VersionUtil.parseVersion("1.0.0")) >= 0) {
+                if (groupedName) {
                     ipObj.put("serviceName", instance.getServiceName());
                 } else {
                     ipObj.put("serviceName", NamingUtils.getServiceName(instance.getServiceName()));
@@ -496,21 +743,6 @@ public class InstanceController {
             }
         }
 
-        result.put("hosts", hosts);
-        if (clientInfo.type == ClientInfo.ClientType.JAVA &&
-            clientInfo.version.compareTo(VersionUtil.parseVersion("1.0.0")) >= 0) {
-            result.put("dom", serviceName);
-        } else {
-            result.put("dom", NamingUtils.getServiceName(serviceName));
-        }
-        result.put("name", serviceName);
-        result.put("cacheMillis", cacheMillis);
-        result.put("lastRefTime", System.currentTimeMillis());
-        result.put("checksum", service.getChecksum());
-        result.put("useSpecifiedURL", false);
-        result.put("clusters", clusters);
-        result.put("env", env);
-        result.put("metadata", service.getMetadata());
-        return result;
+        return new CachedInstanceList(revision, checksum, hosts);
     }
 }
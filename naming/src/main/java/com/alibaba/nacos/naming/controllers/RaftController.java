@@ -91,7 +91,13 @@ public class RaftController {
 
         RaftPeer peer = raftCore.receivedBeat(beat);
 
-        return JSON.parseObject(JSON.toJSONString(peer));
+        JSONObject result = JSON.parseObject(JSON.toJSONString(peer));
+        // lets the leader send only the changes after this index next time:
+        result.put("appliedEpoch", raftCore.getAppliedEpoch());
+        result.put("appliedIndex", raftCore.getAppliedIndex());
+        // lets the leader replicate datums to this server in batches:
+        result.put("batchPublish", true);
+        return result;
     }
 
     @NeedAuth
@@ -209,25 +215,42 @@ public class RaftController {
         String entity = IOUtils.toString(request.getInputStream(), "UTF-8");
         String value = URLDecoder.decode(entity, "UTF-8");
         JSONObject jsonObject = JSON.parseObject(value);
-        String key = "key";
 
         RaftPeer source = JSON.parseObject(jsonObject.getString("source"), RaftPeer.class);
+
+        if (jsonObject.containsKey("datums")) {
+            // batch published by the leader's replication pipeline:
+            JSONArray datumArray = jsonObject.getJSONArray("datums");
+            List<Datum> batch = new ArrayList<>(datumArray.size());
+            for (int i = 0; i < datumArray.size(); i++) {
+                batch.add(parseDatum(datumArray.getJSONObject(i)));
+            }
+            raftConsistencyService.onPut(batch, source);
+            return "ok";
+        }
+
         JSONObject datumJson = jsonObject.getJSONObject("datum");
+        Datum datum = parseDatum(datumJson);
+
+        raftConsistencyService.onPut(datum, source);
+        return "ok";
+    }
+
+    private Datum parseDatum(JSONObject datumJson) {
+        String key = "key";
 
         Datum datum = null;
         if (KeyBuilder.matchInstanceListKey(datumJson.getString(key))) {
-            datum = JSON.parseObject(jsonObject.getString("datum"), new TypeReference<Datum<Instances>>() {
+            datum = JSON.parseObject(datumJson.toJSONString(), new TypeReference<Datum<Instances>>() {
             });
         } else if (KeyBuilder.matchSwitchKey(datumJson.getString(key))) {
-            datum = JSON.parseObject(jsonObject.getString("datum"), new TypeReference<Datum<SwitchDomain>>() {
+            datum = JSON.parseObject(datumJson.toJSONString(), new TypeReference<Datum<SwitchDomain>>() {
             });
         } else if (KeyBuilder.matchServiceMetaKey(datumJson.getString(key))) {
-            datum = JSON.parseObject(jsonObject.getString("datum"), new TypeReference<Datum<Service>>() {
+            datum = JSON.parseObject(datumJson.toJSONString(), new TypeReference<Datum<Service>>() {
             });
         }
-
-        raftConsistencyService.onPut(datum, source);
-        return "ok";
+        return datum;
     }
 
     @NeedAuth
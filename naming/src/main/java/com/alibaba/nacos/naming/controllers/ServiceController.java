@@ -326,8 +326,6 @@ public class ServiceController {
                     continue;
                 }
 
-                service.recalculateChecksum();
-
                 if (!checksum.equals(service.getChecksum())) {
                     if (Loggers.SRV_LOG.isDebugEnabled()) {
                         Loggers.SRV_LOG.debug("checksum of {} is not consistent, remote: {}, checksum: {}, local: {}",
@@ -0,0 +1,64 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.naming.core;
+
+import com.alibaba.fastjson.JSONArray;
+
+/**
+ * Instances of a service as returned by the list API, encoded once and reused until the service changes.
+ *
+ * @author nacos
+ */
+public class CachedInstanceList {
+
+    private final long revision;
+
+    private final String checksum;
+
+    private final JSONArray hosts;
+
+    private final String hostsJson;
+
+    /**
+     * @param revision revision of the service read before the instances were
+     * @param checksum checksum of the service read before the instances were
+     */
+    public CachedInstanceList(long revision, String checksum, JSONArray hosts) {
+        this.revision = revision;
+        this.checksum = checksum;
+        this.hosts = hosts;
+        this.hostsJson = hosts.toJSONString();
+    }
+
+    public long getRevision() {
+        return revision;
+    }
+
+    public String getChecksum() {
+        return checksum;
+    }
+
+    /**
+     * @return the shared encoded instances, must not be modified
+     */
+    public JSONArray getHosts() {
+        return hosts;
+    }
+
+    public String getHostsJson() {
+        return hostsJson;
+    }
+}
@@ -16,6 +16,8 @@
 package com.alibaba.nacos.naming.core;
 
 import com.alibaba.fastjson.annotation.JSONField;
+import com.alibaba.nacos.naming.healthcheck.ClientBeatProcessor;
+import com.alibaba.nacos.naming.healthcheck.ClientBeatTimeout;
 import com.alibaba.nacos.naming.healthcheck.HealthCheckReactor;
 import com.alibaba.nacos.naming.healthcheck.HealthCheckStatus;
 import com.alibaba.nacos.naming.healthcheck.HealthCheckTask;
@@ -26,6 +28,7 @@ import org.apache.commons.lang3.StringUtils;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * @author nkorange
@@ -51,6 +54,18 @@ public class Cluster extends com.alibaba.nacos.api.naming.pojo.Cluster implement
     @JSONField(serialize = false)
     private Set<Instance> ephemeralInstances = new HashSet<>();
 
+    @JSONField(serialize = false)
+    private volatile InstanceIndex persistentIndex = new InstanceIndex(persistentInstances);
+
+    @JSONField(serialize = false)
+    private volatile InstanceIndex ephemeralIndex = new InstanceIndex(ephemeralInstances);
+
+    @JSONField(serialize = false)
+    private volatile AtomicLong persistentChecksum = new AtomicLong();
+
+    @JSONField(serialize = false)
+    private volatile AtomicLong ephemeralChecksum = new AtomicLong();
+
     @JSONField(serialize = false)
     private Service service;
 
@@ -187,15 +202,84 @@ public class Cluster extends com.alibaba.nacos.api.naming.pojo.Cluster implement
             }
         }
 
+        if (ephemeral) {
+            updateBeatTimeouts(ips, oldIPMap, deadIPs);
+        }
+
         toUpdateInstances = new HashSet<>(ips);
 
+        // instances of the old set may still be flipped by running health checks, so start a new checksum:
+        AtomicLong checksum = new AtomicLong();
+        for (Instance ip : toUpdateInstances) {
+            ip.bindChecksum(checksum);
+        }
+
+        InstanceIndex index = new InstanceIndex(toUpdateInstances);
+
         if (ephemeral) {
             ephemeralInstances = toUpdateInstances;
+            ephemeralIndex = index;
+            ephemeralChecksum = checksum;
         } else {
             persistentInstances = toUpdateInstances;
+            persistentIndex = index;
+            persistentChecksum = checksum;
         }
     }
 
+    /**
+     * Hand the beat timeouts of the old instance objects over to the new ones, and schedule timeouts for new
+     * instances.
+     */
+    private void updateBeatTimeouts(List<Instance> ips, Map<String, Instance> oldIPMap, List<Instance> deadIPs) {
+
+        for (Instance ip : deadIPs) {
+            if (ip.getBeatTimeout() != null) {
+                HealthCheckReactor.cancelBeatTimeout(ip.getBeatTimeout());
+            }
+        }
+
+        for (Instance ip : ips) {
+            Instance oldIP = oldIPMap.get(ip.getDatumKey());
+            ClientBeatTimeout timeout = oldIP == null ? null : oldIP.getBeatTimeout();
+            if (timeout != null) {
+                timeout.setInstance(ip);
+                ip.setBeatTimeout(timeout);
+                continue;
+            }
+
+            timeout = new ClientBeatTimeout(getService().getClientBeatCheckTask(), ip);
+            ip.setBeatTimeout(timeout);
+            HealthCheckReactor.scheduleBeatTimeout(timeout, ip.getLastBeat() + ClientBeatProcessor.CLIENT_BEAT_TIMEOUT);
+        }
+    }
+
+    /**
+     * Find an instance by ip and port without copying the instance sets.
+     *
+     * @return the instance, or null if this cluster does not contain it
+     */
+    public Instance getInstance(String ip, int port) {
+        Instance instance = ephemeralIndex.get(ip, port);
+        return instance != null ? instance : persistentIndex.get(ip, port);
+    }
+
+    public Instance getInstance(String ip, int port, boolean ephemeral) {
+        return ephemeral ? ephemeralIndex.get(ip, port) : persistentIndex.get(ip, port);
+    }
+
+    public Instance getInstanceById(String instanceId) {
+        Instance instance = ephemeralIndex.getById(instanceId);
+        return instance != null ? instance : persistentIndex.getById(instanceId);
+    }
+
+    /**
+     * @return order independent hash of all instances of this cluster
+     */
+    long getInstanceChecksum() {
+        return persistentChecksum.get() + ephemeralChecksum.get();
+    }
+
     public List<Instance> updatedIPs(Collection<Instance> a, Collection<Instance> b) {
 
         List<Instance> intersects = (List<Instance>) CollectionUtils.intersection(a, b);
@@ -335,4 +419,53 @@ public class Cluster extends com.alibaba.nacos.api.naming.pojo.Cluster implement
             throw new IllegalArgumentException("cluster name can only have these characters: 0-9a-zA-Z-, current: " + getName());
         }
     }
+
+    /**
+     * Immutable lookup table over one instance set, rebuilt whenever the set is replaced. Instances are grouped by ip,
+     * there are only a few ports per ip, so a lookup by ip and port allocates nothing.
+     */
+    private static class InstanceIndex {
+
+        private final Map<String, Instance[]> ipMap;
+
+        private final Map<String, Instance> idMap;
+
+        InstanceIndex(Set<Instance> instances) {
+            ipMap = new HashMap<>(Math.max(instances.size() * 2, 16));
+            idMap = new HashMap<>(Math.max(instances.size() * 2, 16));
+
+            for (Instance instance : instances) {
+                Instance[] sameIp = ipMap.get(instance.getIp());
+                if (sameIp == null) {
+                    sameIp = new Instance[]{instance};
+                } else {
+                    sameIp = Arrays.copyOf(sameIp, sameIp.length + 1);
+                    sameIp[sameIp.length - 1] = instance;
+                }
+                ipMap.put(instance.getIp(), sameIp);
+
+                if (instance.getInstanceId() != null) {
+                    idMap.put(instance.getInstanceId(), instance);
+                }
+            }
+        }
+
+        Instance get(String ip, int port) {
+            Instance[] sameIp = ipMap.get(ip);
+            if (sameIp == null) {
+                return null;
+            }
+
+            for (Instance instance : sameIp) {
+                if (instance.getPort() == port) {
+                    return instance;
+                }
+            }
+            return null;
+        }
+
+        Instance getById(String instanceId) {
+            return instanceId == null ? null : idMap.get(instanceId);
+        }
+    }
 }
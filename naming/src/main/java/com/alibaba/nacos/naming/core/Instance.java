@@ -17,12 +17,15 @@ package com.alibaba.nacos.naming.core;
 
 import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.annotation.JSONField;
+import com.alibaba.nacos.naming.healthcheck.ClientBeatTimeout;
 import com.alibaba.nacos.naming.healthcheck.HealthCheckStatus;
+import com.alibaba.nacos.naming.misc.HashUtils;
 import com.alibaba.nacos.naming.misc.Loggers;
 import com.alibaba.nacos.naming.misc.UtilsAndCommons;
 import org.apache.commons.lang3.math.NumberUtils;
 
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -48,6 +51,15 @@ public class Instance extends com.alibaba.nacos.api.naming.pojo.Instance impleme
 
     private String app;
 
+    /**
+     * Checksum of the instance set this instance belongs to, kept up to date on health flips.
+     */
+    @JSONField(serialize = false)
+    private AtomicLong setChecksum;
+
+    @JSONField(serialize = false)
+    private volatile ClientBeatTimeout beatTimeout;
+
     public static final Pattern IP_PATTERN
         = Pattern.compile("(\\d{1,3}\\.\\d{1,3}\\.\\d{1,3}\\.\\d{1,3}):?(\\d{1,5})?");
 
@@ -72,6 +84,51 @@ public class Instance extends com.alibaba.nacos.api.naming.pojo.Instance impleme
         this.lastBeat = lastBeat;
     }
 
+    public ClientBeatTimeout getBeatTimeout() {
+        return beatTimeout;
+    }
+
+    public void setBeatTimeout(ClientBeatTimeout beatTimeout) {
+        this.beatTimeout = beatTimeout;
+    }
+
+    @Override
+    public void setHealthy(boolean healthy) {
+        synchronized (this) {
+            if (setChecksum == null || healthy == isHealthy()) {
+                super.setHealthy(healthy);
+                return;
+            }
+
+            long before = checksumHash();
+            super.setHealthy(healthy);
+            setChecksum.addAndGet(checksumHash() - before);
+        }
+    }
+
+    /**
+     * Add this instance to the checksum of an instance set, later health flips are applied to that checksum.
+     */
+    void bindChecksum(AtomicLong checksum) {
+        synchronized (this) {
+            setChecksum = checksum;
+            checksum.addAndGet(checksumHash());
+        }
+    }
+
+    /**
+     * Hash of the fields that take part in the checksum of the service, instance sets sum it up so the result does
+     * not depend on order.
+     */
+    long checksumHash() {
+        long h = getIp() == null ? 0 : getIp().hashCode();
+        h = h * 31 + getPort();
+        h = h * 31 + Double.valueOf(getWeight()).hashCode();
+        h = h * 31 + (isHealthy() ? 1 : 0);
+        h = h * 31 + (getClusterName() == null ? 0 : getClusterName().hashCode());
+        return HashUtils.mix(h);
+    }
+
     public Instance(String ip, int port) {
         this.setIp(ip);
         this.setPort(port);
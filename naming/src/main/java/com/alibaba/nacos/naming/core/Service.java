@@ -24,6 +24,7 @@ import com.alibaba.nacos.naming.healthcheck.ClientBeatCheckTask;
 import com.alibaba.nacos.naming.healthcheck.ClientBeatProcessor;
 import com.alibaba.nacos.naming.healthcheck.HealthCheckReactor;
 import com.alibaba.nacos.naming.healthcheck.RsInfo;
+import com.alibaba.nacos.naming.misc.HashUtils;
 import com.alibaba.nacos.naming.misc.Loggers;
 import com.alibaba.nacos.naming.misc.UtilsAndCommons;
 import com.alibaba.nacos.naming.pojo.Record;
@@ -32,13 +33,11 @@ import com.alibaba.nacos.naming.selector.NoneSelector;
 import com.alibaba.nacos.naming.selector.Selector;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.collections.ListUtils;
-import org.apache.commons.lang3.RandomStringUtils;
 import org.apache.commons.lang3.StringUtils;
 
-import java.math.BigInteger;
-import java.nio.charset.Charset;
-import java.security.MessageDigest;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Service of Nacos server side
@@ -71,7 +70,17 @@ public class Service extends com.alibaba.nacos.api.naming.pojo.Service implement
 
     private volatile long lastModifiedMillis = 0L;
 
-    private volatile String checksum;
+    private volatile long serviceHash;
+
+    private volatile boolean serviceHashed = false;
+
+    /**
+     * Bumped after every change of the instances or the service, so lists encoded before can be told apart.
+     */
+    private final AtomicLong revision = new AtomicLong();
+
+    @JSONField(serialize = false)
+    private Map<String, CachedInstanceList> instanceListCache = new ConcurrentHashMap<>();
 
     /**
      * TODO set customized push expire time:
@@ -92,6 +101,11 @@ public class Service extends com.alibaba.nacos.api.naming.pojo.Service implement
         return SpringContext.getAppContext().getBean(PushService.class);
     }
 
+    @JSONField(serialize = false)
+    public ClientBeatCheckTask getClientBeatCheckTask() {
+        return clientBeatCheckTask;
+    }
+
     public long getIpDeleteTimeout() {
         return ipDeleteTimeout;
     }
@@ -171,8 +185,6 @@ public class Service extends com.alibaba.nacos.api.naming.pojo.Service implement
         }
 
         updateIPs(value.getInstanceList(), KeyBuilder.matchEphemeralInstanceListKey(key));
-
-        recalculateChecksum();
     }
 
     @Override
@@ -196,6 +208,7 @@ public class Service extends com.alibaba.nacos.api.naming.pojo.Service implement
     }
 
     public void updateIPs(Collection<Instance> instances, boolean ephemeral) {
+        boolean clusterAdded = false;
         Map<String, List<Instance>> ipMap = new HashMap<>(clusterMap.size());
         for (String clusterName : clusterMap.keySet()) {
             ipMap.put(clusterName, new ArrayList<>());
@@ -219,6 +232,7 @@ public class Service extends com.alibaba.nacos.api.naming.pojo.Service implement
                     cluster.setService(this);
                     cluster.init();
                     getClusterMap().put(instance.getClusterName(), cluster);
+                    clusterAdded = true;
                 }
 
                 List<Instance> clusterIPs = ipMap.get(instance.getClusterName());
@@ -239,6 +253,11 @@ public class Service extends com.alibaba.nacos.api.naming.pojo.Service implement
             clusterMap.get(entry.getKey()).updateIPs(entryIPs, ephemeral);
         }
 
+        if (clusterAdded) {
+            recalculateChecksum();
+        }
+
+        invalidateInstanceLists();
         setLastModifiedMillis(System.currentTimeMillis());
         getPushService().serviceChanged(namespaceId, getName());
         StringBuilder stringBuilder = new StringBuilder();
@@ -254,8 +273,6 @@ public class Service extends com.alibaba.nacos.api.naming.pojo.Service implement
 
     public void init() {
 
-        HealthCheckReactor.scheduleCheck(clientBeatCheckTask);
-
         for (Map.Entry<String, Cluster> entry : clusterMap.entrySet()) {
             entry.getValue().setService(this);
             entry.getValue().init();
@@ -266,7 +283,7 @@ public class Service extends com.alibaba.nacos.api.naming.pojo.Service implement
         for (Map.Entry<String, Cluster> entry : clusterMap.entrySet()) {
             entry.getValue().destroy();
         }
-        HealthCheckReactor.cancelCheck(clientBeatCheckTask);
+        clientBeatCheckTask.cancel();
     }
 
     public List<Instance> allIPs() {
@@ -301,6 +318,33 @@ public class Service extends com.alibaba.nacos.api.naming.pojo.Service implement
         return allIPs;
     }
 
+    /**
+     * @return the instance with the given ip and port in the cluster, or null if there is none
+     */
+    public Instance getInstance(String clusterName, String ip, int port) {
+        Cluster cluster = clusterMap.get(clusterName);
+        return cluster == null ? null : cluster.getInstance(ip, port);
+    }
+
+    /**
+     * @return names of the given clusters which exist in this service, sorted and without duplicates, all clusters
+     * for a blank string
+     */
+    public List<String> existingClusters(String clusters) {
+        Set<String> result = new TreeSet<>();
+        if (StringUtils.isBlank(clusters)) {
+            result.addAll(clusterMap.keySet());
+            return new ArrayList<>(result);
+        }
+
+        for (String cluster : StringUtils.split(clusters, ",")) {
+            if (clusterMap.containsKey(cluster)) {
+                result.add(cluster);
+            }
+        }
+        return new ArrayList<>(result);
+    }
+
     public List<Instance> srvIPs(List<String> clusters) {
         if (CollectionUtils.isEmpty(clusters)) {
             clusters = new ArrayList<>();
@@ -315,12 +359,9 @@ public class Service extends com.alibaba.nacos.api.naming.pojo.Service implement
 
     @JSONField(serialize = false)
     public String getServiceString() {
-        Map<Object, Object> serviceObject = new HashMap<Object, Object>(10);
-        Service service = this;
+        Map<Object, Object> serviceObject = getServiceObject();
 
-        serviceObject.put("name", service.getName());
-
-        List<Instance> ips = service.allIPs();
+        List<Instance> ips = allIPs();
         int invalidIPCount = 0;
         int ipCount = 0;
         for (Instance ip : ips) {
@@ -334,6 +375,15 @@ public class Service extends com.alibaba.nacos.api.naming.pojo.Service implement
         serviceObject.put("ipCount", ipCount);
         serviceObject.put("invalidIPCount", invalidIPCount);
 
+        return JSON.toJSONString(serviceObject);
+    }
+
+    private Map<Object, Object> getServiceObject() {
+        Map<Object, Object> serviceObject = new HashMap<Object, Object>(10);
+        Service service = this;
+
+        serviceObject.put("name", service.getName());
+
         serviceObject.put("owners", service.getOwners());
         serviceObject.put("token", service.getToken());
 
@@ -357,7 +407,7 @@ public class Service extends com.alibaba.nacos.api.naming.pojo.Service implement
 
         serviceObject.put("clusters", clustersList);
 
-        return JSON.toJSONString(serviceObject);
+        return serviceObject;
     }
 
     public String getToken() {
@@ -426,52 +476,74 @@ public class Service extends com.alibaba.nacos.api.naming.pojo.Service implement
         updateOrAddCluster(vDom.getClusterMap().values());
         remvDeadClusters(this, vDom);
         recalculateChecksum();
+        invalidateInstanceLists();
     }
 
-    public String getChecksum() {
-        if (StringUtils.isEmpty(checksum)) {
-            recalculateChecksum();
-        }
+    /**
+     * @return current revision, to be read before the instances a list is encoded from
+     */
+    public long revision() {
+        return revision.get();
+    }
 
-        return checksum;
+    /**
+     * @param key query the list was encoded for
+     * @return the cached list, or null if the service has changed since it was encoded
+     */
+    public CachedInstanceList getCachedInstanceList(String key) {
+        CachedInstanceList instanceList = instanceListCache.get(key);
+        if (instanceList == null || instanceList.getRevision() != revision.get()
+            || !StringUtils.equals(instanceList.getChecksum(), getChecksum())) {
+            // health flips only show in the checksum:
+            return null;
+        }
+        return instanceList;
     }
 
-    public synchronized void recalculateChecksum() {
-        List<Instance> ips = allIPs();
+    public void cacheInstanceList(String key, CachedInstanceList instanceList) {
+        instanceListCache.put(key, instanceList);
+    }
 
-        StringBuilder ipsString = new StringBuilder();
-        ipsString.append(getServiceString());
+    private void invalidateInstanceLists() {
+        revision.incrementAndGet();
+        instanceListCache.clear();
+    }
 
-        if (Loggers.SRV_LOG.isDebugEnabled()) {
-            Loggers.SRV_LOG.debug("service to json: " + getServiceString());
+    /**
+     * The checksum is made of a hash of the service level fields, which is refreshed by {@link #recalculateChecksum()}
+     * whenever they are modified, and the instance checksums the clusters maintain incrementally. So reading it never
+     * locks and never walks the instances.
+     */
+    public String getChecksum() {
+        if (!serviceHashed) {
+            recalculateChecksum();
         }
 
-        if (CollectionUtils.isNotEmpty(ips)) {
-            Collections.sort(ips);
+        long hash = serviceHash;
+        for (Cluster cluster : clusterMap.values()) {
+            hash += cluster.getInstanceChecksum();
         }
 
-        for (Instance ip : ips) {
-            String string = ip.getIp() + ":" + ip.getPort() + "_" + ip.getWeight() + "_"
-                + ip.isHealthy() + "_" + ip.getClusterName();
-            ipsString.append(string);
-            ipsString.append(",");
-        }
+        return Long.toHexString(HashUtils.mix(hash));
+    }
 
-        try {
-            String result;
-            try {
-                MessageDigest md5 = MessageDigest.getInstance("MD5");
-                result = new BigInteger(1, md5.digest((ipsString.toString()).getBytes(Charset.forName("UTF-8")))).toString(16);
-            } catch (Exception e) {
-                Loggers.SRV_LOG.error("[NACOS-DOM] error while calculating checksum(md5)", e);
-                result = RandomStringUtils.randomAscii(32);
-            }
+    /**
+     * Refresh the hash of the service level fields, instances are not walked here.
+     */
+    public void recalculateChecksum() {
+        String serviceString = JSON.toJSONString(getServiceObject());
 
-            checksum = result;
-        } catch (Exception e) {
-            Loggers.SRV_LOG.error("[NACOS-DOM] error while calculating checksum(md5)", e);
-            checksum = RandomStringUtils.randomAscii(32);
+        if (Loggers.SRV_LOG.isDebugEnabled()) {
+            Loggers.SRV_LOG.debug("service to json: " + serviceString);
+        }
+
+        long hash = 0L;
+        for (int i = 0; i < serviceString.length(); i++) {
+            hash = hash * 31 + serviceString.charAt(i);
         }
+
+        serviceHash = HashUtils.mix(hash);
+        serviceHashed = true;
     }
 
     private void updateOrAddCluster(Collection<Cluster> clusters) {
@@ -447,21 +447,7 @@ public class ServiceManager implements RecordListener<Service> {
             return null;
         }
 
-        List<String> clusters = new ArrayList<>();
-        clusters.add(cluster);
-
-        List<Instance> ips = service.allIPs(clusters);
-        if (ips == null || ips.isEmpty()) {
-            return null;
-        }
-
-        for (Instance instance : ips) {
-            if (instance.getIp().equals(ip) && instance.getPort() == port) {
-                return instance;
-            }
-        }
-
-        return null;
+        return service.getInstance(cluster, ip, port);
     }
 
     public List<Instance> updateIpAddresses(Service service, String action, boolean ephemeral, Instance... ips) throws NacosException {
@@ -701,8 +687,6 @@ public class ServiceManager implements RecordListener<Service> {
                             continue;
                         }
 
-                        service.recalculateChecksum();
-
                         checksum.addItem(serviceName, service.getChecksum());
                     }
 
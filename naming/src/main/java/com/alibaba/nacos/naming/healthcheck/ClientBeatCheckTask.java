@@ -17,28 +17,36 @@ package com.alibaba.nacos.naming.healthcheck;
 
 import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.annotation.JSONField;
-import com.alibaba.nacos.naming.boot.RunningConfig;
 import com.alibaba.nacos.naming.boot.SpringContext;
+import com.alibaba.nacos.naming.consistency.KeyBuilder;
+import com.alibaba.nacos.naming.consistency.ephemeral.distro.DataStore;
+import com.alibaba.nacos.naming.core.Cluster;
 import com.alibaba.nacos.naming.core.DistroMapper;
 import com.alibaba.nacos.naming.core.Instance;
 import com.alibaba.nacos.naming.core.Service;
+import com.alibaba.nacos.naming.core.ServiceManager;
 import com.alibaba.nacos.naming.misc.*;
 import com.alibaba.nacos.naming.push.PushService;
-import com.ning.http.client.AsyncCompletionHandler;
-import com.ning.http.client.Response;
 
-import java.net.HttpURLConnection;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
  * Check and update statues of ephemeral instances, remove them if they have been expired.
+ * <p>
+ * Instances are not scanned periodically, each of them has a {@link ClientBeatTimeout} in the client beat timing
+ * wheel which is moved forward by every beat, so only instances that missed their beats are checked here.
  *
  * @author nkorange
  */
-public class ClientBeatCheckTask implements Runnable {
+public class ClientBeatCheckTask {
 
     private Service service;
 
+    private volatile boolean cancelled = false;
+
+    private final List<Instance> expiredInstances = new ArrayList<>();
+
     public ClientBeatCheckTask(Service service) {
         this.service = service;
     }
@@ -49,11 +57,21 @@ public class ClientBeatCheckTask implements Runnable {
         return SpringContext.getAppContext().getBean(PushService.class);
     }
 
+    @JSONField(serialize = false)
+    public DataStore getDataStore() {
+        return SpringContext.getAppContext().getBean(DataStore.class);
+    }
+
     @JSONField(serialize = false)
     public DistroMapper getDistroMapper() {
         return SpringContext.getAppContext().getBean(DistroMapper.class);
     }
 
+    @JSONField(serialize = false)
+    public ServiceManager getServiceManager() {
+        return SpringContext.getAppContext().getBean(ServiceManager.class);
+    }
+
     public GlobalConfig getGlobalConfig() {
         return SpringContext.getAppContext().getBean(GlobalConfig.class);
     }
@@ -62,77 +80,102 @@ public class ClientBeatCheckTask implements Runnable {
         return service.getName();
     }
 
-    @Override
-    public void run() {
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Check an instance whose beat deadline has passed.
+     *
+     * @return time of the next check, or -1 if the instance is gone
+     */
+    public long check(ClientBeatTimeout timeout) {
+
+        if (cancelled) {
+            return -1L;
+        }
+
+        long now = System.currentTimeMillis();
+
         try {
+            Instance instance = timeout.getInstance();
+            Cluster cluster = service.getClusterMap().get(instance.getClusterName());
+            instance = cluster == null ? null : cluster.getInstance(instance.getIp(), instance.getPort(), true);
+            if (instance == null || instance.getBeatTimeout() != timeout) {
+                // removed, or checked by another timeout:
+                return -1L;
+            }
+            timeout.setInstance(instance);
+
             if (!getDistroMapper().responsible(service.getName())) {
-                return;
+                // check again later in case this server takes over the service:
+                return now + ClientBeatProcessor.CLIENT_BEAT_TIMEOUT;
+            }
+
+            long lastBeat = instance.getLastBeat();
+            if (now - lastBeat <= ClientBeatProcessor.CLIENT_BEAT_TIMEOUT) {
+                return lastBeat + ClientBeatProcessor.CLIENT_BEAT_TIMEOUT;
             }
 
-            List<Instance> instances = service.allIPs(true);
-
-            // first set health status of instances:
-            for (Instance instance : instances) {
-                if (System.currentTimeMillis() - instance.getLastBeat() > ClientBeatProcessor.CLIENT_BEAT_TIMEOUT) {
-                    if (!instance.isMarked()) {
-                        if (instance.isHealthy()) {
-                            instance.setHealthy(false);
-                            Loggers.EVT_LOG.info("{POS} {IP-DISABLED} valid: {}:{}@{}@{}, region: {}, msg: client timeout after {}, last beat: {}",
-                                instance.getIp(), instance.getPort(), instance.getClusterName(), service.getName(),
-                                UtilsAndCommons.LOCALHOST_SITE, ClientBeatProcessor.CLIENT_BEAT_TIMEOUT, instance.getLastBeat());
-                            getPushService().serviceChanged(service.getNamespaceId(), service.getName());
-                        }
-                    }
+            // first set health status of instance:
+            if (!instance.isMarked()) {
+                if (instance.isHealthy()) {
+                    instance.setHealthy(false);
+                    Loggers.EVT_LOG.info("{POS} {IP-DISABLED} valid: {}:{}@{}@{}, region: {}, msg: client timeout after {}, last beat: {}",
+                        instance.getIp(), instance.getPort(), instance.getClusterName(), service.getName(),
+                        UtilsAndCommons.LOCALHOST_SITE, ClientBeatProcessor.CLIENT_BEAT_TIMEOUT, lastBeat);
+                    // the instance is changed in place, its datum has to be hashed again for the Distro digest:
+                    getDataStore().refresh(
+                        KeyBuilder.buildInstanceListKey(service.getNamespaceId(), service.getName(), true));
+                    getPushService().serviceChanged(service.getNamespaceId(), service.getName());
                 }
             }
 
             if (!getGlobalConfig().isExpireInstance()) {
-                return;
+                // the switch may be turned on later:
+                return now + ClientBeatProcessor.CLIENT_BEAT_TIMEOUT;
             }
 
-            // then remove obsolete instances:
-            for (Instance instance : instances) {
-                if (System.currentTimeMillis() - instance.getLastBeat() > service.getIpDeleteTimeout()) {
-                    // delete instance
-                    Loggers.SRV_LOG.info("[AUTO-DELETE-IP] service: {}, ip: {}", service.getName(), JSON.toJSONString(instance));
-                    deleteIP(instance);
-                }
+            // then remove obsolete instance:
+            if (now - lastBeat <= service.getIpDeleteTimeout()) {
+                return lastBeat + service.getIpDeleteTimeout();
+            }
+
+            // delete instance
+            Loggers.SRV_LOG.info("[AUTO-DELETE-IP] service: {}, ip: {}", service.getName(), JSON.toJSONString(instance));
+            synchronized (expiredInstances) {
+                expiredInstances.add(instance);
             }
+            HealthCheckReactor.deleteExpiredOnTick(this);
 
         } catch (Exception e) {
             Loggers.SRV_LOG.warn("Exception while processing client beat time out.", e);
         }
 
+        // check again in case the deletion does not go through:
+        return now + ClientBeatProcessor.CLIENT_BEAT_TIMEOUT;
     }
 
-    private void deleteIP(Instance instance) {
+    /**
+     * Remove all instances found expired in the last tick of the wheel with a single update.
+     */
+    public void deleteExpired() {
 
-        try {
-            NamingProxy.Request request = NamingProxy.Request.newRequest();
-            request.appendParam("ip", instance.getIp())
-                .appendParam("port", String.valueOf(instance.getPort()))
-                .appendParam("ephemeral", "true")
-                .appendParam("clusterName", instance.getClusterName())
-                .appendParam("serviceName", service.getName())
-                .appendParam("namespaceId", service.getNamespaceId());
-
-            String url = "http://127.0.0.1:" + RunningConfig.getServerPort() + RunningConfig.getContextPath()
-                + UtilsAndCommons.NACOS_NAMING_CONTEXT + "/instance?" + request.toUrl();
-
-            // delete instance asynchronously:
-            HttpClient.asyncHttpDelete(url, null, null, new AsyncCompletionHandler() {
-                @Override
-                public Object onCompleted(Response response) throws Exception {
-                    if (response.getStatusCode() != HttpURLConnection.HTTP_OK) {
-                        Loggers.SRV_LOG.error("[IP-DEAD] failed to delete ip automatically, ip: {}, caused {}, resp code: {}",
-                            instance.toJSON(), response.getResponseBody(), response.getStatusCode());
-                    }
-                    return null;
-                }
-            });
+        List<Instance> instances;
+        synchronized (expiredInstances) {
+            if (expiredInstances.isEmpty()) {
+                return;
+            }
+            instances = new ArrayList<>(expiredInstances);
+            expiredInstances.clear();
+        }
 
+        try {
+            getServiceManager().removeInstance(service.getNamespaceId(), service.getName(), true,
+                instances.toArray(new Instance[instances.size()]));
         } catch (Exception e) {
-            Loggers.SRV_LOG.error("[IP-DEAD] failed to delete ip automatically, ip: {}, error: {}", instance.toJSON(), e);
+            Loggers.SRV_LOG.error("[IP-DEAD] failed to delete ips automatically, service: {}, ips: {}",
+                service.getName(), instances, e);
         }
     }
 }
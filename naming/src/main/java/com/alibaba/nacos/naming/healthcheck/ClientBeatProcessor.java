@@ -18,6 +18,8 @@ package com.alibaba.nacos.naming.healthcheck;
 
 import com.alibaba.fastjson.annotation.JSONField;
 import com.alibaba.nacos.naming.boot.SpringContext;
+import com.alibaba.nacos.naming.consistency.KeyBuilder;
+import com.alibaba.nacos.naming.consistency.ephemeral.distro.DataStore;
 import com.alibaba.nacos.naming.core.Cluster;
 import com.alibaba.nacos.naming.core.Instance;
 import com.alibaba.nacos.naming.core.Service;
@@ -25,7 +27,6 @@ import com.alibaba.nacos.naming.misc.Loggers;
 import com.alibaba.nacos.naming.misc.UtilsAndCommons;
 import com.alibaba.nacos.naming.push.PushService;
 
-import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -43,6 +44,11 @@ public class ClientBeatProcessor implements Runnable {
         return SpringContext.getAppContext().getBean(PushService.class);
     }
 
+    @JSONField(serialize = false)
+    public DataStore getDataStore() {
+        return SpringContext.getAppContext().getBean(DataStore.class);
+    }
+
     public RsInfo getRsInfo() {
         return rsInfo;
     }
@@ -70,22 +76,32 @@ public class ClientBeatProcessor implements Runnable {
         String clusterName = rsInfo.getCluster();
         int port = rsInfo.getPort();
         Cluster cluster = service.getClusterMap().get(clusterName);
-        List<Instance> instances = cluster.allIPs(true);
+        if (cluster == null) {
+            return;
+        }
 
-        for (Instance instance : instances) {
-            if (instance.getIp().equals(ip) && instance.getPort() == port) {
-                if (Loggers.EVT_LOG.isDebugEnabled()) {
-                    Loggers.EVT_LOG.debug("[CLIENT-BEAT] refresh beat: {}", rsInfo.toString());
-                }
-                instance.setLastBeat(System.currentTimeMillis());
-                if (!instance.isMarked()) {
-                    if (!instance.isHealthy()) {
-                        instance.setHealthy(true);
-                        Loggers.EVT_LOG.info("service: {} {POS} {IP-ENABLED} valid: {}:{}@{}, region: {}, msg: client beat ok",
-                            cluster.getService().getName(), ip, port, cluster.getName(), UtilsAndCommons.LOCALHOST_SITE);
-                        getPushService().serviceChanged(service.getNamespaceId(), this.service.getName());
-                    }
-                }
+        Instance instance = cluster.getInstance(ip, port, true);
+        if (instance == null) {
+            return;
+        }
+
+        if (Loggers.EVT_LOG.isDebugEnabled()) {
+            Loggers.EVT_LOG.debug("[CLIENT-BEAT] refresh beat: {}", rsInfo.toString());
+        }
+        long lastBeat = System.currentTimeMillis();
+        instance.setLastBeat(lastBeat);
+        if (instance.getBeatTimeout() != null) {
+            HealthCheckReactor.scheduleBeatTimeout(instance.getBeatTimeout(), lastBeat + CLIENT_BEAT_TIMEOUT);
+        }
+        if (!instance.isMarked()) {
+            if (!instance.isHealthy()) {
+                instance.setHealthy(true);
+                Loggers.EVT_LOG.info("service: {} {POS} {IP-ENABLED} valid: {}:{}@{}, region: {}, msg: client beat ok",
+                    cluster.getService().getName(), ip, port, cluster.getName(), UtilsAndCommons.LOCALHOST_SITE);
+                // the instance is changed in place, its datum has to be hashed again for the Distro digest:
+                getDataStore().refresh(
+                    KeyBuilder.buildInstanceListKey(service.getNamespaceId(), service.getName(), true));
+                getPushService().serviceChanged(service.getNamespaceId(), this.service.getName());
             }
         }
     }
@@ -0,0 +1,54 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.naming.healthcheck;
+
+import com.alibaba.nacos.naming.core.Instance;
+
+/**
+ * Beat deadline of one ephemeral instance, kept in the client beat timing wheel of {@link HealthCheckReactor}.
+ * <p>
+ * The timeout outlives instance objects: when an instance list is replaced, the new object of the same instance takes
+ * over the timeout of the old one.
+ *
+ * @author nacos
+ */
+public class ClientBeatTimeout extends TimingWheel.Timeout {
+
+    private final ClientBeatCheckTask task;
+
+    private volatile Instance instance;
+
+    public ClientBeatTimeout(ClientBeatCheckTask task, Instance instance) {
+        this.task = task;
+        this.instance = instance;
+    }
+
+    public Instance getInstance() {
+        return instance;
+    }
+
+    public void setInstance(Instance instance) {
+        this.instance = instance;
+    }
+
+    @Override
+    protected void expire() {
+        long nextCheck = task.check(this);
+        if (nextCheck > 0) {
+            HealthCheckReactor.scheduleBeatTimeout(this, nextCheck);
+        }
+    }
+}
@@ -15,9 +15,8 @@
  */
 package com.alibaba.nacos.naming.healthcheck;
 
-import com.alibaba.nacos.naming.misc.Loggers;
-
-import java.util.Map;
+import java.util.LinkedHashSet;
+import java.util.Set;
 import java.util.concurrent.*;
 
 /**
@@ -27,7 +26,18 @@ public class HealthCheckReactor {
 
     private static final ScheduledExecutorService EXECUTOR;
 
-    private static Map<String, ScheduledFuture> futureMap = new ConcurrentHashMap<>();
+    private static final long CLIENT_BEAT_WHEEL_TICK_MILLIS = 500L;
+
+    private static final int CLIENT_BEAT_WHEEL_SIZE = 64;
+
+    private static final TimingWheel CLIENT_BEAT_WHEEL
+        = new TimingWheel(CLIENT_BEAT_WHEEL_TICK_MILLIS, CLIENT_BEAT_WHEEL_SIZE);
+
+    /**
+     * Services with instances expired in the current tick of the client beat wheel, only used on the thread of the
+     * wheel.
+     */
+    private static final Set<ClientBeatCheckTask> EXPIRED_TASKS = new LinkedHashSet<>();
 
     static {
 
@@ -43,6 +53,17 @@ public class HealthCheckReactor {
                         return thread;
                     }
                 });
+
+        CLIENT_BEAT_WHEEL.setTickListener(new Runnable() {
+            @Override
+            public void run() {
+                for (ClientBeatCheckTask task : EXPIRED_TASKS) {
+                    task.deleteExpired();
+                }
+                EXPIRED_TASKS.clear();
+            }
+        });
+        CLIENT_BEAT_WHEEL.start("com.alibaba.nacos.naming.client.beat.wheel");
     }
 
     public static ScheduledFuture<?> scheduleCheck(HealthCheckTask task) {
@@ -50,22 +71,24 @@ public class HealthCheckReactor {
         return EXECUTOR.schedule(task, task.getCheckRTNormalized(), TimeUnit.MILLISECONDS);
     }
 
-    public static void scheduleCheck(ClientBeatCheckTask task) {
-        futureMap.putIfAbsent(task.taskKey(), EXECUTOR.scheduleWithFixedDelay(task, 5000, 5000, TimeUnit.MILLISECONDS));
+    public static void scheduleBeatTimeout(ClientBeatTimeout timeout, long deadline) {
+        CLIENT_BEAT_WHEEL.schedule(timeout, deadline);
+    }
+
+    public static void cancelBeatTimeout(ClientBeatTimeout timeout) {
+        CLIENT_BEAT_WHEEL.cancel(timeout);
     }
 
-    public static void cancelCheck(ClientBeatCheckTask task) {
-        ScheduledFuture scheduledFuture = futureMap.get(task.taskKey());
-        if (scheduledFuture == null) {
-            return;
-        }
-        try {
-            scheduledFuture.cancel(true);
-        } catch (Exception e) {
-            Loggers.EVT_LOG.error("[CANCEL-CHECK] cancel failed!", e);
-        }
+    /**
+     * Delete the expired instances of the service at the end of the current tick, all in one update.
+     */
+    static void deleteExpiredOnTick(ClientBeatCheckTask task) {
+        EXPIRED_TASKS.add(task);
     }
 
+    public static TimingWheel getClientBeatWheel() {
+        return CLIENT_BEAT_WHEEL;
+    }
 
     public static ScheduledFuture<?> scheduleNow(Runnable task) {
         return EXECUTOR.schedule(task, 0, TimeUnit.MILLISECONDS);
@@ -0,0 +1,285 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.naming.healthcheck;
+
+import com.alibaba.nacos.naming.misc.Loggers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hierarchical timing wheel for a large number of timeouts that are rescheduled much more often than they expire.
+ * <p>
+ * Level 0 has one bucket per tick, each higher level has buckets that span a whole turn of the level below. A timeout
+ * goes to the lowest level that can hold its deadline, and moves down as the wheel turns. Scheduling and cancelling
+ * are O(1), and a tick only touches timeouts whose bucket is due.
+ * <p>
+ * The wheel is turned by a single daemon thread, timeouts are expired on that thread.
+ *
+ * @author nacos
+ */
+public class TimingWheel {
+
+    /**
+     * Timeouts beyond the span of the top level are put there anyway, and moved again when their bucket is due.
+     */
+    private static final int MAX_LEVELS = 6;
+
+    private final long tickMillis;
+
+    private final int wheelSize;
+
+    private final List<Bucket[]> levels = new ArrayList<>();
+
+    /**
+     * Last tick that has been processed, timeouts are only ever added to later ticks.
+     */
+    private long currentTick;
+
+    private final AtomicLong maxLagMillis = new AtomicLong();
+
+    private final AtomicLong maxExpirationsPerTick = new AtomicLong();
+
+    private volatile boolean stopped = false;
+
+    private volatile Runnable tickListener;
+
+    public TimingWheel(long tickMillis, int wheelSize) {
+        this.tickMillis = tickMillis;
+        this.wheelSize = wheelSize;
+        this.currentTick = System.currentTimeMillis() / tickMillis;
+        levels.add(newLevel());
+    }
+
+    public void start(String name) {
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (!stopped) {
+                    try {
+                        advance(System.currentTimeMillis());
+                        Thread.sleep(tickMillis);
+                    } catch (InterruptedException e) {
+                        return;
+                    } catch (Throwable t) {
+                        Loggers.SRV_LOG.error("[TIMING-WHEEL] failed to advance wheel.", t);
+                    }
+                }
+            }
+        });
+        thread.setDaemon(true);
+        thread.setName(name);
+        thread.start();
+    }
+
+    /**
+     * @param tickListener called on the thread of the wheel after the timeouts of a tick have been expired
+     */
+    public void setTickListener(Runnable tickListener) {
+        this.tickListener = tickListener;
+    }
+
+    public void stop() {
+        stopped = true;
+    }
+
+    /**
+     * Schedule a timeout, or move it if it is already scheduled.
+     *
+     * @param deadline time in milliseconds the timeout should expire at, past deadlines expire on the next tick
+     */
+    public void schedule(Timeout timeout, long deadline) {
+        synchronized (this) {
+            unlink(timeout);
+            timeout.deadline = deadline;
+            insert(timeout);
+        }
+    }
+
+    public void cancel(Timeout timeout) {
+        synchronized (this) {
+            unlink(timeout);
+        }
+    }
+
+    /**
+     * Process all ticks up to the given time.
+     */
+    public void advance(long now) {
+        long targetTick = now / tickMillis;
+        while (true) {
+            List<Timeout> expired = new ArrayList<>();
+            long tick;
+            synchronized (this) {
+                if (currentTick >= targetTick) {
+                    return;
+                }
+                tick = ++currentTick;
+                // higher levels first, so timeouts moved down from them are not missed in this tick:
+                for (int level = levels.size() - 1; level >= 0; level--) {
+                    long span = span(level);
+                    if (tick % span == 0) {
+                        flush(levels.get(level)[(int) ((tick / span) % wheelSize)], tick, expired);
+                    }
+                }
+            }
+
+            updateMax(maxLagMillis, now - tick * tickMillis);
+            updateMax(maxExpirationsPerTick, expired.size());
+
+            for (Timeout timeout : expired) {
+                try {
+                    timeout.expire();
+                } catch (Throwable t) {
+                    Loggers.SRV_LOG.error("[TIMING-WHEEL] failed to expire timeout.", t);
+                }
+            }
+
+            Runnable listener = tickListener;
+            if (listener != null && !expired.isEmpty()) {
+                try {
+                    listener.run();
+                } catch (Throwable t) {
+                    Loggers.SRV_LOG.error("[TIMING-WHEEL] tick listener failed.", t);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the largest delay of a tick behind its due time since the last call, in milliseconds
+     */
+    public long getAndResetMaxLag() {
+        return maxLagMillis.getAndSet(0L);
+    }
+
+    /**
+     * @return the largest number of timeouts expired in one tick since the last call
+     */
+    public long getAndResetMaxExpirations() {
+        return maxExpirationsPerTick.getAndSet(0L);
+    }
+
+    private void flush(Bucket bucket, long tick, List<Timeout> expired) {
+        Timeout timeout = bucket.head;
+        bucket.head = null;
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            timeout.bucket = null;
+            timeout.prev = null;
+            timeout.next = null;
+            if (timeout.deadline / tickMillis > tick) {
+                insert(timeout);
+            } else {
+                expired.add(timeout);
+            }
+            timeout = next;
+        }
+    }
+
+    private void insert(Timeout timeout) {
+        long deadlineTick = Math.max(timeout.deadline / tickMillis, currentTick + 1);
+        long delay = deadlineTick - currentTick;
+
+        int level = 0;
+        while (level < MAX_LEVELS - 1 && delay >= span(level + 1)) {
+            level++;
+        }
+        while (levels.size() <= level) {
+            levels.add(newLevel());
+        }
+
+        long span = span(level);
+        Bucket bucket = levels.get(level)[(int) ((deadlineTick / span) % wheelSize)];
+
+        timeout.bucket = bucket;
+        timeout.next = bucket.head;
+        if (bucket.head != null) {
+            bucket.head.prev = timeout;
+        }
+        bucket.head = timeout;
+    }
+
+    private void unlink(Timeout timeout) {
+        Bucket bucket = timeout.bucket;
+        if (bucket == null) {
+            return;
+        }
+
+        if (timeout.prev != null) {
+            timeout.prev.next = timeout.next;
+        } else {
+            bucket.head = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.bucket = null;
+        timeout.prev = null;
+        timeout.next = null;
+    }
+
+    /**
+     * @return number of ticks covered by one bucket of the level
+     */
+    private long span(int level) {
+        long span = 1L;
+        for (int i = 0; i < level; i++) {
+            span *= wheelSize;
+        }
+        return span;
+    }
+
+    private Bucket[] newLevel() {
+        Bucket[] buckets = new Bucket[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            buckets[i] = new Bucket();
+        }
+        return buckets;
+    }
+
+    private static void updateMax(AtomicLong max, long value) {
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+
+    private static class Bucket {
+
+        private Timeout head;
+    }
+
+    /**
+     * A timeout can be scheduled in one wheel at a time, scheduling it again moves it.
+     */
+    public abstract static class Timeout {
+
+        private long deadline;
+
+        private Bucket bucket;
+
+        private Timeout prev;
+
+        private Timeout next;
+
+        /**
+         * Called on the thread of the wheel once the deadline has passed, may schedule the timeout again.
+         */
+        protected abstract void expire();
+    }
+}
@@ -45,6 +45,24 @@ public class GlobalConfig {
     @Value("${nacos.naming.expireInstance}")
     private boolean expireInstance = true;
 
+    @Value("${nacos.naming.raft.log.enabled:true}")
+    private boolean raftLogEnabled = true;
+
+    @Value("${nacos.naming.raft.log.segmentSize:67108864}")
+    private long raftLogSegmentSize = 64 * 1024 * 1024L;
+
+    @Value("${nacos.naming.raft.log.compactThreshold:268435456}")
+    private long raftLogCompactThreshold = 256 * 1024 * 1024L;
+
+    @Value("${nacos.naming.raft.publish.batchSize:128}")
+    private int raftPublishBatchSize = 128;
+
+    @Value("${nacos.naming.raft.publish.maxInflight:8}")
+    private int raftPublishMaxInflight = 8;
+
+    @Value("${nacos.naming.distro.serializer:json}")
+    private String distroSerializer = "json";
+
     public int getTaskDispatchPeriod() {
         return taskDispatchPeriod;
     }
@@ -68,4 +86,28 @@ public class GlobalConfig {
     public boolean isExpireInstance() {
         return expireInstance;
     }
+
+    public boolean isRaftLogEnabled() {
+        return raftLogEnabled;
+    }
+
+    public long getRaftLogSegmentSize() {
+        return raftLogSegmentSize;
+    }
+
+    public long getRaftLogCompactThreshold() {
+        return raftLogCompactThreshold;
+    }
+
+    public int getRaftPublishBatchSize() {
+        return raftPublishBatchSize;
+    }
+
+    public int getRaftPublishMaxInflight() {
+        return raftPublishMaxInflight;
+    }
+
+    public String getDistroSerializer() {
+        return distroSerializer;
+    }
 }
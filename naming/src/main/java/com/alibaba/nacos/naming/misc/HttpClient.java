@@ -31,6 +31,7 @@ import org.apache.http.client.methods.HttpEntityEnclosingRequestBase;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpPut;
+import org.apache.http.entity.ByteArrayEntity;
 import org.apache.http.entity.ContentType;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
@@ -324,7 +325,8 @@ public class HttpClient {
                 httpPut.setHeader(entry.getKey(), entry.getValue());
             }
 
-            httpPut.setEntity(new StringEntity(new String(content, "UTF-8"), ContentType.create("application/json", "UTF-8")));
+            // content may be binary, see BinarySerializer:
+            httpPut.setEntity(new ByteArrayEntity(content, ContentType.create("application/json", "UTF-8")));
 
             HttpResponse response = httpClient.execute(httpPut);
             HttpEntity entity = response.getEntity();
@@ -332,8 +334,13 @@ public class HttpClient {
             HeaderElement[] headerElements = entity.getContentType().getElements();
             String charset = headerElements[0].getParameterByName("charset").getValue();
 
+            Map<String, String> respHeaders = new HashMap<String, String>(response.getAllHeaders().length);
+            for (Header header : response.getAllHeaders()) {
+                respHeaders.put(header.getName(), header.getValue());
+            }
+
             return new HttpResult(response.getStatusLine().getStatusCode(),
-                IOUtils.toString(entity.getContent(), charset), Collections.<String, String>emptyMap());
+                IOUtils.toString(entity.getContent(), charset), respHeaders);
         } catch (Exception e) {
             return new HttpResult(500, e.toString(), Collections.<String, String>emptyMap());
         }
@@ -368,6 +375,41 @@ public class HttpClient {
         }
     }
 
+    /**
+     * Same as {@link #httpGetLarge(String, Map, String)}, but keeps the raw bytes of a successful response, which may
+     * be binary. The content of the result is only set for failed requests.
+     */
+    public static HttpResult httpGetLargeBinary(String url, Map<String, String> headers, String content) {
+
+        try {
+            HttpClientBuilder builder = HttpClients.custom();
+            builder.setUserAgent(UtilsAndCommons.SERVER_VERSION);
+            builder.setConnectionTimeToLive(500, TimeUnit.MILLISECONDS);
+
+            CloseableHttpClient httpClient = builder.build();
+            HttpGetWithEntity httpGetWithEntity = new HttpGetWithEntity();
+            httpGetWithEntity.setURI(new URI(url));
+
+            for (Map.Entry<String, String> entry : headers.entrySet()) {
+                httpGetWithEntity.setHeader(entry.getKey(), entry.getValue());
+            }
+
+            httpGetWithEntity.setEntity(new StringEntity(content, ContentType.create("application/json", "UTF-8")));
+            HttpResponse response = httpClient.execute(httpGetWithEntity);
+            HttpEntity entity = response.getEntity();
+
+            int code = response.getStatusLine().getStatusCode();
+            byte[] bytes = IOUtils.toByteArray(entity.getContent());
+
+            if (HttpURLConnection.HTTP_OK == code) {
+                return new HttpResult(code, bytes, Collections.<String, String>emptyMap());
+            }
+            return new HttpResult(code, new String(bytes, "UTF-8"), Collections.<String, String>emptyMap());
+        } catch (Exception e) {
+            return new HttpResult(500, e.toString(), Collections.<String, String>emptyMap());
+        }
+    }
+
     public static HttpResult httpPostLarge(String url, Map<String, String> headers, String content) {
         try {
             HttpClientBuilder builder = HttpClients.custom();
@@ -494,11 +536,20 @@ public class HttpClient {
     public static class HttpResult {
         final public int code;
         final public String content;
+        final public byte[] bytes;
         final private Map<String, String> respHeaders;
 
         public HttpResult(int code, String content, Map<String, String> respHeaders) {
             this.code = code;
             this.content = content;
+            this.bytes = null;
+            this.respHeaders = respHeaders;
+        }
+
+        public HttpResult(int code, byte[] bytes, Map<String, String> respHeaders) {
+            this.code = code;
+            this.content = null;
+            this.bytes = bytes;
             this.respHeaders = respHeaders;
         }
 
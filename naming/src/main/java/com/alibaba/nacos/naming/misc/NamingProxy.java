@@ -16,14 +16,21 @@
 package com.alibaba.nacos.naming.misc;
 
 import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import com.alibaba.fastjson.TypeReference;
+import com.alibaba.nacos.api.naming.CommonParams;
 import com.alibaba.nacos.core.utils.SystemUtils;
 import com.alibaba.nacos.naming.boot.RunningConfig;
+import com.alibaba.nacos.naming.cluster.transport.BinarySerializer;
+import com.alibaba.nacos.naming.cluster.transport.DelegateSerializer;
+import com.alibaba.nacos.naming.consistency.ephemeral.distro.DistroDigest;
 import com.ning.http.client.AsyncCompletionHandler;
 import com.ning.http.client.Response;
 import org.apache.commons.lang3.StringUtils;
 
 import java.io.IOException;
 import java.net.HttpURLConnection;
+import java.net.URLEncoder;
 import java.util.*;
 
 /**
@@ -39,6 +46,14 @@ public class NamingProxy {
 
     private static final String TIMESTAMP_SYNC_URL = "/distro/checksum";
 
+    private static final String DIGEST_SYNC_URL = "/distro/digest";
+
+    private static final String DIGEST_GET_URL = "/distro/digest";
+
+    private static final String KEY_CHECKSUMS_GET_URL = "/distro/checksums";
+
+    private static final String BEATS_URL = "/instance/beats";
+
     public static void syncChecksums(Map<String, String> checksumMap, String server) {
 
         try {
@@ -75,15 +90,139 @@ public class NamingProxy {
         }
     }
 
+    /**
+     * Send the root and group hashes of the local data to another server, which will ask back for the parts that
+     * differ.
+     *
+     * @param onUnsupported called if the server is of an older version without the digest API
+     */
+    public static void syncDigest(DistroDigest digest, final String server, final Runnable onUnsupported) {
+
+        try {
+            Map<String, String> headers = new HashMap<>(128);
+
+            headers.put("Client-Version", UtilsAndCommons.SERVER_VERSION);
+            headers.put("User-Agent", UtilsAndCommons.SERVER_VERSION);
+            headers.put("Connection", "Keep-Alive");
+
+            JSONObject body = new JSONObject();
+            body.put("root", digest.getRoot());
+            body.put("groups", digest.getGroups());
+
+            HttpClient.asyncHttpPutLarge("http://" + server + RunningConfig.getContextPath()
+                    + UtilsAndCommons.NACOS_NAMING_CONTEXT + DIGEST_SYNC_URL + "?source=" + NetUtils.localServer(),
+                headers, JSON.toJSONBytes(body),
+                new AsyncCompletionHandler() {
+                    @Override
+                    public Object onCompleted(Response response) throws Exception {
+                        if (HttpURLConnection.HTTP_NOT_FOUND == response.getStatusCode()) {
+                            onUnsupported.run();
+                            return null;
+                        }
+                        if (HttpURLConnection.HTTP_OK != response.getStatusCode()) {
+                            Loggers.EPHEMERAL.error("failed to req API: {}, code: {}, msg: {}",
+                                "http://" + server + RunningConfig.getContextPath() +
+                                    UtilsAndCommons.NACOS_NAMING_CONTEXT + DIGEST_SYNC_URL,
+                                response.getStatusCode(), response.getResponseBody());
+                        }
+                        return null;
+                    }
+
+                    @Override
+                    public void onThrowable(Throwable t) {
+                        Loggers.EPHEMERAL.error("failed to req API:" + "http://" + server
+                            + RunningConfig.getContextPath()
+                            + UtilsAndCommons.NACOS_NAMING_CONTEXT + DIGEST_SYNC_URL, t);
+                    }
+                });
+        } catch (Exception e) {
+            Loggers.EPHEMERAL.warn("NamingProxy", e);
+        }
+    }
+
+    /**
+     * @return bucket hashes of the given groups of the data the server is responsible for
+     */
+    public static Map<Integer, long[]> getDigestBuckets(List<Integer> groups, String server) throws Exception {
+
+        Map<String, String> params = new HashMap<>(8);
+        params.put("groups", StringUtils.join(groups, ","));
+        byte[] result = reqLarge(DIGEST_GET_URL, params, server);
+        return JSON.parseObject(new String(result, "UTF-8"), new TypeReference<Map<Integer, long[]>>() {
+        });
+    }
+
+    /**
+     * @return key and hash of every datum in the given buckets the server is responsible for
+     */
+    public static Map<String, Long> getKeyHashes(List<Integer> buckets, String server) throws Exception {
+
+        Map<String, String> params = new HashMap<>(8);
+        params.put("buckets", StringUtils.join(buckets, ","));
+        byte[] result = reqLarge(KEY_CHECKSUMS_GET_URL, params, server);
+        return JSON.parseObject(new String(result, "UTF-8"), new TypeReference<Map<String, Long>>() {
+        });
+    }
+
+    private static byte[] reqLarge(String api, Map<String, String> params, String server) throws Exception {
+
+        HttpClient.HttpResult result = HttpClient.httpGetLargeBinary("http://" + server + RunningConfig.getContextPath()
+            + UtilsAndCommons.NACOS_NAMING_CONTEXT + api, new HashMap<>(8), JSON.toJSONString(params));
+
+        if (HttpURLConnection.HTTP_OK == result.code) {
+            return result.bytes;
+        }
+
+        throw new IOException("failed to req API: " + "http://" + server
+            + RunningConfig.getContextPath()
+            + UtilsAndCommons.NACOS_NAMING_CONTEXT + api + ". code: "
+            + result.code + " msg: " + result.content);
+    }
+
+    /**
+     * Forward client beats to the server responsible for their services, the server processes them without forwarding
+     * them again.
+     *
+     * @return result code of every beat, in the order of the beats
+     */
+    public static int[] forwardBeats(String namespaceId, byte[] beats, String server) throws Exception {
+
+        Map<String, String> headers = new HashMap<>(8);
+        headers.put("Client-Version", UtilsAndCommons.SERVER_VERSION);
+        headers.put("User-Agent", UtilsAndCommons.SERVER_VERSION);
+        headers.put("Connection", "Keep-Alive");
+
+        HttpClient.HttpResult result = HttpClient.httpPutLarge("http://" + server + RunningConfig.getContextPath()
+            + UtilsAndCommons.NACOS_NAMING_CONTEXT + BEATS_URL + "?" + CommonParams.NAMESPACE_ID + "="
+            + URLEncoder.encode(namespaceId, "UTF-8"), headers, beats);
+
+        if (HttpURLConnection.HTTP_OK == result.code) {
+            return JSON.parseObject(result.content).getObject("results", int[].class);
+        }
+
+        throw new IOException("failed to req API: " + "http://" + server
+            + RunningConfig.getContextPath()
+            + UtilsAndCommons.NACOS_NAMING_CONTEXT + BEATS_URL + ". code: "
+            + result.code + " msg: " + result.content);
+    }
+
     public static byte[] getData(List<String> keys, String server) throws Exception {
+        return getData(keys, server, false);
+    }
+
+    /**
+     * @param acceptBinary whether the response may use the binary format of {@link BinarySerializer}
+     */
+    public static byte[] getData(List<String> keys, String server, boolean acceptBinary) throws Exception {
 
         Map<String, String> params = new HashMap<>(8);
         params.put("keys", StringUtils.join(keys, ","));
-        HttpClient.HttpResult result = HttpClient.httpGetLarge("http://" + server + RunningConfig.getContextPath()
-            + UtilsAndCommons.NACOS_NAMING_CONTEXT + DATA_GET_URL, new HashMap<>(8), JSON.toJSONString(params));
+        HttpClient.HttpResult result = HttpClient.httpGetLargeBinary("http://" + server + RunningConfig.getContextPath()
+            + UtilsAndCommons.NACOS_NAMING_CONTEXT + DATA_GET_URL + buildSerializerQuery(acceptBinary),
+            new HashMap<>(8), JSON.toJSONString(params));
 
         if (HttpURLConnection.HTTP_OK == result.code) {
-            return result.content.getBytes();
+            return result.bytes;
         }
 
         throw new IOException("failed to req API: " + "http://" + server
@@ -93,23 +232,38 @@ public class NamingProxy {
     }
 
     public static byte[] getAllData(String server) throws Exception {
+        return getAllData(server, false);
+    }
 
-        Map<String, String> params = new HashMap<>(8);
-        HttpClient.HttpResult result = HttpClient.httpGet("http://" + server + RunningConfig.getContextPath()
-            + UtilsAndCommons.NACOS_NAMING_CONTEXT + ALL_DATA_GET_URL, new ArrayList<>(), params);
+    /**
+     * @param acceptBinary whether the response may use the binary format of {@link BinarySerializer}
+     */
+    public static byte[] getAllData(String server, boolean acceptBinary) throws Exception {
+
+        HttpClient.HttpResult result = HttpClient.httpGetLargeBinary("http://" + server + RunningConfig.getContextPath()
+            + UtilsAndCommons.NACOS_NAMING_CONTEXT + ALL_DATA_GET_URL + buildSerializerQuery(acceptBinary),
+            new HashMap<>(8), StringUtils.EMPTY);
 
         if (HttpURLConnection.HTTP_OK == result.code) {
-            return result.content.getBytes();
+            return result.bytes;
         }
 
         throw new IOException("failed to req API: " + "http://" + server
             + RunningConfig.getContextPath()
-            + UtilsAndCommons.NACOS_NAMING_CONTEXT + DATA_GET_URL + ". code: "
+            + UtilsAndCommons.NACOS_NAMING_CONTEXT + ALL_DATA_GET_URL + ". code: "
             + result.code + " msg: " + result.content);
     }
 
+    private static String buildSerializerQuery(boolean acceptBinary) {
+        return acceptBinary ? "?serializer=" + DelegateSerializer.SERIALIZER_BINARY : StringUtils.EMPTY;
+    }
 
-    public static boolean syncData(byte[] data, String curServer) throws Exception {
+    /**
+     * @param binary whether the data uses the binary format of {@link BinarySerializer}
+     * @return result of a successful sync, with the serializers accepted by the server in header
+     * {@link DelegateSerializer#SERIALIZER_HEADER}, or null if the sync failed
+     */
+    public static HttpClient.HttpResult syncData(byte[] data, String curServer, boolean binary) {
         try {
             Map<String, String> headers = new HashMap<>(128);
 
@@ -118,16 +272,18 @@ public class NamingProxy {
             headers.put("Accept-Encoding", "gzip,deflate,sdch");
             headers.put("Connection", "Keep-Alive");
             headers.put("Content-Encoding", "gzip");
+            headers.put(DelegateSerializer.SERIALIZER_HEADER,
+                binary ? DelegateSerializer.SERIALIZER_BINARY : DelegateSerializer.SERIALIZER_JSON);
 
             HttpClient.HttpResult result = HttpClient.httpPutLarge("http://" + curServer + RunningConfig.getContextPath()
                 + UtilsAndCommons.NACOS_NAMING_CONTEXT + DATA_ON_SYNC_URL, headers, data);
 
             if (HttpURLConnection.HTTP_OK == result.code) {
-                return true;
+                return result;
             }
 
             if (HttpURLConnection.HTTP_NOT_MODIFIED == result.code) {
-                return true;
+                return result;
             }
 
             throw new IOException("failed to req API:" + "http://" + curServer
@@ -137,7 +293,7 @@ public class NamingProxy {
         } catch (Exception e) {
             Loggers.SRV_LOG.warn("NamingProxy", e);
         }
-        return false;
+        return null;
     }
 
     public static String reqAPI(String api, Map<String, String> params, String curServer) throws Exception {
@@ -77,6 +77,21 @@ public class SwitchDomain implements Record, Cloneable {
      */
     private long distroServerExpiredMillis = TimeUnit.SECONDS.toMillis(30);
 
+    /**
+     * Delay of the push for the first change of a service after a quiet period.
+     */
+    private long pushFirstDelayMillis = 20L;
+
+    /**
+     * Changes of a service that keep coming are pushed once they have stopped for this long.
+     */
+    private long pushDebounceMillis = 500L;
+
+    /**
+     * The longest a change can be held back by further changes.
+     */
+    private long pushMaxDelayMillis = TimeUnit.SECONDS.toMillis(3);
+
     /**
      * since which version, push can be enabled
      */
@@ -302,6 +317,30 @@ public class SwitchDomain implements Record, Cloneable {
         this.distroServerExpiredMillis = distroServerExpiredMillis;
     }
 
+    public long getPushFirstDelayMillis() {
+        return pushFirstDelayMillis;
+    }
+
+    public void setPushFirstDelayMillis(long pushFirstDelayMillis) {
+        this.pushFirstDelayMillis = pushFirstDelayMillis;
+    }
+
+    public long getPushDebounceMillis() {
+        return pushDebounceMillis;
+    }
+
+    public void setPushDebounceMillis(long pushDebounceMillis) {
+        this.pushDebounceMillis = pushDebounceMillis;
+    }
+
+    public long getPushMaxDelayMillis() {
+        return pushMaxDelayMillis;
+    }
+
+    public void setPushMaxDelayMillis(long pushMaxDelayMillis) {
+        this.pushMaxDelayMillis = pushMaxDelayMillis;
+    }
+
     public String getPushGoVersion() {
         return pushGoVersion;
     }
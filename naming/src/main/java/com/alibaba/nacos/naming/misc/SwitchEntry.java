@@ -31,6 +31,9 @@ public class SwitchEntry {
     public static final String CLIENT_GO = "go";
     public static final String CLIENT_PYTHON = "python";
     public static final String PUSH_CACHE_MILLIS = "pushCacheMillis";
+    public static final String PUSH_FIRST_DELAY_MILLIS = "pushFirstDelayMillis";
+    public static final String PUSH_DEBOUNCE_MILLIS = "pushDebounceMillis";
+    public static final String PUSH_MAX_DELAY_MILLIS = "pushMaxDelayMillis";
     public static final String DEFAULT_CACHE_MILLIS = "defaultCacheMillis";
     public static final String MASTERS = "masters";
     public static final String DISTRO = "distro";
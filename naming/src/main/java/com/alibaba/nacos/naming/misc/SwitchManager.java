@@ -147,6 +147,40 @@ public class SwitchManager implements RecordListener<SwitchDomain> {
                 switchDomain.setDefaultPushCacheMillis(cacheMillis);
             }
 
+            if (entry.equals(SwitchEntry.PUSH_FIRST_DELAY_MILLIS)) {
+                long delayMillis = Long.parseLong(value);
+
+                if (delayMillis < 0 || delayMillis > switchDomain.getPushMaxDelayMillis()) {
+                    throw new IllegalArgumentException("pushFirstDelayMillis must be between 0 and pushMaxDelayMillis: "
+                        + delayMillis);
+                }
+
+                switchDomain.setPushFirstDelayMillis(delayMillis);
+            }
+
+            if (entry.equals(SwitchEntry.PUSH_DEBOUNCE_MILLIS)) {
+                long delayMillis = Long.parseLong(value);
+
+                if (delayMillis < 0 || delayMillis > switchDomain.getPushMaxDelayMillis()) {
+                    throw new IllegalArgumentException("pushDebounceMillis must be between 0 and pushMaxDelayMillis: "
+                        + delayMillis);
+                }
+
+                switchDomain.setPushDebounceMillis(delayMillis);
+            }
+
+            if (entry.equals(SwitchEntry.PUSH_MAX_DELAY_MILLIS)) {
+                long delayMillis = Long.parseLong(value);
+
+                if (delayMillis < switchDomain.getPushFirstDelayMillis()
+                    || delayMillis < switchDomain.getPushDebounceMillis()) {
+                    throw new IllegalArgumentException("pushMaxDelayMillis can not be less than pushFirstDelayMillis "
+                        + "or pushDebounceMillis: " + delayMillis);
+                }
+
+                switchDomain.setPushMaxDelayMillis(delayMillis);
+            }
+
             // extremely careful while modifying this, cause it will affect all clients without pushing enabled
             if (entry.equals(SwitchEntry.DEFAULT_CACHE_MILLIS)) {
                 Long cacheMillis = Long.parseLong(value);
@@ -301,6 +335,9 @@ public class SwitchManager implements RecordListener<SwitchDomain> {
         switchDomain.setSendBeatOnly(newSwitchDomain.isSendBeatOnly());
         switchDomain.setLimitedUrlMap(newSwitchDomain.getLimitedUrlMap());
         switchDomain.setDistroServerExpiredMillis(newSwitchDomain.getDistroServerExpiredMillis());
+        switchDomain.setPushFirstDelayMillis(newSwitchDomain.getPushFirstDelayMillis());
+        switchDomain.setPushDebounceMillis(newSwitchDomain.getPushDebounceMillis());
+        switchDomain.setPushMaxDelayMillis(newSwitchDomain.getPushMaxDelayMillis());
         switchDomain.setPushGoVersion(newSwitchDomain.getPushGoVersion());
         switchDomain.setPushJavaVersion(newSwitchDomain.getPushJavaVersion());
         switchDomain.setPushPythonVersion(newSwitchDomain.getPushPythonVersion());
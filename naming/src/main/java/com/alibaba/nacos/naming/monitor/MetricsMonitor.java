@@ -19,6 +19,7 @@ import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.ImmutableTag;
 import io.micrometer.core.instrument.Metrics;
 import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Timer;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -41,6 +42,16 @@ public class MetricsMonitor {
     private static AtomicLong leaderStatus = new AtomicLong();
     private static AtomicInteger totalPush = new AtomicInteger();
     private static AtomicInteger failedPush = new AtomicInteger();
+    private static AtomicLong clientBeatWheelLag = new AtomicLong();
+    private static AtomicLong clientBeatExpirations = new AtomicLong();
+    private static AtomicLong maxPushEncodeCost = new AtomicLong();
+    private static AtomicLong pushBytes = new AtomicLong();
+    private static AtomicLong ackedPush = new AtomicLong();
+    private static AtomicLong retransmittedPush = new AtomicLong();
+    private static Timer pushDelay = Timer.builder("nacos_timer")
+        .tags("module", "naming", "name", "pushDelay")
+        .publishPercentileHistogram()
+        .register(Metrics.globalRegistry);
 
     static {
         List<Tag> tags = new ArrayList<Tag>();
@@ -92,6 +103,36 @@ public class MetricsMonitor {
         tags.add(new ImmutableTag("module", "naming"));
         tags.add(new ImmutableTag("name", "failedPush"));
         Metrics.gauge("nacos_monitor", tags, failedPush);
+
+        tags = new ArrayList<Tag>();
+        tags.add(new ImmutableTag("module", "naming"));
+        tags.add(new ImmutableTag("name", "clientBeatWheelLag"));
+        Metrics.gauge("nacos_monitor", tags, clientBeatWheelLag);
+
+        tags = new ArrayList<Tag>();
+        tags.add(new ImmutableTag("module", "naming"));
+        tags.add(new ImmutableTag("name", "clientBeatExpirations"));
+        Metrics.gauge("nacos_monitor", tags, clientBeatExpirations);
+
+        tags = new ArrayList<Tag>();
+        tags.add(new ImmutableTag("module", "naming"));
+        tags.add(new ImmutableTag("name", "maxPushEncodeCost"));
+        Metrics.gauge("nacos_monitor", tags, maxPushEncodeCost);
+
+        tags = new ArrayList<Tag>();
+        tags.add(new ImmutableTag("module", "naming"));
+        tags.add(new ImmutableTag("name", "pushBytes"));
+        Metrics.gauge("nacos_monitor", tags, pushBytes);
+
+        tags = new ArrayList<Tag>();
+        tags.add(new ImmutableTag("module", "naming"));
+        tags.add(new ImmutableTag("name", "ackedPush"));
+        Metrics.gauge("nacos_monitor", tags, ackedPush);
+
+        tags = new ArrayList<Tag>();
+        tags.add(new ImmutableTag("module", "naming"));
+        tags.add(new ImmutableTag("name", "retransmittedPush"));
+        Metrics.gauge("nacos_monitor", tags, retransmittedPush);
     }
 
     public static AtomicInteger getMysqlHealthCheckMonitor() {
@@ -134,6 +175,37 @@ public class MetricsMonitor {
         return failedPush;
     }
 
+    public static AtomicLong getClientBeatWheelLagMonitor() {
+        return clientBeatWheelLag;
+    }
+
+    public static AtomicLong getClientBeatExpirationsMonitor() {
+        return clientBeatExpirations;
+    }
+
+    public static AtomicLong getMaxPushEncodeCostMonitor() {
+        return maxPushEncodeCost;
+    }
+
+    public static AtomicLong getPushBytesMonitor() {
+        return pushBytes;
+    }
+
+    public static AtomicLong getAckedPushMonitor() {
+        return ackedPush;
+    }
+
+    public static AtomicLong getRetransmittedPushMonitor() {
+        return retransmittedPush;
+    }
+
+    /**
+     * @return histogram of the delay from the first change of a service to its push
+     */
+    public static Timer getPushDelayTimer() {
+        return pushDelay;
+    }
+
     public static Counter getDiskException() {
         return Metrics.counter("nacos_exception",
             "module", "naming", "name", "disk");
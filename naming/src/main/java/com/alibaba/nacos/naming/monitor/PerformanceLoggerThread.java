@@ -18,6 +18,8 @@ package com.alibaba.nacos.naming.monitor;
 import com.alibaba.nacos.naming.consistency.persistent.raft.RaftCore;
 import com.alibaba.nacos.naming.consistency.persistent.raft.RaftPeer;
 import com.alibaba.nacos.naming.core.ServiceManager;
+import com.alibaba.nacos.naming.healthcheck.HealthCheckReactor;
+import com.alibaba.nacos.naming.healthcheck.TimingWheel;
 import com.alibaba.nacos.naming.misc.Loggers;
 import com.alibaba.nacos.naming.misc.SwitchDomain;
 import com.alibaba.nacos.naming.push.PushService;
@@ -117,6 +119,14 @@ public class PerformanceLoggerThread {
 
         MetricsMonitor.getTotalPushMonitor().set(pushService.getTotalPush());
         MetricsMonitor.getFailedPushMonitor().set(pushService.getFailedPushCount());
+        MetricsMonitor.getMaxPushEncodeCostMonitor().set(pushService.getAndResetMaxEncodeMicros());
+        MetricsMonitor.getPushBytesMonitor().set(pushService.getAndResetPushedBytes());
+        MetricsMonitor.getAckedPushMonitor().set(pushService.getAndResetAckedPush());
+        MetricsMonitor.getRetransmittedPushMonitor().set(pushService.getAndResetRetransmittedPush());
+
+        TimingWheel clientBeatWheel = HealthCheckReactor.getClientBeatWheel();
+        MetricsMonitor.getClientBeatWheelLagMonitor().set(clientBeatWheel.getAndResetMaxLag());
+        MetricsMonitor.getClientBeatExpirationsMonitor().set(clientBeatWheel.getAndResetMaxExpirations());
 
         if (raftCore.isLeader()) {
             MetricsMonitor.getLeaderStatusMonitor().set(1);
@@ -27,4 +27,12 @@ public interface DataSource {
      * @throws Exception
      */
     String getData(PushService.PushClient client) throws Exception;
+
+    /**
+     * Get the key of the push data for a specified client, clients with the same key share the data of one push
+     *
+     * @param client target client
+     * @return key of the data, or null if the data is specific to the client
+     */
+    String getDataKey(PushService.PushClient client);
 }
@@ -16,9 +16,11 @@
 package com.alibaba.nacos.naming.push;
 
 import com.alibaba.fastjson.JSON;
+import com.alibaba.nacos.naming.healthcheck.TimingWheel;
 import com.alibaba.nacos.naming.misc.Loggers;
 import com.alibaba.nacos.naming.misc.SwitchDomain;
 import com.alibaba.nacos.naming.misc.UtilsAndCommons;
+import com.alibaba.nacos.naming.monitor.MetricsMonitor;
 import org.apache.commons.collections.MapUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.codehaus.jackson.util.VersionUtil;
@@ -28,13 +30,18 @@ import org.springframework.stereotype.Component;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.net.DatagramPacket;
-import java.net.DatagramSocket;
 import java.net.InetSocketAddress;
-import java.net.SocketException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
 import java.nio.charset.Charset;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 import java.util.zip.GZIPOutputStream;
 
 /**
@@ -48,7 +55,21 @@ public class PushService {
 
     public static final long ACK_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(10L);
 
-    private static final int MAX_RETRY_TIMES = 1;
+    private static final int MAX_RETRY_TIMES = 3;
+
+    /**
+     * Delay before the first retransmission, doubled for every further one.
+     */
+    private static final long RETRANSMIT_BASE_MILLIS = 1000L;
+
+    /**
+     * Pushes waiting for ack are bounded, further pushes are dropped and left to the polling of the clients.
+     */
+    private static final int MAX_IN_FLIGHT = 100000;
+
+    private static final int MAX_CLIENT_IN_FLIGHT = 64;
+
+    private static final TimingWheel RETRANSMIT_WHEEL = new TimingWheel(100L, 128);
 
     private static volatile ConcurrentMap<String, Receiver.AckEntry> ackMap
             = new ConcurrentHashMap<String, Receiver.AckEntry>();
@@ -56,76 +77,152 @@ public class PushService {
     private static ConcurrentMap<String, ConcurrentMap<String, PushClient>> clientMap
             = new ConcurrentHashMap<String, ConcurrentMap<String, PushClient>>();
 
-    private static volatile ConcurrentHashMap<String, Long> udpSendTimeMap = new ConcurrentHashMap<String, Long>();
+    /**
+     * address of client -> pushes to it waiting for ack
+     */
+    private static ConcurrentMap<String, Integer> clientInFlight = new ConcurrentHashMap<>();
+
+    private static AtomicInteger inFlight = new AtomicInteger();
 
     public static volatile ConcurrentHashMap<String, Long> pushCostMap = new ConcurrentHashMap<String, Long>();
 
-    private static int totalPush = 0;
+    private static final int UDP_SENDER_COUNT = Math.max(2, Runtime.getRuntime().availableProcessors() / 2);
+
+    private static final int MAX_SEND_ATTEMPTS = 10;
+
+    private static final long SEND_RETRY_NANOS = TimeUnit.MICROSECONDS.toNanos(100L);
+
+    private static AtomicInteger totalPush = new AtomicInteger();
+
+    private static AtomicInteger failedPush = new AtomicInteger();
+
+    private static AtomicLong maxEncodeMicros = new AtomicLong();
 
-    private static int failedPush = 0;
+    private static AtomicLong pushedBytes = new AtomicLong();
+
+    private static AtomicLong ackedPush = new AtomicLong();
+
+    private static AtomicLong retransmittedPush = new AtomicLong();
 
     private static ConcurrentHashMap<String, Long> lastPushMillisMap = new ConcurrentHashMap<>();
 
-    private static DatagramSocket udpSocket;
+    /**
+     * One non-blocking channel per sender thread, acks of all channels are read by the receiver.
+     */
+    private static DatagramChannel[] udpChannels = new DatagramChannel[UDP_SENDER_COUNT];
+
+    private static ExecutorService[] udpSenders = new ExecutorService[UDP_SENDER_COUNT];
+
+    private static final long PUSH_WINDOW_IDLE_MILLIS = TimeUnit.MINUTES.toMillis(1L);
+
+    private static ConcurrentMap<String, PushWindow> pushWindows = new ConcurrentHashMap<>();
 
-    private static Map<String, Future> futureMap = new ConcurrentHashMap<>();
     private static ScheduledExecutorService executorService = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
         @Override
         public Thread newThread(Runnable r) {
             Thread t = new Thread(r);
             t.setDaemon(true);
-            t.setName("com.alibaba.nacos.naming.push.retransmitter");
+            t.setName("com.alibaba.nacos.naming.push.cleaner");
             return t;
         }
     });
 
-    private static ScheduledExecutorService udpSender = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+    private static ScheduledExecutorService pushEncoder = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
         @Override
         public Thread newThread(Runnable r) {
             Thread t = new Thread(r);
             t.setDaemon(true);
-            t.setName("com.alibaba.nacos.naming.push.udpSender");
+            t.setName("com.alibaba.nacos.naming.push.encoder");
             return t;
         }
     });
 
     static {
         try {
-            udpSocket = new DatagramSocket();
+            Selector selector = Selector.open();
+            for (int i = 0; i < UDP_SENDER_COUNT; i++) {
+                DatagramChannel channel = DatagramChannel.open();
+                channel.configureBlocking(false);
+                channel.bind(null);
+                channel.register(selector, SelectionKey.OP_READ);
+                udpChannels[i] = channel;
+
+                final int index = i;
+                udpSenders[i] = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread t = new Thread(r);
+                        t.setDaemon(true);
+                        t.setName("com.alibaba.nacos.naming.push.udpSender-" + index);
+                        return t;
+                    }
+                });
+            }
 
             Receiver receiver;
 
             Thread inThread;
 
-            receiver = new Receiver();
+            receiver = new Receiver(selector);
 
             inThread = new Thread(receiver);
             inThread.setDaemon(true);
             inThread.setName("com.alibaba.nacos.naming.push.receiver");
             inThread.start();
 
+            RETRANSMIT_WHEEL.start("com.alibaba.nacos.naming.push.retransmitter");
+
             executorService.scheduleWithFixedDelay(new Runnable() {
                 @Override
                 public void run() {
                     try {
                         removeClientIfZombie();
+                        removeIdlePushWindows();
                     } catch (Throwable e) {
                         Loggers.PUSH.warn("[NACOS-PUSH] failed to remove client zombie");
                     }
                 }
             }, 0, 20, TimeUnit.SECONDS);
 
-        } catch (SocketException e) {
+        } catch (IOException e) {
             Loggers.SRV_LOG.error("[NACOS-PUSH] failed to init push service");
         }
     }
 
     public int getTotalPush() {
-        return totalPush;
+        return totalPush.get();
     }
 
     public void setTotalPush(int totalPush) {
-        PushService.totalPush = totalPush;
+        PushService.totalPush.set(totalPush);
+    }
+
+    /**
+     * @return the longest time taken to encode the data of a push since the last call, in microseconds
+     */
+    public long getAndResetMaxEncodeMicros() {
+        return maxEncodeMicros.getAndSet(0L);
+    }
+
+    /**
+     * @return bytes handed to the sockets since the last call, retransmissions included
+     */
+    public long getAndResetPushedBytes() {
+        return pushedBytes.getAndSet(0L);
+    }
+
+    /**
+     * @return pushes acked since the last call
+     */
+    public long getAndResetAckedPush() {
+        return ackedPush.getAndSet(0L);
+    }
+
+    /**
+     * @return retransmissions since the last call
+     */
+    public long getAndResetRetransmittedPush() {
+        return retransmittedPush.getAndSet(0L);
     }
 
     public void addClient(String namespaceId,
@@ -189,6 +286,16 @@ public class PushService {
 
     }
 
+    private static void removeIdlePushWindows() {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, PushWindow> entry : pushWindows.entrySet()) {
+            // a retired window takes no more changes, so none can be lost by removing it:
+            if (entry.getValue().retireIfIdle(now)) {
+                pushWindows.remove(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
     private static Receiver.AckEntry prepareAckEntry(PushClient client, byte[] dataBytes, Map<String, Object> data,
                                                      long lastRefTime) {
         String key = getACKKey(client.getSocketAddr().getAddress().getHostAddress(),
@@ -213,75 +320,165 @@ public class PushService {
         return null;
     }
 
-    public static String getPushCacheKey(String serviceName, String clientIP, String agent) {
-        return serviceName + UtilsAndCommons.CACHE_KEY_SPLITER + agent;
-    }
-
     public void serviceChanged(final String namespaceId, final String serviceName) {
 
         // merge some change events to reduce the push frequency:
-        if (futureMap.containsKey(UtilsAndCommons.assembleFullServiceName(namespaceId, serviceName))) {
-            return;
+        String serviceKey = UtilsAndCommons.assembleFullServiceName(namespaceId, serviceName);
+        while (true) {
+            PushWindow window = pushWindows.get(serviceKey);
+            if (window == null) {
+                pushWindows.putIfAbsent(serviceKey, new PushWindow(namespaceId, serviceName));
+                window = pushWindows.get(serviceKey);
+            }
+
+            if (window.changed(System.currentTimeMillis())) {
+                return;
+            }
+
+            // retired by the cleaner, replace it:
+            pushWindows.remove(serviceKey, window);
         }
+    }
 
-        Future future = udpSender.schedule(new Runnable() {
-            @Override
-            public void run() {
-                try {
-                    Loggers.PUSH.info(serviceName + " is changed, add it to push queue.");
-                    ConcurrentMap<String, PushClient> clients = clientMap.get(UtilsAndCommons.assembleFullServiceName(namespaceId, serviceName));
-                    if (MapUtils.isEmpty(clients)) {
-                        return;
+    private void push(String namespaceId, String serviceName) {
+        try {
+            Loggers.PUSH.info(serviceName + " is changed, add it to push queue.");
+            ConcurrentMap<String, PushClient> clients = clientMap.get(UtilsAndCommons.assembleFullServiceName(namespaceId, serviceName));
+            if (MapUtils.isEmpty(clients)) {
+                return;
+            }
+
+            // clients with the same data key share the encoded data of this push:
+            Map<String, Receiver.AckEntry> cache = new HashMap<>(16);
+            long lastRefTime = System.nanoTime();
+            for (PushClient client : clients.values()) {
+                if (client.zombie()) {
+                    Loggers.PUSH.debug("client is zombie: " + client.toString());
+                    clients.remove(client.toString());
+                    Loggers.PUSH.debug("client is zombie: " + client.toString());
+                    continue;
+                }
+
+                Receiver.AckEntry ackEntry;
+                Loggers.PUSH.debug("push serviceName: {} to client: {}", serviceName, client.toString());
+                String key = client.getDataSource().getDataKey(client);
+                Receiver.AckEntry encoded = key == null ? null : cache.get(key);
+
+                if (encoded != null) {
+                    ackEntry = prepareAckEntry(client, encoded.origin.getData(), encoded.data, lastRefTime);
+
+                    Loggers.PUSH.debug("[PUSH-CACHE] cache hit: {}:{}", serviceName, client.getAddrStr());
+                } else {
+                    long start = System.nanoTime();
+                    ackEntry = prepareAckEntry(client, prepareHostsData(client), lastRefTime);
+                    updateMax(maxEncodeMicros, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+                    if (ackEntry != null && key != null) {
+                        cache.put(key, ackEntry);
                     }
+                }
 
-                    Map<String, Object> cache = new HashMap<>(16);
-                    long lastRefTime = System.nanoTime();
-                    for (PushClient client : clients.values()) {
-                        if (client.zombie()) {
-                            Loggers.PUSH.debug("client is zombie: " + client.toString());
-                            clients.remove(client.toString());
-                            Loggers.PUSH.debug("client is zombie: " + client.toString());
-                            continue;
-                        }
+                Loggers.PUSH.info("serviceName: {} changed, schedule push for: {}, agent: {}, key: {}",
+                    client.getServiceName(), client.getAddrStr(), client.getAgent(),  (ackEntry == null ? null : ackEntry.key));
 
-                        Receiver.AckEntry ackEntry;
-                        Loggers.PUSH.debug("push serviceName: {} to client: {}", serviceName, client.toString());
-                        String key = getPushCacheKey(serviceName, client.getIp(), client.getAgent());
-                        byte[] compressData = null;
-                        Map<String, Object> data = null;
-                        if (switchDomain.getDefaultPushCacheMillis() >= 20000 && cache.containsKey(key)) {
-                            org.javatuples.Pair pair = (org.javatuples.Pair) cache.get(key);
-                            compressData = (byte[]) (pair.getValue0());
-                            data = (Map<String, Object>) pair.getValue1();
-
-                            Loggers.PUSH.debug("[PUSH-CACHE] cache hit: {}:{}", serviceName, client.getAddrStr());
-                        }
+                // the data of this push supersedes what the client has not acked yet:
+                Receiver.AckEntry lastPush = client.lastPush;
+                if (lastPush != null) {
+                    removeAckEntry(lastPush);
+                }
+                client.lastPush = ackEntry;
 
-                        if (compressData != null) {
-                            ackEntry = prepareAckEntry(client, compressData, data, lastRefTime);
-                        } else {
-                            ackEntry = prepareAckEntry(client, prepareHostsData(client), lastRefTime);
-                            if (ackEntry != null) {
-                                cache.put(key, new org.javatuples.Pair<>(ackEntry.origin.getData(), ackEntry.data));
-                            }
-                        }
+                udpPush(ackEntry);
+            }
+        } catch (Exception e) {
+            Loggers.PUSH.error("[NACOS-PUSH] failed to push serviceName: {} to client, error: {}", serviceName, e);
+        }
+    }
 
-                        Loggers.PUSH.info("serviceName: {} changed, schedule push for: {}, agent: {}, key: {}",
-                            client.getServiceName(), client.getAddrStr(), client.getAgent(),  (ackEntry == null ? null : ackEntry.key));
+    /**
+     * Coalesces the changes of a service into pushes.
+     * <p>
+     * Changes are held back until they stop for a while, but not longer than the max delay since the first of them.
+     * After a quiet period they only have to stop for the short first delay, changes that follow a push have to stop
+     * for the debounce time.
+     */
+    private class PushWindow {
 
-                        udpPush(ackEntry);
-                    }
-                } catch (Exception e) {
-                    Loggers.PUSH.error("[NACOS-PUSH] failed to push serviceName: {} to client, error: {}", serviceName, e);
+        private final String namespaceId;
+
+        private final String serviceName;
+
+        private long firstChangeMillis;
+
+        private long lastChangeMillis;
+
+        private long lastPushMillis;
+
+        private boolean scheduled = false;
+
+        private long quietMillis;
+
+        private boolean retired = false;
+
+        PushWindow(String namespaceId, String serviceName) {
+            this.namespaceId = namespaceId;
+            this.serviceName = serviceName;
+        }
+
+        /**
+         * @return false if the window has been retired and must be replaced
+         */
+        synchronized boolean changed(long now) {
+            if (retired) {
+                return false;
+            }
+
+            lastChangeMillis = now;
+            if (scheduled) {
+                return true;
+            }
+
+            scheduled = true;
+            firstChangeMillis = now;
+            quietMillis = now - lastPushMillis < switchDomain.getPushDebounceMillis() ?
+                switchDomain.getPushDebounceMillis() : switchDomain.getPushFirstDelayMillis();
+            schedule(quietMillis);
+            return true;
+        }
 
-                } finally {
-                    futureMap.remove(UtilsAndCommons.assembleFullServiceName(namespaceId, serviceName));
+        synchronized boolean retireIfIdle(long now) {
+            if (!scheduled && now - lastPushMillis > PUSH_WINDOW_IDLE_MILLIS) {
+                retired = true;
+            }
+            return retired;
+        }
+
+        private void schedule(long delayMillis) {
+            pushEncoder.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    flush();
+                }
+            }, delayMillis, TimeUnit.MILLISECONDS);
+        }
+
+        private void flush() {
+            long now = System.currentTimeMillis();
+            synchronized (this) {
+                long deadline = Math.min(lastChangeMillis + quietMillis,
+                    firstChangeMillis + switchDomain.getPushMaxDelayMillis());
+                if (now < deadline) {
+                    schedule(deadline - now);
+                    return;
                 }
 
+                scheduled = false;
+                lastPushMillis = now;
+                MetricsMonitor.getPushDelayTimer().record(now - firstChangeMillis, TimeUnit.MILLISECONDS);
             }
-        }, 1000, TimeUnit.MILLISECONDS);
 
-        futureMap.put(UtilsAndCommons.assembleFullServiceName(namespaceId, serviceName), future);
+            // changes from now on go to the next push:
+            push(namespaceId, serviceName);
+        }
     }
 
     public boolean canEnablePush(String agent) {
@@ -314,16 +511,18 @@ public class PushService {
     }
 
     public int getFailedPushCount() {
-        return ackMap.size() + failedPush;
+        return ackMap.size() + failedPush.get();
     }
 
     public void setFailedPush(int failedPush) {
-        PushService.failedPush = failedPush;
+        PushService.failedPush.set(failedPush);
     }
 
 
     public static void resetPushState() {
-        ackMap.clear();
+        for (Receiver.AckEntry ackEntry : ackMap.values()) {
+            removeAckEntry(ackEntry);
+        }
     }
 
     public class PushClient {
@@ -347,6 +546,8 @@ public class PushService {
 
         public long lastRefTime = System.currentTimeMillis();
 
+        private volatile Receiver.AckEntry lastPush;
+
         public PushClient(String namespaceId,
                           String serviceName,
                           String clusters,
@@ -520,7 +721,7 @@ public class PushService {
         }
     }
 
-    private static Receiver.AckEntry udpPush(Receiver.AckEntry ackEntry) {
+    private static Receiver.AckEntry udpPush(final Receiver.AckEntry ackEntry) {
         if (ackEntry == null) {
             Loggers.PUSH.error("[NACOS-PUSH] ackEntry is null.");
             return null;
@@ -528,36 +729,119 @@ public class PushService {
 
         if (ackEntry.getRetryTimes() > MAX_RETRY_TIMES) {
             Loggers.PUSH.warn("max re-push times reached, retry times {}, key: {}", ackEntry.retryTimes, ackEntry.key);
-            ackMap.remove(ackEntry.key);
-            udpSendTimeMap.remove(ackEntry.key);
-            failedPush += 1;
+            if (removeAckEntry(ackEntry)) {
+                failedPush.incrementAndGet();
+            }
             return ackEntry;
         }
 
-        try {
-            if (!ackMap.containsKey(ackEntry.key)) {
-                totalPush++;
+        if (ackEntry.getRetryTimes() == 0) {
+            if (!acquireInFlight(ackEntry.clientAddr)) {
+                Loggers.PUSH.warn("[NACOS-PUSH] too many pushes waiting for ack, drop push, key: {}", ackEntry.key);
+                failedPush.incrementAndGet();
+                return null;
             }
-            ackMap.put(ackEntry.key, ackEntry);
-            udpSendTimeMap.put(ackEntry.key, System.currentTimeMillis());
+            totalPush.incrementAndGet();
 
-            Loggers.PUSH.info("send udp packet: " + ackEntry.key);
-            udpSocket.send(ackEntry.origin);
+            // clients of different clusters on the same address get the same key in one push:
+            Receiver.AckEntry previous = ackMap.put(ackEntry.key, ackEntry);
+            if (previous != null && previous != ackEntry) {
+                releaseInFlight(previous.clientAddr);
+                RETRANSMIT_WHEEL.cancel(previous);
+            }
+        } else {
+            retransmittedPush.incrementAndGet();
+        }
+
+        long now = System.currentTimeMillis();
+        ackEntry.lastSendMillis = now;
+        ackEntry.increaseRetryTime();
+
+        // packets of a client always go through the same channel, so they are not reordered:
+        final int index = (ackEntry.origin.getSocketAddress().hashCode() & Integer.MAX_VALUE) % UDP_SENDER_COUNT;
+        udpSenders[index].execute(new Runnable() {
+            @Override
+            public void run() {
+                send(udpChannels[index], ackEntry);
+            }
+        });
 
-            ackEntry.increaseRetryTime();
+        RETRANSMIT_WHEEL.schedule(ackEntry, now + (RETRANSMIT_BASE_MILLIS << (ackEntry.getRetryTimes() - 1)));
 
-            executorService.schedule(new Retransmitter(ackEntry), TimeUnit.NANOSECONDS.toMillis(ACK_TIMEOUT_NANOS),
-                    TimeUnit.MILLISECONDS);
+        return ackEntry;
+    }
 
-            return ackEntry;
+    /**
+     * @return true if the push was still waiting for ack
+     */
+    private static boolean removeAckEntry(Receiver.AckEntry ackEntry) {
+        if (!ackMap.remove(ackEntry.key, ackEntry)) {
+            return false;
+        }
+
+        releaseInFlight(ackEntry.clientAddr);
+        RETRANSMIT_WHEEL.cancel(ackEntry);
+        return true;
+    }
+
+    private static boolean acquireInFlight(String clientAddr) {
+        if (inFlight.incrementAndGet() > MAX_IN_FLIGHT) {
+            inFlight.decrementAndGet();
+            return false;
+        }
+
+        boolean[] acquired = new boolean[1];
+        clientInFlight.compute(clientAddr, (addr, count) -> {
+            if (count == null) {
+                acquired[0] = true;
+                return 1;
+            }
+            if (count >= MAX_CLIENT_IN_FLIGHT) {
+                return count;
+            }
+            acquired[0] = true;
+            return count + 1;
+        });
+
+        if (!acquired[0]) {
+            inFlight.decrementAndGet();
+        }
+        return acquired[0];
+    }
+
+    private static void releaseInFlight(String clientAddr) {
+        inFlight.decrementAndGet();
+        clientInFlight.computeIfPresent(clientAddr, (addr, count) -> count > 1 ? count - 1 : null);
+    }
+
+    private static void send(DatagramChannel channel, Receiver.AckEntry ackEntry) {
+        DatagramPacket packet = ackEntry.origin;
+        // the encoded data is shared by all clients of a push, only wrap it:
+        ByteBuffer buffer = ByteBuffer.wrap(packet.getData(), packet.getOffset(), packet.getLength());
+        try {
+            Loggers.PUSH.info("send udp packet: " + ackEntry.key);
+            for (int i = 0; i < MAX_SEND_ATTEMPTS; i++) {
+                if (channel.send(buffer, packet.getSocketAddress()) > 0) {
+                    pushedBytes.addAndGet(packet.getLength());
+                    return;
+                }
+                // the send buffer of the socket is full, give it some time to drain:
+                LockSupport.parkNanos(SEND_RETRY_NANOS);
+            }
+            Loggers.PUSH.warn("[NACOS-PUSH] send buffer full, leave packet to retransmission, key: {}", ackEntry.key);
         } catch (Exception e) {
             Loggers.PUSH.error("[NACOS-PUSH] failed to push data: {} to client: {}, error: {}",
-                ackEntry.data, ackEntry.origin.getAddress().getHostAddress(), e);
-            ackMap.remove(ackEntry.key);
-            udpSendTimeMap.remove(ackEntry.key);
-            failedPush += 1;
+                ackEntry.data, packet.getAddress().getHostAddress(), e);
+            if (removeAckEntry(ackEntry)) {
+                failedPush.incrementAndGet();
+            }
+        }
+    }
 
-            return null;
+    private static void updateMax(AtomicLong max, long value) {
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
         }
     }
 
@@ -565,70 +849,90 @@ public class PushService {
         return StringUtils.strip(host) + "," + port + "," + lastRefTime;
     }
 
-    public static class Retransmitter implements Runnable {
-        Receiver.AckEntry ackEntry;
+    public static class Receiver implements Runnable {
 
-        public Retransmitter(Receiver.AckEntry ackEntry) {
-            this.ackEntry = ackEntry;
-        }
+        private final Selector selector;
 
-        @Override
-        public void run() {
-            if (ackMap.containsKey(ackEntry.key)) {
-                Loggers.PUSH.info("retry to push data, key: " + ackEntry.key);
-                udpPush(ackEntry);
-            }
+        public Receiver(Selector selector) {
+            this.selector = selector;
         }
-    }
 
-    public static class Receiver implements Runnable {
         @Override
         public void run() {
+            ByteBuffer buffer = ByteBuffer.allocate(1024 * 64);
             while (true) {
-                byte[] buffer = new byte[1024 * 64];
-                DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
-
                 try {
-                    udpSocket.receive(packet);
-
-                    String json = new String(packet.getData(), 0, packet.getLength(), Charset.forName("UTF-8")).trim();
-                    AckPacket ackPacket = JSON.parseObject(json, AckPacket.class);
+                    selector.select();
+
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+
+                        DatagramChannel channel = (DatagramChannel) key.channel();
+                        SocketAddress address;
+                        buffer.clear();
+                        while ((address = channel.receive(buffer)) != null) {
+                            buffer.flip();
+                            String json = new String(buffer.array(), 0, buffer.limit(), Charset.forName("UTF-8")).trim();
+                            buffer.clear();
+                            receive(json, (InetSocketAddress) address);
+                        }
+                    }
+                } catch (Throwable e) {
+                    Loggers.PUSH.error("[NACOS-PUSH] error while receiving ack data", e);
+                }
+            }
+        }
 
-                    InetSocketAddress socketAddress = (InetSocketAddress) packet.getSocketAddress();
-                    String ip = socketAddress.getAddress().getHostAddress();
-                    int port = socketAddress.getPort();
+        private void receive(String json, InetSocketAddress socketAddress) {
+            try {
+                AckPacket ackPacket = JSON.parseObject(json, AckPacket.class);
 
-                    if (System.nanoTime() - ackPacket.lastRefTime > ACK_TIMEOUT_NANOS) {
-                        Loggers.PUSH.warn("ack takes too long from {} ack json: {}",packet.getSocketAddress(), json);
-                    }
+                String ip = socketAddress.getAddress().getHostAddress();
+                int port = socketAddress.getPort();
 
-                    String ackKey = getACKKey(ip, port, ackPacket.lastRefTime);
-                    AckEntry ackEntry = ackMap.remove(ackKey);
-                    if (ackEntry == null) {
-                        throw new IllegalStateException("unable to find ackEntry for key: " + ackKey
-                                + ", ack json: " + json);
-                    }
+                if (System.nanoTime() - ackPacket.lastRefTime > ACK_TIMEOUT_NANOS) {
+                    Loggers.PUSH.warn("ack takes too long from {} ack json: {}", socketAddress, json);
+                }
 
-                    long pushCost = System.currentTimeMillis() - udpSendTimeMap.get(ackKey);
+                String ackKey = getACKKey(ip, port, ackPacket.lastRefTime);
+                AckEntry ackEntry = ackMap.get(ackKey);
+                if (ackEntry == null || !removeAckEntry(ackEntry)) {
+                    throw new IllegalStateException("unable to find ackEntry for key: " + ackKey
+                            + ", ack json: " + json);
+                }
+                ackedPush.incrementAndGet();
 
-                    Loggers.PUSH.info("received ack: {} from: {}:, cost: {} ms, unacked: {}, total push: {}",
-                        json, ip, port, pushCost, ackMap.size(), totalPush);
+                long pushCost = System.currentTimeMillis() - ackEntry.lastSendMillis;
 
-                    pushCostMap.put(ackKey, pushCost);
+                Loggers.PUSH.info("received ack: {} from: {}:, cost: {} ms, unacked: {}, total push: {}",
+                    json, ip, port, pushCost, ackMap.size(), totalPush);
 
-                    udpSendTimeMap.remove(ackKey);
+                pushCostMap.put(ackKey, pushCost);
 
-                } catch (Throwable e) {
-                    Loggers.PUSH.error("[NACOS-PUSH] error while receiving ack data", e);
-                }
+            } catch (Throwable e) {
+                Loggers.PUSH.error("[NACOS-PUSH] error while receiving ack data", e);
             }
         }
 
-        public static class AckEntry {
+        /**
+         * A push waiting for ack, it expires on the retransmit wheel when the ack is overdue.
+         */
+        public static class AckEntry extends TimingWheel.Timeout {
 
             public AckEntry(String key, DatagramPacket packet) {
                 this.key = key;
                 this.origin = packet;
+                this.clientAddr = packet.getAddress().getHostAddress() + ":" + packet.getPort();
+            }
+
+            @Override
+            protected void expire() {
+                if (ackMap.get(key) == this) {
+                    Loggers.PUSH.info("retry to push data, key: " + key);
+                    udpPush(this);
+                }
             }
 
             public void increaseRetryTime() {
@@ -641,6 +945,8 @@ public class PushService {
 
             public String key;
             public DatagramPacket origin;
+            private final String clientAddr;
+            private volatile long lastSendMillis;
             private AtomicInteger retryTimes = new AtomicInteger(0);
             public Map<String, Object> data;
         }
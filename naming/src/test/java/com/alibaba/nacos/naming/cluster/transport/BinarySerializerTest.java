@@ -0,0 +1,133 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.naming.cluster.transport;
+
+import com.alibaba.fastjson.TypeReference;
+import com.alibaba.nacos.naming.consistency.Datum;
+import com.alibaba.nacos.naming.consistency.KeyBuilder;
+import com.alibaba.nacos.naming.core.Instance;
+import com.alibaba.nacos.naming.core.Instances;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * @author nacos
+ */
+public class BinarySerializerTest {
+
+    private BinarySerializer binarySerializer = new BinarySerializer();
+
+    private FastJsonSerializer fastJsonSerializer = new FastJsonSerializer();
+
+    @Test
+    public void sameResultAsFastJson() {
+
+        Map<String, Datum> datumMap = buildDatumMap(100, 10);
+
+        byte[] binary = binarySerializer.serialize(datumMap);
+        byte[] json = fastJsonSerializer.serialize(datumMap);
+
+        Assert.assertTrue(BinarySerializer.isBinary(binary));
+        Assert.assertFalse(BinarySerializer.isBinary(json));
+        Assert.assertTrue(binary.length < json.length);
+
+        Map<String, Datum<Instances>> fromBinary = binarySerializer.deserializeMap(binary, Instances.class);
+        Map<String, Datum<Instances>> fromJson = fastJsonSerializer.deserializeMap(json, Instances.class);
+
+        Assert.assertEquals(fromJson.size(), fromBinary.size());
+        for (Map.Entry<String, Datum<Instances>> entry : fromJson.entrySet()) {
+            Datum<Instances> expected = entry.getValue();
+            Datum<Instances> actual = fromBinary.get(entry.getKey());
+
+            Assert.assertEquals(expected.key, actual.key);
+            Assert.assertEquals(expected.timestamp.get(), actual.timestamp.get());
+            Assert.assertEquals(expected.value.getChecksum(), actual.value.getChecksum());
+
+            for (int i = 0; i < expected.value.getInstanceList().size(); i++) {
+                Instance expectedInstance = expected.value.getInstanceList().get(i);
+                Instance actualInstance = actual.value.getInstanceList().get(i);
+                Assert.assertEquals(expectedInstance.getServiceName(), actualInstance.getServiceName());
+                Assert.assertEquals(expectedInstance.getLastBeat(), actualInstance.getLastBeat());
+                Assert.assertEquals(expectedInstance.isEphemeral(), actualInstance.isEphemeral());
+                Assert.assertEquals(expectedInstance.isMarked(), actualInstance.isMarked());
+            }
+        }
+    }
+
+    @Test
+    public void keepMockValid() {
+
+        Map<String, Datum> datumMap = buildDatumMap(2, 4);
+
+        Map<String, Datum<Instances>> result = binarySerializer.deserializeMap(binarySerializer.serialize(datumMap),
+            Instances.class);
+
+        for (Map.Entry<String, Datum> entry : datumMap.entrySet()) {
+            Instances expected = (Instances) entry.getValue().value;
+            Instances actual = result.get(entry.getKey()).value;
+            for (int i = 0; i < expected.getInstanceList().size(); i++) {
+                Assert.assertEquals(expected.getInstanceList().get(i).isMockValid(),
+                    actual.getInstanceList().get(i).isMockValid());
+            }
+        }
+    }
+
+    @Test
+    public void fallbackToFastJson() {
+
+        Map<String, String> checksums = new HashMap<>(2);
+        checksums.put("key", "checksum");
+
+        byte[] data = binarySerializer.serialize(checksums);
+        Assert.assertFalse(BinarySerializer.isBinary(data));
+
+        Map<String, String> result = binarySerializer.deserialize(data, new TypeReference<Map<String, String>>() {
+        });
+        Assert.assertEquals("checksum", result.get("key"));
+    }
+
+    private Map<String, Datum> buildDatumMap(int serviceCount, int instanceCount) {
+
+        Map<String, Datum> datumMap = new HashMap<>(serviceCount);
+        for (int i = 0; i < serviceCount; i++) {
+            String serviceName = "nacos.test." + i;
+
+            Instances instances = new Instances();
+            instances.setInstanceList(new ArrayList<Instance>());
+            for (int j = 0; j < instanceCount; j++) {
+                Instance instance = new Instance("10.0." + i + "." + j, 8080);
+                instance.setServiceName(serviceName);
+                instance.setWeight(j + 0.5);
+                instance.setHealthy(j % 2 == 0);
+                instance.setMarked(j % 3 == 0);
+                instance.setMockValid(j % 2 == 1);
+                instance.getMetadata().put("version", String.valueOf(j));
+                instances.getInstanceList().add(instance);
+            }
+
+            Datum<Instances> datum = new Datum<>();
+            datum.key = KeyBuilder.buildInstanceListKey("public", serviceName, true);
+            datum.value = instances;
+            datum.timestamp.set(i);
+            datumMap.put(datum.key, datum);
+        }
+        return datumMap;
+    }
+}
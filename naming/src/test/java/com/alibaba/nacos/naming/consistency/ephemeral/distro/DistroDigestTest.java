@@ -0,0 +1,101 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.naming.consistency.ephemeral.distro;
+
+import com.alibaba.nacos.naming.core.Instance;
+import com.alibaba.nacos.naming.core.Instances;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author nacos
+ */
+public class DistroDigestTest {
+
+    @Test
+    public void sameDataSameRoot() {
+
+        DistroDigest a = new DistroDigest();
+        DistroDigest b = new DistroDigest();
+        for (int i = 0; i < 1000; i++) {
+            a.add("key." + i, instances(i, true));
+        }
+        for (int i = 999; i >= 0; i--) {
+            b.add("key." + i, instances(i, true));
+        }
+
+        Assert.assertEquals(a.getRoot(), b.getRoot());
+        Assert.assertTrue(a.diffGroups(b.getGroups()).isEmpty());
+    }
+
+    @Test
+    public void healthFlipOnlyDiffersInOneBucket() {
+
+        DistroDigest a = new DistroDigest();
+        DistroDigest b = new DistroDigest();
+        for (int i = 0; i < 1000; i++) {
+            a.add("key." + i, instances(i, true));
+            b.add("key." + i, instances(i, i != 42));
+        }
+
+        Assert.assertNotEquals(a.getRoot(), b.getRoot());
+
+        List<Integer> groups = a.diffGroups(b.getGroups());
+        Assert.assertEquals(1, groups.size());
+
+        List<Integer> buckets = a.diffBuckets(groups.get(0), b.getBuckets(groups.get(0)));
+        Assert.assertEquals(1, buckets.size());
+        Assert.assertEquals(DistroDigest.bucketOf("key.42"), (int) buckets.get(0));
+    }
+
+    @Test
+    public void removeAndAddSameAsRebuild() {
+
+        DistroDigest incremental = new DistroDigest();
+        for (int i = 0; i < 1000; i++) {
+            incremental.add("key." + i, instances(i, true));
+        }
+        DistroDigest before = incremental.copy();
+
+        incremental.remove("key.42", DistroDigest.hash("key.42", instances(42, true)));
+        incremental.add("key.42", instances(42, false));
+        incremental.remove("key.7", DistroDigest.hash("key.7", instances(7, true)));
+
+        DistroDigest rebuilt = new DistroDigest();
+        for (int i = 0; i < 1000; i++) {
+            if (i != 7) {
+                rebuilt.add("key." + i, instances(i, i != 42));
+            }
+        }
+
+        Assert.assertEquals(rebuilt.getRoot(), incremental.getRoot());
+        Assert.assertNotEquals(before.getRoot(), incremental.getRoot());
+        Assert.assertFalse(incremental.isEmpty());
+    }
+
+    private Instances instances(int index, boolean healthy) {
+        Instance instance = new Instance("1.1.1." + (index % 256), 8080 + index);
+        instance.setHealthy(healthy);
+        List<Instance> instanceList = new ArrayList<>();
+        instanceList.add(instance);
+        Instances instances = new Instances();
+        instances.setInstanceList(instanceList);
+        return instances;
+    }
+}
@@ -21,9 +21,12 @@ import com.alibaba.fastjson.JSONObject;
 import com.alibaba.nacos.api.common.Constants;
 import com.alibaba.nacos.naming.BaseTest;
 import com.alibaba.nacos.naming.consistency.persistent.raft.RaftPeerSet;
+import com.alibaba.nacos.naming.core.CachedInstanceList;
 import com.alibaba.nacos.naming.core.Cluster;
+import com.alibaba.nacos.naming.core.DistroMapper;
 import com.alibaba.nacos.naming.core.Instance;
 import com.alibaba.nacos.naming.core.Service;
+import com.alibaba.nacos.naming.misc.SwitchDomain;
 import com.alibaba.nacos.naming.misc.UtilsAndCommons;
 import org.junit.Assert;
 import org.junit.Before;
@@ -32,6 +35,7 @@ import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.mock.web.MockServletContext;
 import org.springframework.test.context.ContextConfiguration;
@@ -44,6 +48,7 @@ import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * @author nkorange
@@ -59,6 +64,12 @@ public class InstanceControllerTest extends BaseTest {
     @Mock
     private RaftPeerSet peerSet;
 
+    @Mock
+    private DistroMapper distroMapper;
+
+    @Mock
+    private SwitchDomain switchDomain;
+
     private MockMvc mockmvc;
 
     @Before
@@ -152,4 +163,281 @@ public class InstanceControllerTest extends BaseTest {
         Assert.assertEquals(8888, host.getIntValue("port"));
         Assert.assertEquals(2.0, host.getDoubleValue("weight"), 0.001);
     }
+
+    @Test
+    public void bulkBeat() throws Exception {
+
+        Service service = new Service();
+        service.setName("DEFAULT_GROUP@@nacos.test.1");
+
+        Instance instance = new Instance();
+        instance.setIp("1.1.1.1");
+        instance.setPort(9999);
+
+        Mockito.when(distroMapper.responsible(Mockito.anyString())).thenReturn(true);
+        Mockito.when(switchDomain.isDefaultInstanceEphemeral()).thenReturn(true);
+        Mockito.when(switchDomain.getClientBeatInterval()).thenReturn(5000L);
+        Mockito.when(serviceManager.getInstance(Constants.DEFAULT_NAMESPACE_ID, "DEFAULT_GROUP@@nacos.test.1",
+            UtilsAndCommons.DEFAULT_CLUSTER_NAME, "1.1.1.1", 9999)).thenReturn(instance);
+        Mockito.when(serviceManager.getService(Constants.DEFAULT_NAMESPACE_ID, "DEFAULT_GROUP@@nacos.test.1"))
+            .thenReturn(service);
+
+        JSONArray beats = new JSONArray();
+        JSONObject beat = new JSONObject();
+        beat.put("serviceName", "nacos.test.1");
+        beat.put("ip", "1.1.1.1");
+        beat.put("port", 9999);
+        beats.add(beat);
+        beat = new JSONObject();
+        beat.put("ip", "1.1.1.2");
+        beat.put("port", 9999);
+        beats.add(beat);
+
+        MockHttpServletRequestBuilder builder =
+            MockMvcRequestBuilders.put(UtilsAndCommons.NACOS_NAMING_CONTEXT + "/instance/beats")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(beats.toJSONString());
+        JSONObject result = JSON.parseObject(mockmvc.perform(builder).andReturn().getResponse().getContentAsString());
+
+        Assert.assertEquals(5000L, result.getLongValue("clientBeatInterval"));
+        JSONArray codes = result.getJSONArray("results");
+        Assert.assertEquals(2, codes.size());
+        Assert.assertEquals(200, codes.getIntValue(0));
+        Assert.assertEquals(400, codes.getIntValue(1));
+    }
+
+    @Test
+    public void listsOnlyChangedServices() throws Exception {
+
+        Service service1 = new Service();
+        service1.setName("DEFAULT_GROUP@@nacos.test.1");
+        Service service2 = new Service();
+        service2.setName("DEFAULT_GROUP@@nacos.test.2");
+
+        for (Service service : new Service[] {service1, service2}) {
+            Cluster cluster = new Cluster();
+            cluster.setName(UtilsAndCommons.DEFAULT_CLUSTER_NAME);
+            cluster.setService(service);
+            service.addCluster(cluster);
+
+            Instance instance = new Instance();
+            instance.setIp("10.10.10.10");
+            instance.setPort(8888);
+            List<Instance> ipList = new ArrayList<Instance>();
+            ipList.add(instance);
+            service.updateIPs(ipList, false);
+
+            Mockito.when(serviceManager.getService(Constants.DEFAULT_NAMESPACE_ID, service.getName())).thenReturn(service);
+        }
+
+        JSONArray subscriptions = new JSONArray();
+        JSONObject subscription = new JSONObject();
+        subscription.put("serviceName", service1.getName());
+        subscription.put("checksum", service1.getChecksum());
+        subscriptions.add(subscription);
+        subscription = new JSONObject();
+        subscription.put("serviceName", service2.getName());
+        subscription.put("checksum", "outdated");
+        subscriptions.add(subscription);
+
+        MockHttpServletRequestBuilder builder =
+            MockMvcRequestBuilders.put(UtilsAndCommons.NACOS_NAMING_CONTEXT + "/instance/lists")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(subscriptions.toJSONString());
+        JSONObject result = JSON.parseObject(mockmvc.perform(builder).andReturn().getResponse().getContentAsString());
+
+        JSONArray services = result.getJSONArray("services");
+        Assert.assertEquals(1, services.size());
+        Assert.assertEquals(service2.getName(), services.getJSONObject(0).getString("name"));
+        Assert.assertEquals(service2.getChecksum(), services.getJSONObject(0).getString("checksum"));
+    }
+
+    @Test
+    public void listReusesEncodedInstancesUntilChanged() throws Exception {
+
+        Service service = new Service();
+        service.setName("DEFAULT_GROUP@@nacos.test.1");
+
+        Cluster cluster = new Cluster();
+        cluster.setName(UtilsAndCommons.DEFAULT_CLUSTER_NAME);
+        cluster.setService(service);
+        service.addCluster(cluster);
+
+        List<Instance> ipList = new ArrayList<Instance>();
+        for (int i = 0; i < 2; i++) {
+            Instance instance = new Instance();
+            instance.setIp("10.10.10." + i);
+            instance.setPort(8888);
+            ipList.add(instance);
+        }
+        service.updateIPs(ipList, false);
+
+        Mockito.when(serviceManager.getService(Constants.DEFAULT_NAMESPACE_ID, service.getName())).thenReturn(service);
+
+        MockHttpServletRequestBuilder builder =
+            MockMvcRequestBuilders.get(UtilsAndCommons.NACOS_NAMING_CONTEXT + "/instance/list")
+                .param("serviceName", service.getName())
+                .param("healthyOnly", "true");
+
+        JSONObject result = JSON.parseObject(mockmvc.perform(builder).andReturn().getResponse().getContentAsString());
+        Assert.assertEquals(2, result.getJSONArray("hosts").size());
+        Assert.assertEquals(service.getChecksum(), result.getString("checksum"));
+
+        CachedInstanceList cached = service.getCachedInstanceList(
+            UtilsAndCommons.DEFAULT_CLUSTER_NAME + UtilsAndCommons.CACHE_KEY_SPLITER + true
+                + UtilsAndCommons.CACHE_KEY_SPLITER + false);
+        Assert.assertNotNull(cached);
+
+        // a health flip only changes the checksum:
+        ipList.get(0).setHealthy(false);
+        result = JSON.parseObject(mockmvc.perform(builder).andReturn().getResponse().getContentAsString());
+        Assert.assertEquals(1, result.getJSONArray("hosts").size());
+        Assert.assertEquals("10.10.10.1", result.getJSONArray("hosts").getJSONObject(0).getString("ip"));
+
+        Instance instance = new Instance();
+        instance.setIp("10.10.10.2");
+        instance.setPort(8888);
+        ipList.add(instance);
+        service.updateIPs(ipList, false);
+        result = JSON.parseObject(mockmvc.perform(builder).andReturn().getResponse().getContentAsString());
+        Assert.assertEquals(2, result.getJSONArray("hosts").size());
+        Assert.assertNotSame(cached, service.getCachedInstanceList(
+            UtilsAndCommons.DEFAULT_CLUSTER_NAME + UtilsAndCommons.CACHE_KEY_SPLITER + true
+                + UtilsAndCommons.CACHE_KEY_SPLITER + false));
+    }
+
+    @Test
+    public void listChecksumMatchesCachedInstances() throws Exception {
+
+        AtomicBoolean flipOnCacheHit = new AtomicBoolean(false);
+        Service service = serviceFlippingOnCacheHit(flipOnCacheHit);
+
+        MockHttpServletRequestBuilder builder =
+            MockMvcRequestBuilders.get(UtilsAndCommons.NACOS_NAMING_CONTEXT + "/instance/list")
+                .param("serviceName", service.getName())
+                .param("healthyOnly", "true");
+
+        JSONObject result = JSON.parseObject(mockmvc.perform(builder).andReturn().getResponse().getContentAsString());
+        String checksum = result.getString("checksum");
+        Assert.assertEquals(2, result.getJSONArray("hosts").size());
+
+        flipOnCacheHit.set(true);
+        result = JSON.parseObject(mockmvc.perform(builder).andReturn().getResponse().getContentAsString());
+        Assert.assertNotEquals(checksum, service.getChecksum());
+        // the hosts are the ones of the old checksum, so is the checksum returned with them:
+        Assert.assertEquals(2, result.getJSONArray("hosts").size());
+        Assert.assertEquals(checksum, result.getString("checksum"));
+
+        result = JSON.parseObject(mockmvc.perform(builder).andReturn().getResponse().getContentAsString());
+        Assert.assertEquals(1, result.getJSONArray("hosts").size());
+        Assert.assertEquals(service.getChecksum(), result.getString("checksum"));
+    }
+
+    @Test
+    public void listCheckAnswersEmptyUnlessNoInstance() throws Exception {
+
+        Service service = new Service();
+        service.setName("DEFAULT_GROUP@@nacos.test.1");
+
+        Cluster cluster = new Cluster();
+        cluster.setName(UtilsAndCommons.DEFAULT_CLUSTER_NAME);
+        cluster.setService(service);
+        service.addCluster(cluster);
+
+        Mockito.when(serviceManager.getService(Constants.DEFAULT_NAMESPACE_ID, service.getName())).thenReturn(service);
+
+        MockHttpServletRequestBuilder builder =
+            MockMvcRequestBuilders.get(UtilsAndCommons.NACOS_NAMING_CONTEXT + "/instance/list")
+                .param("serviceName", service.getName())
+                .param("isCheck", "true");
+
+        JSONObject result = JSON.parseObject(mockmvc.perform(builder).andReturn().getResponse().getContentAsString());
+        Assert.assertEquals(0, result.getJSONArray("hosts").size());
+        Assert.assertEquals(service.getName(), result.getString("name"));
+        Assert.assertEquals(service.getChecksum(), result.getString("checksum"));
+
+        Instance instance = new Instance();
+        instance.setIp("10.10.10.10");
+        instance.setPort(8888);
+        instance.setHealthy(false);
+        List<Instance> ipList = new ArrayList<Instance>();
+        ipList.add(instance);
+        service.updateIPs(ipList, false);
+
+        String content = mockmvc.perform(builder.param("healthyOnly", "true")).andReturn().getResponse()
+            .getContentAsString();
+        Assert.assertEquals("{}", content);
+    }
+
+    @Test
+    public void listsReturnsServiceBehindStaleChecksum() throws Exception {
+
+        AtomicBoolean flipOnCacheHit = new AtomicBoolean(false);
+        Service service = serviceFlippingOnCacheHit(flipOnCacheHit);
+
+        MockHttpServletRequestBuilder builder =
+            MockMvcRequestBuilders.get(UtilsAndCommons.NACOS_NAMING_CONTEXT + "/instance/list")
+                .param("serviceName", service.getName())
+                .param("healthyOnly", "true");
+        mockmvc.perform(builder);
+
+        // the response served while the service changed:
+        flipOnCacheHit.set(true);
+        JSONObject stale = JSON.parseObject(mockmvc.perform(builder).andReturn().getResponse().getContentAsString());
+        Assert.assertEquals(2, stale.getJSONArray("hosts").size());
+
+        JSONArray subscriptions = new JSONArray();
+        JSONObject subscription = new JSONObject();
+        subscription.put("serviceName", service.getName());
+        subscription.put("checksum", stale.getString("checksum"));
+        subscriptions.add(subscription);
+
+        builder = MockMvcRequestBuilders.put(UtilsAndCommons.NACOS_NAMING_CONTEXT + "/instance/lists")
+            .param("healthyOnly", "true")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(subscriptions.toJSONString());
+        JSONObject result = JSON.parseObject(mockmvc.perform(builder).andReturn().getResponse().getContentAsString());
+
+        JSONArray services = result.getJSONArray("services");
+        Assert.assertEquals(1, services.size());
+        Assert.assertEquals(1, services.getJSONObject(0).getJSONArray("hosts").size());
+        Assert.assertEquals(service.getChecksum(), services.getJSONObject(0).getString("checksum"));
+    }
+
+    /**
+     * @return a service with two healthy instances, the first one turns unhealthy when the service is asked for a
+     * cached instance list while the flag is set
+     */
+    private Service serviceFlippingOnCacheHit(final AtomicBoolean flipOnCacheHit) {
+
+        final List<Instance> ipList = new ArrayList<Instance>();
+        Service service = new Service() {
+            @Override
+            public CachedInstanceList getCachedInstanceList(String key) {
+                CachedInstanceList instanceList = super.getCachedInstanceList(key);
+                if (instanceList != null && flipOnCacheHit.compareAndSet(true, false)) {
+                    // the service changes right after the cached list was picked:
+                    ipList.get(0).setHealthy(false);
+                }
+                return instanceList;
+            }
+        };
+        service.setName("DEFAULT_GROUP@@nacos.test.1");
+
+        Cluster cluster = new Cluster();
+        cluster.setName(UtilsAndCommons.DEFAULT_CLUSTER_NAME);
+        cluster.setService(service);
+        service.addCluster(cluster);
+
+        for (int i = 0; i < 2; i++) {
+            Instance instance = new Instance();
+            instance.setIp("10.10.10." + i);
+            instance.setPort(8888);
+            ipList.add(instance);
+        }
+        service.updateIPs(ipList, false);
+
+        Mockito.when(serviceManager.getService(Constants.DEFAULT_NAMESPACE_ID, service.getName())).thenReturn(service);
+        return service;
+    }
 }
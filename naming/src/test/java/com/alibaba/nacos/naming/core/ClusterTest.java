@@ -97,4 +97,62 @@ public class ClusterTest {
         Assert.assertEquals("1.1.1.1", ips.get(1).getIp());
         Assert.assertEquals(2345, ips.get(1).getPort());
     }
+
+    @Test
+    public void instanceChecksumFollowsHealthFlips() {
+
+        Instance instance1 = new Instance("1.1.1.1", 1234);
+        Instance instance2 = new Instance("1.1.1.1", 2345);
+
+        List<Instance> list = new ArrayList<Instance>();
+        list.add(instance1);
+        list.add(instance2);
+
+        cluster.updateIPs(list, false);
+        long healthy = cluster.getInstanceChecksum();
+
+        instance2.setHealthy(false);
+        Assert.assertNotEquals(healthy, cluster.getInstanceChecksum());
+
+        instance2.setHealthy(true);
+        Assert.assertEquals(healthy, cluster.getInstanceChecksum());
+
+        List<Instance> reversed = new ArrayList<Instance>();
+        reversed.add(new Instance("1.1.1.1", 2345));
+        reversed.add(new Instance("1.1.1.1", 1234));
+
+        cluster.updateIPs(reversed, false);
+        Assert.assertEquals(healthy, cluster.getInstanceChecksum());
+
+        // instances of the replaced set do not count any more:
+        instance1.setHealthy(false);
+        Assert.assertEquals(healthy, cluster.getInstanceChecksum());
+    }
+
+    @Test
+    public void getInstance() {
+
+        Instance instance1 = new Instance("1.1.1.1", 1234);
+        instance1.setInstanceId("instance-1");
+        Instance instance2 = new Instance("1.1.1.1", 2345);
+        instance2.setEphemeral(false);
+
+        List<Instance> ephemeralList = new ArrayList<Instance>();
+        ephemeralList.add(instance1);
+        cluster.updateIPs(ephemeralList, true);
+
+        List<Instance> persistentList = new ArrayList<Instance>();
+        persistentList.add(instance2);
+        cluster.updateIPs(persistentList, false);
+
+        Assert.assertSame(instance1, cluster.getInstance("1.1.1.1", 1234));
+        Assert.assertSame(instance2, cluster.getInstance("1.1.1.1", 2345));
+        Assert.assertNull(cluster.getInstance("1.1.1.1", 2345, true));
+        Assert.assertNull(cluster.getInstance("1.1.1.2", 1234));
+        Assert.assertSame(instance1, cluster.getInstanceById("instance-1"));
+
+        cluster.updateIPs(new ArrayList<Instance>(), true);
+        Assert.assertNull(cluster.getInstance("1.1.1.1", 1234));
+        Assert.assertSame(instance2, cluster.getInstance("1.1.1.1", 2345));
+    }
 }
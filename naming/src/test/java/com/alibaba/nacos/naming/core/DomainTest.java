@@ -71,6 +71,22 @@ public class DomainTest {
         Assert.assertTrue(clusterMap.containsKey("nacos-cluster-1"));
     }
 
+    @Test
+    public void existingClusters() {
+        Cluster cluster = new Cluster();
+        cluster.setName("nacos-cluster-1");
+        service.addCluster(cluster);
+
+        List<String> all = new ArrayList<String>();
+        all.add(UtilsAndCommons.DEFAULT_CLUSTER_NAME);
+        all.add("nacos-cluster-1");
+
+        Assert.assertEquals(all, service.existingClusters(""));
+        Assert.assertEquals(all, service.existingClusters(
+            "nacos-cluster-1,unknown," + UtilsAndCommons.DEFAULT_CLUSTER_NAME + ",nacos-cluster-1"));
+        Assert.assertTrue(service.existingClusters("unknown-1,unknown-2").isEmpty());
+    }
+
     @Test
     public void updateIps() throws Exception {
 
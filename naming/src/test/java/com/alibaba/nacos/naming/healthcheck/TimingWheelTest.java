@@ -0,0 +1,88 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.naming.healthcheck;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author nacos
+ */
+public class TimingWheelTest {
+
+    private List<TestTimeout> expired = new ArrayList<>();
+
+    private long now;
+
+    @Test
+    public void expireOnlyDueTimeouts() {
+
+        TimingWheel wheel = new TimingWheel(100L, 8);
+        now = System.currentTimeMillis();
+
+        TestTimeout soon = new TestTimeout(now + 300L);
+        TestTimeout later = new TestTimeout(now + 60000L);
+        TestTimeout cancelled = new TestTimeout(now + 500L);
+        wheel.schedule(soon, soon.deadline);
+        wheel.schedule(later, later.deadline);
+        wheel.schedule(cancelled, cancelled.deadline);
+        wheel.cancel(cancelled);
+
+        advance(wheel, 1000L);
+        Assert.assertEquals(1, expired.size());
+        Assert.assertSame(soon, expired.get(0));
+
+        // moving a timeout forward replaces its old deadline:
+        later.deadline = now + 120000L;
+        wheel.schedule(later, later.deadline);
+        advance(wheel, 60000L);
+        Assert.assertEquals(1, expired.size());
+
+        advance(wheel, 60000L);
+        Assert.assertEquals(2, expired.size());
+        Assert.assertSame(later, expired.get(1));
+        Assert.assertTrue(later.expiredAt >= later.deadline - 100L);
+        Assert.assertTrue(later.expiredAt < later.deadline + 200L);
+    }
+
+    private void advance(TimingWheel wheel, long millis) {
+        long end = now + millis;
+        while (now < end) {
+            now += 50L;
+            wheel.advance(now);
+        }
+    }
+
+    private class TestTimeout extends TimingWheel.Timeout {
+
+        private long deadline;
+
+        private long expiredAt;
+
+        TestTimeout(long deadline) {
+            this.deadline = deadline;
+        }
+
+        @Override
+        protected void expire() {
+            expiredAt = now;
+            expired.add(this);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.naming.raft;
+
+import com.alibaba.nacos.naming.consistency.persistent.raft.RaftChangeIndex;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+/**
+ * @author nacos
+ */
+public class RaftChangeIndexTest {
+
+    @Test
+    public void deltaOnlyContainsChangedKeys() {
+
+        RaftChangeIndex index = new RaftChangeIndex();
+        for (int i = 0; i < 100000; i++) {
+            index.put("key." + i, 1L);
+        }
+
+        long from = index.getIndex();
+        index.put("key.1", 2L);
+        index.remove("key.2");
+        index.put("key.1", 3L);
+
+        List<RaftChangeIndex.Change> changes = index.since(from);
+        Assert.assertEquals(2, changes.size());
+        Assert.assertEquals("key.2", changes.get(0).getKey());
+        Assert.assertTrue(changes.get(0).isDeleted());
+        Assert.assertEquals("key.1", changes.get(1).getKey());
+        Assert.assertEquals(3L, changes.get(1).getTimestamp());
+
+        Assert.assertEquals(0, index.since(index.getIndex()).size());
+        Assert.assertEquals(99999, index.size());
+    }
+
+    @Test
+    public void digestIsOrderIndependent() {
+
+        RaftChangeIndex leader = new RaftChangeIndex();
+        RaftChangeIndex follower = new RaftChangeIndex();
+
+        for (int i = 0; i < 1000; i++) {
+            leader.put("key." + i, i);
+        }
+        leader.remove("key.10");
+        leader.put("key.20", 5000L);
+
+        for (int i = 999; i >= 0; i--) {
+            if (i != 10) {
+                follower.put("key." + i, i == 20 ? 5000L : i);
+            }
+        }
+
+        Assert.assertEquals(leader.getDigest(), follower.getDigest());
+
+        follower.put("key.30", 31L);
+        Assert.assertNotEquals(leader.getDigest(), follower.getDigest());
+    }
+
+    @Test
+    public void compactedTombstonesRequireFullSync() {
+
+        RaftChangeIndex index = new RaftChangeIndex(10);
+        for (int i = 0; i < 100; i++) {
+            index.put("key." + i, 1L);
+        }
+
+        long from = index.getIndex();
+        for (int i = 0; i < 30; i++) {
+            index.remove("key." + i);
+        }
+
+        Assert.assertNull(index.since(from));
+        Assert.assertNotNull(index.since(index.getIndex()));
+        Assert.assertEquals(70, index.size());
+    }
+}
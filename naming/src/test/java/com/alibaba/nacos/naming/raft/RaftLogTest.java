@@ -0,0 +1,179 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.naming.raft;
+
+import com.alibaba.nacos.naming.consistency.Datum;
+import com.alibaba.nacos.naming.consistency.KeyBuilder;
+import com.alibaba.nacos.naming.consistency.persistent.raft.RaftLog;
+import com.alibaba.nacos.naming.core.Instance;
+import com.alibaba.nacos.naming.core.Instances;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * @author nacos
+ */
+public class RaftLogTest {
+
+    private File dir;
+
+    @Before
+    public void before() throws Exception {
+        dir = Files.createTempDirectory("raft-log").toFile();
+    }
+
+    @After
+    public void after() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void replayAfterRestart() throws Exception {
+
+        RaftLog log = new RaftLog(dir, 1024 * 1024, 1024 * 1024);
+        Assert.assertTrue(log.isEmpty());
+        log.importDatums(Collections.<Datum>emptyList());
+        log.start();
+
+        log.append(buildDatum("public", "nacos.test.1", 1L));
+        log.append(buildDatum("public", "nacos.test.2", 1L));
+        log.append(buildDatum("public", "nacos.test.1", 2L));
+        log.delete(KeyBuilder.buildInstanceListKey("public", "nacos.test.2", false));
+        log.close();
+
+        Map<String, Datum> datums = new RaftLog(dir, 1024 * 1024, 1024 * 1024).load();
+
+        Assert.assertEquals(1, datums.size());
+        Datum datum = datums.get(KeyBuilder.buildInstanceListKey("public", "nacos.test.1", false));
+        Assert.assertNotNull(datum);
+        Assert.assertEquals(2L, datum.timestamp.get());
+        Assert.assertEquals(1, ((Instances) datum.value).getInstanceList().size());
+    }
+
+    @Test
+    public void compact() throws Exception {
+
+        RaftLog log = new RaftLog(dir, 1024, 4 * 1024);
+        log.importDatums(Collections.<Datum>emptyList());
+        log.start();
+
+        for (int i = 0; i < 200; i++) {
+            log.append(buildDatum("public", "nacos.test." + (i % 10), i));
+        }
+
+        // waits for the background compaction:
+        log.close();
+
+        long firstSegmentId = firstSegmentOfSnapshot();
+        Assert.assertTrue(firstSegmentId > 1L);
+        for (File segment : listFiles(".log")) {
+            Assert.assertTrue(Long.parseLong(segment.getName().replace(".log", "")) >= firstSegmentId);
+        }
+        Assert.assertEquals(0, listFiles(".tmp").length);
+
+        Map<String, Datum> datums = new RaftLog(dir, 1024, 4 * 1024).load();
+        Assert.assertEquals(10, datums.size());
+        for (int i = 0; i < 10; i++) {
+            Datum datum = datums.get(KeyBuilder.buildInstanceListKey("public", "nacos.test." + i, false));
+            Assert.assertEquals(190L + i, datum.timestamp.get());
+            Assert.assertEquals(1, ((Instances) datum.value).getInstanceList().size());
+        }
+    }
+
+    @Test
+    public void recoverSnapshotLeftAsTemp() throws Exception {
+
+        RaftLog log = new RaftLog(dir, 1024 * 1024, 1024 * 1024);
+        log.importDatums(Collections.<Datum>singletonList(buildDatum("public", "nacos.test.1", 1L)));
+
+        // crash after the old snapshot was removed but before the new one was renamed into place:
+        Assert.assertTrue(new File(dir, "snapshot").renameTo(new File(dir, "snapshot.tmp")));
+
+        Map<String, Datum> datums = new RaftLog(dir, 1024 * 1024, 1024 * 1024).load();
+        Assert.assertEquals(1, datums.size());
+        Assert.assertTrue(new File(dir, "snapshot").exists());
+        Assert.assertFalse(new File(dir, "snapshot.tmp").exists());
+    }
+
+    @Test
+    public void ignoreRecordWithCorruptedLength() throws Exception {
+
+        RaftLog log = new RaftLog(dir, 1024 * 1024, 1024 * 1024);
+        log.importDatums(Collections.<Datum>emptyList());
+        log.start();
+        log.append(buildDatum("public", "nacos.test.1", 1L));
+
+        File segment = listFiles(".log")[0];
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(segment, true))) {
+            out.writeInt(Integer.MAX_VALUE);
+            out.writeInt(0);
+        }
+        log.close();
+
+        Map<String, Datum> datums = new RaftLog(dir, 1024 * 1024, 1024 * 1024).load();
+        Assert.assertEquals(1, datums.size());
+    }
+
+    private File[] listFiles(final String suffix) {
+        File[] files = dir.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.endsWith(suffix);
+            }
+        });
+        return files == null ? new File[0] : files;
+    }
+
+    private long firstSegmentOfSnapshot() throws Exception {
+        try (DataInputStream in = new DataInputStream(new FileInputStream(new File(dir, "snapshot")))) {
+            return in.readLong();
+        }
+    }
+
+    private Datum buildDatum(String namespaceId, String serviceName, long timestamp) {
+        Instance instance = new Instance("1.1.1.1", 8080);
+        instance.setEphemeral(false);
+
+        Instances instances = new Instances();
+        instances.setInstanceList(new ArrayList<Instance>());
+        instances.getInstanceList().add(instance);
+
+        Datum<Instances> datum = new Datum<>();
+        datum.key = KeyBuilder.buildInstanceListKey(namespaceId, serviceName, false);
+        datum.value = instances;
+        datum.timestamp.set(timestamp);
+        return datum;
+    }
+}